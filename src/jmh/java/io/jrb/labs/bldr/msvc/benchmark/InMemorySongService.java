@@ -0,0 +1,212 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.crud.EntityLookup;
+import io.jrb.labs.common.crud.EntityPage;
+import io.jrb.labs.common.crud.ExportChunk;
+import io.jrb.labs.common.crud.UnknownEntityException;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+/**
+ * Serves a fixed set of songs from memory, so that the handler benchmarks measure the request pipelines without any
+ * database round trip. Writes return the stored song unchanged, and bulk writes report the outcome each item would
+ * have against the stored songs, which they leave unchanged as well.
+ */
+class InMemorySongService implements ISongService {
+
+    private final Map<String, SongEntity> songs = new TreeMap<>();
+
+    InMemorySongService(final List<SongEntity> songs) {
+        songs.forEach(song -> this.songs.put(song.getId(), song));
+    }
+
+    @Override
+    public Flux<SongEntity> all() {
+        return Flux.fromIterable(songs.values());
+    }
+
+    @Override
+    public Flux<SongEntity> allVersions() {
+        return all().map(song -> SongEntity.builder().id(song.getId()).version(song.getVersion()).build());
+    }
+
+    @Override
+    public Collection<String> compressedProperties() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Collection<String> unpatchableProperties() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Mono<SongEntity> create(final SongEntity entity) {
+        return Mono.just(entity);
+    }
+
+    @Override
+    public Flux<BulkItemResult> createAll(final List<SongEntity> entities) {
+        return bulk(entities, (index, song) -> song.getId() != null && songs.containsKey(song.getId())
+                ? result(index, song.getId(), BulkItemStatus.FAILED).message("duplicate key").build()
+                : result(index, song.getId() != null ? song.getId() : UUID.randomUUID().toString(),
+                        BulkItemStatus.CREATED).build());
+    }
+
+    @Override
+    public Flux<BulkItemResult> deleteAll(final List<String> ids) {
+        return bulk(ids, (index, id) ->
+                result(index, id, songs.containsKey(id) ? BulkItemStatus.DELETED : BulkItemStatus.NOT_FOUND).build());
+    }
+
+    @Override
+    public Mono<SongEntity> delete(final String id) {
+        return get(id);
+    }
+
+    @Override
+    public Mono<SongEntity> delete(final String id, final Long expectedVersion) {
+        return get(id);
+    }
+
+    @Override
+    public Flux<ExportChunk<SongEntity>> export(final String checkpoint) {
+        return Flux.just(ExportChunk.of(new ArrayList<>(songs.values()), null));
+    }
+
+    @Override
+    public Mono<SongEntity> findByTitle(final String title) {
+        return all().filter(song -> title.equalsIgnoreCase(song.getTitle())).next();
+    }
+
+    @Override
+    public Mono<SongEntity> get(final String id) {
+        final SongEntity song = songs.get(id);
+        return song != null ? Mono.just(song) : Mono.error(new UnknownEntityException(SongEntity.class, id));
+    }
+
+    @Override
+    public Mono<EntityLookup<SongEntity>> getAll(final Collection<String> ids) {
+        return Mono.fromSupplier(() -> EntityLookup.of(new ArrayList<>(ids), songs));
+    }
+
+    @Override
+    public Mono<EntityPage<SongEntity>> page(final String pageToken, final int limit) {
+        return Mono.fromSupplier(() -> firstPage(limit));
+    }
+
+    @Override
+    public Mono<EntityPage<SongEntity>> metadataPage(final String pageToken, final int limit) {
+        return Mono.fromSupplier(() -> firstPage(limit));
+    }
+
+    @Override
+    public Mono<SongEntity> patch(final String id, final Update update) {
+        return get(id);
+    }
+
+    @Override
+    public Mono<SongEntity> patch(final String id, final Update update, final Long expectedVersion) {
+        return get(id);
+    }
+
+    @Override
+    public Mono<SongEntity> patch(
+            final String id,
+            final Update update,
+            final Long expectedVersion,
+            final Collection<Criteria> conditions
+    ) {
+        return get(id);
+    }
+
+    @Override
+    public Flux<BulkItemResult> upsertAll(final List<SongEntity> entities) {
+        return bulk(entities, (index, song) -> song.getId() != null && songs.containsKey(song.getId())
+                ? result(index, song.getId(), BulkItemStatus.UPDATED).build()
+                : result(index, song.getId() != null ? song.getId() : UUID.randomUUID().toString(),
+                        BulkItemStatus.CREATED).build());
+    }
+
+    @Override
+    public Mono<SongEntity> upsertBySource(final String sourceSystem, final String sourceId, final SongEntity song) {
+        return Mono.just(song);
+    }
+
+    @Override
+    public Flux<BulkItemResult> upsertAllBySource(final List<SongEntity> songs) {
+        return bulk(songs, (index, song) -> this.songs.values().stream()
+                .filter(stored -> song.getSource() != null && song.getSource().equals(stored.getSource()))
+                .findFirst()
+                .map(stored -> result(index, stored.getId(), BulkItemStatus.UPDATED).build())
+                .orElseGet(() -> result(index, UUID.randomUUID().toString(), BulkItemStatus.CREATED).build()));
+    }
+
+    @Override
+    public Mono<SongEntity> update(final String id, final SongEntity entity) {
+        return get(id);
+    }
+
+    @Override
+    public Mono<SongEntity> update(final String id, final SongEntity entity, final Long expectedVersion) {
+        return get(id);
+    }
+
+    private <T> Flux<BulkItemResult> bulk(final List<T> items, final BiFunction<Integer, T, BulkItemResult> result) {
+        return Flux.range(0, items.size()).map(index -> result.apply(index, items.get(index)));
+    }
+
+    private BulkItemResult.BulkItemResultBuilder result(final int index, final String id, final BulkItemStatus status) {
+        return BulkItemResult.builder().index(index).id(id).status(status);
+    }
+
+    private EntityPage<SongEntity> firstPage(final int limit) {
+        final List<SongEntity> entities = new ArrayList<>(limit + 1);
+        for (final SongEntity song : songs.values()) {
+            if (entities.size() > limit) {
+                break;
+            }
+            entities.add(song);
+        }
+        return EntityPage.of(entities, limit);
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongSource;
+import io.jrb.labs.bldr.msvc.module.song.model.SongType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Creates the songs shared by the benchmarks. Songs are generated from a fixed seed, so that every run measures the
+ * same data.
+ */
+public final class SongBenchmarkUtils {
+
+    /**
+     * The song sizes, from a short chorus to a very long song with many verses.
+     */
+    public enum SongSize {
+        SMALL(2, 4),
+        MEDIUM(8, 8),
+        LARGE(64, 16);
+
+        private final int stanzas;
+        private final int linesPerStanza;
+
+        SongSize(final int stanzas, final int linesPerStanza) {
+            this.stanzas = stanzas;
+            this.linesPerStanza = linesPerStanza;
+        }
+    }
+
+    private static final long SEED = 42L;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+
+    private static final SongEntityConverter CONVERTER = new SongEntityConverter();
+
+    private SongBenchmarkUtils() {}
+
+    /**
+     * Creates an object mapper configured like the one of the application.
+     *
+     * @return the object mapper
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    public static Song createSong(final String id, final SongSize size) {
+        return CONVERTER.entityToDto(createSongEntity(id, size));
+    }
+
+    public static SongEntity createSongEntity(final String id, final SongSize size) {
+        return createSongEntity(id, size, SEED);
+    }
+
+    /**
+     * Creates a song whose words are generated from the given seed, so that songs created with different seeds differ.
+     *
+     * @param id the song identifier
+     * @param size the song size
+     * @param seed the seed of the words
+     * @return the song
+     */
+    public static SongEntity createSongEntity(final String id, final SongSize size, final long seed) {
+        final Random random = new Random(seed);
+        final Map<String, List<String>> lyrics = new LinkedHashMap<>();
+        for (int i = 1; i <= size.stanzas; i++) {
+            lyrics.put("v" + i, words(random, size.linesPerStanza, 8));
+        }
+        return SongEntity.builder()
+                .id(id)
+                .version(1L)
+                .type(SongType.NORMAL)
+                .title(sentence(random, 4))
+                .authors(words(random, 2, 2))
+                .additionalTitles(words(random, 1, 4))
+                .themes(words(random, 3, 1))
+                .lyrics(lyrics)
+                .lyricOrder(new ArrayList<>(lyrics.keySet()))
+                .source(SongSource.builder().sourceSystem("ccli").sourceId(id).build())
+                .build();
+    }
+
+    private static List<String> words(final Random random, final int count, final int wordsPerLine) {
+        final List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add(sentence(random, wordsPerLine));
+        }
+        return lines;
+    }
+
+    private static String sentence(final Random random, final int words) {
+        final StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            final int length = 2 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                sentence.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return sentence.toString();
+    }
+
+}
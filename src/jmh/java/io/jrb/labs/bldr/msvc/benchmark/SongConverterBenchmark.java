@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Measures the conversions between songs and their entities, which run on every request.
+ */
+@State(Scope.Benchmark)
+public class SongConverterBenchmark {
+
+    @Param
+    private SongSize size;
+
+    private SongEntityConverter converter;
+    private Song song;
+    private SongEntity songEntity;
+
+    @Setup
+    public void setup() {
+        converter = new SongEntityConverter();
+        song = SongBenchmarkUtils.createSong("song-1", size);
+        songEntity = SongBenchmarkUtils.createSongEntity("song-1", size);
+    }
+
+    @Benchmark
+    public SongEntity dtoToEntity() {
+        return converter.dtoToEntity(song);
+    }
+
+    @Benchmark
+    public Song entityToDto() {
+        return converter.entityToDto(songEntity);
+    }
+
+    @Benchmark
+    public SongMetadata entityToMetadata() {
+        return converter.entityToMetadata(songEntity);
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Compares the encodings offered to song clients, JSON, CBOR and Smile, on the cost of encoding and decoding songs and
+ * on the size of their payloads, which is reported as a secondary result.
+ */
+@State(Scope.Benchmark)
+public class SongFormatBenchmark {
+
+    public enum Format {
+        JSON(Jackson2ObjectMapperBuilder::json),
+        CBOR(Jackson2ObjectMapperBuilder::cbor),
+        SMILE(Jackson2ObjectMapperBuilder::smile);
+
+        private final Supplier<Jackson2ObjectMapperBuilder> builder;
+
+        Format(final Supplier<Jackson2ObjectMapperBuilder> builder) {
+            this.builder = builder;
+        }
+
+        ObjectMapper objectMapper() {
+            return builder.get().build();
+        }
+    }
+
+    /**
+     * Records the size of the payload written by the last encoding.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    @Param
+    private Format format;
+
+    @Param
+    private SongSize size;
+
+    private ObjectWriter songWriter;
+    private ObjectWriter metadataWriter;
+    private ObjectReader songReader;
+    private ObjectReader metadataReader;
+    private Song song;
+    private SongMetadata songMetadata;
+    private byte[] songPayload;
+    private byte[] metadataPayload;
+
+    @Setup
+    public void setup() throws IOException {
+        final ObjectMapper objectMapper = format.objectMapper();
+        songWriter = objectMapper.writerFor(Song.class);
+        metadataWriter = objectMapper.writerFor(SongMetadata.class);
+        songReader = objectMapper.readerFor(Song.class);
+        metadataReader = objectMapper.readerFor(SongMetadata.class);
+        song = SongBenchmarkUtils.createSong("song-1", size);
+        songMetadata = new SongEntityConverter()
+                .entityToMetadata(SongBenchmarkUtils.createSongEntity("song-1", size));
+        songPayload = songWriter.writeValueAsBytes(song);
+        metadataPayload = metadataWriter.writeValueAsBytes(songMetadata);
+    }
+
+    @Benchmark
+    public byte[] encodeSong(final PayloadSize payloadSize) throws IOException {
+        final byte[] payload = songWriter.writeValueAsBytes(song);
+        payloadSize.bytes = payload.length;
+        return payload;
+    }
+
+    @Benchmark
+    public byte[] encodeSongMetadata(final PayloadSize payloadSize) throws IOException {
+        final byte[] payload = metadataWriter.writeValueAsBytes(songMetadata);
+        payloadSize.bytes = payload.length;
+        return payload;
+    }
+
+    @Benchmark
+    public Song decodeSong() throws IOException {
+        return songReader.readValue(songPayload);
+    }
+
+    @Benchmark
+    public SongMetadata decodeSongMetadata() throws IOException {
+        return metadataReader.readValue(metadataPayload);
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.rest.SongHandler;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.JsonPatchUtils;
+import io.jrb.labs.common.rest.cache.CaffeineResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Measures the Reactor pipelines of the song handler end to end, from the request to the encoded response body, with
+ * the songs served from memory. The cached variants serve the song detail from the encoded response body cache.
+ */
+@State(Scope.Benchmark)
+public class SongHandlerBenchmark {
+
+    private static final String SONG_PATH = "/api/v1/song/";
+    private static final String SONG_ID_FIELD = "songId";
+    private static final String SONG_ID = "song-00001";
+    private static final int SONG_COUNT = 101;
+    private static final String PATCH = "[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"}]";
+
+    @Param
+    private SongSize size;
+
+    private HandlerStrategies strategies;
+    private ServerResponse.Context context;
+    private SongHandler handler;
+    private SongHandler cachedHandler;
+
+    @Setup
+    public void setup() {
+        final ObjectMapper objectMapper = SongBenchmarkUtils.objectMapper();
+        strategies = HandlerStrategies.builder()
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                })
+                .build();
+        context = new ServerResponse.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return strategies.messageWriters();
+            }
+
+            @Override
+            public List<ViewResolver> viewResolvers() {
+                return Collections.emptyList();
+            }
+        };
+        final List<SongEntity> songs = new ArrayList<>(SONG_COUNT);
+        for (int i = 1; i <= SONG_COUNT; i++) {
+            songs.add(SongBenchmarkUtils.createSongEntity(String.format("song-%05d", i), size));
+        }
+        handler = new SongHandler(objectMapper, new InMemorySongService(songs), new SongEntityConverter(), null,
+                CrudHandlerOptions.defaults());
+        final ResponseBodyCache<SongEntity> responseCache = new CaffeineResponseBodyCache<>(
+                "song-responses", SongEntity.class, ResponseBodyCacheConfig.DEFAULT, new SimpleMeterRegistry());
+        cachedHandler = new SongHandler(objectMapper, new InMemorySongService(songs), new SongEntityConverter(), null,
+                CrudHandlerOptions.<SongEntity>builder().responseCache(responseCache).build());
+    }
+
+    @Benchmark
+    public MockServerHttpResponse getSong() {
+        return exchange(MockServerHttpRequest.get(SONG_PATH + SONG_ID).build(), handler::getEntity);
+    }
+
+    @Benchmark
+    public MockServerHttpResponse getSongCached() {
+        return exchange(MockServerHttpRequest.get(SONG_PATH + SONG_ID).build(), cachedHandler::getEntity);
+    }
+
+    @Benchmark
+    public MockServerHttpResponse getSongCachedGzip() {
+        return exchange(MockServerHttpRequest.get(SONG_PATH + SONG_ID)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), cachedHandler::getEntity);
+    }
+
+    @Benchmark
+    public MockServerHttpResponse getSongPage() {
+        return exchange(MockServerHttpRequest.get(SONG_PATH + "?limit=100").build(), handler::retrieveEntities);
+    }
+
+    @Benchmark
+    public MockServerHttpResponse patchSong() {
+        return exchange(MockServerHttpRequest.patch(SONG_PATH + SONG_ID)
+                .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .body(PATCH), handler::patchEntity);
+    }
+
+    private MockServerHttpResponse exchange(
+            final MockServerHttpRequest httpRequest,
+            final Function<ServerRequest, Mono<ServerResponse>> handlerFunction
+    ) {
+        final MockServerWebExchange exchange = MockServerWebExchange.from(httpRequest);
+        exchange.getAttributes().put(RouterFunctions.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Collections.singletonMap(SONG_ID_FIELD, SONG_ID));
+        final ServerRequest request = ServerRequest.create(exchange, strategies.messageReaders());
+        return handlerFunction.apply(request)
+                .flatMap(response -> response.writeTo(exchange, context))
+                .then(Mono.fromSupplier(exchange::getResponse))
+                .block();
+    }
+
+}
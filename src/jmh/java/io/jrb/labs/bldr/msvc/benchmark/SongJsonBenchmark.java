@@ -0,0 +1,110 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Measures the Jackson serialization of songs and of their metadata projections. The size of each serialized payload
+ * is reported as a secondary result, so that the bytes saved by listing metadata rather than full songs can be
+ * tracked along with the time saved.
+ */
+@State(Scope.Benchmark)
+public class SongJsonBenchmark {
+
+    /**
+     * Records the size of the payload written by the last serialization.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    @Param
+    private SongSize size;
+
+    private ObjectWriter songWriter;
+    private ObjectWriter metadataWriter;
+    private ObjectReader songReader;
+    private Song song;
+    private SongMetadata songMetadata;
+    private byte[] songJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        final ObjectMapper objectMapper = SongBenchmarkUtils.objectMapper();
+        songWriter = objectMapper.writerFor(Song.class);
+        metadataWriter = objectMapper.writerFor(SongMetadata.class);
+        songReader = objectMapper.readerFor(Song.class);
+        song = SongBenchmarkUtils.createSong("song-1", size);
+        songMetadata = new SongEntityConverter()
+                .entityToMetadata(SongBenchmarkUtils.createSongEntity("song-1", size));
+        songJson = songWriter.writeValueAsBytes(song);
+    }
+
+    @Benchmark
+    public byte[] serializeSong(final PayloadSize payloadSize) throws JsonProcessingException {
+        final byte[] json = songWriter.writeValueAsBytes(song);
+        payloadSize.bytes = json.length;
+        return json;
+    }
+
+    @Benchmark
+    public byte[] serializeSongMetadata(final PayloadSize payloadSize) throws JsonProcessingException {
+        final byte[] json = metadataWriter.writeValueAsBytes(songMetadata);
+        payloadSize.bytes = json.length;
+        return json;
+    }
+
+    @Benchmark
+    public Song deserializeSong() throws IOException {
+        return songReader.readValue(songJson);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.common.rest.CompiledPatch;
+import io.jrb.labs.common.rest.JsonPatchCompiler;
+import io.jrb.labs.common.rest.JsonPatchUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Compares the two ways a JSON Patch is applied to a song: in memory, on a round trip through a JSON tree, or compiled
+ * into a Mongo update, whose cost does not depend on the size of the song.
+ */
+@State(Scope.Benchmark)
+public class SongPatchBenchmark {
+
+    private static final String PATCH =
+            "[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"},"
+                    + "{\"op\":\"add\",\"path\":\"/themes/-\",\"value\":\"grace\"},"
+                    + "{\"op\":\"add\",\"path\":\"/lyrics/v1/-\",\"value\":\"was blind but now I see\"}]";
+
+    @Param
+    private SongSize size;
+
+    private ObjectMapper objectMapper;
+    private JsonPatchCompiler patchCompiler;
+    private JsonNode patchNode;
+    private JsonPatch patch;
+    private Song song;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = SongBenchmarkUtils.objectMapper();
+        patchCompiler = new JsonPatchCompiler(objectMapper, Song.class);
+        patchNode = objectMapper.readTree(PATCH);
+        patch = JsonPatch.fromJson(patchNode);
+        song = SongBenchmarkUtils.createSong("song-1", size);
+    }
+
+    @Benchmark
+    public Song patchInMemory() {
+        return JsonPatchUtils.patch(objectMapper, patch, song, Song.class);
+    }
+
+    @Benchmark
+    public Optional<CompiledPatch> compilePatch() {
+        return patchCompiler.compile(patchNode);
+    }
+
+}
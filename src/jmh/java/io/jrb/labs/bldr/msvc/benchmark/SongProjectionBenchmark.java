@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Compares the listing of song metadata from whole stored documents and from documents projected down to the
+ * metadata fields, as Mongo returns them to metadata pages. Each operation decodes the BSON bytes a listing receives
+ * per song and converts them to metadata, and the number of bytes is reported as a secondary result.
+ */
+@State(Scope.Benchmark)
+public class SongProjectionBenchmark {
+
+    public enum Projection {
+        FULL,
+        METADATA
+    }
+
+    /**
+     * Records the size of the received document.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class DocumentSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    private static final List<String> METADATA_FIELDS = Arrays.asList("_id", "type", "title", "source");
+
+    @Param
+    private Projection projection;
+
+    @Param
+    private SongSize size;
+
+    private MappingMongoConverter converter;
+    private SongEntityConverter entityConverter;
+    private DocumentCodec codec;
+    private byte[] received;
+
+    @Setup
+    public void setup() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        entityConverter = new SongEntityConverter();
+        codec = new DocumentCodec();
+        final Document document = new Document();
+        converter.write(SongBenchmarkUtils.createSongEntity("song-1", size), document);
+        if (projection == Projection.METADATA) {
+            document.keySet().retainAll(METADATA_FIELDS);
+        }
+        final ByteBuffer buffer = new RawBsonDocument(document, codec).getByteBuffer().asNIO();
+        received = new byte[buffer.remaining()];
+        buffer.get(received);
+    }
+
+    @Benchmark
+    public SongMetadata readMetadata(final DocumentSize documentSize) {
+        documentSize.bytes = received.length;
+        final Document document = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(received)),
+                DecoderContext.builder().build());
+        return entityConverter.entityToMetadata(converter.read(SongEntity.class, document));
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.search.SongSearchIndex;
+import io.jrb.labs.common.search.SearchHit;
+import io.jrb.labs.common.search.SearchIndexConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Measures the latency of searches against a song index of the given number of medium songs, sampled so that the
+ * report includes the percentiles of the search time. The target is a p99 under 10 ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SongSearchBenchmark {
+
+    @Param({"1000", "10000"})
+    private int songCount;
+
+    private Path directory;
+    private SongSearchIndex index;
+    private String term;
+    private String phrase;
+
+    @Setup
+    public void setup() throws IOException {
+        final List<SongEntity> songs = IntStream.range(0, songCount)
+                .mapToObj(i -> SongBenchmarkUtils.createSongEntity("song-" + i, SongSize.MEDIUM, i))
+                .collect(Collectors.toList());
+        directory = Files.createTempDirectory("song-search");
+        final SearchIndexConfig config = new SearchIndexConfig(
+                directory, Duration.ofSeconds(1), Duration.ofMinutes(1), 100, Duration.ofHours(1));
+        index = new SongSearchIndex(config, new InMemorySongService(songs));
+        index.rebuild(new InMemorySongService(songs).all()).block();
+        final String[] words = songs.get(songCount / 2).getTitle().split(" ");
+        term = words[0];
+        phrase = "\"" + words[1] + " " + words[2] + "\"";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.destroy();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<SearchHit> searchTerm() {
+        return index.search(term, 20).block();
+    }
+
+    @Benchmark
+    public List<SearchHit> searchPhrase() {
+        return index.search(phrase, 20).block();
+    }
+
+}
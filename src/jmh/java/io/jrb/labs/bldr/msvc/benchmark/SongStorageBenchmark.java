@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.benchmark;
+
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import io.jrb.labs.common.storage.CompressedFields;
+import io.jrb.labs.common.storage.CompressedMapReadingConverter;
+import io.jrb.labs.common.storage.CompressingMongoConverter;
+import io.jrb.labs.common.storage.CompressionConfig;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static io.jrb.labs.bldr.msvc.benchmark.SongBenchmarkUtils.SongSize;
+
+/**
+ * Compares the storage of song lyrics as sub-documents and as compressed blocks, on the cost of writing and reading
+ * songs through the Mongo converter and on the size of the stored documents, which is reported as a secondary result.
+ * Metadata reads leave the lyrics untouched, as listings do, while full reads convert the song to its DTO.
+ */
+@State(Scope.Benchmark)
+public class SongStorageBenchmark {
+
+    public enum Storage {
+        PLAIN(false, 0),
+        DEFLATE_FAST(true, 1),
+        DEFLATE(true, 6),
+        DEFLATE_BEST(true, 9);
+
+        private final boolean compressed;
+        private final int level;
+
+        Storage(final boolean compressed, final int level) {
+            this.compressed = compressed;
+            this.level = level;
+        }
+
+        CompressionConfig config() {
+            return new CompressionConfig(compressed, level, false, 0, Duration.ZERO);
+        }
+    }
+
+    /**
+     * Records the size of the stored document.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class DocumentSize {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    @Param
+    private Storage storage;
+
+    @Param
+    private SongSize size;
+
+    private CompressingMongoConverter converter;
+    private SongEntityConverter entityConverter;
+    private SongEntity songEntity;
+    private Document document;
+    private long documentSize;
+
+    @Setup
+    public void setup() {
+        final MongoCustomConversions conversions =
+                new MongoCustomConversions(Collections.singletonList(new CompressedMapReadingConverter()));
+        final MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = new CompressingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext,
+                Collections.singletonList(CompressedFields.of(SongEntity.class, storage.config(), "lyrics")));
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        entityConverter = new SongEntityConverter();
+        songEntity = SongBenchmarkUtils.createSongEntity("song-1", size);
+        document = writeSong();
+        documentSize = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+    }
+
+    @Benchmark
+    public Document write(final DocumentSize documentSize) {
+        documentSize.bytes = this.documentSize;
+        return writeSong();
+    }
+
+    @Benchmark
+    public SongMetadata readMetadata() {
+        return entityConverter.entityToMetadata(converter.read(SongEntity.class, document));
+    }
+
+    @Benchmark
+    public Song read() {
+        return entityConverter.entityToDto(converter.read(SongEntity.class, document));
+    }
+
+    private Document writeSong() {
+        final Document songDocument = new Document();
+        converter.write(songEntity, songDocument);
+        return songDocument;
+    }
+
+}
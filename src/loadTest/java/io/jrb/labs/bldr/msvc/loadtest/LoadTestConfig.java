@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.loadtest;
+
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Holds the load test settings, read from the loadtest.* system properties:
+ * - loadtest.rate: the mean arrival rate, in requests per second (200)
+ * - loadtest.warmup: the warmup, whose requests are not reported (10s)
+ * - loadtest.duration: the measured run (60s)
+ * - loadtest.mix: the weight of each route, such as get:50,list:20,post:10,put:10,patch:5,delete:5
+ * - loadtest.seed-songs: the songs created before the run (1000)
+ * - loadtest.ingest-songs: the songs created both one at a time and in bulk to compare their throughput (2000)
+ * - loadtest.max-in-flight: the outstanding requests above which arrivals are dropped (2000)
+ * - loadtest.mongo-uri: a local Mongo to use instead of the embedded one
+ * - loadtest.report-dir: where the latency histograms are written (build/reports/loadtest)
+ */
+@Value
+public class LoadTestConfig {
+
+    private static final String PREFIX = "loadtest.";
+
+    private final double rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<SongRoute, Integer> mix;
+    private final int seedSongs;
+    private final int ingestSongs;
+    private final int maxInFlight;
+    private final Optional<String> mongoUri;
+    private final String reportDir;
+
+    public static LoadTestConfig fromSystemProperties() {
+        final double rate = Double.parseDouble(property("rate", "200"));
+        if (rate <= 0) {
+            throw new IllegalArgumentException(format("Arrival rate must be positive, not {0}!", rate));
+        }
+        return new LoadTestConfig(
+                rate,
+                DurationStyle.detectAndParse(property("warmup", "10s")),
+                DurationStyle.detectAndParse(property("duration", "60s")),
+                parseMix(System.getProperty(PREFIX + "mix")),
+                Integer.parseInt(property("seed-songs", "1000")),
+                Integer.parseInt(property("ingest-songs", "2000")),
+                Integer.parseInt(property("max-in-flight", "2000")),
+                Optional.ofNullable(System.getProperty(PREFIX + "mongo-uri")),
+                property("report-dir", "build/reports/loadtest")
+        );
+    }
+
+    private static String property(final String name, final String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+
+    private static Map<SongRoute, Integer> parseMix(final String mix) {
+        final Map<SongRoute, Integer> weights = new EnumMap<>(SongRoute.class);
+        if (mix == null) {
+            for (final SongRoute route : SongRoute.values()) {
+                weights.put(route, route.defaultWeight());
+            }
+        } else {
+            for (final String entry : mix.split(",")) {
+                final String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException(format("Invalid route weight {0}!", entry));
+                }
+                final int weight = Integer.parseInt(parts[1].trim());
+                if (weight < 0) {
+                    throw new IllegalArgumentException(format("Route weight must not be negative, not {0}!", entry));
+                }
+                weights.put(SongRoute.valueOf(parts[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException(format("Route mix {0} has no traffic!", mix));
+        }
+        return Collections.unmodifiableMap(weights);
+    }
+
+}
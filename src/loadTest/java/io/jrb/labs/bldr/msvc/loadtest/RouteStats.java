@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the outcome of the requests sent to one route. Latencies are measured from the time each request was due
+ * to be sent rather than from the time it was actually sent, so that a stalled client does not hide the wait of the
+ * requests queued behind it.
+ */
+class RouteStats {
+
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder latencies = new Recorder(HIGHEST_LATENCY, SIGNIFICANT_DIGITS);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    void recordSuccess(final long intendedStartNanos) {
+        latencies.recordValue(latencyMicros(intendedStartNanos));
+    }
+
+    void recordError(final long intendedStartNanos) {
+        recordSuccess(intendedStartNanos);
+        errors.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Takes the latencies recorded since the previous call.
+     *
+     * @return the latency histogram, in microseconds
+     */
+    Histogram latencies() {
+        return latencies.getIntervalHistogram();
+    }
+
+    private static long latencyMicros(final long intendedStartNanos) {
+        final long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+        return Math.min(Math.max(latency, 0), HIGHEST_LATENCY);
+    }
+
+}
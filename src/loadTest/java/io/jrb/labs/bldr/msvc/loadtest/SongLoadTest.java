@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.loadtest;
+
+import io.jrb.labs.bldr.msvc.BldrMsvcApplication;
+import io.jrb.labs.bldr.msvc.module.song.config.SongModuleConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Starts the application against an embedded Mongo, or a local one, and drives an open-model mix of song traffic
+ * through its routes. Requests arrive at a Poisson rate whatever the response times, as they would from independent
+ * clients, and each route reports its throughput and latency percentiles. Run it with ./gradlew loadTest and the
+ * loadtest.* system properties described in {@link LoadTestConfig}. The embedded Mongo binaries are fetched into
+ * ~/.embedmongo on the first run only, so later runs work offline; a box that never had network access can point
+ * loadtest.mongo-uri at a local mongod instead.
+ */
+@Slf4j
+public class SongLoadTest {
+
+    private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final int INGEST_CONCURRENCY = 16;
+
+    private final LoadTestConfig config;
+    private final SongTraffic traffic;
+    private final SongIdPool songIds;
+    private final Map<SongRoute, RouteStats> stats;
+    private final SongRoute[] routes;
+    private final int[] cumulativeWeights;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    SongLoadTest(final LoadTestConfig config, final SongTraffic traffic, final SongIdPool songIds) {
+        this.config = config;
+        this.traffic = traffic;
+        this.songIds = songIds;
+        this.stats = new EnumMap<>(SongRoute.class);
+        this.routes = config.getMix().keySet().toArray(new SongRoute[0]);
+        this.cumulativeWeights = new int[routes.length];
+        int total = 0;
+        for (int i = 0; i < routes.length; i++) {
+            total += config.getMix().get(routes[i]);
+            cumulativeWeights[i] = total;
+            stats.put(routes[i], new RouteStats());
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(BldrMsvcApplication.class)
+                .properties(applicationProperties(config))
+                .run(args);
+        try {
+            final int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            final String songResource = context.getBean(SongModuleConfig.class).resources()
+                    .getOrDefault("song", "/song");
+            final SongIdPool songIds = new SongIdPool();
+            final SongTraffic traffic =
+                    new SongTraffic(WebClient.create("http://localhost:" + port), songResource, songIds);
+            new SongLoadTest(config, traffic, songIds).run();
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    void run() throws IOException {
+        log.info("Seeding {} songs", config.getSeedSongs());
+        traffic.seed(config.getSeedSongs()).block();
+        if (config.getIngestSongs() > 0) {
+            compareIngestThroughput(config.getIngestSongs());
+        }
+        log.info("Sending {} requests per second for {} after a {} warmup, with mix {}",
+                config.getRate(), config.getDuration(), config.getWarmup(), config.getMix());
+
+        final long start = System.nanoTime();
+        final long measuredFrom = start + config.getWarmup().toNanos();
+        final long end = measuredFrom + config.getDuration().toNanos();
+        long next = start;
+        while (true) {
+            next += nextInterArrival();
+            if (next >= end) {
+                break;
+            }
+            final long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            send(pickRoute(), next, next >= measuredFrom);
+        }
+        drain();
+        report(config.getDuration().toNanos() / 1e9);
+    }
+
+    /**
+     * Creates the same number of songs one request at a time and in bulk, and reports how many more songs per second
+     * the bulk route writes.
+     */
+    private void compareIngestThroughput(final int count) {
+        final double oneByOne = songsPerSecond(count, traffic.createOneByOne(count, INGEST_CONCURRENCY));
+        final double bulk = songsPerSecond(count, traffic.createInBulk(count));
+        log.info("Ingested {} songs at {} songs/s one at a time ({} outstanding) and {} songs/s in bulk, {}x faster",
+                count, String.format("%.1f", oneByOne), INGEST_CONCURRENCY, String.format("%.1f", bulk),
+                String.format("%.1f", bulk / oneByOne));
+    }
+
+    private static double songsPerSecond(final int count, final Mono<Void> ingest) {
+        final long start = System.nanoTime();
+        ingest.block();
+        return count / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private void send(final SongRoute route, final long intendedStart, final boolean measured) {
+        final RouteStats routeStats = stats.get(route);
+        if (inFlight.get() >= config.getMaxInFlight()) {
+            if (measured) {
+                routeStats.recordDropped();
+            }
+            return;
+        }
+        inFlight.incrementAndGet();
+        traffic.send(route)
+                .onErrorReturn(false)
+                .doFinally(signal -> inFlight.decrementAndGet())
+                .subscribe(succeeded -> {
+                    if (!measured) {
+                        return;
+                    }
+                    if (succeeded) {
+                        routeStats.recordSuccess(intendedStart);
+                    } else {
+                        routeStats.recordError(intendedStart);
+                    }
+                });
+    }
+
+    private long nextInterArrival() {
+        final double uniform = ThreadLocalRandom.current().nextDouble();
+        return (long) (-Math.log(1.0 - uniform) / config.getRate() * 1e9);
+    }
+
+    private SongRoute pickRoute() {
+        final int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return routes[i];
+            }
+        }
+        return routes[routes.length - 1];
+    }
+
+    private void drain() {
+        final long deadline = System.nanoTime() + DRAIN_TIMEOUT;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (inFlight.get() > 0) {
+            log.warn("{} requests still outstanding at the end of the run", inFlight.get());
+        }
+    }
+
+    private void report(final double seconds) throws IOException {
+        final Path reportDir = Files.createDirectories(Paths.get(config.getReportDir()));
+        final Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        long totalDropped = 0;
+        final StringBuilder table = new StringBuilder(String.format("%n%-8s %9s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+                "route", "requests", "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (final Map.Entry<SongRoute, RouteStats> entry : stats.entrySet()) {
+            final Histogram latencies = entry.getValue().latencies();
+            total.add(latencies);
+            totalErrors += entry.getValue().errors();
+            totalDropped += entry.getValue().dropped();
+            table.append(row(entry.getKey().name(), latencies, entry.getValue().errors(), entry.getValue().dropped(),
+                    seconds));
+            writeHistogram(reportDir.resolve(entry.getKey().name().toLowerCase() + ".hgrm"), latencies);
+        }
+        table.append(row("TOTAL", total, totalErrors, totalDropped, seconds));
+        writeHistogram(reportDir.resolve("total.hgrm"), total);
+        log.info("Load test results, {} songs left:{}", songIds.size(), table);
+        log.info("Latency distributions written to {}", reportDir.toAbsolutePath());
+    }
+
+    private static String row(
+            final String name,
+            final Histogram latencies,
+            final long errors,
+            final long dropped,
+            final double seconds
+    ) {
+        return String.format("%-8s %9d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, latencies.getTotalCount(), errors, dropped, latencies.getTotalCount() / seconds,
+                millis(latencies, 50.0), millis(latencies, 90.0), millis(latencies, 99.0), millis(latencies, 99.9),
+                latencies.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double millis(final Histogram latencies, final double percentile) {
+        return latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static void writeHistogram(final Path file, final Histogram latencies) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            latencies.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static Map<String, Object> applicationProperties(final LoadTestConfig config) throws IOException {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("module.song.search.directory", Files.createTempDirectory("bldr-loadtest").toString());
+        if (config.getMongoUri().isPresent()) {
+            properties.put("spring.data.mongodb.uri", config.getMongoUri().get());
+            properties.put("spring.autoconfigure.exclude", EmbeddedMongoAutoConfiguration.class.getName());
+        } else {
+            properties.put("spring.data.mongodb.port", 0);
+            properties.put("spring.data.mongodb.database", "loadtest");
+            properties.put("spring.mongodb.embedded.version", "4.0.2");
+        }
+        return properties;
+    }
+
+}
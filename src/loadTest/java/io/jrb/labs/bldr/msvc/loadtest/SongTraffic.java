@@ -0,0 +1,217 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.loadtest;
+
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongType;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.rest.JsonPatchUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Sends the requests of each song route, keeping the pool of known songs up to date with the songs it creates and
+ * deletes. Every request completes with whether it succeeded.
+ */
+class SongTraffic {
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz";
+    private static final int BULK_CHUNK = 500;
+    private static final int LIST_LIMIT = 20;
+
+    private final WebClient webClient;
+    private final String songResource;
+    private final SongIdPool songIds;
+
+    SongTraffic(final WebClient webClient, final String songResource, final SongIdPool songIds) {
+        this.webClient = webClient;
+        this.songResource = songResource;
+        this.songIds = songIds;
+    }
+
+    /**
+     * Creates the songs the run starts with, in bulk.
+     *
+     * @param count the number of songs
+     * @return a publisher completing once the songs are created
+     */
+    Mono<Void> seed(final int count) {
+        return createInBulk(count);
+    }
+
+    /**
+     * Creates songs in bulk, one chunk at a time, as an ingestion job would.
+     *
+     * @param count the number of songs
+     * @return a publisher completing once the songs are created
+     */
+    Mono<Void> createInBulk(final int count) {
+        return Flux.range(0, count)
+                .map(i -> randomSong())
+                .buffer(BULK_CHUNK)
+                .concatMap(songs -> webClient.post()
+                        .uri(songResource + "/_bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(songs)
+                        .retrieve()
+                        .bodyToFlux(BulkItemResult.class))
+                .filter(result -> result.getStatus() == BulkItemStatus.CREATED)
+                .doOnNext(result -> songIds.add(result.getId()))
+                .then();
+    }
+
+    /**
+     * Creates songs one request at a time, keeping a number of requests outstanding, as an ingestion job would
+     * without the bulk routes.
+     *
+     * @param count the number of songs
+     * @param concurrency the outstanding requests
+     * @return a publisher completing once the songs are created
+     */
+    Mono<Void> createOneByOne(final int count, final int concurrency) {
+        return Flux.range(0, count)
+                .flatMap(i -> send(SongRoute.POST), concurrency)
+                .then();
+    }
+
+    Mono<Boolean> send(final SongRoute route) {
+        switch (route) {
+            case GET:
+                return withSong(songIds.pick(), id -> webClient.get()
+                        .uri(songResource + "/{id}", id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .exchange());
+            case LIST:
+                return succeeded(webClient.get()
+                        .uri(songResource + "?limit={limit}", LIST_LIMIT)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .exchange());
+            case POST:
+                return webClient.post()
+                        .uri(songResource)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(randomSong())
+                        .exchange()
+                        .flatMap(response -> response.statusCode().is2xxSuccessful()
+                                ? response.bodyToMono(Song.class).map(song -> {
+                                    songIds.add(song.getId());
+                                    return true;
+                                })
+                                : response.releaseBody().thenReturn(false));
+            case PUT:
+                return withSong(songIds.pick(), id -> webClient.put()
+                        .uri(songResource + "/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .bodyValue(randomSong())
+                        .exchange());
+            case PATCH:
+                return withSong(songIds.pick(), id -> webClient.patch()
+                        .uri(songResource + "/{id}", id)
+                        .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                        .bodyValue("[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"" + words(4) + "\"}]")
+                        .exchange());
+            case DELETE:
+                return withSong(songIds.take(), id -> webClient.delete()
+                        .uri(songResource + "/{id}", id)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .exchange());
+            default:
+                return Mono.error(new IllegalArgumentException(route.name()));
+        }
+    }
+
+    private Mono<Boolean> withSong(
+            final Optional<String> songId,
+            final Function<String, Mono<ClientResponse>> request
+    ) {
+        return songId.map(id -> succeeded(request.apply(id))).orElseGet(() -> Mono.just(false));
+    }
+
+    private Mono<Boolean> succeeded(final Mono<ClientResponse> exchange) {
+        return exchange.flatMap(response -> {
+            final HttpStatus status = response.statusCode();
+            return response.releaseBody().thenReturn(status.is2xxSuccessful() || status == HttpStatus.NOT_MODIFIED);
+        });
+    }
+
+    private static Song randomSong() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Map<String, List<String>> lyrics = new LinkedHashMap<>();
+        final int stanzas = 2 + random.nextInt(8);
+        for (int i = 1; i <= stanzas; i++) {
+            final List<String> lines = new ArrayList<>();
+            for (int j = 0; j < 4 + random.nextInt(5); j++) {
+                lines.add(words(6));
+            }
+            lyrics.put("v" + i, lines);
+        }
+        return Song.builder()
+                .type(SongType.NORMAL)
+                .title(words(3))
+                .authors(words(2, 2))
+                .themes(words(2, 1))
+                .lyrics(lyrics)
+                .lyricOrder(new ArrayList<>(lyrics.keySet()))
+                .build();
+    }
+
+    private static List<String> words(final int count, final int wordsPerEntry) {
+        final List<String> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(words(wordsPerEntry));
+        }
+        return entries;
+    }
+
+    private static String words(final int count) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            for (int j = 0; j < 2 + random.nextInt(7); j++) {
+                words.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return words.toString();
+    }
+
+}
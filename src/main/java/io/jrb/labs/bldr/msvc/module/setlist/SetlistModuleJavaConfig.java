@@ -0,0 +1,245 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.bldr.msvc.module.setlist.config.SetlistModuleConfig;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntityConverter;
+import io.jrb.labs.bldr.msvc.module.setlist.repository.ReactiveSetlistRepository;
+import io.jrb.labs.bldr.msvc.module.setlist.rest.SetlistHandler;
+import io.jrb.labs.bldr.msvc.module.setlist.rest.SetlistRouter;
+import io.jrb.labs.bldr.msvc.module.setlist.service.ISetlistService;
+import io.jrb.labs.bldr.msvc.module.setlist.service.SetlistService;
+import io.jrb.labs.bldr.msvc.module.setlist.snapshot.SongSnapshotSynchronizer;
+import io.jrb.labs.common.crud.CrudServiceOptions;
+import io.jrb.labs.common.crud.breaker.CaffeineStaleSnapshot;
+import io.jrb.labs.common.crud.breaker.CircuitBreaker;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerConfig;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerHealthIndicator;
+import io.jrb.labs.common.crud.breaker.SlidingWindowCircuitBreaker;
+import io.jrb.labs.common.crud.breaker.StaleSnapshot;
+import io.jrb.labs.common.crud.breaker.StaleSnapshotPrimer;
+import io.jrb.labs.common.crud.cache.CaffeineEntityCache;
+import io.jrb.labs.common.crud.cache.ChangeStreamCacheSynchronizer;
+import io.jrb.labs.common.crud.cache.ChangeStreamConfig;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import io.jrb.labs.common.crud.cache.EntityCacheConfig;
+import io.jrb.labs.common.crud.cache.ResumeTokenStore;
+import io.jrb.labs.common.crud.event.AsyncEntityEventDispatcher;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import io.jrb.labs.common.crud.event.EventDispatcherConfig;
+import io.jrb.labs.common.crud.event.SynchronousEntityEventDispatcher;
+import io.jrb.labs.common.index.EntityIndexes;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.module.ModuleJavaConfigSupport;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.cache.CaffeineResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimits;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "module.setlist.enabled")
+@ComponentScan(basePackages = "io.jrb.labs.bldr.msvc.module.setlist.repository")
+@EnableConfigurationProperties(SetlistModuleConfig.class)
+@Import(SetlistRouter.class)
+public class SetlistModuleJavaConfig extends ModuleJavaConfigSupport {
+
+    private static final String MODULE_NAME = "Setlist";
+
+    public SetlistModuleJavaConfig() {
+        super(MODULE_NAME, log);
+    }
+
+    @Bean
+    public SetlistEntityConverter setlistEntityConverter() { return new SetlistEntityConverter(); }
+
+    @Bean
+    public EntityEventDispatcher setlistEventDispatcher(
+            final ApplicationContext applicationContext,
+            final SetlistModuleConfig setlistModuleConfig
+    ) {
+        final EventDispatcherConfig eventsConfig = setlistModuleConfig.events();
+        return eventsConfig.async()
+                ? new AsyncEntityEventDispatcher(applicationContext, eventsConfig)
+                : new SynchronousEntityEventDispatcher(applicationContext);
+    }
+
+    @Bean
+    public CrudMetrics setlistCrudMetrics(final MeterRegistry meterRegistry) {
+        return new CrudMetrics(meterRegistry, MODULE_NAME, SetlistEntity.class);
+    }
+
+    @Bean
+    public EntityCache<SetlistEntity> setlistEntityCache(
+            final SetlistModuleConfig setlistModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final EntityCacheConfig cacheConfig = setlistModuleConfig.cache();
+        return cacheConfig.enabled()
+                ? new CaffeineEntityCache<>("setlists", cacheConfig, meterRegistry)
+                : EntityCache.none();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "module.setlist.change-stream.enabled")
+    public ChangeStreamCacheSynchronizer<SetlistEntity> setlistCacheSynchronizer(
+            final SetlistModuleConfig setlistModuleConfig,
+            final ReactiveMongoOperations mongoOperations,
+            final EntityCache<SetlistEntity> setlistEntityCache,
+            final StaleSnapshot<SetlistEntity> setlistStaleSnapshot,
+            final CrudMetrics setlistCrudMetrics
+    ) {
+        final ChangeStreamConfig changeStreamConfig = setlistModuleConfig.changeStream();
+        return new ChangeStreamCacheSynchronizer<>(changeStreamConfig, mongoOperations, SetlistEntity.class,
+                setlistStaleSnapshot.tracking(setlistEntityCache),
+                new ResumeTokenStore(mongoOperations, changeStreamConfig.tokenCollection()), setlistCrudMetrics);
+    }
+
+    @Bean
+    public ResponseBodyCache<SetlistEntity> setlistResponseCache(
+            final SetlistModuleConfig setlistModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final ResponseBodyCacheConfig cacheConfig = setlistModuleConfig.responseCache();
+        return cacheConfig.enabled()
+                ? new CaffeineResponseBodyCache<>("setlist-responses", SetlistEntity.class, cacheConfig, meterRegistry)
+                : ResponseBodyCache.none();
+    }
+
+    @Bean
+    public ConcurrencyLimits setlistConcurrencyLimits(
+            final SetlistModuleConfig setlistModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        return ConcurrencyLimits.of(MODULE_NAME, setlistModuleConfig.concurrencyLimit(), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker setlistCircuitBreaker(
+            final SetlistModuleConfig setlistModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final CircuitBreakerConfig breakerConfig = setlistModuleConfig.circuitBreaker();
+        return breakerConfig.enabled()
+                ? new SlidingWindowCircuitBreaker(MODULE_NAME, breakerConfig, meterRegistry)
+                : CircuitBreaker.none();
+    }
+
+    @Bean
+    public StaleSnapshot<SetlistEntity> setlistStaleSnapshot(
+            final SetlistModuleConfig setlistModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final CircuitBreakerConfig breakerConfig = setlistModuleConfig.circuitBreaker();
+        return breakerConfig.enabled()
+                ? new CaffeineStaleSnapshot<>(MODULE_NAME, breakerConfig.staleSnapshotSize(), meterRegistry)
+                : StaleSnapshot.none();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "module.setlist.circuit-breaker.enabled")
+    public StaleSnapshotPrimer<SetlistEntity> setlistStaleSnapshotPrimer(final ISetlistService setlistService) {
+        return new StaleSnapshotPrimer<>(MODULE_NAME, setlistService);
+    }
+
+    @Bean
+    public CircuitBreakerHealthIndicator setlistCircuitBreakerHealthIndicator(
+            final CircuitBreaker setlistCircuitBreaker
+    ) {
+        return new CircuitBreakerHealthIndicator(setlistCircuitBreaker);
+    }
+
+    @Bean
+    public EntityIndexes setlistIndexes() {
+        return EntityIndexes.of(
+                SetlistEntity.class,
+                new Index()
+                        .named("songs_songId")
+                        .on("songs.songId", Sort.Direction.ASC)
+                        .background()
+        );
+    }
+
+    @Bean
+    public SetlistHandler setlistWebHandler(
+            final ObjectMapper objectMapper,
+            final ISetlistService setlistService,
+            final SetlistEntityConverter setlistEntityConverter,
+            final CrudMetrics setlistCrudMetrics,
+            final ResponseBodyCache<SetlistEntity> setlistResponseCache,
+            final ConcurrencyLimits setlistConcurrencyLimits,
+            final SetlistModuleConfig setlistModuleConfig
+    ) {
+        return new SetlistHandler(objectMapper, setlistService, setlistEntityConverter,
+                CrudHandlerOptions.<SetlistEntity>builder()
+                        .crudMetrics(setlistCrudMetrics)
+                        .responseCache(setlistResponseCache)
+                        .bulkConfig(setlistModuleConfig.bulk())
+                        .concurrencyLimits(setlistConcurrencyLimits)
+                        .build());
+    }
+
+    @Bean
+    public SongSnapshotSynchronizer songSnapshotSynchronizer(final ISetlistService setlistService) {
+        return new SongSnapshotSynchronizer(setlistService);
+    }
+
+    @Bean
+    public ISetlistService setlistService(
+            final EntityEventDispatcher setlistEventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
+            final ReactiveSetlistRepository setlistRepository,
+            final EntityCache<SetlistEntity> setlistEntityCache,
+            final CircuitBreaker setlistCircuitBreaker,
+            final StaleSnapshot<SetlistEntity> setlistStaleSnapshot,
+            final SetlistModuleConfig setlistModuleConfig,
+            final CrudMetrics setlistCrudMetrics
+    ) {
+        return new SetlistService(setlistEventDispatcher, mongoOperations, setlistRepository,
+                CrudServiceOptions.<SetlistEntity>builder()
+                        .entityCache(setlistEntityCache)
+                        .bulkConfig(setlistModuleConfig.bulk())
+                        .coalescingConfig(setlistModuleConfig.getCoalescing())
+                        .circuitBreaker(setlistCircuitBreaker)
+                        .staleSnapshot(setlistStaleSnapshot)
+                        .crudMetrics(setlistCrudMetrics)
+                        .build());
+    }
+
+}
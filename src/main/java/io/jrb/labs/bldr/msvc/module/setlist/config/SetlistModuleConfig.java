@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.config;
+
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.GetCoalescingConfig;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerConfig;
+import io.jrb.labs.common.crud.cache.ChangeStreamConfig;
+import io.jrb.labs.common.crud.cache.EntityCacheConfig;
+import io.jrb.labs.common.crud.event.EventDispatcherConfig;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimitConfig;
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.util.Map;
+import java.util.Optional;
+
+@Accessors(fluent = true) @Getter
+@ConstructorBinding
+@ConfigurationProperties("module.setlist")
+public class SetlistModuleConfig {
+
+    private final Map<String, String> resources;
+
+    private final EventDispatcherConfig events;
+
+    private final EntityCacheConfig cache;
+
+    private final ResponseBodyCacheConfig responseCache;
+
+    private final BulkConfig bulk;
+
+    private final GetCoalescingConfig getCoalescing;
+
+    private final ConcurrencyLimitConfig concurrencyLimit;
+
+    private final CircuitBreakerConfig circuitBreaker;
+
+    private final ChangeStreamConfig changeStream;
+
+    public SetlistModuleConfig(
+            final Map<String, String> resources,
+            final EventDispatcherConfig events,
+            final EntityCacheConfig cache,
+            final ResponseBodyCacheConfig responseCache,
+            final BulkConfig bulk,
+            final GetCoalescingConfig getCoalescing,
+            final ConcurrencyLimitConfig concurrencyLimit,
+            final CircuitBreakerConfig circuitBreaker,
+            final ChangeStreamConfig changeStream
+    ) {
+        this.resources = resources;
+        this.events = Optional.ofNullable(events).orElse(EventDispatcherConfig.DEFAULT);
+        this.cache = Optional.ofNullable(cache).orElse(EntityCacheConfig.DEFAULT);
+        this.responseCache = Optional.ofNullable(responseCache).orElse(ResponseBodyCacheConfig.DEFAULT);
+        this.bulk = Optional.ofNullable(bulk).orElse(BulkConfig.DEFAULT);
+        this.getCoalescing = Optional.ofNullable(getCoalescing).orElse(GetCoalescingConfig.DEFAULT);
+        this.concurrencyLimit = Optional.ofNullable(concurrencyLimit).orElse(ConcurrencyLimitConfig.DEFAULT);
+        this.circuitBreaker = Optional.ofNullable(circuitBreaker).orElse(CircuitBreakerConfig.DEFAULT);
+        this.changeStream = Optional.ofNullable(changeStream).orElse(ChangeStreamConfig.DEFAULT);
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.model;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.EntityConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class SetlistEntityConverter implements EntityConverter<SetlistEntity, Setlist, SetlistMetadata> {
+
+    @Override
+    public SetlistEntity dtoToEntity(final Setlist dto) {
+        return SetlistEntity.builder()
+                .id(dto.getId())
+                .title(dto.getTitle())
+                .eventDate(dto.getEventDate())
+                .notes(dto.getNotes())
+                .songs(map(dto.getSongs(), this::songToEntry))
+                .build();
+    }
+
+    @Override
+    public Setlist entityToDto(final SetlistEntity entity) {
+        return Setlist.builder()
+                .id(entity.getId())
+                .title(entity.getTitle())
+                .eventDate(entity.getEventDate())
+                .notes(entity.getNotes())
+                .songs(map(entity.getSongs(), this::entryToSong))
+                .build();
+    }
+
+    @Override
+    public SetlistMetadata entityToMetadata(final SetlistEntity entity) {
+        return SetlistMetadata.builder()
+                .id(entity.getId())
+                .title(entity.getTitle())
+                .eventDate(entity.getEventDate())
+                .songs(map(entity.getSongs(), this::entryToSong))
+                .build();
+    }
+
+    /**
+     * Converts a setlist into a deep data transfer object whose songs include their lyric sections, in the lyric order
+     * of each song, or in the order of its lyrics when it has none.
+     *
+     * @param resolved the setlist along with the songs it refers to
+     * @return the expanded data transfer object
+     */
+    public Setlist expandedDto(final ResolvedSetlist resolved) {
+        final Map<String, SongEntity> songs = resolved.getSongs();
+        return entityToDto(resolved.getSetlist()).toBuilder()
+                .songs(map(resolved.getSetlist().getSongs(), entry -> entryToSong(entry).toBuilder()
+                        .lyrics(Optional.ofNullable(songs.get(entry.getSongId()))
+                                .map(SetlistEntityConverter::lyricSections)
+                                .orElse(null))
+                        .build()))
+                .build();
+    }
+
+    private SetlistEntry songToEntry(final SetlistSong song) {
+        return SetlistEntry.builder()
+                .songId(song.getSongId())
+                .key(song.getKey())
+                .notes(song.getNotes())
+                .build();
+    }
+
+    private SetlistSong entryToSong(final SetlistEntry entry) {
+        final SetlistSong.SetlistSongBuilder song = SetlistSong.builder()
+                .songId(entry.getSongId())
+                .key(entry.getKey())
+                .notes(entry.getNotes());
+        Optional.ofNullable(entry.getSnapshot()).ifPresent(snapshot -> song
+                .type(snapshot.getType())
+                .title(snapshot.getTitle())
+                .authors(snapshot.getAuthors()));
+        return song.build();
+    }
+
+    private static List<LyricSection> lyricSections(final SongEntity song) {
+        final Map<String, List<String>> lyrics = Optional.ofNullable(song.getLyrics()).orElse(Collections.emptyMap());
+        final List<String> lyricOrder = song.getLyricOrder() != null && !song.getLyricOrder().isEmpty()
+                ? song.getLyricOrder()
+                : new ArrayList<>(lyrics.keySet());
+        return lyricOrder.stream()
+                .filter(lyrics::containsKey)
+                .map(name -> LyricSection.builder().name(name).lines(lyrics.get(name)).build())
+                .collect(Collectors.toList());
+    }
+
+    private static <T, R> List<R> map(final List<T> items, final Function<T, R> mapper) {
+        return items != null ? items.stream().map(mapper).collect(Collectors.toList()) : null;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import io.jrb.labs.bldr.msvc.module.song.model.SongType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Defines a data transfer object for a song within a setlist. Only the song identifier, key and notes are written by
+ * clients: the song type, title and authors are read from its snapshot, and its lyrics are only included when the
+ * setlist is expanded.
+ */
+@Value
+@Builder(toBuilder = true)
+@JsonDeserialize(builder = SetlistSong.SetlistSongBuilder.class)
+public class SetlistSong {
+
+    private final String songId;
+
+    private final String key;
+
+    private final String notes;
+
+    private final SongType type;
+
+    private final String title;
+
+    private final List<String> authors;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final List<LyricSection> lyrics;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class SetlistSongBuilder {
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Defines the denormalized copy of the song metadata held by a setlist entry. The version of the song it was taken
+ * from keeps an older snapshot from replacing a newer one.
+ */
+@Value
+@Builder(toBuilder = true)
+@JsonDeserialize(builder = SongSnapshot.SongSnapshotBuilder.class)
+public class SongSnapshot {
+
+    private final Long version;
+
+    private final SongType type;
+
+    private final String title;
+
+    private final List<String> authors;
+
+    public static SongSnapshot of(final SongEntity song) {
+        return SongSnapshot.builder()
+                .version(song.getVersion())
+                .type(song.getType())
+                .title(song.getTitle())
+                .authors(song.getAuthors())
+                .build();
+    }
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class SongSnapshotBuilder {
+    }
+
+}
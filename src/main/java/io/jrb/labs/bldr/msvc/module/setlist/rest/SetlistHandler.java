@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.bldr.msvc.module.setlist.model.Setlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntityConverter;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistMetadata;
+import io.jrb.labs.bldr.msvc.module.setlist.service.ISetlistService;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.CrudHandlerSupport;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+public class SetlistHandler extends CrudHandlerSupport<SetlistEntity, Setlist, SetlistMetadata> {
+
+    public static final String SETLIST_ID_PARAM = "setlistId";
+    public static final String EXPAND_PARAM = "expand";
+    public static final String EXPAND_LYRICS = "lyrics";
+
+    private final ISetlistService setlistService;
+    private final SetlistEntityConverter entityConverter;
+
+    public SetlistHandler(
+            final ObjectMapper objectMapper,
+            final ISetlistService setlistService,
+            final SetlistEntityConverter entityConverter,
+            final CrudHandlerOptions<SetlistEntity> options
+    ) {
+        super(objectMapper, setlistService, entityConverter, Setlist.class, SetlistMetadata.class, SETLIST_ID_PARAM,
+                options);
+        this.setlistService = setlistService;
+        this.entityConverter = entityConverter;
+    }
+
+    /**
+     * Answers with a setlist whose songs include their lyrics, in the lyric order of each song. The expanded setlist
+     * depends on the current lyrics of its songs, so it carries no entity tag.
+     */
+    public Mono<ServerResponse> getExpandedSetlist(final ServerRequest request) {
+        final String setlistId = request.pathVariable(SETLIST_ID_PARAM);
+        return setlistService.resolve(setlistId)
+                .transform(limited("getExpanded"))
+                .flatMap(resolved -> ServerResponse.ok()
+                        .contentType(responseMediaType(request))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .body(BodyInserters.fromValue(entityConverter.expandedDto(resolved))))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("getExpanded", request));
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.rest;
+
+import io.jrb.labs.bldr.msvc.module.setlist.config.SetlistModuleConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static io.jrb.labs.common.rest.MediaTypeUtils.acceptDto;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+public class SetlistRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> setlistEndpoints(
+            final SetlistModuleConfig setlistModuleConfig,
+            final SetlistHandler setlistHandler
+    ) {
+        final String baseResource = setlistModuleConfig.resources().getOrDefault("setlist", "/setlist");
+        return route(
+                GET(baseResource + "/{" + SetlistHandler.SETLIST_ID_PARAM + "}")
+                        .and(RequestPredicates.queryParam(SetlistHandler.EXPAND_PARAM,
+                                SetlistHandler.EXPAND_LYRICS::equals))
+                        .and(acceptDto()),
+                setlistHandler::getExpandedSetlist
+        ).and(setlistHandler.createCrudEndpoints(baseResource, SetlistHandler.SETLIST_ID_PARAM, setlistHandler));
+    }
+
+}
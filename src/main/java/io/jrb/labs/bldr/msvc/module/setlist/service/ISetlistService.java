@@ -0,0 +1,59 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.service;
+
+import io.jrb.labs.bldr.msvc.module.setlist.model.ResolvedSetlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.ICrudService;
+import reactor.core.publisher.Mono;
+
+public interface ISetlistService extends ICrudService<SetlistEntity> {
+
+    /**
+     * Retrieves a setlist along with every song it refers to, including their lyrics, loaded in a single query.
+     *
+     * @param id the setlist identifier
+     * @return a single-value publisher containing the resolved setlist
+     */
+    Mono<ResolvedSetlist> resolve(String id);
+
+    /**
+     * Replaces the snapshots of a song held by the setlists that refer to it, unless they were taken from a newer
+     * version of the song. A song given without its version is reloaded first.
+     *
+     * @param song the updated song
+     * @return a single-value publisher containing the number of setlists updated
+     */
+    Mono<Long> refreshSong(SongEntity song);
+
+    /**
+     * Removes a song from the setlists that refer to it.
+     *
+     * @param songId the identifier of the deleted song
+     * @return a single-value publisher containing the number of setlists updated
+     */
+    Mono<Long> removeSong(String songId);
+
+}
@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.service;
+
+import com.mongodb.client.result.UpdateResult;
+import io.jrb.labs.bldr.msvc.module.setlist.model.ResolvedSetlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntry;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SongSnapshot;
+import io.jrb.labs.bldr.msvc.module.setlist.repository.ReactiveSetlistRepository;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.crud.CrudServiceOptions;
+import io.jrb.labs.common.crud.CrudServiceSupport;
+import io.jrb.labs.common.crud.UnknownReferenceException;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Manages setlists, whose entries hold a snapshot of the metadata of their songs so that setlists are listed without
+ * loading any song. The snapshots are taken from the songs when a setlist is written, all of them with a single
+ * query, and a setlist referring to an unknown song is rejected. They are then kept up to date as the songs change,
+ * and the entries of a deleted song are removed, each setlist involved being given a new version.
+ */
+@Slf4j
+public class SetlistService extends CrudServiceSupport<SetlistEntity> implements ISetlistService {
+
+    private static final String SONGS_FIELD = "songs";
+    private static final String SONG_ID_FIELD = "songId";
+    private static final String SNAPSHOT_VERSION_FIELD = "snapshot.version";
+    private static final String VERSION_FIELD = "version";
+    private static final String ENTRY = "entry";
+
+    private static final Collection<String> METADATA_FIELDS =
+            Collections.unmodifiableList(Arrays.asList("title", "eventDate", SONGS_FIELD));
+    private static final Collection<String> DERIVED_FIELDS = Collections.singletonList(SONGS_FIELD);
+    private static final List<String> SNAPSHOT_FIELDS =
+            Collections.unmodifiableList(Arrays.asList(VERSION_FIELD, "type", "title", "authors"));
+    private static final List<String> RESOLVE_FIELDS =
+            Collections.unmodifiableList(Arrays.asList(VERSION_FIELD, "type", "title", "authors", "lyrics", "lyricOrder"));
+
+    private final ReactiveMongoOperations mongoOperations;
+    private final EntityCache<SetlistEntity> entityCache;
+    private final CrudMetrics crudMetrics;
+
+    public SetlistService(
+            final EntityEventDispatcher eventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
+            final ReactiveSetlistRepository repository,
+            final CrudServiceOptions<SetlistEntity> options
+    ) {
+        super(eventDispatcher, mongoOperations, repository, SetlistEntity.class, options);
+        this.mongoOperations = mongoOperations;
+        this.entityCache = options.getStaleSnapshot().tracking(options.getEntityCache());
+        this.crudMetrics = options.getCrudMetrics();
+    }
+
+    @Override
+    public Mono<SetlistEntity> create(final SetlistEntity setlist) {
+        return withSnapshots(setlist).flatMap(super::create);
+    }
+
+    @Override
+    public Flux<BulkItemResult> createAll(final List<SetlistEntity> setlists) {
+        return bulkWithSnapshots(setlists, super::createAll);
+    }
+
+    @Override
+    public Mono<SetlistEntity> update(final String id, final SetlistEntity setlist, final Long expectedVersion) {
+        return withSnapshots(setlist).flatMap(snapshotted -> super.update(id, snapshotted, expectedVersion));
+    }
+
+    @Override
+    public Flux<BulkItemResult> upsertAll(final List<SetlistEntity> setlists) {
+        return bulkWithSnapshots(setlists, super::upsertAll);
+    }
+
+    @Override
+    public Mono<ResolvedSetlist> resolve(final String id) {
+        return get(id)
+                .flatMap(setlist -> findSongs(songIds(Collections.singletonList(setlist)), RESOLVE_FIELDS)
+                        .map(songs -> ResolvedSetlist.of(setlist, songs)))
+                .transform(crudMetrics.timed("resolve"));
+    }
+
+    @Override
+    public Mono<Long> refreshSong(final SongEntity song) {
+        // a song known without its version is reloaded, so that the snapshots taken from it are versioned
+        final Mono<SongEntity> versionedSong = song.getVersion() != null
+                ? Mono.just(song)
+                : findSongs(Collections.singleton(song.getId()), SNAPSHOT_FIELDS)
+                        .flatMap(songs -> Mono.justOrEmpty(songs.get(song.getId())));
+        return versionedSong
+                .flatMap(this::refreshSnapshots)
+                .defaultIfEmpty(0L)
+                .transform(crudMetrics.timed("refreshSong"));
+    }
+
+    @Override
+    public Mono<Long> removeSong(final String songId) {
+        final Update update = new Update().pull(SONGS_FIELD, new Document(SONG_ID_FIELD, songId));
+        return updateReferencing(Criteria.where(SONGS_FIELD).elemMatch(Criteria.where(SONG_ID_FIELD).is(songId)), update)
+                .transform(crudMetrics.timed("removeSong"));
+    }
+
+    @Override
+    protected Collection<String> derivedProperties() {
+        return DERIVED_FIELDS;
+    }
+
+    @Override
+    protected Collection<String> metadataFields() {
+        return METADATA_FIELDS;
+    }
+
+    @Override
+    protected BiFunction<SetlistEntity, SetlistEntity, SetlistEntity> updateTransformer() {
+        return (orig, update) ->
+                orig.toBuilder()
+                        .eventDate(update.getEventDate())
+                        .notes(update.getNotes())
+                        .songs(update.getSongs())
+                        .title(update.getTitle())
+                        .build();
+    }
+
+    /**
+     * Replaces the snapshots of a song that are older than the song. A snapshot without any version is always
+     * replaced, so that it cannot miss the later versions of its song.
+     */
+    private Mono<Long> refreshSnapshots(final SongEntity song) {
+        final Criteria staleEntry = Criteria.where(SONG_ID_FIELD).is(song.getId());
+        final Criteria staleFilter = Criteria.where(ENTRY + "." + SONG_ID_FIELD).is(song.getId());
+        if (song.getVersion() != null) {
+            staleEntry.and(SNAPSHOT_VERSION_FIELD).not().gte(song.getVersion());
+            staleFilter.and(ENTRY + "." + SNAPSHOT_VERSION_FIELD).not().gte(song.getVersion());
+        }
+        final Update update = new Update()
+                .set(SONGS_FIELD + ".$[" + ENTRY + "].snapshot", SongSnapshot.of(song))
+                .filterArray(staleFilter);
+        return updateReferencing(Criteria.where(SONGS_FIELD).elemMatch(staleEntry), update);
+    }
+
+    private Mono<SetlistEntity> withSnapshots(final SetlistEntity setlist) {
+        return findSongs(songIds(Collections.singletonList(setlist)), SNAPSHOT_FIELDS)
+                .map(songs -> snapshotted(setlist, songs));
+    }
+
+    /**
+     * Writes the setlists whose songs are all known, with a single song query for the whole batch, and reports the
+     * other ones as failed items.
+     */
+    private Flux<BulkItemResult> bulkWithSnapshots(
+            final List<SetlistEntity> setlists,
+            final Function<List<SetlistEntity>, Flux<BulkItemResult>> bulkWrite
+    ) {
+        return findSongs(songIds(setlists), SNAPSHOT_FIELDS).flatMapMany(songs -> {
+            final List<Integer> indexes = new ArrayList<>();
+            final List<SetlistEntity> snapshotted = new ArrayList<>();
+            final List<BulkItemResult> failed = new ArrayList<>();
+            for (int i = 0; i < setlists.size(); i++) {
+                try {
+                    snapshotted.add(snapshotted(setlists.get(i), songs));
+                    indexes.add(i);
+                } catch (final UnknownReferenceException e) {
+                    failed.add(BulkItemResult.builder()
+                            .index(i)
+                            .id(setlists.get(i).getId())
+                            .status(BulkItemStatus.FAILED)
+                            .message(e.getMessage())
+                            .build());
+                }
+            }
+            final Flux<BulkItemResult> written = snapshotted.isEmpty()
+                    ? Flux.empty()
+                    : bulkWrite.apply(snapshotted)
+                            .map(result -> result.toBuilder().index(indexes.get(result.getIndex())).build());
+            return Flux.concat(Flux.fromIterable(failed), written);
+        });
+    }
+
+    private SetlistEntity snapshotted(final SetlistEntity setlist, final Map<String, SongEntity> songs) {
+        if (setlist.getSongs() == null) {
+            return setlist;
+        }
+        final List<SetlistEntry> entries = setlist.getSongs().stream()
+                .map(entry -> {
+                    final SongEntity song = songs.get(entry.getSongId());
+                    if (song == null) {
+                        throw new UnknownReferenceException(SetlistEntity.class, SongEntity.class, entry.getSongId());
+                    }
+                    return entry.toBuilder().snapshot(SongSnapshot.of(song)).build();
+                })
+                .collect(Collectors.toList());
+        return setlist.toBuilder().songs(entries).build();
+    }
+
+    private Mono<Map<String, SongEntity>> findSongs(final Set<String> songIds, final List<String> fields) {
+        if (songIds.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        final Query query = Query.query(Criteria.where(ID_FIELD).in(songIds));
+        fields.forEach(field -> query.fields().include(field));
+        return mongoOperations.find(query, SongEntity.class)
+                .collectMap(SongEntity::getId)
+                .transform(guarded());
+    }
+
+    /**
+     * Applies an update to the setlists matching the given criteria, along with a new version, and drops them from the
+     * entity cache. The setlists are looked up first, so that the ones to drop are known.
+     */
+    private Mono<Long> updateReferencing(final Criteria referencing, final Update update) {
+        final Query query = Query.query(referencing);
+        query.fields().include(ID_FIELD);
+        return mongoOperations.find(query, SetlistEntity.class)
+                .map(SetlistEntity::getId)
+                .collectList()
+                .flatMap(ids -> ids.isEmpty()
+                        ? Mono.just(0L)
+                        : mongoOperations.updateMulti(
+                                Query.query(Criteria.where(ID_FIELD).in(ids)).addCriteria(referencing),
+                                update.inc(VERSION_FIELD, 1),
+                                SetlistEntity.class)
+                                .doOnSuccess(result -> ids.forEach(entityCache::invalidate))
+                                .map(UpdateResult::getModifiedCount))
+                .transform(guarded());
+    }
+
+    private static Set<String> songIds(final List<SetlistEntity> setlists) {
+        return setlists.stream()
+                .map(SetlistEntity::getSongs)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .map(SetlistEntry::getSongId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist.snapshot;
+
+import io.jrb.labs.bldr.msvc.module.setlist.service.ISetlistService;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.event.DeleteEntityEvent;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Keeps the song snapshots held by setlists consistent with the songs, following the song entity events: the
+ * snapshots of an updated song are replaced, and the entries of a deleted song are removed. Created songs are not
+ * referred to by any setlist yet, and need no synchronization.
+ */
+@Slf4j
+public class SongSnapshotSynchronizer {
+
+    private final ISetlistService setlistService;
+
+    public SongSnapshotSynchronizer(final ISetlistService setlistService) {
+        this.setlistService = setlistService;
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<SongEntity> event) {
+        final SongEntity song = event.getEntity();
+        setlistService.refreshSong(song).subscribe(
+                updated -> log.debug("Refreshed song {} in {} setlist(s)", song.getId(), updated),
+                t -> log.error("Unable to refresh song " + song.getId() + " in its setlists", t)
+        );
+    }
+
+    @EventListener
+    public void onDelete(final DeleteEntityEvent<SongEntity> event) {
+        final String songId = event.getEntity().getId();
+        setlistService.removeSong(songId).subscribe(
+                updated -> log.debug("Removed song {} from {} setlist(s)", songId, updated),
+                t -> log.error("Unable to remove song " + songId + " from its setlists", t)
+        );
+    }
+
+}
@@ -25,21 +25,56 @@ package io.jrb.labs.bldr.msvc.module.song;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jrb.labs.bldr.msvc.module.song.config.SongModuleConfig;
+import io.jrb.labs.bldr.msvc.module.song.metrics.SongMetrics;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
 import io.jrb.labs.bldr.msvc.module.song.repository.ReactiveSongRepository;
 import io.jrb.labs.bldr.msvc.module.song.rest.SongRouter;
 import io.jrb.labs.bldr.msvc.module.song.rest.SongHandler;
+import io.jrb.labs.bldr.msvc.module.song.search.SongSearchIndex;
 import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
 import io.jrb.labs.bldr.msvc.module.song.service.SongService;
+import io.jrb.labs.common.crud.CrudServiceOptions;
+import io.jrb.labs.common.crud.breaker.CaffeineStaleSnapshot;
+import io.jrb.labs.common.crud.breaker.CircuitBreaker;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerConfig;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerHealthIndicator;
+import io.jrb.labs.common.crud.breaker.SlidingWindowCircuitBreaker;
+import io.jrb.labs.common.crud.breaker.StaleSnapshot;
+import io.jrb.labs.common.crud.breaker.StaleSnapshotPrimer;
+import io.jrb.labs.common.crud.cache.CaffeineEntityCache;
+import io.jrb.labs.common.crud.cache.ChangeStreamCacheSynchronizer;
+import io.jrb.labs.common.crud.cache.ChangeStreamConfig;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import io.jrb.labs.common.crud.cache.EntityCacheConfig;
+import io.jrb.labs.common.crud.cache.ResumeTokenStore;
+import io.jrb.labs.common.crud.event.AsyncEntityEventDispatcher;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import io.jrb.labs.common.crud.event.EventDispatcherConfig;
+import io.jrb.labs.common.crud.event.SynchronousEntityEventDispatcher;
+import io.jrb.labs.common.index.EntityIndexes;
+import io.jrb.labs.common.metrics.CrudMetrics;
 import io.jrb.labs.common.module.ModuleJavaConfigSupport;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.cache.CaffeineResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimits;
+import io.jrb.labs.common.storage.CompressedFields;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
 
 @Slf4j
 @Configuration
@@ -58,19 +93,177 @@ public class SongModuleJavaConfig extends ModuleJavaConfigSupport {
     @Bean
     public SongEntityConverter songEntityConverter() { return new SongEntityConverter(); }
 
+    @Bean
+    public EntityEventDispatcher songEventDispatcher(
+            final ApplicationContext applicationContext,
+            final SongModuleConfig songModuleConfig
+    ) {
+        final EventDispatcherConfig eventsConfig = songModuleConfig.events();
+        return eventsConfig.async()
+                ? new AsyncEntityEventDispatcher(applicationContext, eventsConfig)
+                : new SynchronousEntityEventDispatcher(applicationContext);
+    }
+
+    @Bean
+    public CrudMetrics songCrudMetrics(final MeterRegistry meterRegistry) {
+        return new CrudMetrics(meterRegistry, MODULE_NAME, SongEntity.class);
+    }
+
+    @Bean
+    public EntityCache<SongEntity> songEntityCache(
+            final SongModuleConfig songModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final EntityCacheConfig cacheConfig = songModuleConfig.cache();
+        return cacheConfig.enabled()
+                ? new CaffeineEntityCache<>("songs", cacheConfig, meterRegistry)
+                : EntityCache.none();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "module.song.change-stream.enabled")
+    public ChangeStreamCacheSynchronizer<SongEntity> songCacheSynchronizer(
+            final SongModuleConfig songModuleConfig,
+            final ReactiveMongoOperations mongoOperations,
+            final EntityCache<SongEntity> songEntityCache,
+            final StaleSnapshot<SongEntity> songStaleSnapshot,
+            final CrudMetrics songCrudMetrics
+    ) {
+        final ChangeStreamConfig changeStreamConfig = songModuleConfig.changeStream();
+        return new ChangeStreamCacheSynchronizer<>(changeStreamConfig, mongoOperations, SongEntity.class,
+                songStaleSnapshot.tracking(songEntityCache),
+                new ResumeTokenStore(mongoOperations, changeStreamConfig.tokenCollection()), songCrudMetrics);
+    }
+
+    @Bean
+    public ResponseBodyCache<SongEntity> songResponseCache(
+            final SongModuleConfig songModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final ResponseBodyCacheConfig cacheConfig = songModuleConfig.responseCache();
+        return cacheConfig.enabled()
+                ? new CaffeineResponseBodyCache<>("song-responses", SongEntity.class, cacheConfig, meterRegistry)
+                : ResponseBodyCache.none();
+    }
+
+    @Bean
+    public ConcurrencyLimits songConcurrencyLimits(
+            final SongModuleConfig songModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        return ConcurrencyLimits.of(MODULE_NAME, songModuleConfig.concurrencyLimit(), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker songCircuitBreaker(
+            final SongModuleConfig songModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final CircuitBreakerConfig breakerConfig = songModuleConfig.circuitBreaker();
+        return breakerConfig.enabled()
+                ? new SlidingWindowCircuitBreaker(MODULE_NAME, breakerConfig, meterRegistry)
+                : CircuitBreaker.none();
+    }
+
+    @Bean
+    public StaleSnapshot<SongEntity> songStaleSnapshot(
+            final SongModuleConfig songModuleConfig,
+            final MeterRegistry meterRegistry
+    ) {
+        final CircuitBreakerConfig breakerConfig = songModuleConfig.circuitBreaker();
+        return breakerConfig.enabled()
+                ? new CaffeineStaleSnapshot<>(MODULE_NAME, breakerConfig.staleSnapshotSize(), meterRegistry)
+                : StaleSnapshot.none();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "module.song.circuit-breaker.enabled")
+    public StaleSnapshotPrimer<SongEntity> songStaleSnapshotPrimer(final ISongService songService) {
+        return new StaleSnapshotPrimer<>(MODULE_NAME, songService);
+    }
+
+    @Bean
+    public CircuitBreakerHealthIndicator songCircuitBreakerHealthIndicator(final CircuitBreaker songCircuitBreaker) {
+        return new CircuitBreakerHealthIndicator(songCircuitBreaker);
+    }
+
+    @Bean
+    public EntityIndexes songIndexes() {
+        return EntityIndexes.of(
+                SongEntity.class,
+                new Index()
+                        .named("title_ci")
+                        .on("title", Sort.Direction.ASC)
+                        .collation(SongService.TITLE_COLLATION)
+                        .background(),
+                new Index()
+                        .named("source_unique")
+                        .on("source.sourceSystem", Sort.Direction.ASC)
+                        .on("source.sourceId", Sort.Direction.ASC)
+                        .unique()
+                        .partial(PartialIndexFilter.of(Criteria.where("source.sourceId").exists(true)))
+                        .background()
+        );
+    }
+
+    @Bean
+    public CompressedFields songCompressedFields(final SongModuleConfig songModuleConfig) {
+        return CompressedFields.of(SongEntity.class, songModuleConfig.compression(), "lyrics");
+    }
+
     @Bean
     public SongHandler songWebHandler(
             final ObjectMapper objectMapper,
             final ISongService songService,
-            final SongEntityConverter songEntityConverter
+            final SongEntityConverter songEntityConverter,
+            final SongSearchIndex songSearchIndex,
+            final CrudMetrics songCrudMetrics,
+            final ResponseBodyCache<SongEntity> songResponseCache,
+            final ConcurrencyLimits songConcurrencyLimits,
+            final SongModuleConfig songModuleConfig
+    ) {
+        return new SongHandler(objectMapper, songService, songEntityConverter, songSearchIndex,
+                CrudHandlerOptions.<SongEntity>builder()
+                        .crudMetrics(songCrudMetrics)
+                        .responseCache(songResponseCache)
+                        .bulkConfig(songModuleConfig.bulk())
+                        .concurrencyLimits(songConcurrencyLimits)
+                        .build());
+    }
+
+    @Bean
+    public SongMetrics songMetrics(final CrudMetrics songCrudMetrics) {
+        return new SongMetrics(songCrudMetrics);
+    }
+
+    @Bean
+    public SongSearchIndex songSearchIndex(
+            final SongModuleConfig songModuleConfig,
+            final ISongService songService
     ) {
-        return new SongHandler(objectMapper, songService, songEntityConverter);
+        return new SongSearchIndex(songModuleConfig.search(), songService);
     }
 
     @Bean
     public ISongService songService(
-            final ApplicationEventPublisher publisher, final ReactiveSongRepository songRepository) {
-        return new SongService(publisher, songRepository);
+            final EntityEventDispatcher songEventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
+            final ReactiveSongRepository songRepository,
+            final EntityCache<SongEntity> songEntityCache,
+            final CircuitBreaker songCircuitBreaker,
+            final StaleSnapshot<SongEntity> songStaleSnapshot,
+            final SongModuleConfig songModuleConfig,
+            final CrudMetrics songCrudMetrics
+    ) {
+        return new SongService(songEventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(songEntityCache)
+                        .bulkConfig(songModuleConfig.bulk())
+                        .coalescingConfig(songModuleConfig.getCoalescing())
+                        .circuitBreaker(songCircuitBreaker)
+                        .staleSnapshot(songStaleSnapshot)
+                        .crudMetrics(songCrudMetrics)
+                        .build());
     }
 
 }
@@ -23,20 +23,75 @@
  */
 package io.jrb.labs.bldr.msvc.module.song.config;
 
-import lombok.AllArgsConstructor;
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.GetCoalescingConfig;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerConfig;
+import io.jrb.labs.common.crud.cache.ChangeStreamConfig;
+import io.jrb.labs.common.crud.cache.EntityCacheConfig;
+import io.jrb.labs.common.crud.event.EventDispatcherConfig;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimitConfig;
+import io.jrb.labs.common.search.SearchIndexConfig;
+import io.jrb.labs.common.storage.CompressionConfig;
 import lombok.Getter;
 import lombok.experimental.Accessors;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 
 import java.util.Map;
+import java.util.Optional;
 
 @Accessors(fluent = true) @Getter
-@AllArgsConstructor
 @ConstructorBinding
 @ConfigurationProperties("module.song")
 public class SongModuleConfig {
 
     private final Map<String, String> resources;
 
+    private final EventDispatcherConfig events;
+
+    private final EntityCacheConfig cache;
+
+    private final ResponseBodyCacheConfig responseCache;
+
+    private final BulkConfig bulk;
+
+    private final GetCoalescingConfig getCoalescing;
+
+    private final ConcurrencyLimitConfig concurrencyLimit;
+
+    private final CircuitBreakerConfig circuitBreaker;
+
+    private final ChangeStreamConfig changeStream;
+
+    private final SearchIndexConfig search;
+
+    private final CompressionConfig compression;
+
+    public SongModuleConfig(
+            final Map<String, String> resources,
+            final EventDispatcherConfig events,
+            final EntityCacheConfig cache,
+            final ResponseBodyCacheConfig responseCache,
+            final BulkConfig bulk,
+            final GetCoalescingConfig getCoalescing,
+            final ConcurrencyLimitConfig concurrencyLimit,
+            final CircuitBreakerConfig circuitBreaker,
+            final ChangeStreamConfig changeStream,
+            final SearchIndexConfig search,
+            final CompressionConfig compression
+    ) {
+        this.resources = resources;
+        this.events = Optional.ofNullable(events).orElse(EventDispatcherConfig.DEFAULT);
+        this.cache = Optional.ofNullable(cache).orElse(EntityCacheConfig.DEFAULT);
+        this.responseCache = Optional.ofNullable(responseCache).orElse(ResponseBodyCacheConfig.DEFAULT);
+        this.bulk = Optional.ofNullable(bulk).orElse(BulkConfig.DEFAULT);
+        this.getCoalescing = Optional.ofNullable(getCoalescing).orElse(GetCoalescingConfig.DEFAULT);
+        this.concurrencyLimit = Optional.ofNullable(concurrencyLimit).orElse(ConcurrencyLimitConfig.DEFAULT);
+        this.circuitBreaker = Optional.ofNullable(circuitBreaker).orElse(CircuitBreakerConfig.DEFAULT);
+        this.changeStream = Optional.ofNullable(changeStream).orElse(ChangeStreamConfig.DEFAULT);
+        this.search = Optional.ofNullable(search).orElse(SearchIndexConfig.DEFAULT);
+        this.compression = Optional.ofNullable(compression).orElse(CompressionConfig.DEFAULT);
+    }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.song.metrics;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.event.CreateEntityEvent;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Records the shape of the songs written, as the number of lyric sections of each created or updated song.
+ */
+public class SongMetrics {
+
+    public static final String LYRIC_SECTIONS = "song.lyrics.sections";
+
+    private final DistributionSummary lyricSections;
+
+    public SongMetrics(final CrudMetrics crudMetrics) {
+        this.lyricSections = crudMetrics.summary(LYRIC_SECTIONS, "The number of lyric sections of the songs written");
+    }
+
+    @EventListener
+    public void onCreate(final CreateEntityEvent<SongEntity> event) {
+        record(event.getEntity());
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<SongEntity> event) {
+        record(event.getEntity());
+    }
+
+    private void record(final SongEntity song) {
+        lyricSections.record(song.getLyrics() != null ? song.getLyrics().size() : 0);
+    }
+
+}
@@ -30,6 +30,7 @@ import lombok.Builder;
 import lombok.Value;
 import lombok.With;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -48,6 +49,10 @@ public class SongEntity implements Entity<SongEntity> {
     @With
     private final String id;
 
+    @Version
+    @With
+    private final Long version;
+
     private final SongType type;
 
     private final String title;
@@ -25,10 +25,6 @@ package io.jrb.labs.bldr.msvc.module.song.repository;
 
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
-import reactor.core.publisher.Mono;
 
 public interface ReactiveSongRepository extends ReactiveMongoRepository<SongEntity, String> {
-
-    Mono<SongEntity> findFirstByTitle(String title);
-
 }
@@ -27,18 +27,95 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jrb.labs.bldr.msvc.module.song.model.Song;
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
 import io.jrb.labs.bldr.msvc.module.song.model.SongMetadata;
+import io.jrb.labs.bldr.msvc.module.song.model.SongSource;
+import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
 import io.jrb.labs.common.crud.EntityConverter;
-import io.jrb.labs.common.crud.ICrudService;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
 import io.jrb.labs.common.rest.CrudHandlerSupport;
+import io.jrb.labs.common.rest.InvalidRequestException;
+import io.jrb.labs.common.search.ISearchIndex;
+import io.jrb.labs.common.search.SearchHit;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class SongHandler extends CrudHandlerSupport<SongEntity, Song, SongMetadata> {
 
+    public static final String QUERY_PARAM = "q";
+    public static final int DEFAULT_SEARCH_LIMIT = 20;
+    public static final String SOURCE_SYSTEM_PARAM = "sourceSystem";
+    public static final String SOURCE_ID_PARAM = "sourceId";
+
+    private final ISongService songService;
+    private final EntityConverter<SongEntity, Song, SongMetadata> entityConverter;
+    private final ISearchIndex<SongEntity> searchIndex;
+
     public SongHandler(
             final ObjectMapper objectMapper,
-            final ICrudService<SongEntity> crudService,
-            final EntityConverter<SongEntity, Song, SongMetadata> entityConverter
+            final ISongService songService,
+            final EntityConverter<SongEntity, Song, SongMetadata> entityConverter,
+            final ISearchIndex<SongEntity> searchIndex,
+            final CrudHandlerOptions<SongEntity> options
     ) {
-        super(objectMapper, crudService, entityConverter, Song.class, SongMetadata.class, "songId");
+        super(objectMapper, songService, entityConverter, Song.class, SongMetadata.class, "songId", options);
+        this.songService = songService;
+        this.entityConverter = entityConverter;
+        this.searchIndex = searchIndex;
+    }
+
+    public Mono<ServerResponse> searchSongs(final ServerRequest request) {
+        return Mono.fromCallable(() -> requestLimit(request, DEFAULT_SEARCH_LIMIT, Integer.MAX_VALUE))
+                .flatMap(limit -> searchIndex.search(searchQuery(request), limit))
+                .flatMap(hits -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromPublisher(Flux.fromIterable(hits), SearchHit.class)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("search", request));
+    }
+
+    public Mono<ServerResponse> upsertSongBySource(final ServerRequest request) {
+        final String sourceSystem = request.pathVariable(SOURCE_SYSTEM_PARAM);
+        final String sourceId = request.pathVariable(SOURCE_ID_PARAM);
+        return request.body(BodyExtractors.toMono(Song.class))
+                .map(entityConverter::dtoToEntity)
+                .flatMap(song -> songService.upsertBySource(sourceSystem, sourceId, song)
+                        .transform(limited("upsertBySource")))
+                .flatMap(song -> updatedResponse(request, song))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("upsertBySource", request));
+    }
+
+    public Mono<ServerResponse> upsertSongsBySource(final ServerRequest request) {
+        return request.bodyToFlux(Song.class)
+                .map(this::sourcedSong)
+                .as(this::bulkItems)
+                .flatMap(songs -> songService.upsertAllBySource(songs).collectList()
+                        .transform(limited("upsertAllBySource")))
+                .flatMap(results -> bulkResponse(request, Flux.fromIterable(results)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("upsertAllBySource", request));
+    }
+
+    private SongEntity sourcedSong(final Song song) {
+        final SongSource source = song.getSource();
+        if (source == null || isBlank(source.getSourceSystem()) || isBlank(source.getSourceId())) {
+            throw new InvalidRequestException("Missing song source!");
+        }
+        return entityConverter.dtoToEntity(song);
+    }
+
+    private static boolean isBlank(final String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private String searchQuery(final ServerRequest request) {
+        return request.queryParam(QUERY_PARAM)
+                .filter(query -> !query.trim().isEmpty())
+                .orElseThrow(() -> new InvalidRequestException("Missing search query!"));
     }
 
 }
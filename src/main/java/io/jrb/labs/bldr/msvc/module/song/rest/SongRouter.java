@@ -26,9 +26,16 @@ package io.jrb.labs.bldr.msvc.module.song.rest;
 import io.jrb.labs.bldr.msvc.module.song.config.SongModuleConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicates;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import static io.jrb.labs.common.rest.MediaTypeUtils.acceptDto;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
 @Configuration
 public class SongRouter {
 
@@ -38,7 +45,20 @@ public class SongRouter {
             final SongHandler songHandler
     ) {
         final String baseResource = songModuleConfig.resources().getOrDefault("song", "/song");
-        return songHandler.createCrudEndpoints(baseResource, "songId", songHandler);
+        final String sourceResource = baseResource + "/by-source";
+        return route(
+                GET(baseResource + "/search")
+                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                songHandler::searchSongs
+        ).andRoute(
+                PUT(sourceResource + "/_bulk")
+                        .and(acceptDto()),
+                songHandler::upsertSongsBySource
+        ).andRoute(
+                PUT(sourceResource + "/{" + SongHandler.SOURCE_SYSTEM_PARAM + "}/{" + SongHandler.SOURCE_ID_PARAM + "}")
+                        .and(acceptDto()),
+                songHandler::upsertSongBySource
+        ).and(songHandler.createCrudEndpoints(baseResource, "songId", songHandler));
     }
 
 }
@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.song.search;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
+import io.jrb.labs.common.crud.EntityLookup;
+import io.jrb.labs.common.crud.event.CreateEntityEvent;
+import io.jrb.labs.common.crud.event.DeleteEntityEvent;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import io.jrb.labs.common.search.LuceneEntityIndex;
+import io.jrb.labs.common.search.SearchIndexConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Indexes the titles, authors, themes and lyrics of songs for full-text search. The index follows the song entity
+ * events, and is rebuilt from the database when it is found empty at startup. Otherwise, it is reconciled with the
+ * database at startup, to catch up with the changes made while the node was down, and then at the reconcile interval,
+ * to catch up with the changes made by other nodes or lost before being committed.
+ */
+@Slf4j
+public class SongSearchIndex extends LuceneEntityIndex<SongEntity> {
+
+    private static final String TITLE_FIELD = "title";
+    private static final String ADDITIONAL_TITLES_FIELD = "additionalTitles";
+    private static final String AUTHORS_FIELD = "authors";
+    private static final String THEMES_FIELD = "themes";
+    private static final String LYRICS_FIELD = "lyrics";
+
+    private static final Map<String, Float> SEARCH_FIELDS = searchFieldBoosts();
+
+    private final ISongService songService;
+    private final Duration reconcileInterval;
+    private volatile Disposable reconciliation;
+
+    public SongSearchIndex(final SearchIndexConfig config, final ISongService songService) {
+        super("songs", config);
+        this.songService = songService;
+        this.reconcileInterval = config.reconcileInterval();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        final Mono<Long> catchUp = isEmpty() ? rebuild(songService.all()) : reconcile();
+        reconciliation = catchUp
+                .onErrorResume(t -> {
+                    log.error("Unable to catch up the song search index with the database", t);
+                    return Mono.empty();
+                })
+                .thenMany(Flux.interval(reconcileInterval))
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile().onErrorResume(t -> {
+                    log.warn("Unable to reconcile the song search index with the database", t);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        final Disposable current = reconciliation;
+        if (current != null) {
+            current.dispose();
+        }
+        super.destroy();
+    }
+
+    @EventListener
+    public void onCreate(final CreateEntityEvent<SongEntity> event) {
+        index(event.getEntity());
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<SongEntity> event) {
+        index(event.getEntity());
+    }
+
+    @EventListener
+    public void onDelete(final DeleteEntityEvent<SongEntity> event) {
+        remove(event.getEntity().getId());
+    }
+
+    /**
+     * Reconciles the index with the songs of the database, loading those to index again by batches.
+     *
+     * @return a single-value publisher containing the number of songs indexed again or removed
+     */
+    public Mono<Long> reconcile() {
+        return reconcile(songService.allVersions(),
+                ids -> songService.getAll(ids).flatMapIterable(EntityLookup::getEntities));
+    }
+
+    @Override
+    protected Document toDocument(final SongEntity entity) {
+        final Document document = new Document();
+        addText(document, TITLE_FIELD, Collections.singletonList(entity.getTitle()));
+        addText(document, ADDITIONAL_TITLES_FIELD, entity.getAdditionalTitles());
+        addText(document, AUTHORS_FIELD, entity.getAuthors());
+        addText(document, THEMES_FIELD, entity.getThemes());
+        if (entity.getLyrics() != null) {
+            addText(document, LYRICS_FIELD, entity.getLyrics().values().stream()
+                    .filter(lines -> lines != null)
+                    .map(lines -> String.join("\n", lines))
+                    .collect(Collectors.toList()));
+        }
+        return document;
+    }
+
+    @Override
+    protected Map<String, Float> searchFields() {
+        return SEARCH_FIELDS;
+    }
+
+    @Override
+    protected Collection<String> summaryFields() {
+        return Collections.singletonList(TITLE_FIELD);
+    }
+
+    private static Map<String, Float> searchFieldBoosts() {
+        final Map<String, Float> boosts = new LinkedHashMap<>();
+        boosts.put(TITLE_FIELD, 4.0f);
+        boosts.put(ADDITIONAL_TITLES_FIELD, 2.0f);
+        boosts.put(AUTHORS_FIELD, 1.5f);
+        boosts.put(THEMES_FIELD, 1.5f);
+        boosts.put(LYRICS_FIELD, 1.0f);
+        return Collections.unmodifiableMap(boosts);
+    }
+
+}
@@ -24,11 +24,42 @@
 package io.jrb.labs.bldr.msvc.module.song.service;
 
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.BulkItemResult;
 import io.jrb.labs.common.crud.ICrudService;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface ISongService extends ICrudService<SongEntity> {
 
+    /**
+     * Retrieves the first song with the given title, ignoring case.
+     *
+     * @param title the song title
+     * @return a single-value publisher containing the song, or empty if there is none
+     */
     Mono<SongEntity> findByTitle(String title);
 
+    /**
+     * Creates or replaces the song imported from an external system, matched on its source instead of its identifier,
+     * in a single atomic write. A created song is given a new identifier, while a replaced one keeps its own.
+     *
+     * @param sourceSystem the external system
+     * @param sourceId the song identifier in the external system
+     * @param song the song, whose identifier and source are ignored
+     * @return a single-value publisher containing the persisted song
+     */
+    Mono<SongEntity> upsertBySource(String sourceSystem, String sourceId, SongEntity song);
+
+    /**
+     * Creates or replaces a batch of songs imported from external systems, matched on their source exactly like
+     * {@link #upsertBySource(String, String, SongEntity)}, in unordered bulk writes. Every song must have a complete
+     * source.
+     *
+     * @param songs the songs to be created or replaced, whose identifiers are ignored
+     * @return a stream publisher of the outcome of each item, in no particular order
+     */
+    Flux<BulkItemResult> upsertAllBySource(List<SongEntity> songs);
+
 }
@@ -25,27 +25,76 @@ package io.jrb.labs.bldr.msvc.module.song.service;
 
 
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongSource;
 import io.jrb.labs.bldr.msvc.module.song.repository.ReactiveSongRepository;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.CrudServiceOptions;
 import io.jrb.labs.common.crud.CrudServiceSupport;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 
 @Slf4j
 public class SongService extends CrudServiceSupport<SongEntity> implements ISongService {
 
-    private final ReactiveSongRepository repository;
+    /**
+     * The case-insensitive collation of the title index, which title lookups must share in order to use it.
+     */
+    public static final Collation TITLE_COLLATION = Collation.of("en").strength(Collation.ComparisonLevel.secondary());
 
-    public SongService(final ApplicationEventPublisher publisher, final ReactiveSongRepository repository) {
-        super(publisher, repository, SongEntity.class);
-        this.repository = repository;
+    private static final String SOURCE_SYSTEM_FIELD = "source.sourceSystem";
+    private static final String SOURCE_ID_FIELD = "source.sourceId";
+
+    private static final Collection<String> METADATA_FIELDS =
+            Collections.unmodifiableList(Arrays.asList("type", "title", "source"));
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    public SongService(
+            final EntityEventDispatcher eventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
+            final ReactiveSongRepository repository,
+            final CrudServiceOptions<SongEntity> options
+    ) {
+        super(eventDispatcher, mongoOperations, repository, SongEntity.class, options);
+        this.mongoOperations = mongoOperations;
     }
 
     @Override
     public Mono<SongEntity> findByTitle(final String title) {
-        return repository.findFirstByTitle(title);
+        final Query query = Query.query(Criteria.where("title").is(title)).collation(TITLE_COLLATION);
+        return mongoOperations.findOne(query, SongEntity.class).transform(guarded());
+    }
+
+    @Override
+    public Mono<SongEntity> upsertBySource(final String sourceSystem, final String sourceId, final SongEntity song) {
+        final SongEntity sourcedSong = song.toBuilder()
+                .source(SongSource.builder().sourceSystem(sourceSystem).sourceId(sourceId).build())
+                .build();
+        return upsertByKey(sourcedSong, sourceKey(sourcedSong));
+    }
+
+    @Override
+    public Flux<BulkItemResult> upsertAllBySource(final List<SongEntity> songs) {
+        return upsertAllByKey(songs, SongService::sourceKey);
+    }
+
+    @Override
+    protected Collection<String> metadataFields() {
+        return METADATA_FIELDS;
     }
 
     @Override
@@ -63,4 +112,11 @@ public class SongService extends CrudServiceSupport<SongEntity> implements ISong
                         .build();
     }
 
+    private static Map<String, Object> sourceKey(final SongEntity song) {
+        final Map<String, Object> key = new LinkedHashMap<>();
+        key.put(SOURCE_SYSTEM_FIELD, song.getSource().getSourceSystem());
+        key.put(SOURCE_ID_FIELD, song.getSource().getSourceId());
+        return key;
+    }
+
 }
@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configures the bulk operations of a module, which are written to Mongo in chunks of at most {@link #chunkSize()}
+ * documents per round trip. Exports scan {@link #exportPartitions()} ranges of identifiers in parallel, fetching
+ * {@link #exportBatchSize()} documents per cursor round trip, and checkpoint their progress every
+ * {@link #exportCheckpointInterval()} entities. A bulk request carries at most {@link #maxItems()} items, so that
+ * the items it buffers stay bounded.
+ */
+@Accessors(fluent = true) @Getter
+public class BulkConfig {
+
+    public static final BulkConfig DEFAULT = new BulkConfig(500, 8, 1000, 1000, 10000);
+
+    private final int chunkSize;
+
+    private final int exportPartitions;
+
+    private final int exportBatchSize;
+
+    private final int exportCheckpointInterval;
+
+    private final int maxItems;
+
+    public BulkConfig(final int chunkSize) {
+        this(chunkSize, DEFAULT.exportPartitions, DEFAULT.exportBatchSize, DEFAULT.exportCheckpointInterval,
+                DEFAULT.maxItems);
+    }
+
+    @ConstructorBinding
+    public BulkConfig(
+            @DefaultValue("500") final int chunkSize,
+            @DefaultValue("8") final int exportPartitions,
+            @DefaultValue("1000") final int exportBatchSize,
+            @DefaultValue("1000") final int exportCheckpointInterval,
+            @DefaultValue("10000") final int maxItems
+    ) {
+        this.chunkSize = chunkSize;
+        this.exportPartitions = exportPartitions;
+        this.exportBatchSize = exportBatchSize;
+        this.exportCheckpointInterval = exportCheckpointInterval;
+        this.maxItems = maxItems;
+    }
+
+}
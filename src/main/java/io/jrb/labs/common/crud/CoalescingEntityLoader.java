@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Loads single entities on behalf of concurrent callers, as configured by a {@link GetCoalescingConfig}:
+ * 1) the callers of the same identifier share a single in-flight lookup, which the first of them starts
+ * 2) the identifiers of the lookups started within the batch window are loaded with a single query, sent as soon as the
+ *    window elapses or the batch is full
+ * A lookup completes empty when its entity is unknown, and is forgotten once completed, so that a later caller starts a
+ * fresh one. The ratio of {@value #GET_REQUESTS} to the count of {@value #GET_BATCH_SIZE} is the number of callers
+ * served per query, and {@value #GET_BATCH_WAIT} is the latency that the batch window adds to each lookup.
+ *
+ * @param <E> the entity type
+ */
+public class CoalescingEntityLoader<E extends Entity<E>> {
+
+    public static final String GET_REQUESTS = "crud.get.requests";
+    public static final String GET_COALESCED = "crud.get.coalesced";
+    public static final String GET_BATCH_SIZE = "crud.get.batch.size";
+    public static final String GET_BATCH_WAIT = "crud.get.batch.wait";
+
+    private final Function<Collection<String>, Flux<E>> batchLoader;
+    private final long batchWindowNanos;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final Map<String, MonoProcessor<E>> inFlight;
+    private final Counter requests;
+    private final Counter coalesced;
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private Batch<E> batch;
+
+    public CoalescingEntityLoader(
+            final GetCoalescingConfig config,
+            final Function<Collection<String>, Flux<E>> batchLoader,
+            final CrudMetrics crudMetrics
+    ) {
+        this(config, batchLoader, crudMetrics, Schedulers.parallel());
+    }
+
+    /**
+     * Constructs a loader that waits for the batch windows on the given scheduler.
+     *
+     * @param config the coalescing configuration
+     * @param batchLoader the function loading the entities of a list of identifiers with a single query
+     * @param crudMetrics the metrics of the entity operations
+     * @param scheduler the scheduler of the batch windows
+     */
+    public CoalescingEntityLoader(
+            final GetCoalescingConfig config,
+            final Function<Collection<String>, Flux<E>> batchLoader,
+            final CrudMetrics crudMetrics,
+            final Scheduler scheduler
+    ) {
+        this.batchLoader = batchLoader;
+        this.batchWindowNanos = config.batchWindow().toNanos();
+        this.maxBatchSize = Math.max(1, config.maxBatchSize());
+        this.scheduler = scheduler;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.requests = crudMetrics.counter(GET_REQUESTS, "The number of entity lookups requested by gets");
+        this.coalesced = crudMetrics.counter(GET_COALESCED, "The number of gets served by an in-flight lookup");
+        this.batchSize = crudMetrics.summary(GET_BATCH_SIZE, "The number of identifiers per get query");
+        this.batchWait = crudMetrics.timer(GET_BATCH_WAIT, "The time gets wait for their batch query to be sent");
+    }
+
+    /**
+     * Loads an entity, sharing the lookup of any concurrent caller of the same identifier.
+     *
+     * @param id the entity identifier
+     * @return a single-value publisher containing the entity, or empty if unknown
+     */
+    public Mono<E> load(final String id) {
+        return Mono.defer(() -> {
+            requests.increment();
+            final MonoProcessor<E> lookup = MonoProcessor.create();
+            final MonoProcessor<E> existing = inFlight.putIfAbsent(id, lookup);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            enqueue(id, lookup);
+            return lookup;
+        });
+    }
+
+    private void enqueue(final String id, final MonoProcessor<E> lookup) {
+        final Batch<E> ready;
+        synchronized (this) {
+            if (batch == null) {
+                final Batch<E> created = new Batch<>();
+                batch = created;
+                if (batchWindowNanos > 0) {
+                    scheduler.schedule(() -> sendIfPending(created), batchWindowNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            batch.lookups.put(id, lookup);
+            batch.enqueuedAt.add(System.nanoTime());
+            ready = batchWindowNanos <= 0 || batch.lookups.size() >= maxBatchSize ? takeBatch() : null;
+        }
+        if (ready != null) {
+            send(ready);
+        }
+    }
+
+    private void sendIfPending(final Batch<E> expected) {
+        synchronized (this) {
+            if (batch != expected) {
+                return;
+            }
+            batch = null;
+        }
+        send(expected);
+    }
+
+    private Batch<E> takeBatch() {
+        final Batch<E> taken = batch;
+        batch = null;
+        return taken;
+    }
+
+    private void send(final Batch<E> sent) {
+        final List<String> ids = new ArrayList<>(sent.lookups.keySet());
+        final long sentAt = System.nanoTime();
+        batchSize.record(ids.size());
+        sent.enqueuedAt.forEach(enqueuedAt -> batchWait.record(sentAt - enqueuedAt, TimeUnit.NANOSECONDS));
+        Flux.defer(() -> batchLoader.apply(ids))
+                .collectMap(Entity::getId)
+                .subscribe(found -> sent.lookups.forEach((id, lookup) -> {
+                    inFlight.remove(id, lookup);
+                    final E entity = found.get(id);
+                    if (entity != null) {
+                        lookup.onNext(entity);
+                    } else {
+                        lookup.onComplete();
+                    }
+                }), t -> sent.lookups.forEach((id, lookup) -> {
+                    inFlight.remove(id, lookup);
+                    lookup.onError(t);
+                }));
+    }
+
+    private static final class Batch<E> {
+
+        private final Map<String, MonoProcessor<E>> lookups = new LinkedHashMap<>();
+        private final List<Long> enqueuedAt = new ArrayList<>();
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import io.jrb.labs.common.crud.breaker.CircuitBreaker;
+import io.jrb.labs.common.crud.breaker.StaleSnapshot;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Groups the optional collaborators of a {@link CrudServiceSupport}, each of which defaults to its disabled
+ * implementation, so that a service only names the ones its module enables.
+ *
+ * @param <E> the managed entity class
+ */
+@Value
+@Builder(toBuilder = true)
+public class CrudServiceOptions<E extends Entity<E>> {
+
+    /**
+     * The read-through entity cache.
+     */
+    @Builder.Default
+    private final EntityCache<E> entityCache = EntityCache.none();
+
+    /**
+     * The configuration of bulk operations.
+     */
+    @Builder.Default
+    private final BulkConfig bulkConfig = BulkConfig.DEFAULT;
+
+    /**
+     * The configuration of the coalescing of gets.
+     */
+    @Builder.Default
+    private final GetCoalescingConfig coalescingConfig = GetCoalescingConfig.DEFAULT;
+
+    /**
+     * The circuit breaker around the database calls.
+     */
+    @Builder.Default
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.none();
+
+    /**
+     * The snapshot serving reads while the circuit is open.
+     */
+    @Builder.Default
+    private final StaleSnapshot<E> staleSnapshot = StaleSnapshot.none();
+
+    /**
+     * The metrics of the entity operations.
+     */
+    @Builder.Default
+    private final CrudMetrics crudMetrics = CrudMetrics.none();
+
+    public static <E extends Entity<E>> CrudServiceOptions<E> defaults() {
+        return CrudServiceOptions.<E>builder().build();
+    }
+
+}
@@ -23,57 +23,193 @@
  */
 package io.jrb.labs.common.crud;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.jrb.labs.common.crud.breaker.CircuitBreaker;
+import io.jrb.labs.common.crud.breaker.CircuitOpenException;
+import io.jrb.labs.common.crud.breaker.StaleReadMarker;
+import io.jrb.labs.common.crud.breaker.StaleSnapshot;
+import io.jrb.labs.common.crud.cache.EntityCache;
 import io.jrb.labs.common.crud.event.CreateEntityEvent;
 import io.jrb.labs.common.crud.event.DeleteEntityEvent;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.storage.CompressingMongoConverter;
+import io.jrb.labs.common.crud.event.EntityEventSupplier;
 import io.jrb.labs.common.crud.event.GetEntityEvent;
 import io.jrb.labs.common.crud.event.UpdateEntityEvent;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEvent;
-import org.springframework.context.ApplicationEventPublisher;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides an opinionated base for a reactive CRUD service that manages entities within a Mongo NoSQL database. This
  * service provides the following additional functionality:
  * 1) Create and Update data transformers
- * 2) Spring application event thrown on any data change (Note: due to the stream nature of the {@link #all()} method,
- *    no event is fired when it is called)
+ * 2) Spring application event thrown on any data change, handed over through an {@link EntityEventDispatcher} (Note:
+ *    due to the stream nature of the {@link #all()} and {@link #page(String, int)} methods, no event is fired when
+ *    they are called)
+ * 3) Keyset pagination over the entity identifier, optionally projected down to the entity metadata fields
+ * 4) Optional read-through {@link EntityCache} in front of {@link #get(String)} and {@link #getAll(Collection)}, kept
+ *    up to date by the writes of this service
+ * 5) Single round-trip updates and deletes, where updates only write the fields that differ from the cached entity
+ * 6) Bulk creates, upserts and deletes, written as unordered bulk operations in chunks of configurable size
+ * 7) Partial updates written as Mongo update operators, such as compiled JSON Patch documents
+ * 8) Optimistic concurrency on the entity version, which every write increments, with conditional updates and deletes
+ * 9) Single and bulk upserts matched on a natural key instead of the identifier, for subclasses to expose
+ * 10) Resumable full exports, scanning ranges of the entity identifier in parallel
+ * 11) Optional coalescing of concurrent gets, which share the lookups of the same identifier and batch the others
+ *     into a single query per window
+ * 12) Optional circuit breaker around the database calls, which time out and fail fast while the database is down,
+ *     with gets, lookups, pages and full reads served from a {@link StaleSnapshot} of the last known entities
+ *     meanwhile, flagged through a {@link StaleReadMarker}. Lookups only go through the circuit for their cache misses,
+ *     and every call let through flags the {@link RoundTripMarker} of the caller
  *
  * @param <E> the managed entity class
  */
 @Slf4j
 public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudService<E> {
 
-    private final ApplicationEventPublisher publisher;
+    protected static final String ID_FIELD = "_id";
+
+    private final EntityEventDispatcher eventDispatcher;
+    private final ReactiveMongoOperations mongoOperations;
     private final ReactiveMongoRepository<E, String> repository;
     private final Class<E> entityClass;
+    private final EntityCache<E> entityCache;
+    private final BulkConfig bulkConfig;
+    private final CrudMetrics crudMetrics;
+    private final Function<String, Mono<E>> loader;
+    private final CircuitBreaker circuitBreaker;
+    private final StaleSnapshot<E> staleSnapshot;
+    private volatile List<String> fieldNames;
+    private volatile Optional<String> versionField;
 
     /**
      * Constructs a reactive MongoDB CRUD service.
      *
-     * @param publisher the Spring application event publisher
+     * @param eventDispatcher the dispatcher of entity events
+     * @param mongoOperations the reactive Mongo operations used for queries beyond the repository contract
      * @param repository the repository that manages the entity
      * @param entityClass the managed entity classname
      */
     protected CrudServiceSupport(
-            final ApplicationEventPublisher publisher,
+            final EntityEventDispatcher eventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
             final ReactiveMongoRepository<E, String> repository,
             final Class<E> entityClass
     ) {
-        this.publisher = publisher;
+        this(eventDispatcher, mongoOperations, repository, entityClass, CrudServiceOptions.defaults());
+    }
+
+    /**
+     * Constructs a reactive MongoDB CRUD service with optional collaborators, such as an entity cache, a circuit
+     * breaker around the database calls or the metrics of its operations.
+     *
+     * @param eventDispatcher the dispatcher of entity events
+     * @param mongoOperations the reactive Mongo operations used for queries beyond the repository contract
+     * @param repository the repository that manages the entity
+     * @param entityClass the managed entity classname
+     * @param options the optional collaborators of the service
+     */
+    protected CrudServiceSupport(
+            final EntityEventDispatcher eventDispatcher,
+            final ReactiveMongoOperations mongoOperations,
+            final ReactiveMongoRepository<E, String> repository,
+            final Class<E> entityClass,
+            final CrudServiceOptions<E> options
+    ) {
+        this.eventDispatcher = eventDispatcher;
+        this.mongoOperations = mongoOperations;
         this.repository = repository;
         this.entityClass = entityClass;
+        this.entityCache = options.getStaleSnapshot().tracking(options.getEntityCache());
+        this.bulkConfig = options.getBulkConfig();
+        this.crudMetrics = options.getCrudMetrics();
+        this.circuitBreaker = options.getCircuitBreaker();
+        this.staleSnapshot = options.getStaleSnapshot();
+        final GetCoalescingConfig coalescingConfig = options.getCoalescingConfig();
+        this.loader = coalescingConfig.enabled()
+                ? new CoalescingEntityLoader<>(coalescingConfig, ids -> mongoOperations.find(
+                        Query.query(Criteria.where(ID_FIELD).in(ids)), entityClass), crudMetrics)::load
+                : repository::findById;
     }
 
     @Override
     public Flux<E> all() {
-        return repository.findAll();
+        return repository.findAll()
+                .transform(guardedMany())
+                .transform(staleSnapshot::recordAll)
+                .onErrorResume(CircuitOpenException.class, e -> staleSnapshot.all()
+                        .map(entities -> StaleReadMarker.mark().thenMany(Flux.fromIterable(entities)))
+                        .orElseGet(() -> Flux.error(e)))
+                .transform(crudMetrics.timedMany("all"));
+    }
+
+    @Override
+    public Flux<E> allVersions() {
+        return Flux.defer(() -> mongoOperations.find(versionsOnly(new Query()), entityClass))
+                .transform(guardedMany())
+                .transform(crudMetrics.timedMany("allVersions"));
+    }
+
+    @Override
+    public Collection<String> compressedProperties() {
+        final MongoConverter converter = mongoOperations.getConverter();
+        return converter instanceof CompressingMongoConverter
+                ? ((CompressingMongoConverter) converter).compressedProperties(entityClass)
+                : Collections.emptySet();
+    }
+
+    @Override
+    public Collection<String> unpatchableProperties() {
+        final Set<String> properties = new HashSet<>(compressedProperties());
+        properties.addAll(derivedProperties());
+        return Collections.unmodifiableSet(properties);
     }
 
     @Override
@@ -81,30 +217,198 @@ public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudSe
         final E entityToSave = createTransformer().apply(entity);
         return Mono.just(entityToSave)
                 .flatMap(repository::save)
-                .doOnSuccess(e -> publishEvent(createEventSupplier(), e));
+                .doOnNext(entityCache::put)
+                .doOnSuccess(e -> publishEvent(createEventSupplier(), e))
+                .transform(guarded())
+                .transform(crudMetrics.timed("create"));
+    }
+
+    @Override
+    public Flux<BulkItemResult> createAll(final List<E> entities) {
+        final List<E> entitiesToSave = entities.stream()
+                .map(createTransformer())
+                .map(entity -> versionField().isPresent() ? entity.withVersion(0L) : entity)
+                .collect(Collectors.toList());
+        return bulkWrite(entitiesToSave, BulkItemStatus.CREATED, entity -> new InsertOneModel<>(toDocument(entity)))
+                .transform(guardedMany())
+                .transform(crudMetrics.timedMany("createAll"));
     }
 
     @Override
     public Mono<E> delete(final String id) {
-        return get(id)
-                .flatMap(d -> repository.deleteById(id).thenReturn(d))
-                .doOnSuccess(e -> publishEvent(deleteEventSupplier(), e));
+        return delete(id, null);
     }
 
     @Override
-    public Mono<E> get(final String id) {
+    public Mono<E> delete(final String id, final Long expectedVersion) {
         return Mono.just(id)
-                .flatMap(repository::findById)
+                .flatMap(i -> mongoOperations.findAndRemove(versionedIdQuery(i, expectedVersion), entityClass))
+                .switchIfEmpty(Mono.defer(() -> writeFailure(id, expectedVersion)))
+                .doOnNext(d -> entityCache.remove(id))
+                .doOnSuccess(e -> publishEvent(deleteEventSupplier(), e))
+                .transform(guarded())
+                .transform(crudMetrics.timed("delete"));
+    }
+
+    @Override
+    public Flux<BulkItemResult> deleteAll(final List<String> ids) {
+        return Flux.fromIterable(ids)
+                .index()
+                .buffer(bulkConfig.chunkSize())
+                .concatMap(chunk -> {
+                    final List<String> chunkIds = chunk.stream().map(Tuple2::getT2).collect(Collectors.toList());
+                    return mongoOperations.find(versionsOnly(Query.query(Criteria.where(ID_FIELD).in(chunkIds))),
+                            entityClass)
+                            .collectMap(Entity::getId)
+                            .flatMapMany(found -> deleteFound(found)
+                                    .thenMany(Flux.fromIterable(chunk).map(item -> deleteResult(item, found))));
+                })
+                .transform(guardedMany())
+                .transform(crudMetrics.timedMany("deleteAll"));
+    }
+
+    @Override
+    public Flux<ExportChunk<E>> export(final String checkpoint) {
+        final ExportCheckpoint start = checkpoint != null
+                ? ExportCheckpoint.decode(entityClass, checkpoint)
+                : ExportCheckpoint.start(bulkConfig.exportPartitions());
+        return Flux.defer(() -> {
+            final List<ExportCheckpoint.Range> ranges = new ArrayList<>(start.getRanges());
+            final List<Flux<Tuple2<Integer, E>>> scans = IntStream.range(0, ranges.size())
+                    .mapToObj(i -> mongoOperations.find(exportQuery(ranges.get(i)), entityClass)
+                            .map(entity -> Tuples.of(i, entity)))
+                    .collect(Collectors.toList());
+            // the merge keeps the order of each range, so the last entity seen in a range is where it resumes
+            return Flux.merge(Flux.fromIterable(scans), scans.size(), bulkConfig.exportBatchSize())
+                    .buffer(bulkConfig.exportCheckpointInterval())
+                    .map(items -> {
+                        items.forEach(item -> ranges.set(item.getT1(),
+                                ranges.get(item.getT1()).after(item.getT2().getId())));
+                        final List<E> entities = items.stream().map(Tuple2::getT2).collect(Collectors.toList());
+                        return ExportChunk.of(entities, new ExportCheckpoint(new ArrayList<>(ranges)).encode());
+                    });
+        }).transform(crudMetrics.timedMany("export"));
+    }
+
+    @Override
+    public Mono<E> get(final String id) {
+        return cached(id)
+                .onErrorResume(CircuitOpenException.class, e -> staleSnapshot.get(id)
+                        .flatMap(entity -> StaleReadMarker.mark().thenReturn(entity))
+                        .switchIfEmpty(Mono.error(e)))
                 .switchIfEmpty(Mono.error(new UnknownEntityException(entityClass, id)))
-                .doOnSuccess(e -> publishEvent(getEventSupplier(), e));
+                .doOnSuccess(e -> publishEvent(getEventSupplier(), e))
+                .transform(crudMetrics.timed("get"));
+    }
+
+    @Override
+    public Mono<EntityLookup<E>> getAll(final Collection<String> ids) {
+        return Mono.fromCallable(() -> ids.stream()
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .collect(Collectors.toList()))
+                .flatMap(distinctIds -> {
+                    final Map<String, E> cached = new HashMap<>();
+                    distinctIds.forEach(id -> entityCache.getIfPresent(id).ifPresent(entity -> cached.put(id, entity)));
+                    final List<String> misses = distinctIds.stream()
+                            .filter(id -> !cached.containsKey(id))
+                            .collect(Collectors.toList());
+                    final Flux<E> loaded = misses.isEmpty()
+                            ? Flux.empty()
+                            : Flux.defer(() -> mongoOperations.find(
+                                            Query.query(Criteria.where(ID_FIELD).in(misses)), entityClass))
+                                    .doOnNext(entityCache::put)
+                                    .transform(guardedMany())
+                                    .onErrorResume(CircuitOpenException.class, e -> staleMisses(misses, e));
+                    return loaded.collectMap(Entity::getId).map(found -> {
+                        found.putAll(cached);
+                        return EntityLookup.of(distinctIds, found);
+                    });
+                })
+                .doOnNext(lookup -> lookup.getEntities().forEach(e -> publishEvent(getEventSupplier(), e)))
+                .transform(crudMetrics.timed("getAll"));
+    }
+
+    @Override
+    public Mono<EntityPage<E>> page(final String pageToken, final int limit) {
+        return page(pageToken, limit, Collections.emptyList())
+                .transform(guarded())
+                .onErrorResume(CircuitOpenException.class, e -> stalePage(pageToken, limit, e))
+                .transform(crudMetrics.timed("page"));
+    }
+
+    @Override
+    public Mono<EntityPage<E>> metadataPage(final String pageToken, final int limit) {
+        return page(pageToken, limit, metadataFields())
+                .transform(guarded())
+                .onErrorResume(CircuitOpenException.class, e -> stalePage(pageToken, limit, e))
+                .transform(crudMetrics.timed("metadataPage"));
+    }
+
+    @Override
+    public Mono<E> patch(final String id, final Update update) {
+        return patch(id, update, null);
+    }
+
+    @Override
+    public Mono<E> patch(final String id, final Update update, final Long expectedVersion) {
+        return patch(id, update, expectedVersion, Collections.emptyList());
+    }
+
+    @Override
+    public Mono<E> patch(
+            final String id,
+            final Update update,
+            final Long expectedVersion,
+            final Collection<Criteria> conditions
+    ) {
+        final boolean unchanged = UpdateDiffUtils.isEmpty(update);
+        if (unchanged && conditions.isEmpty()) {
+            // nothing is written, so the current entity is answered as is, without an event
+            return cached(id)
+                    .switchIfEmpty(Mono.error(() -> new UnknownEntityException(entityClass, id)))
+                    .flatMap(entity -> requireVersion(entity, expectedVersion))
+                    .transform(crudMetrics.timed("patch"));
+        }
+        final Mono<E> patched = unchanged
+                ? mongoOperations.findOne(conditionalQuery(id, expectedVersion, conditions), entityClass)
+                : modify(id, expectedVersion, update, conditions);
+        return patched
+                .switchIfEmpty(Mono.defer(() -> conditions.isEmpty()
+                        ? writeFailure(id, expectedVersion)
+                        : patchFailure(id, expectedVersion)))
+                .doOnNext(entityCache::put)
+                .doOnSuccess(e -> publishEvent(updateEventSupplier(), e))
+                .transform(guarded())
+                .transform(crudMetrics.timed("patch"));
+    }
+
+    @Override
+    public Flux<BulkItemResult> upsertAll(final List<E> entities) {
+        final UpdateOptions upsert = new UpdateOptions().upsert(true);
+        final List<E> entitiesToSave = entities.stream()
+                .map(entity -> entity.getId() != null ? entity : createTransformer().apply(entity))
+                .collect(Collectors.toList());
+        return bulkWrite(entitiesToSave, BulkItemStatus.UPDATED,
+                entity -> new UpdateOneModel<>(Filters.eq(ID_FIELD, entity.getId()), upsertDocument(entity), upsert))
+                .transform(guardedMany())
+                .transform(crudMetrics.timedMany("upsertAll"));
     }
 
     @Override
     public Mono<E> update(final String id, final E entity) {
-        return get(id)
-                .map(d -> updateTransformer().apply(d, entity))
-                .flatMap(repository::save)
-                .doOnSuccess(e -> publishEvent(updateEventSupplier(), e));
+        return update(id, entity, null);
+    }
+
+    @Override
+    public Mono<E> update(final String id, final E entity, final Long expectedVersion) {
+        return Mono.fromCallable(() -> entityCache.getIfPresent(id)
+                        .filter(original -> expectedVersion == null || expectedVersion.equals(original.getVersion())))
+                .flatMap(original -> update(id, original.orElse(null), entity, expectedVersion))
+                .doOnNext(entityCache::put)
+                .doOnSuccess(e -> publishEvent(updateEventSupplier(), e))
+                .transform(guarded())
+                .transform(crudMetrics.timed("update"));
     }
 
     /**
@@ -113,8 +417,28 @@ public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudSe
      *
      * @return the custom create entity event
      */
-    protected Function<E, ApplicationEvent> createEventSupplier() {
-        return CreateEntityEvent::new;
+    protected EntityEventSupplier<E> createEventSupplier() {
+        return EntityEventSupplier.of(CreateEntityEvent.class, CreateEntityEvent::new);
+    }
+
+    /**
+     * Override this hook to name the fields loaded by {@link #metadataPage(String, int)}. The identifier is always
+     * loaded. By default, no projection is applied and complete entities are loaded.
+     *
+     * @return the metadata field names
+     */
+    protected Collection<String> metadataFields() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Override this hook to name the properties that the service derives when the entity is written, such as copies
+     * of referenced entities, which partial updates must not write in place. By default, there are none.
+     *
+     * @return the derived property names
+     */
+    protected Collection<String> derivedProperties() {
+        return Collections.emptyList();
     }
 
     protected Function<E, E> createTransformer() {
@@ -127,8 +451,8 @@ public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudSe
      *
      * @return the custom create entity event
      */
-    protected Function<E, ApplicationEvent> deleteEventSupplier() {
-        return DeleteEntityEvent::new;
+    protected EntityEventSupplier<E> deleteEventSupplier() {
+        return EntityEventSupplier.of(DeleteEntityEvent.class, DeleteEntityEvent::new);
     }
 
     /**
@@ -137,8 +461,8 @@ public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudSe
      *
      * @return the custom create entity event
      */
-    protected Function<E, ApplicationEvent> getEventSupplier() {
-        return GetEntityEvent::new;
+    protected EntityEventSupplier<E> getEventSupplier() {
+        return EntityEventSupplier.of(GetEntityEvent.class, GetEntityEvent::new);
     }
 
     /**
@@ -147,15 +471,532 @@ public abstract class CrudServiceSupport<E extends Entity<E>> implements ICrudSe
      *
      * @return the custom create entity event
      */
-    protected Function<E, ApplicationEvent> updateEventSupplier() {
-        return UpdateEntityEvent::new;
+    protected EntityEventSupplier<E> updateEventSupplier() {
+        return EntityEventSupplier.of(UpdateEntityEvent.class, UpdateEntityEvent::new);
     }
 
+    /**
+     * Supplies the function merging an update into the persisted entity. Updates are written in a single round trip,
+     * so the persisted entity is only known when it is cached. Otherwise, the update itself stands in for it, and
+     * the transformer must not depend on fields that only the persisted entity holds. The entity version is managed
+     * by this service, and any version set by the transformer is ignored.
+     *
+     * @return the update transformer, applied to the persisted entity and the update
+     */
     protected abstract BiFunction<E, E, E> updateTransformer();
 
-    private void publishEvent(final Function<E, ApplicationEvent> eventSupplier, final E entity) {
-        if (eventSupplier != null) {
-            publisher.publishEvent(eventSupplier.apply(entity));
+    /**
+     * Creates or replaces an entity matched on a natural key instead of its identifier, in a single atomic write. A
+     * created entity is given a new identifier, while a replaced one keeps its own. The natural key must be backed by
+     * a unique index, so that concurrent upserts of the same key cannot create duplicates.
+     *
+     * @param entity the entity to be created or replaced, whose identifier is ignored
+     * @param naturalKey the values of the natural key, by stored field name
+     * @return a single-value publisher containing the persisted entity
+     */
+    protected Mono<E> upsertByKey(final E entity, final Map<String, Object> naturalKey) {
+        return Mono.fromCallable(() -> createTransformer().apply(entity))
+                .flatMap(created -> mongoOperations.findAndModify(
+                        Query.query(keyCriteria(naturalKey)),
+                        Update.fromDocument(upsertDocument(created)).setOnInsert(ID_FIELD, created.getId()),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        entityClass)
+                        .doOnNext(entityCache::put)
+                        .doOnNext(persisted -> publishEvent(persisted.getId().equals(created.getId())
+                                ? createEventSupplier()
+                                : updateEventSupplier(), persisted)))
+                // two concurrent upserts of a new key both try to insert, and the loser finds the winner on retry
+                .retry(1, DuplicateKeyException.class::isInstance)
+                .transform(guarded())
+                .transform(crudMetrics.timed("upsertByKey"));
+    }
+
+    /**
+     * Creates or replaces a batch of entities matched on a natural key, exactly like {@link #upsertByKey(Entity, Map)},
+     * in unordered bulk writes. The identifiers of the replaced entities are looked up once per chunk, after it is
+     * written. Items are written independently, so that the failure of one item does not prevent the others from
+     * being written.
+     *
+     * @param entities the entities to be created or replaced, whose identifiers are ignored
+     * @param naturalKey the function extracting the values of the natural key of an entity, by stored field name
+     * @return a stream publisher of the outcome of each item, in no particular order
+     */
+    protected Flux<BulkItemResult> upsertAllByKey(
+            final List<E> entities,
+            final Function<E, Map<String, Object>> naturalKey
+    ) {
+        final UpdateOptions upsert = new UpdateOptions().upsert(true);
+        final List<E> entitiesToSave = entities.stream()
+                .map(createTransformer())
+                .collect(Collectors.toList());
+        return bulkWrite(entitiesToSave, BulkItemStatus.UPDATED,
+                entity -> new UpdateOneModel<>(keyFilter(mongoKey(naturalKey.apply(entity))),
+                        upsertDocument(entity).append("$setOnInsert", new Document(ID_FIELD, entity.getId())),
+                        upsert),
+                (chunkEntities, replaced) -> replacedIds(chunkEntities, replaced, naturalKey))
+                .transform(guardedMany())
+                .transform(crudMetrics.timedMany("upsertAllByKey"));
+    }
+
+    /**
+     * Guards a single-value database call with the circuit breaker of this service, for use with
+     * {@link Mono#transform}. A call let through by the circuit flags the {@link RoundTripMarker} of the caller.
+     *
+     * @param <T> the value type
+     * @return the transformer that guards the call
+     */
+    protected <T> Function<Mono<T>, Mono<T>> guarded() {
+        return mono -> RoundTripMarker.mark().then(mono).transform(circuitBreaker.guarded());
+    }
+
+    /**
+     * Guards a multi-value database call exactly like {@link #guarded()}, for use with {@link Flux#transform}.
+     *
+     * @param <T> the value type
+     * @return the transformer that guards the call
+     */
+    protected <T> Function<Flux<T>, Flux<T>> guardedMany() {
+        return flux -> RoundTripMarker.mark().thenMany(flux).transform(circuitBreaker.guardedMany());
+    }
+
+    protected Query idQuery(final String id) {
+        return Query.query(Criteria.where(ID_FIELD).is(id));
+    }
+
+    /**
+     * Writes the difference between the cached entity, if any, and the updated entity. The write is conditioned on the
+     * version of the cached entity, and a stale cached entity makes the update fall back to writing every field.
+     */
+    private Mono<E> update(final String id, final E original, final E entity, final Long expectedVersion) {
+        final E updated = updateTransformer().apply(original != null ? original : entity.withId(id), entity).withId(id);
+        final Update update = UpdateDiffUtils.diff(toDiffDocument(original), toDiffDocument(updated), fieldNames());
+        if (original != null && UpdateDiffUtils.isEmpty(update)) {
+            return Mono.just(original);
+        }
+        final Long version = expectedVersion != null ? expectedVersion : original != null ? original.getVersion() : null;
+        return modify(id, version, update)
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null && original != null
+                        ? update(id, null, entity, null)
+                        : writeFailure(id, expectedVersion)));
+    }
+
+    private Mono<E> modify(final String id, final Long expectedVersion, final Update update) {
+        return modify(id, expectedVersion, update, Collections.emptyList());
+    }
+
+    private Mono<E> modify(
+            final String id,
+            final Long expectedVersion,
+            final Update update,
+            final Collection<Criteria> conditions
+    ) {
+        versionField().ifPresent(field -> update.inc(field, 1));
+        return mongoOperations.findAndModify(conditionalQuery(id, expectedVersion, conditions), update,
+                FindAndModifyOptions.options().returnNew(true), entityClass);
+    }
+
+    private Query conditionalQuery(final String id, final Long expectedVersion, final Collection<Criteria> conditions) {
+        final Query query = versionedIdQuery(id, expectedVersion);
+        conditions.forEach(query::addCriteria);
+        return query;
+    }
+
+    private Query versionedIdQuery(final String id, final Long expectedVersion) {
+        final Query query = idQuery(id);
+        if (expectedVersion != null) {
+            versionField().ifPresent(field -> query.addCriteria(Criteria.where(field).is(expectedVersion)));
+        }
+        return query;
+    }
+
+    /**
+     * Retrieves an entity through the cache, only guarding the load of a miss, so that a hit makes no round trip.
+     */
+    private Mono<E> cached(final String id) {
+        return Mono.just(id)
+                // the loader runs outside of the subscription when the cache is asynchronous, so it is given the
+                // subscriber context of the caller explicitly
+                .flatMap(i -> Mono.subscriberContext().flatMap(context -> entityCache.get(i,
+                        key -> loader.apply(key).transform(guarded()).subscriberContext(context))));
+    }
+
+    private Mono<E> requireVersion(final E entity, final Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            // the cached entity may be outdated, so the next read goes back to the database
+            entityCache.invalidate(entity.getId());
+            return Mono.error(new EntityVersionMismatchException(entityClass, entity.getId(), expectedVersion));
+        }
+        return Mono.just(entity);
+    }
+
+    private Mono<E> writeFailure(final String id, final Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(new UnknownEntityException(entityClass, id));
+        }
+        return mongoOperations.exists(idQuery(id), entityClass)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        return Mono.error(new UnknownEntityException(entityClass, id));
+                    }
+                    entityCache.invalidate(id);
+                    return Mono.error(new EntityVersionMismatchException(entityClass, id, expectedVersion));
+                });
+    }
+
+    /**
+     * Tells why a conditional patch matched no entity: the entity is missing, is at another version than expected, or
+     * else does not meet the conditions of the patch.
+     */
+    private Mono<E> patchFailure(final String id, final Long expectedVersion) {
+        return mongoOperations.findOne(versionsOnly(idQuery(id)), entityClass)
+                .switchIfEmpty(Mono.error(() -> new UnknownEntityException(entityClass, id)))
+                .flatMap(entity -> {
+                    if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+                        entityCache.invalidate(id);
+                        return Mono.error(new EntityVersionMismatchException(entityClass, id, expectedVersion));
+                    }
+                    return Mono.error(new InvalidPatchException(entityClass, id));
+                });
+    }
+
+    private Flux<BulkItemResult> bulkWrite(
+            final List<E> entities,
+            final BulkItemStatus writtenStatus,
+            final Function<E, WriteModel<Document>> writeModel
+    ) {
+        return bulkWrite(entities, writtenStatus, writeModel, (chunkEntities, replaced) -> Mono.just(chunkEntities));
+    }
+
+    /**
+     * Writes entities in chunks, resolving the entities of the items that were written without being upserted
+     * before reporting them, for writes that do not know the identifiers of the entities they replace.
+     */
+    private Flux<BulkItemResult> bulkWrite(
+            final List<E> entities,
+            final BulkItemStatus writtenStatus,
+            final Function<E, WriteModel<Document>> writeModel,
+            final BiFunction<List<E>, List<Integer>, Mono<List<E>>> replacedResolver
+    ) {
+        final int chunkSize = bulkConfig.chunkSize();
+        final int chunkCount = (entities.size() + chunkSize - 1) / chunkSize;
+        return Flux.range(0, chunkCount).concatMap(chunk -> {
+            final int offset = chunk * chunkSize;
+            final List<E> chunkEntities = entities.subList(offset, Math.min(offset + chunkSize, entities.size()));
+            final List<WriteModel<Document>> writeModels = chunkEntities.stream()
+                    .map(writeModel)
+                    .collect(Collectors.toList());
+            return Mono.from(bulkCollection().bulkWrite(writeModels, new BulkWriteOptions().ordered(false)))
+                    .map(result -> Tuples.of(result, Collections.<BulkWriteError>emptyList()))
+                    .onErrorResume(MongoBulkWriteException.class,
+                            e -> Mono.just(Tuples.of(e.getWriteResult(), e.getWriteErrors())))
+                    .flatMap(outcome -> {
+                        final List<Integer> replaced =
+                                replacedIndexes(chunkEntities.size(), outcome.getT1(), outcome.getT2());
+                        return replacedResolver.apply(chunkEntities, replaced)
+                                .flatMap(resolved -> persisted(resolved, writtenStatus, outcome.getT2())
+                                        .map(persisted -> chunkResults(offset, resolved, persisted, writtenStatus,
+                                                outcome.getT1(), outcome.getT2())));
+                    })
+                    .onErrorResume(t -> Mono.just(failedResults(offset, chunkEntities, t)))
+                    .flatMapIterable(Function.identity());
+        });
+    }
+
+    private MongoCollection<Document> bulkCollection() {
+        return mongoOperations.getCollection(mongoOperations.getCollectionName(entityClass));
+    }
+
+    /**
+     * Reads back the entities written by a chunk of upserts, whose versions are only known to the database, so that
+     * their events carry the persisted entities. Created entities are written as given, and need no read.
+     */
+    private Mono<Map<String, E>> persisted(
+            final List<E> chunkEntities,
+            final BulkItemStatus writtenStatus,
+            final List<BulkWriteError> errors
+    ) {
+        final Set<Integer> failed = errors.stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        final List<String> writtenIds = IntStream.range(0, chunkEntities.size())
+                .filter(i -> !failed.contains(i))
+                .mapToObj(i -> chunkEntities.get(i).getId())
+                .collect(Collectors.toList());
+        if (writtenStatus == BulkItemStatus.CREATED || writtenIds.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return mongoOperations.find(Query.query(Criteria.where(ID_FIELD).in(writtenIds)), entityClass)
+                .collectMap(Entity::getId);
+    }
+
+    private List<BulkItemResult> chunkResults(
+            final int offset,
+            final List<E> chunkEntities,
+            final Map<String, E> persisted,
+            final BulkItemStatus writtenStatus,
+            final BulkWriteResult result,
+            final List<BulkWriteError> errors
+    ) {
+        final Map<Integer, String> errorMessages = errors.stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+        final List<Integer> upserts = result.getUpserts().stream()
+                .map(BulkWriteUpsert::getIndex)
+                .collect(Collectors.toList());
+        return IntStream.range(0, chunkEntities.size()).mapToObj(i -> {
+            final E entity = chunkEntities.get(i);
+            final BulkItemResult.BulkItemResultBuilder itemResult = BulkItemResult.builder()
+                    .index(offset + i)
+                    .id(entity.getId());
+            if (errorMessages.containsKey(i)) {
+                return itemResult.status(BulkItemStatus.FAILED).message(errorMessages.get(i)).build();
+            }
+            final BulkItemStatus status = upserts.contains(i) ? BulkItemStatus.CREATED : writtenStatus;
+            final E persistedEntity;
+            if (writtenStatus == BulkItemStatus.CREATED) {
+                entityCache.put(entity);
+                persistedEntity = entity;
+            } else {
+                // the upserted entity was read back after the write, and may already be older than a cached one
+                entityCache.invalidate(entity.getId());
+                persistedEntity = persisted.get(entity.getId());
+                if (persistedEntity != null) {
+                    staleSnapshot.put(persistedEntity);
+                }
+            }
+            publishEvent(status == BulkItemStatus.CREATED ? createEventSupplier() : updateEventSupplier(),
+                    persistedEntity);
+            return itemResult.status(status).build();
+        }).collect(Collectors.toList());
+    }
+
+    private static List<Integer> replacedIndexes(
+            final int size,
+            final BulkWriteResult result,
+            final List<BulkWriteError> errors
+    ) {
+        final Set<Integer> skipped = new HashSet<>();
+        result.getUpserts().forEach(upsert -> skipped.add(upsert.getIndex()));
+        errors.forEach(error -> skipped.add(error.getIndex()));
+        return IntStream.range(0, size)
+                .filter(i -> !skipped.contains(i))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    private Mono<List<E>> replacedIds(
+            final List<E> chunkEntities,
+            final List<Integer> replaced,
+            final Function<E, Map<String, Object>> naturalKey
+    ) {
+        if (replaced.isEmpty()) {
+            return Mono.just(chunkEntities);
+        }
+        final List<Map<String, Object>> keys = replaced.stream()
+                .map(i -> mongoKey(naturalKey.apply(chunkEntities.get(i))))
+                .collect(Collectors.toList());
+        final Set<String> keyFields = keys.get(0).keySet();
+        return Flux.from(bulkCollection()
+                        .find(Filters.or(keys.stream().map(CrudServiceSupport::keyFilter).collect(Collectors.toList())))
+                        .projection(Projections.include(new ArrayList<>(keyFields))))
+                .collectMap(document -> documentKey(document, keyFields), document -> document.get(ID_FIELD).toString())
+                .map(ids -> {
+                    final List<E> resolved = new ArrayList<>(chunkEntities);
+                    for (int i = 0; i < replaced.size(); i++) {
+                        final String id = ids.get(keys.get(i));
+                        if (id != null) {
+                            resolved.set(replaced.get(i), chunkEntities.get(replaced.get(i)).withId(id));
+                        }
+                    }
+                    return resolved;
+                });
+    }
+
+    private Criteria keyCriteria(final Map<String, Object> naturalKey) {
+        return new Criteria().andOperator(naturalKey.entrySet().stream()
+                .map(entry -> Criteria.where(entry.getKey()).is(entry.getValue()))
+                .toArray(Criteria[]::new));
+    }
+
+    private Map<String, Object> mongoKey(final Map<String, Object> naturalKey) {
+        final Map<String, Object> mongoKey = new LinkedHashMap<>();
+        final MongoConverter converter = mongoOperations.getConverter();
+        naturalKey.forEach((field, value) -> mongoKey.put(field, converter.convertToMongoType(value)));
+        return mongoKey;
+    }
+
+    private static Bson keyFilter(final Map<String, Object> mongoKey) {
+        return Filters.and(mongoKey.entrySet().stream()
+                .map(entry -> Filters.eq(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList()));
+    }
+
+    private static Map<String, Object> documentKey(final Document document, final Set<String> keyFields) {
+        final Map<String, Object> key = new LinkedHashMap<>();
+        keyFields.forEach(field -> {
+            Object value = document;
+            for (final String part : field.split("\\.")) {
+                value = value instanceof Document ? ((Document) value).get(part) : null;
+            }
+            key.put(field, value);
+        });
+        return key;
+    }
+
+    private List<BulkItemResult> failedResults(final int offset, final List<E> chunkEntities, final Throwable t) {
+        log.error("Bulk write of " + entityClass.getSimpleName() + " failed", t);
+        return IntStream.range(0, chunkEntities.size())
+                .mapToObj(i -> BulkItemResult.builder()
+                        .index(offset + i)
+                        .id(chunkEntities.get(i).getId())
+                        .status(BulkItemStatus.FAILED)
+                        .message(t.getMessage())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Restricts the entities loaded by a query to their identifier and version.
+     */
+    private Query versionsOnly(final Query query) {
+        query.fields().include(ID_FIELD);
+        versionField().ifPresent(field -> query.fields().include(field));
+        return query;
+    }
+
+    private Mono<Void> deleteFound(final Map<String, E> found) {
+        return found.isEmpty()
+                ? Mono.empty()
+                : mongoOperations.remove(Query.query(Criteria.where(ID_FIELD).in(found.keySet())), entityClass).then();
+    }
+
+    private BulkItemResult deleteResult(final Tuple2<Long, String> item, final Map<String, E> found) {
+        final String id = item.getT2();
+        final BulkItemResult.BulkItemResultBuilder itemResult = BulkItemResult.builder()
+                .index(item.getT1().intValue())
+                .id(id);
+        final E entity = found.get(id);
+        if (entity == null) {
+            return itemResult.status(BulkItemStatus.NOT_FOUND).build();
+        }
+        entityCache.remove(id);
+        publishEvent(deleteEventSupplier(), entity);
+        return itemResult.status(BulkItemStatus.DELETED).build();
+    }
+
+    private Document toDocument(final E entity) {
+        if (entity == null) {
+            return null;
+        }
+        final Document document = new Document();
+        mongoOperations.getConverter().write(entity, document);
+        return document;
+    }
+
+    private Document toDiffDocument(final E entity) {
+        final Document document = toDocument(entity);
+        if (document != null) {
+            versionField().ifPresent(document::remove);
+        }
+        return document;
+    }
+
+    private Document upsertDocument(final E entity) {
+        final Update update = UpdateDiffUtils.diff(null, toDiffDocument(entity), fieldNames());
+        versionField().ifPresent(field -> update.inc(field, 1));
+        return update.getUpdateObject();
+    }
+
+    private List<String> fieldNames() {
+        if (fieldNames == null) {
+            fieldNames = StreamSupport.stream(persistentEntity().spliterator(), false)
+                    .filter(property -> !property.isIdProperty() && !property.isVersionProperty())
+                    .map(MongoPersistentProperty::getFieldName)
+                    .collect(Collectors.toList());
+        }
+        return fieldNames;
+    }
+
+    private Optional<String> versionField() {
+        if (versionField == null) {
+            versionField = Optional.ofNullable(persistentEntity().getVersionProperty())
+                    .map(MongoPersistentProperty::getFieldName);
+        }
+        return versionField;
+    }
+
+    private MongoPersistentEntity<?> persistentEntity() {
+        return mongoOperations.getConverter().getMappingContext().getRequiredPersistentEntity(entityClass);
+    }
+
+    private Mono<EntityPage<E>> page(final String pageToken, final int limit, final Collection<String> fields) {
+        return Mono.fromCallable(() -> pageQuery(pageToken, limit, fields))
+                .flatMap(query -> mongoOperations.find(query, entityClass).collectList())
+                .map(entities -> EntityPage.of(entities, limit));
+    }
+
+    /**
+     * Serves a page from the stale snapshot while the circuit is open, provided that the snapshot holds every entity,
+     * in the same identifier order as the database would.
+     */
+    private Mono<EntityPage<E>> stalePage(final String pageToken, final int limit, final CircuitOpenException e) {
+        return staleSnapshot.all()
+                .map(entities -> Mono.fromCallable(() -> {
+                    final String lastId = Optional.ofNullable(pageToken)
+                            .map(token -> PageTokenUtils.decode(entityClass, token))
+                            .orElse(null);
+                    return EntityPage.of(entities.stream()
+                            .filter(entity -> lastId == null || entity.getId().compareTo(lastId) > 0)
+                            .sorted(Comparator.comparing(Entity::getId))
+                            .limit(limit + 1L)
+                            .collect(Collectors.toList()), limit);
+                }).flatMap(page -> StaleReadMarker.mark().thenReturn(page)))
+                .orElseGet(() -> Mono.error(e));
+    }
+
+    /**
+     * Serves the cache misses of a lookup from the stale snapshot while the circuit is open, provided that the snapshot
+     * holds all of them, as an entity missing from the snapshot may well exist in the database.
+     */
+    private Flux<E> staleMisses(final List<String> misses, final CircuitOpenException e) {
+        return Flux.fromIterable(misses)
+                .concatMap(staleSnapshot::get)
+                .collectList()
+                .flatMapMany(entities -> entities.size() == misses.size()
+                        ? StaleReadMarker.mark().thenMany(Flux.fromIterable(entities))
+                        : Flux.error(e));
+    }
+
+    private Query pageQuery(final String pageToken, final int limit, final Collection<String> fields) {
+        final Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, ID_FIELD))
+                .limit(limit + 1);
+        fields.forEach(field -> query.fields().include(field));
+        Optional.ofNullable(pageToken)
+                .map(token -> PageTokenUtils.decode(entityClass, token))
+                .ifPresent(lastId -> query.addCriteria(Criteria.where(ID_FIELD).gt(lastId)));
+        return query;
+    }
+
+    private Query exportQuery(final ExportCheckpoint.Range range) {
+        final Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, ID_FIELD))
+                .cursorBatchSize(bulkConfig.exportBatchSize());
+        if (range.getFrom() != null || range.getAfter() != null || range.getTo() != null) {
+            final Criteria criteria = Criteria.where(ID_FIELD);
+            if (range.getAfter() != null) {
+                criteria.gt(range.getAfter());
+            } else if (range.getFrom() != null) {
+                criteria.gte(range.getFrom());
+            }
+            if (range.getTo() != null) {
+                criteria.lt(range.getTo());
+            }
+            query.addCriteria(criteria);
+        }
+        return query;
+    }
+
+    private void publishEvent(final EntityEventSupplier<E> eventSupplier, final E entity) {
+        if (entity != null) {
+            eventDispatcher.dispatch(entityClass, eventSupplier, entity);
         }
     }
 
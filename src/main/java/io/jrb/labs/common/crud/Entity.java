@@ -26,7 +26,8 @@ package io.jrb.labs.common.crud;
 import java.io.Serializable;
 
 /**
- * Defines an entity manageable by an {@link ICrudService} implementation.
+ * Defines an entity manageable by an {@link ICrudService} implementation. The entity version is incremented by every
+ * write, so that concurrent writers can detect that the entity changed underneath them.
  *
  * @param <E> the entity type
  */
@@ -36,4 +37,8 @@ public interface Entity<E extends Entity> extends Serializable {
 
     E withId(String id);
 
+    Long getVersion();
+
+    E withVersion(Long version);
+
 }
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the entities found for a list of identifiers, in the order they were requested, along with the identifiers
+ * that were not found.
+ *
+ * @param <E> the entity type
+ */
+@Value
+public class EntityLookup<E extends Entity<E>> {
+
+    private final List<E> entities;
+
+    private final List<String> missingIds;
+
+    /**
+     * Builds a lookup from the entities found, ordering them as requested.
+     *
+     * @param ids the requested identifiers, without duplicates
+     * @param found the entities found, by identifier
+     * @param <E> the entity type
+     * @return the lookup of the requested identifiers
+     */
+    public static <E extends Entity<E>> EntityLookup<E> of(final List<String> ids, final Map<String, E> found) {
+        final List<E> entities = new ArrayList<>();
+        final List<String> missingIds = new ArrayList<>();
+        ids.forEach(id -> {
+            final E entity = found.get(id);
+            if (entity != null) {
+                entities.add(entity);
+            } else {
+                missingIds.add(id);
+            }
+        });
+        return new EntityLookup<>(Collections.unmodifiableList(entities), Collections.unmodifiableList(missingIds));
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Defines a single, bounded page of entities retrieved using keyset pagination. The page carries an opaque token
+ * that, when passed back to {@link ICrudService#page(String, int)}, continues the listing right after the last entity
+ * of this page.
+ *
+ * @param <E> the entity type
+ */
+@Value
+public class EntityPage<E extends Entity<E>> {
+
+    private final List<E> entities;
+
+    private final String nextPageToken;
+
+    /**
+     * Builds a page from a result that was fetched with one more entity than the requested limit. The extra entity is
+     * only used to detect whether another page exists and is not part of this page.
+     *
+     * @param entities the fetched entities, ordered by their keyset field
+     * @param limit the requested page size
+     * @param <E> the entity type
+     * @return the page of entities
+     */
+    public static <E extends Entity<E>> EntityPage<E> of(final List<E> entities, final int limit) {
+        if (entities.size() <= limit) {
+            return new EntityPage<>(Collections.unmodifiableList(entities), null);
+        }
+        final List<E> pageEntities = entities.subList(0, limit);
+        final String nextPageToken = PageTokenUtils.encode(pageEntities.get(limit - 1).getId());
+        return new EntityPage<>(Collections.unmodifiableList(pageEntities), nextPageToken);
+    }
+
+    public Optional<String> getNextPageToken() {
+        return Optional.ofNullable(nextPageToken);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import lombok.Value;
+import org.bson.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the progress of an export, which scans the entity identifiers as a set of contiguous ranges in parallel. Each
+ * range remembers the last identifier exported from it, and the checkpoint is carried by an opaque token from which an
+ * interrupted export resumes right after the entities already exported. The ranges are kept in the token, so that a
+ * change of the configured partitioning does not affect the exports in progress.
+ */
+@Value
+public class ExportCheckpoint {
+
+    private static final int KEYSPACE = 256;
+    private static final String RANGES_KEY = "r";
+    private static final String FROM_KEY = "f";
+    private static final String AFTER_KEY = "a";
+    private static final String TO_KEY = "t";
+
+    private final List<Range> ranges;
+
+    /**
+     * Splits the identifiers into contiguous ranges on their first two hexadecimal digits, which evenly spreads the
+     * random UUIDs assigned to new entities. The first and last ranges are unbounded, so that any other identifier
+     * still belongs to exactly one range.
+     *
+     * @param partitions the number of ranges, from 1 to 256
+     * @return the checkpoint of an export that has not started yet
+     */
+    public static ExportCheckpoint start(final int partitions) {
+        final int count = Math.max(1, Math.min(partitions, KEYSPACE));
+        final List<Range> ranges = new ArrayList<>(count);
+        String from = null;
+        for (int i = 1; i <= count; i++) {
+            final String to = i < count ? String.format("%02x", i * KEYSPACE / count) : null;
+            ranges.add(new Range(from, null, to));
+            from = to;
+        }
+        return new ExportCheckpoint(Collections.unmodifiableList(ranges));
+    }
+
+    public static ExportCheckpoint decode(final Class<? extends Entity> entityClass, final String token) {
+        final List<Range> ranges;
+        try {
+            final Document document = Document.parse(
+                    new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            ranges = document.getList(RANGES_KEY, Document.class).stream()
+                    .map(range -> new Range(range.getString(FROM_KEY), range.getString(AFTER_KEY),
+                            range.getString(TO_KEY)))
+                    .collect(Collectors.toList());
+        } catch (final RuntimeException e) {
+            throw new InvalidExportCheckpointException(entityClass, token, e);
+        }
+        if (ranges.isEmpty()) {
+            throw new InvalidExportCheckpointException(entityClass, token);
+        }
+        return new ExportCheckpoint(Collections.unmodifiableList(ranges));
+    }
+
+    public String encode() {
+        final List<Document> encodedRanges = ranges.stream()
+                .map(range -> new Document(FROM_KEY, range.getFrom())
+                        .append(AFTER_KEY, range.getAfter())
+                        .append(TO_KEY, range.getTo()))
+                .collect(Collectors.toList());
+        final byte[] token = new Document(RANGES_KEY, encodedRanges).toJson().getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Defines a range of identifiers, from an inclusive lower bound, or right after the last exported identifier, up
+     * to an exclusive upper bound. A missing bound leaves the range open on that side.
+     */
+    @Value
+    public static class Range {
+
+        private final String from;
+
+        private final String after;
+
+        private final String to;
+
+        public Range after(final String lastId) {
+            return new Range(from, lastId, to);
+        }
+
+    }
+
+}
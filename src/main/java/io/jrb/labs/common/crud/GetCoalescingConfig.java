@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the coalescing of the single-entity gets of a module. Concurrent gets of the same identifier share a
+ * single lookup, and the distinct identifiers requested within {@link #batchWindow()} are looked up with a single
+ * query of at most {@link #maxBatchSize()} identifiers. A zero window only shares the lookups of the same identifier.
+ */
+@Accessors(fluent = true) @Getter
+public class GetCoalescingConfig {
+
+    public static final GetCoalescingConfig DEFAULT = new GetCoalescingConfig(false, Duration.ofMillis(2), 100);
+
+    private final boolean enabled;
+
+    private final Duration batchWindow;
+
+    private final int maxBatchSize;
+
+    @ConstructorBinding
+    public GetCoalescingConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("2ms") final Duration batchWindow,
+            @DefaultValue("100") final int maxBatchSize
+    ) {
+        this.enabled = enabled;
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+}
@@ -23,9 +23,14 @@
  */
 package io.jrb.labs.common.crud;
 
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Defines the contract for a reactive service that persists {@link Entity} beans.
  *
@@ -40,6 +45,31 @@ public interface ICrudService<E extends Entity<E>> {
      */
     Flux<E> all();
 
+    /**
+     * Retrieves the identifier and version of every persisted entity, leaving any other field unset, so that copies
+     * of the entities kept elsewhere can be checked against the database without loading them whole.
+     *
+     * @return a stream publisher of the partially-loaded entities
+     */
+    Flux<E> allVersions();
+
+    /**
+     * Names the entity properties that are stored as compressed blocks. Partial updates can only replace such a
+     * property as a whole, by rewriting the entity.
+     *
+     * @return the names of the compressed properties
+     */
+    Collection<String> compressedProperties();
+
+    /**
+     * Names the entity properties that partial updates cannot write in place, either because they are stored as
+     * compressed blocks or because the service derives part of them when the entity is written. A patch touching such
+     * a property is applied by rewriting the entity.
+     *
+     * @return the names of the properties that cannot be patched in place
+     */
+    Collection<String> unpatchableProperties();
+
     /**
      * Persists a new entity.
      *
@@ -48,6 +78,24 @@ public interface ICrudService<E extends Entity<E>> {
      */
     Mono<E> create(E entity);
 
+    /**
+     * Persists a batch of new entities. Items are written independently, so that the failure of one item does not
+     * prevent the others from being created.
+     *
+     * @param entities the entities to be created
+     * @return a stream publisher of the outcome of each item, in no particular order
+     */
+    Flux<BulkItemResult> createAll(List<E> entities);
+
+    /**
+     * Removes a batch of persisted entities. Unknown identifiers are reported as such, without failing the batch. Only
+     * the identifier and version of the removed entities are loaded, so their delete events carry nothing else.
+     *
+     * @param ids the entity identifiers
+     * @return a stream publisher of the outcome of each item, in no particular order
+     */
+    Flux<BulkItemResult> deleteAll(List<String> ids);
+
     /**
      * Removes a persisted entity.
      *
@@ -56,6 +104,24 @@ public interface ICrudService<E extends Entity<E>> {
      */
     Mono<E> delete(String id);
 
+    /**
+     * Removes a persisted entity, provided that it is still at the expected version.
+     *
+     * @param id the entity identifier
+     * @param expectedVersion the expected entity version, or null to remove any version
+     * @return a single-value publisher containing the removed entity, or an {@link EntityVersionMismatchException}
+     */
+    Mono<E> delete(String id, Long expectedVersion);
+
+    /**
+     * Streams every entity for a full export, scanning ranges of identifiers in parallel. The entities come in chunks,
+     * each with the checkpoint token from which the export resumes right after it.
+     *
+     * @param checkpoint the checkpoint token to resume from, or null to start a new export
+     * @return a stream publisher of the exported chunks, in no particular order of identifiers
+     */
+    Flux<ExportChunk<E>> export(String checkpoint);
+
     /**
      * Retrieves a single persisted entity using its identifier.
      *
@@ -64,6 +130,79 @@ public interface ICrudService<E extends Entity<E>> {
      */
     Mono<E> get(String id);
 
+    /**
+     * Retrieves a list of persisted entities with a single query, reading the cached ones from the cache. Duplicate
+     * identifiers are only looked up once, and unknown ones are reported instead of failing the whole lookup.
+     *
+     * @param ids the entity identifiers
+     * @return a single-value publisher containing the entities found, in the requested order, and the missing ids
+     */
+    Mono<EntityLookup<E>> getAll(Collection<String> ids);
+
+    /**
+     * Retrieves a bounded page of persisted entities, ordered by their identifier. Each page resumes right after the
+     * last entity of the previous one, so the cost of a page depends on its size and not on the number of entities.
+     *
+     * @param pageToken the continuation token of the previous page, or null for the first page
+     * @param limit the maximum number of entities in the page
+     * @return a single-value publisher containing the page of entities
+     */
+    Mono<EntityPage<E>> page(String pageToken, int limit);
+
+    /**
+     * Retrieves a bounded page of persisted entities exactly like {@link #page(String, int)}, but only loads the
+     * metadata fields of each entity. Any field outside the metadata is left unset on the returned entities.
+     *
+     * @param pageToken the continuation token of the previous page, or null for the first page
+     * @param limit the maximum number of entities in the page
+     * @return a single-value publisher containing the page of partially-loaded entities
+     */
+    Mono<EntityPage<E>> metadataPage(String pageToken, int limit);
+
+    /**
+     * Applies a partial update to a persisted entity in a single atomic write. The update transformer is bypassed, so
+     * the update must only touch fields that clients are allowed to change.
+     *
+     * @param id the entity identifier
+     * @param update the Mongo update operators, expressed on the entity property names
+     * @return a single-value publisher containing the persisted entity with the update applied
+     */
+    Mono<E> patch(String id, Update update);
+
+    /**
+     * Applies a partial update to a persisted entity exactly like {@link #patch(String, Update)}, provided that it is
+     * still at the expected version.
+     *
+     * @param id the entity identifier
+     * @param update the Mongo update operators, expressed on the entity property names
+     * @param expectedVersion the expected entity version, or null to update any version
+     * @return a single-value publisher containing the patched entity, or an {@link EntityVersionMismatchException}
+     */
+    Mono<E> patch(String id, Update update, Long expectedVersion);
+
+    /**
+     * Applies a partial update to a persisted entity exactly like {@link #patch(String, Update, Long)}, provided that
+     * the entity also meets the given conditions.
+     *
+     * @param id the entity identifier
+     * @param update the Mongo update operators, expressed on the entity property names
+     * @param expectedVersion the expected entity version, or null to update any version
+     * @param conditions the criteria the entity must meet for the update to apply
+     * @return a single-value publisher containing the patched entity, or an {@link InvalidPatchException} if the
+     * entity does not meet the conditions
+     */
+    Mono<E> patch(String id, Update update, Long expectedVersion, Collection<Criteria> conditions);
+
+    /**
+     * Creates or replaces a batch of entities, matched on their identifier. Entities without an identifier are
+     * created. Items are written independently, so that the failure of one item does not prevent the others from
+     * being written.
+     *
+     * @param entities the entities to be created or replaced
+     * @return a stream publisher of the outcome of each item, in no particular order
+     */
+    Flux<BulkItemResult> upsertAll(List<E> entities);
+
     /**
      * Updates a persisted entity.
      *
@@ -73,4 +212,14 @@ public interface ICrudService<E extends Entity<E>> {
      */
     Mono<E> update(String id, E entity);
 
+    /**
+     * Updates a persisted entity, provided that it is still at the expected version.
+     *
+     * @param id the entity identifier
+     * @param entity the entity updates
+     * @param expectedVersion the expected entity version, or null to update any version
+     * @return a single-value publisher containing the updated entity, or an {@link EntityVersionMismatchException}
+     */
+    Mono<E> update(String id, E entity, Long expectedVersion);
+
 }
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Computes the Mongo update that turns one version of a document into another, as {@code $set} and {@code $unset}
+ * operations on the fields that differ. Embedded documents are compared field by field, so that a change to a single
+ * map entry only rewrites that entry. Arrays are compared, and rewritten, as a whole.
+ */
+public class UpdateDiffUtils {
+
+    private static final Set<String> IGNORED_FIELDS = new HashSet<>(Arrays.asList("_id", "_class"));
+
+    private UpdateDiffUtils() {}
+
+    /**
+     * Computes the update between two documents.
+     *
+     * @param original the persisted document, or null when unknown
+     * @param updated the updated document
+     * @param fieldNames the top-level fields of the entity, unset when absent from an update with no known original
+     * @return the update, with no operations if the documents are equivalent
+     */
+    public static Update diff(final Document original, final Document updated, final Collection<String> fieldNames) {
+        final Update update = new Update();
+        if (original == null) {
+            updated.forEach((field, value) -> {
+                if (!IGNORED_FIELDS.contains(field)) {
+                    update.set(field, value);
+                }
+            });
+            fieldNames.stream()
+                    .filter(field -> !IGNORED_FIELDS.contains(field) && !updated.containsKey(field))
+                    .forEach(update::unset);
+        } else {
+            diff("", original, updated, update);
+        }
+        return update;
+    }
+
+    public static boolean isEmpty(final Update update) {
+        return update.getUpdateObject().isEmpty();
+    }
+
+    private static void diff(final String prefix, final Map<String, Object> original, final Map<String, Object> updated, final Update update) {
+        updated.forEach((field, value) -> {
+            if (prefix.isEmpty() && IGNORED_FIELDS.contains(field)) {
+                return;
+            }
+            final Object originalValue = original.get(field);
+            if (originalValue instanceof Document && value instanceof Document) {
+                diff(prefix + field + '.', (Document) originalValue, (Document) value, update);
+            } else if (!Objects.equals(originalValue, value) || !original.containsKey(field)) {
+                update.set(prefix + field, value);
+            }
+        });
+        original.keySet().stream()
+                .filter(field -> !updated.containsKey(field))
+                .filter(field -> !(prefix.isEmpty() && IGNORED_FIELDS.contains(field)))
+                .forEach(field -> update.unset(prefix + field));
+    }
+
+}
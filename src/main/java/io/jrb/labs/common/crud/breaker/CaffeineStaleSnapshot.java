@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jrb.labs.common.crud.Entity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides a size-bounded {@link StaleSnapshot} on top of a Caffeine cache whose entries never expire. The snapshot
+ * serves every entity only while none was evicted, or changed without being known, since the last full read
+ * completed. The stale reads it serves are
+ * counted as crud.circuit.stale, tagged by module.
+ *
+ * @param <E> the entity type
+ */
+public class CaffeineStaleSnapshot<E extends Entity<E>> implements StaleSnapshot<E> {
+
+    static final String STALE_COUNTER = "crud.circuit.stale";
+
+    private final Cache<String, E> entities;
+    private final Counter staleReads;
+    private final AtomicLong gaps;
+    private volatile boolean complete;
+
+    public CaffeineStaleSnapshot(final String module, final long maximumSize, final MeterRegistry meterRegistry) {
+        this.gaps = new AtomicLong();
+        this.entities = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .executor(Runnable::run)
+                .<String, E>removalListener((id, entity, cause) -> {
+                    if (cause.wasEvicted()) {
+                        markGap();
+                    }
+                })
+                .build();
+        this.staleReads = Counter.builder(STALE_COUNTER)
+                .description("The number of reads served from the stale snapshot while the circuit was open")
+                .tag("module", module.toLowerCase())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<E> get(final String id) {
+        return Mono.fromCallable(() -> entities.getIfPresent(id))
+                .doOnNext(entity -> staleReads.increment());
+    }
+
+    @Override
+    public Optional<List<E>> all() {
+        if (!complete) {
+            return Optional.empty();
+        }
+        staleReads.increment();
+        return Optional.of(new ArrayList<>(entities.asMap().values()));
+    }
+
+    @Override
+    public void put(final E entity) {
+        entities.put(entity.getId(), entity);
+    }
+
+    @Override
+    public void invalidate(final String id) {
+        if (entities.getIfPresent(id) == null) {
+            // the entity may exist without its last version being known, so the snapshot can no longer list them all
+            markGap();
+        }
+    }
+
+    @Override
+    public void remove(final String id) {
+        entities.invalidate(id);
+    }
+
+    @Override
+    public Flux<E> recordAll(final Flux<E> all) {
+        return Flux.defer(() -> {
+            final long gapsBefore = gaps.get();
+            return all
+                    .doOnNext(this::put)
+                    .doOnComplete(() -> {
+                        entities.cleanUp();
+                        complete = gaps.get() == gapsBefore;
+                    });
+        });
+    }
+
+    private void markGap() {
+        gaps.incrementAndGet();
+        complete = false;
+    }
+
+}
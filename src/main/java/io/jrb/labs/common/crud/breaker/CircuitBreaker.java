@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Defines a circuit breaker around database calls. A call made while the circuit is open fails right away with a
+ * {@link CircuitOpenException}, without being subscribed.
+ */
+public interface CircuitBreaker {
+
+    /**
+     * Guards a single-value call, for use with {@link Mono#transform}.
+     *
+     * @param <T> the value type
+     * @return the transformer that guards the call
+     */
+    <T> Function<Mono<T>, Mono<T>> guarded();
+
+    /**
+     * Guards a multi-value call, for use with {@link Flux#transform}. The timeout applies to each value in turn.
+     *
+     * @param <T> the value type
+     * @return the transformer that guards the call
+     */
+    <T> Function<Flux<T>, Flux<T>> guardedMany();
+
+    CircuitState state();
+
+    /**
+     * Provides the share of failed calls among the recent ones.
+     *
+     * @return the failure rate, between 0 and 1
+     */
+    double failureRate();
+
+    static CircuitBreaker none() {
+        return NoCircuitBreaker.INSTANCE;
+    }
+
+}
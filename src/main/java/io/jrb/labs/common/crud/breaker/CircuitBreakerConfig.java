@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the circuit breaker around the database calls of a module. Each call is given up after the timeout. The
+ * circuit opens once the share of failed calls among the last {@link #slidingWindowSize()} ones reaches the failure
+ * rate threshold, provided that at least {@link #minimumCalls()} were made, and lets {@link #halfOpenCalls()} trial
+ * calls through once it has been open for the open duration. Up to {@link #staleSnapshotSize()} entities are kept
+ * aside to serve stale reads while the circuit is open.
+ */
+@Accessors(fluent = true) @Getter
+public class CircuitBreakerConfig {
+
+    public static final CircuitBreakerConfig DEFAULT =
+            new CircuitBreakerConfig(false, Duration.ofSeconds(5), 0.5, 50, 20, Duration.ofSeconds(10), 3, 10_000);
+
+    private final boolean enabled;
+
+    private final Duration timeout;
+
+    private final double failureRateThreshold;
+
+    private final int slidingWindowSize;
+
+    private final int minimumCalls;
+
+    private final Duration openDuration;
+
+    private final int halfOpenCalls;
+
+    private final long staleSnapshotSize;
+
+    @ConstructorBinding
+    public CircuitBreakerConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("5s") final Duration timeout,
+            @DefaultValue("0.5") final double failureRateThreshold,
+            @DefaultValue("50") final int slidingWindowSize,
+            @DefaultValue("20") final int minimumCalls,
+            @DefaultValue("10s") final Duration openDuration,
+            @DefaultValue("3") final int halfOpenCalls,
+            @DefaultValue("10000") final long staleSnapshotSize
+    ) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slidingWindowSize = slidingWindowSize;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.staleSnapshotSize = staleSnapshotSize;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Stands in for a disabled stale snapshot: it holds nothing, so reads fail while the circuit is open.
+ */
+@SuppressWarnings("rawtypes")
+final class NoStaleSnapshot implements StaleSnapshot {
+
+    static final NoStaleSnapshot INSTANCE = new NoStaleSnapshot();
+
+    private NoStaleSnapshot() {}
+
+    @Override
+    public Mono get(final String id) {
+        return Mono.empty();
+    }
+
+    @Override
+    public Optional all() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(final Entity entity) {
+    }
+
+    @Override
+    public void invalidate(final String id) {
+    }
+
+    @Override
+    public void remove(final String id) {
+    }
+
+    @Override
+    public Flux recordAll(final Flux entities) {
+        return entities;
+    }
+
+    @Override
+    public EntityCache tracking(final EntityCache cache) {
+        return cache;
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Breaks the circuit around the database calls of a module once too many of them fail:
+ * 1) while closed, the outcome of each call is recorded in a sliding window of the last calls, and the circuit opens
+ *    once the window holds enough calls and the share of failures reaches the threshold
+ * 2) while open, calls fail fast with a {@link CircuitOpenException} until the open duration has elapsed
+ * 3) the circuit then turns half-open and lets a few trial calls through: it closes once they all succeed, and opens
+ *    again as soon as one of them fails
+ * Only timeouts and errors telling that the database is unreachable or overloaded count as failures, so that business
+ * errors such as unknown entities or version conflicts never open the circuit. The outcome of a call that started
+ * before the last state change is ignored. The state, the failure rate and the calls rejected are published as
+ * crud.circuit.state, crud.circuit.failure.rate and crud.circuit.rejected, tagged by module.
+ */
+public class SlidingWindowCircuitBreaker implements CircuitBreaker {
+
+    static final String STATE_GAUGE = "crud.circuit.state";
+    static final String FAILURE_RATE_GAUGE = "crud.circuit.failure.rate";
+    static final String REJECTED_COUNTER = "crud.circuit.rejected";
+
+    private static final List<Class<? extends Throwable>> FAILURES = Arrays.asList(
+            TimeoutException.class,
+            DataAccessResourceFailureException.class,
+            TransientDataAccessException.class,
+            MongoSocketException.class,
+            MongoTimeoutException.class,
+            MongoNotPrimaryException.class,
+            MongoNodeIsRecoveringException.class,
+            MongoExecutionTimeoutException.class
+    );
+
+    private final String module;
+    private final Duration timeout;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    private final boolean[] window;
+    private final Counter rejected;
+    private CircuitState state;
+    private long generation;
+    private int windowCalls;
+    private int windowFailures;
+    private int windowNext;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public SlidingWindowCircuitBreaker(
+            final String module,
+            final CircuitBreakerConfig config,
+            final MeterRegistry meterRegistry
+    ) {
+        this(module, config, meterRegistry, System::nanoTime);
+    }
+
+    SlidingWindowCircuitBreaker(
+            final String module,
+            final CircuitBreakerConfig config,
+            final MeterRegistry meterRegistry,
+            final LongSupplier nanoClock
+    ) {
+        this.module = module;
+        this.timeout = config.timeout();
+        this.failureRateThreshold = config.failureRateThreshold();
+        this.window = new boolean[Math.max(1, config.slidingWindowSize())];
+        this.minimumCalls = Math.max(1, Math.min(window.length, config.minimumCalls()));
+        this.openNanos = config.openDuration().toNanos();
+        this.halfOpenCalls = Math.max(1, config.halfOpenCalls());
+        this.nanoClock = nanoClock;
+        this.state = CircuitState.CLOSED;
+        final Tags tags = Tags.of("module", module.toLowerCase());
+        Gauge.builder(STATE_GAUGE, this, breaker -> breaker.state().ordinal())
+                .description("The state of the circuit around the database: 0 closed, 1 half-open, 2 open")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(FAILURE_RATE_GAUGE, this, SlidingWindowCircuitBreaker::failureRate)
+                .description("The share of failed database calls in the sliding window of the circuit")
+                .tags(tags)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_COUNTER)
+                .description("The number of database calls rejected by the open circuit")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> Function<Mono<T>, Mono<T>> guarded() {
+        return mono -> Mono.defer(() -> {
+            final long permit = acquire();
+            return mono
+                    .timeout(timeout)
+                    .doOnSuccess(value -> onOutcome(permit, false))
+                    .doOnError(t -> onOutcome(permit, isFailure(t)))
+                    .doOnCancel(() -> onCancel(permit));
+        });
+    }
+
+    @Override
+    public <T> Function<Flux<T>, Flux<T>> guardedMany() {
+        return flux -> Flux.defer(() -> {
+            final long permit = acquire();
+            return flux
+                    .timeout(timeout)
+                    .doOnComplete(() -> onOutcome(permit, false))
+                    .doOnError(t -> onOutcome(permit, isFailure(t)))
+                    .doOnCancel(() -> onCancel(permit));
+        });
+    }
+
+    @Override
+    public synchronized CircuitState state() {
+        return state;
+    }
+
+    @Override
+    public synchronized double failureRate() {
+        return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+    }
+
+    private synchronized long acquire() {
+        final long now = nanoClock.getAsLong();
+        if (state == CircuitState.OPEN && now - openedAt >= openNanos) {
+            transition(CircuitState.HALF_OPEN);
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == CircuitState.OPEN) {
+            rejected.increment();
+            throw new CircuitOpenException(module, Duration.ofNanos(openNanos - (now - openedAt)));
+        } else if (state == CircuitState.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                // the trial calls in flight settle the state within the timeout
+                rejected.increment();
+                throw new CircuitOpenException(module, timeout);
+            }
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    private synchronized void onOutcome(final long permit, final boolean failed) {
+        if (permit != generation) {
+            return;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (failed) {
+                open();
+            } else if (++halfOpenSuccesses == halfOpenCalls) {
+                transition(CircuitState.CLOSED);
+            }
+            return;
+        }
+        if (windowCalls == window.length) {
+            windowFailures -= window[windowNext] ? 1 : 0;
+        } else {
+            windowCalls++;
+        }
+        window[windowNext] = failed;
+        windowFailures += failed ? 1 : 0;
+        windowNext = (windowNext + 1) % window.length;
+        if (windowCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    private synchronized void onCancel(final long permit) {
+        // a cancelled trial call gives its permit back, so that the circuit does not stay half-open for good
+        if (permit == generation && state == CircuitState.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void open() {
+        transition(CircuitState.OPEN);
+        openedAt = nanoClock.getAsLong();
+    }
+
+    private void transition(final CircuitState newState) {
+        state = newState;
+        generation++;
+        windowCalls = 0;
+        windowFailures = 0;
+        windowNext = 0;
+    }
+
+    static boolean isFailure(final Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+            final Throwable current = cause;
+            if (FAILURES.stream().anyMatch(failure -> failure.isInstance(current))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Mirrors the writes of an entity cache into a stale snapshot, so that the snapshot follows every entity read or
+ * written through the cache.
+ *
+ * @param <E> the entity type
+ */
+class SnapshotTrackingEntityCache<E extends Entity<E>> implements EntityCache<E> {
+
+    private final EntityCache<E> cache;
+    private final StaleSnapshot<E> snapshot;
+
+    SnapshotTrackingEntityCache(final EntityCache<E> cache, final StaleSnapshot<E> snapshot) {
+        this.cache = cache;
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Mono<E> get(final String id, final Function<String, Mono<E>> loader) {
+        return cache.get(id, key -> loader.apply(key).doOnNext(snapshot::put));
+    }
+
+    @Override
+    public Optional<E> getIfPresent(final String id) {
+        return cache.getIfPresent(id);
+    }
+
+    @Override
+    public void put(final E entity) {
+        cache.put(entity);
+        snapshot.put(entity);
+    }
+
+    @Override
+    public void invalidate(final String id) {
+        cache.invalidate(id);
+        snapshot.invalidate(id);
+    }
+
+    @Override
+    public void remove(final String id) {
+        cache.remove(id);
+        snapshot.remove(id);
+    }
+
+    @Override
+    public void invalidateAll() {
+        // the snapshot keeps the last known entities, which it only serves as stale reads
+        cache.invalidateAll();
+    }
+
+}
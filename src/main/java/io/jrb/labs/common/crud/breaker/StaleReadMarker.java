@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Tells a caller that the entities it read came from the stale snapshot. The caller puts a marker in the subscriber
+ * context of its read, and the service flags the marker when it serves the read from the snapshot.
+ */
+public class StaleReadMarker {
+
+    private static final String CONTEXT_KEY = StaleReadMarker.class.getName();
+
+    private volatile boolean stale;
+
+    /**
+     * Provides the subscriber context carrying this marker, for use with {@link Mono#subscriberContext(Context)}.
+     *
+     * @return the context
+     */
+    public Context context() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Flags the marker found in the subscriber context of the read, if any.
+     *
+     * @return a publisher completing once the marker is flagged
+     */
+    public static Mono<Void> mark() {
+        return Mono.subscriberContext()
+                .doOnNext(context -> context.<StaleReadMarker>getOrEmpty(CONTEXT_KEY)
+                        .ifPresent(marker -> marker.stale = true))
+                .then();
+    }
+
+}
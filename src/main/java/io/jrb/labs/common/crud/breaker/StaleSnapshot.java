@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.cache.EntityCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Defines a snapshot of the last known version of the entities, which keeps serving reads while the circuit around the
+ * database is open. Unlike an {@link EntityCache}, its entries never expire, as a stale entity beats no entity at all
+ * when the database is unreachable.
+ *
+ * @param <E> the entity type
+ */
+public interface StaleSnapshot<E extends Entity<E>> {
+
+    /**
+     * Retrieves the last known version of an entity.
+     *
+     * @param id the entity identifier
+     * @return a single-value publisher containing the entity, or empty if not in the snapshot
+     */
+    Mono<E> get(String id);
+
+    /**
+     * Retrieves the last known version of every entity, provided that the snapshot holds all of them.
+     *
+     * @return the entities, or empty if the snapshot is partial
+     */
+    Optional<List<E>> all();
+
+    void put(E entity);
+
+    /**
+     * Records that an entity changed without its new version being known. The snapshot keeps serving the last known
+     * version, or stops serving full reads if it never held the entity.
+     *
+     * @param id the entity identifier
+     */
+    void invalidate(String id);
+
+    void remove(String id);
+
+    /**
+     * Puts every entity of a full read into the snapshot, which serves them all once the read completes, provided that
+     * none of them was evicted.
+     *
+     * @param entities the stream publisher of every entity
+     * @return the same stream publisher, recorded into the snapshot
+     */
+    Flux<E> recordAll(Flux<E> entities);
+
+    /**
+     * Decorates an entity cache so that the entities it caches, invalidates and removes are put into, invalidated in and
+     * removed from this snapshot as well.
+     *
+     * @param cache the entity cache
+     * @return the decorated entity cache
+     */
+    default EntityCache<E> tracking(final EntityCache<E> cache) {
+        return new SnapshotTrackingEntityCache<>(cache, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <E extends Entity<E>> StaleSnapshot<E> none() {
+        return (StaleSnapshot<E>) NoStaleSnapshot.INSTANCE;
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.ICrudService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Fills the stale snapshot of a service with a full read once the application is ready, so that full reads and pages
+ * can be served from the snapshot should the circuit open before any client has read every entity. Afterwards, the
+ * entity cache of the service keeps the snapshot up to date.
+ *
+ * @param <E> the entity type
+ */
+@Slf4j
+public class StaleSnapshotPrimer<E extends Entity<E>> implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final String module;
+    private final ICrudService<E> crudService;
+
+    public StaleSnapshotPrimer(final String module, final ICrudService<E> crudService) {
+        this.module = module;
+        this.crudService = crudService;
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        crudService.all().count().subscribe(
+                count -> log.info("Primed the stale snapshot of module {} with {} entities", module, count),
+                t -> log.warn("Unable to prime the stale snapshot of module {}", module, t)
+        );
+    }
+
+}
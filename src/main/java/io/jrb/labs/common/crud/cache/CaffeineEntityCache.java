@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jrb.labs.common.crud.Entity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Provides a size- and time-bounded {@link EntityCache} on top of a Caffeine asynchronous cache. Concurrent misses on
+ * the same identifier wait on a single load, which protects the store from cache stampedes on hot entities.
+ *
+ * When refresh-ahead is enabled, a hit on an entry older than the refresh interval returns the cached entity right
+ * away and reloads it in the background, so hot entities rarely expire in front of a reader. Hit, miss and eviction
+ * statistics are bound to the meter registry under the cache name.
+ *
+ * @param <E> the entity type
+ */
+@Slf4j
+public class CaffeineEntityCache<E extends Entity<E>> implements EntityCache<E> {
+
+    private final AsyncCache<String, CachedEntity<E>> cache;
+    private final long refreshAfterNanos;
+    private final Set<String> refreshing;
+
+    public CaffeineEntityCache(final String cacheName, final EntityCacheConfig config, final MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.maximumSize())
+                .expireAfterWrite(config.expireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        this.refreshAfterNanos = config.refreshAfterWrite().toNanos();
+        this.refreshing = ConcurrentHashMap.newKeySet();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), cacheName, Collections.emptyList());
+    }
+
+    @Override
+    public Mono<E> get(final String id, final Function<String, Mono<E>> loader) {
+        return Mono.defer(() -> {
+            final CompletableFuture<CachedEntity<E>> cached =
+                    cache.get(id, (key, executor) -> loader.apply(key).map(CachedEntity::new).toFuture());
+            return Mono.fromCompletionStage(cached.thenApply(Function.identity()));
+        })
+                .doOnNext(entry -> refreshIfStale(id, entry, loader))
+                .map(CachedEntity::getEntity);
+    }
+
+    @Override
+    public Optional<E> getIfPresent(final String id) {
+        return Optional.ofNullable(cache.synchronous().getIfPresent(id)).map(CachedEntity::getEntity);
+    }
+
+    @Override
+    public void put(final E entity) {
+        cache.put(entity.getId(), CompletableFuture.completedFuture(new CachedEntity<>(entity)));
+    }
+
+    @Override
+    public void invalidate(final String id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Reloads a stale entry in the background. The reloaded entity only replaces the entry the refresh started from,
+     * so that a refresh racing with a write or an invalidation never brings back an older entity, and an entity that
+     * is no longer found is dropped.
+     */
+    private void refreshIfStale(final String id, final CachedEntity<E> entry, final Function<String, Mono<E>> loader) {
+        if (refreshAfterNanos > 0 && entry.age() > refreshAfterNanos && refreshing.add(id)) {
+            final CompletableFuture<CachedEntity<E>> current = cache.asMap().get(id);
+            if (current == null || current.isCompletedExceptionally() || current.getNow(null) != entry) {
+                refreshing.remove(id);
+                return;
+            }
+            loader.apply(id)
+                    .doFinally(signal -> refreshing.remove(id))
+                    .subscribe(
+                            entity -> cache.asMap().replace(id, current,
+                                    CompletableFuture.completedFuture(new CachedEntity<>(entity))),
+                            t -> log.warn("Unable to refresh cached entity " + id, t),
+                            () -> cache.asMap().remove(id, current));
+        }
+    }
+
+    @Value
+    private static class CachedEntity<E> {
+
+        private final E entity;
+        private final long loadedAt = System.nanoTime();
+
+        long age() {
+            return System.nanoTime() - loadedAt;
+        }
+
+    }
+
+}
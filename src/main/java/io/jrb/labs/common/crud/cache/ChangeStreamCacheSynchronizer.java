@@ -0,0 +1,290 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import com.mongodb.MongoServerException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the entity cache of a node coherent with the writes of every node, by watching the change stream of the
+ * entity collection once the application is ready:
+ * 1) an entity changed or deleted by any node is dropped from the cache, or replaced by its new version when refresh
+ *    is enabled, unless the cache already holds that version, as it does after the writes of this node
+ * 2) the whole cache is dropped when the collection is dropped or renamed, or when the stream cannot resume where it
+ *    left off, since the changes in between are unknown
+ * 3) the resume token is saved under the node identifier at most once per save interval, so that the stream resumes
+ *    after a restart, and the stream is reopened after the retry delay whenever it fails
+ * The time between a write and its processing is published as crud.cache.invalidation.lag, to the second as that is
+ * the resolution of the cluster time, and the entities dropped or refreshed are counted as crud.cache.invalidations.
+ *
+ * @param <E> the entity type
+ */
+@Slf4j
+public class ChangeStreamCacheSynchronizer<E extends Entity<E>>
+        implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    static final String LAG_TIMER = "crud.cache.invalidation.lag";
+    static final String INVALIDATIONS_COUNTER = "crud.cache.invalidations";
+
+    private static final String ID_FIELD = "_id";
+    private static final Set<OperationType> COLLECTION_CHANGES =
+            EnumSet.of(OperationType.DROP, OperationType.RENAME, OperationType.DROP_DATABASE, OperationType.INVALIDATE);
+    // InvalidResumeToken, ChangeStreamFatalError and ChangeStreamHistoryLost
+    private static final List<Integer> RESUME_FAILURES = Arrays.asList(260, 280, 286);
+
+    private final ChangeStreamConfig config;
+    private final ReactiveMongoOperations mongoOperations;
+    private final Class<E> entityClass;
+    private final EntityCache<E> entityCache;
+    private final ResumeTokenStore tokenStore;
+    private final String collectionName;
+    private final String tokenKey;
+    private final Timer lag;
+    private final Counter invalidations;
+    private volatile BsonValue resumeToken;
+    private volatile Disposable subscription;
+    private volatile Optional<String> versionField;
+
+    public ChangeStreamCacheSynchronizer(
+            final ChangeStreamConfig config,
+            final ReactiveMongoOperations mongoOperations,
+            final Class<E> entityClass,
+            final EntityCache<E> entityCache,
+            final ResumeTokenStore tokenStore,
+            final CrudMetrics crudMetrics
+    ) {
+        this.config = config;
+        this.mongoOperations = mongoOperations;
+        this.entityClass = entityClass;
+        this.entityCache = entityCache;
+        this.tokenStore = tokenStore;
+        this.collectionName = mongoOperations.getCollectionName(entityClass);
+        this.tokenKey = nodeId(config) + ":" + collectionName;
+        this.lag = crudMetrics.timer(LAG_TIMER, "The time between a write and its processing by the entity cache");
+        this.invalidations = crudMetrics.counter(INVALIDATIONS_COUNTER,
+                "The number of entities dropped or refreshed in the entity cache after a write");
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        subscription = synchronize().subscribe(
+                null,
+                t -> log.error("Unable to watch the changes to " + collectionName, t)
+        );
+    }
+
+    @Override
+    public void destroy() {
+        final Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    /**
+     * Watches the changes to the entity collection, from the saved resume token if any, and applies them to the
+     * entity cache until cancelled.
+     *
+     * @return a publisher of the saves of the resume token
+     */
+    public Flux<Void> synchronize() {
+        return tokenStore.load(tokenKey)
+                .doOnNext(token -> resumeToken = token)
+                .onErrorResume(t -> {
+                    log.warn("Unable to load the resume token of {}, watching from now on", collectionName, t);
+                    return Mono.empty();
+                })
+                .thenMany(watch())
+                .sample(config.tokenSaveInterval())
+                .concatMap(change -> Mono.justOrEmpty(resumeToken)
+                        .flatMap(token -> tokenStore.save(tokenKey, token))
+                        .onErrorResume(t -> {
+                            log.warn("Unable to save the resume token of {}", collectionName, t);
+                            return Mono.empty();
+                        }));
+    }
+
+    private Flux<ChangeStreamEvent<Document>> watch() {
+        return Flux.defer(() -> mongoOperations.changeStream(collectionName, options(), Document.class))
+                .doOnNext(this::apply)
+                .onErrorResume(t -> {
+                    onStreamFailure(t);
+                    return Flux.empty();
+                })
+                // the stream also completes once invalidated, and is then reopened from now on
+                .repeatWhen(ends -> ends.delayElements(config.retryDelay()));
+    }
+
+    private ChangeStreamOptions options() {
+        final ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder();
+        if (config.refresh()) {
+            options.fullDocumentLookup(FullDocument.UPDATE_LOOKUP);
+        }
+        final BsonValue token = resumeToken;
+        if (token != null) {
+            options.resumeAfter(token);
+        }
+        return options.build();
+    }
+
+    private void apply(final ChangeStreamEvent<Document> event) {
+        final OperationType operation = event.getOperationType();
+        if (COLLECTION_CHANGES.contains(operation)) {
+            log.info("The {} collection was {}, dropping the entity cache", collectionName, operation.getValue());
+            entityCache.invalidateAll();
+            resumeToken = operation == OperationType.INVALIDATE ? null : event.getResumeToken();
+            return;
+        }
+        final String id = documentId(event.getRaw());
+        if (id != null) {
+            try {
+                apply(id, event);
+            } catch (final RuntimeException e) {
+                log.warn("Unable to refresh cached entity " + id, e);
+                entityCache.invalidate(id);
+            }
+            final Instant writtenAt = event.getTimestamp();
+            if (writtenAt != null) {
+                final Duration elapsed = Duration.between(writtenAt, Instant.now());
+                lag.record(elapsed.isNegative() ? Duration.ZERO : elapsed);
+            }
+        }
+        resumeToken = event.getResumeToken();
+    }
+
+    private void apply(final String id, final ChangeStreamEvent<Document> event) {
+        final Optional<E> cached = entityCache.getIfPresent(id);
+        final Long version = changedVersion(event.getRaw());
+        if (cached.isPresent() && version != null && cached.get().getVersion() != null
+                && cached.get().getVersion() >= version) {
+            return;
+        }
+        final Document fullDocument = event.getRaw().getFullDocument();
+        if (config.refresh() && cached.isPresent() && fullDocument != null
+                && event.getOperationType() != OperationType.DELETE) {
+            entityCache.put(mongoOperations.getConverter().read(entityClass, fullDocument));
+        } else if (event.getOperationType() == OperationType.DELETE) {
+            entityCache.remove(id);
+        } else {
+            entityCache.invalidate(id);
+        }
+        invalidations.increment();
+    }
+
+    private void onStreamFailure(final Throwable t) {
+        if (t instanceof MongoServerException && RESUME_FAILURES.contains(((MongoServerException) t).getCode())) {
+            log.warn("Unable to resume the changes to {}, dropping the entity cache", collectionName, t);
+            resumeToken = null;
+            entityCache.invalidateAll();
+        } else {
+            log.warn("The change stream of {} failed, reopening it in {}", collectionName, config.retryDelay(), t);
+        }
+    }
+
+    /**
+     * Reads the version written by a change, taken from the new document or from the updated fields.
+     */
+    private Long changedVersion(final ChangeStreamDocument<Document> change) {
+        final Optional<String> field = versionField();
+        if (!field.isPresent()) {
+            return null;
+        } else if (change.getOperationType() == OperationType.UPDATE) {
+            final BsonValue version = change.getUpdateDescription() != null
+                    ? change.getUpdateDescription().getUpdatedFields().get(field.get())
+                    : null;
+            return version != null && version.isNumber() ? version.asNumber().longValue() : null;
+        } else if (change.getOperationType() == OperationType.INSERT
+                || change.getOperationType() == OperationType.REPLACE) {
+            final Object version = change.getFullDocument() != null ? change.getFullDocument().get(field.get()) : null;
+            return version instanceof Number ? ((Number) version).longValue() : null;
+        }
+        return null;
+    }
+
+    private Optional<String> versionField() {
+        if (versionField == null) {
+            versionField = Optional.ofNullable(mongoOperations.getConverter().getMappingContext()
+                    .getRequiredPersistentEntity(entityClass)
+                    .getVersionProperty())
+                    .map(MongoPersistentProperty::getFieldName);
+        }
+        return versionField;
+    }
+
+    private static String documentId(final ChangeStreamDocument<Document> change) {
+        final BsonDocument documentKey = change.getDocumentKey();
+        final BsonValue id = documentKey != null ? documentKey.get(ID_FIELD) : null;
+        if (id == null) {
+            return null;
+        } else if (id.isString()) {
+            return id.asString().getValue();
+        } else if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.toString();
+    }
+
+    private static String nodeId(final ChangeStreamConfig config) {
+        if (config.nodeId() != null && !config.nodeId().isEmpty()) {
+            return config.nodeId();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (final UnknownHostException e) {
+            log.warn("Unable to resolve the host name, saving the resume tokens as shared", e);
+            return "shared";
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the change stream that keeps the entity cache of a module coherent with the writes of the other nodes.
+ * Change streams require a replica set. Changed entities are dropped from the cache, or replaced by their new version
+ * when refresh is enabled. The resume token of each node is saved under its node identifier, which defaults to the
+ * host name, at most once per save interval.
+ */
+@Accessors(fluent = true) @Getter
+public class ChangeStreamConfig {
+
+    public static final ChangeStreamConfig DEFAULT =
+            new ChangeStreamConfig(false, false, "", "resumeTokens", Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+    private final boolean enabled;
+
+    private final boolean refresh;
+
+    private final String nodeId;
+
+    private final String tokenCollection;
+
+    private final Duration tokenSaveInterval;
+
+    private final Duration retryDelay;
+
+    @ConstructorBinding
+    public ChangeStreamConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("false") final boolean refresh,
+            @DefaultValue("") final String nodeId,
+            @DefaultValue("resumeTokens") final String tokenCollection,
+            @DefaultValue("1s") final Duration tokenSaveInterval,
+            @DefaultValue("5s") final Duration retryDelay
+    ) {
+        this.enabled = enabled;
+        this.refresh = refresh;
+        this.nodeId = nodeId;
+        this.tokenCollection = tokenCollection;
+        this.tokenSaveInterval = tokenSaveInterval;
+        this.retryDelay = retryDelay;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import io.jrb.labs.common.crud.Entity;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Defines a read-through cache of entities, keyed by entity identifier.
+ *
+ * @param <E> the entity type
+ */
+public interface EntityCache<E extends Entity<E>> {
+
+    /**
+     * Retrieves an entity from the cache, loading it on a miss. Concurrent misses on the same identifier share a
+     * single load. An empty load result is not cached.
+     *
+     * @param id the entity identifier
+     * @param loader the function loading an entity from the underlying store
+     * @return a single-value publisher containing the entity, or empty if unknown
+     */
+    Mono<E> get(String id, Function<String, Mono<E>> loader);
+
+    /**
+     * Retrieves an entity only if it is already cached, without loading it.
+     *
+     * @param id the entity identifier
+     * @return the cached entity, if any
+     */
+    Optional<E> getIfPresent(String id);
+
+    void put(E entity);
+
+    void invalidate(String id);
+
+    /**
+     * Drops a deleted entity. Unlike an invalidation, which only marks the cached entity as outdated, it records that
+     * the entity no longer exists.
+     *
+     * @param id the entity identifier
+     */
+    default void remove(final String id) {
+        invalidate(id);
+    }
+
+    /**
+     * Drops every cached entity, when the changes to the underlying store can no longer be tracked one by one.
+     */
+    void invalidateAll();
+
+    @SuppressWarnings("unchecked")
+    static <E extends Entity<E>> EntityCache<E> none() {
+        return (EntityCache<E>) NoEntityCache.INSTANCE;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the entity cache of a module. A zero refresh interval disables refresh-ahead.
+ */
+@Accessors(fluent = true) @Getter
+public class EntityCacheConfig {
+
+    public static final EntityCacheConfig DEFAULT =
+            new EntityCacheConfig(false, 10_000, Duration.ofMinutes(10), Duration.ZERO);
+
+    private final boolean enabled;
+
+    private final long maximumSize;
+
+    private final Duration expireAfterWrite;
+
+    private final Duration refreshAfterWrite;
+
+    @ConstructorBinding
+    public EntityCacheConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("10000") final long maximumSize,
+            @DefaultValue("10m") final Duration expireAfterWrite,
+            @DefaultValue("0s") final Duration refreshAfterWrite
+    ) {
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.refreshAfterWrite = refreshAfterWrite;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import io.jrb.labs.common.crud.Entity;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Stands in for a disabled cache: every lookup goes straight to the loader.
+ */
+@SuppressWarnings("rawtypes")
+final class NoEntityCache implements EntityCache {
+
+    static final NoEntityCache INSTANCE = new NoEntityCache();
+
+    private NoEntityCache() {}
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Mono get(final String id, final Function loader) {
+        return (Mono) loader.apply(id);
+    }
+
+    @Override
+    public Optional getIfPresent(final String id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(final Entity entity) {
+    }
+
+    @Override
+    public void invalidate(final String id) {
+    }
+
+    @Override
+    public void invalidateAll() {
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.cache;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import reactor.core.publisher.Mono;
+
+/**
+ * Persists the resume tokens of change streams in a Mongo collection, one document per key, so that a stream resumes
+ * where it left off after a restart.
+ */
+public class ResumeTokenStore {
+
+    private static final String ID_FIELD = "_id";
+    private static final String TOKEN_FIELD = "token";
+    private static final String SAVED_AT_FIELD = "savedAt";
+
+    private final ReactiveMongoOperations mongoOperations;
+    private final String collectionName;
+
+    public ResumeTokenStore(final ReactiveMongoOperations mongoOperations, final String collectionName) {
+        this.mongoOperations = mongoOperations;
+        this.collectionName = collectionName;
+    }
+
+    /**
+     * Loads the last resume token saved under a key.
+     *
+     * @param key the stream key
+     * @return a single-value publisher containing the resume token, or empty if none was saved
+     */
+    public Mono<BsonValue> load(final String key) {
+        return Mono.from(mongoOperations.getCollection(collectionName)
+                .withDocumentClass(BsonDocument.class)
+                .find(Filters.eq(ID_FIELD, key))
+                .first())
+                .flatMap(document -> Mono.justOrEmpty(document.get(TOKEN_FIELD)));
+    }
+
+    /**
+     * Saves a resume token under a key, replacing the previous one.
+     *
+     * @param key the stream key
+     * @param token the resume token
+     * @return a publisher completing once the token is saved
+     */
+    public Mono<Void> save(final String key, final BsonValue token) {
+        final BsonDocument document = new BsonDocument(ID_FIELD, new BsonString(key))
+                .append(TOKEN_FIELD, token)
+                .append(SAVED_AT_FIELD, new BsonDateTime(System.currentTimeMillis()));
+        return Mono.from(mongoOperations.getCollection(collectionName)
+                .withDocumentClass(BsonDocument.class)
+                .replaceOne(Filters.eq(ID_FIELD, key), document, new ReplaceOptions().upsert(true)))
+                .then();
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.event;
+
+import io.jrb.labs.common.crud.Entity;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.GenericApplicationListener;
+import org.springframework.context.event.GenericApplicationListenerAdapter;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.core.ResolvableType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the base for dispatchers that deliver entity events as Spring application events. Before building an
+ * event, the dispatcher checks whether any registered listener supports the event type for the entity class, and
+ * caches the answer once the application context has been refreshed.
+ *
+ * Catch-all listeners, that accept any application event, are not considered interested in entity events. Listen to
+ * {@link CrudServiceEvent} or one of its subtypes instead.
+ */
+public abstract class ApplicationEventDispatcherSupport
+        implements EntityEventDispatcher, ApplicationListener<ContextRefreshedEvent> {
+
+    private static final ResolvableType UNRELATED_EVENT_TYPE = ResolvableType.forClass(UnrelatedEvent.class);
+
+    private final ApplicationContext applicationContext;
+    private final Map<ResolvableType, Boolean> listenedEventTypes;
+    private volatile boolean refreshed;
+
+    protected ApplicationEventDispatcherSupport(final ApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+        this.listenedEventTypes = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public <E extends Entity<E>> void dispatch(
+            final Class<E> entityClass,
+            final EntityEventSupplier<E> eventSupplier,
+            final E entity
+    ) {
+        if (eventSupplier != null && isListenedTo(eventType(eventSupplier.eventType(), entityClass))) {
+            publish(eventSupplier.create(entity));
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == applicationContext) {
+            listenedEventTypes.clear();
+            refreshed = true;
+        }
+    }
+
+    protected ApplicationContext applicationContext() {
+        return applicationContext;
+    }
+
+    protected boolean isListenedTo(final ResolvableType eventType) {
+        if (!refreshed) {
+            return true;
+        }
+        return listenedEventTypes.computeIfAbsent(eventType, type -> applicationListeners().stream()
+                .map(ApplicationEventDispatcherSupport::genericListener)
+                .anyMatch(l -> l.supportsEventType(type) && !l.supportsEventType(UNRELATED_EVENT_TYPE)));
+    }
+
+    protected abstract void publish(ApplicationEvent event);
+
+    private Collection<ApplicationListener<?>> applicationListeners() {
+        final List<ApplicationListener<?>> listeners = new ArrayList<>();
+        if (applicationContext instanceof AbstractApplicationContext) {
+            listeners.addAll(((AbstractApplicationContext) applicationContext).getApplicationListeners());
+        }
+        if (applicationContext instanceof ListableBeanFactory) {
+            applicationContext.getBeansOfType(ApplicationListener.class, false, false).values()
+                    .forEach(listeners::add);
+        }
+        return listeners;
+    }
+
+    private static ResolvableType eventType(final Class<?> eventClass, final Class<?> entityClass) {
+        return eventClass.getTypeParameters().length == 1
+                ? ResolvableType.forClassWithGenerics(eventClass, entityClass)
+                : ResolvableType.forClass(eventClass);
+    }
+
+    private static GenericApplicationListener genericListener(final ApplicationListener<?> listener) {
+        return listener instanceof GenericApplicationListener
+                ? (GenericApplicationListener) listener
+                : new GenericApplicationListenerAdapter(listener);
+    }
+
+    private static final class UnrelatedEvent extends ApplicationEvent {
+        private UnrelatedEvent(final Object source) {
+            super(source);
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.event;
+
+import io.jrb.labs.common.crud.Entity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.ResolvableType;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands entity events over to their listeners on a dedicated scheduler, so that CRUD operations never wait on them.
+ * Events are buffered in a bounded queue, which is drained in batches at a fixed interval. When the queue is full,
+ * new events overflow into a map holding the latest event of each type per entity, which never blocks the caller and
+ * only grows with the number of entities changed meanwhile. Listeners that keep state derived from the events, such
+ * as indexes or denormalized copies, thus miss no entity. Overflowing events are only dropped and counted when the
+ * module opts in, for listeners that can afford to miss some.
+ *
+ * Within a batch, events may be coalesced per entity: only the latest event of each type is delivered for a given
+ * entity, in the position of its latest occurrence. After the individual events, the whole batch is also published
+ * as a {@link CrudServiceEventBatch} when someone listens for it.
+ */
+@Slf4j
+public class AsyncEntityEventDispatcher extends ApplicationEventDispatcherSupport implements DisposableBean {
+
+    private static final ResolvableType BATCH_EVENT_TYPE = ResolvableType.forClass(CrudServiceEventBatch.class);
+
+    private final BlockingQueue<ApplicationEvent> queue;
+    private final Map<Object, ApplicationEvent> overflow;
+    private final int batchSize;
+    private final boolean coalesce;
+    private final boolean dropOnOverflow;
+    private final Scheduler scheduler;
+    private final Disposable drainTask;
+    private final AtomicLong droppedEvents;
+
+    public AsyncEntityEventDispatcher(final ApplicationContext applicationContext, final EventDispatcherConfig config) {
+        super(applicationContext);
+        this.queue = new ArrayBlockingQueue<>(config.queueCapacity());
+        this.overflow = new LinkedHashMap<>();
+        this.batchSize = config.batchSize();
+        this.coalesce = config.coalesce();
+        this.dropOnOverflow = config.dropOnOverflow();
+        this.droppedEvents = new AtomicLong();
+        this.scheduler = Schedulers.newSingle("entity-events", true);
+        final long window = config.batchWindow().toMillis();
+        this.drainTask = scheduler.schedulePeriodically(this::drain, window, window, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        drainTask.dispose();
+        drain();
+        scheduler.dispose();
+    }
+
+    public long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    protected void publish(final ApplicationEvent event) {
+        synchronized (overflow) {
+            // once overflowing, events keep overflowing until drained, so that they are delivered in order
+            if (overflow.isEmpty() && queue.offer(event)) {
+                return;
+            }
+            if (dropOnOverflow) {
+                if (droppedEvents.incrementAndGet() % 1000 == 1) {
+                    log.warn("Entity event queue is full, {} event(s) dropped so far", droppedEvents.get());
+                }
+                return;
+            }
+            final Object key = coalesceKey(event);
+            overflow.remove(key);
+            overflow.put(key, event);
+        }
+    }
+
+    void drain() {
+        final List<ApplicationEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            deliverBatch(coalesce ? coalesce(batch) : batch);
+            batch.clear();
+        }
+        final List<ApplicationEvent> overflowed;
+        synchronized (overflow) {
+            overflowed = new ArrayList<>(overflow.values());
+            overflow.clear();
+        }
+        for (int from = 0; from < overflowed.size(); from += batchSize) {
+            deliverBatch(overflowed.subList(from, Math.min(from + batchSize, overflowed.size())));
+        }
+    }
+
+    private void deliverBatch(final List<ApplicationEvent> events) {
+        events.forEach(this::deliver);
+        if (isListenedTo(BATCH_EVENT_TYPE)) {
+            deliver(new CrudServiceEventBatch(new ArrayList<>(events)));
+        }
+    }
+
+    private List<ApplicationEvent> coalesce(final List<ApplicationEvent> batch) {
+        final Map<Object, ApplicationEvent> latestEvents = new LinkedHashMap<>();
+        batch.forEach(event -> {
+            final Object key = coalesceKey(event);
+            latestEvents.remove(key);
+            latestEvents.put(key, event);
+        });
+        return new ArrayList<>(latestEvents.values());
+    }
+
+    private Object coalesceKey(final ApplicationEvent event) {
+        if (event instanceof CrudServiceEvent) {
+            final Entity<?> entity = ((CrudServiceEvent<?>) event).getEntity();
+            if (entity.getId() != null) {
+                return event.getClass().getName() + ':' + entity.getId();
+            }
+        }
+        return event;
+    }
+
+    private void deliver(final ApplicationEvent event) {
+        try {
+            applicationContext().publishEvent(event);
+        } catch (final RuntimeException e) {
+            log.error("Listener failed on " + event.getClass().getSimpleName(), e);
+        }
+    }
+
+}
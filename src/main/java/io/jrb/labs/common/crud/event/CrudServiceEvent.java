@@ -25,11 +25,31 @@ package io.jrb.labs.common.crud.event;
 
 import io.jrb.labs.common.crud.Entity;
 import org.springframework.context.ApplicationEvent;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
 
-public abstract class CrudServiceEvent<E extends Entity<E>> extends ApplicationEvent {
+/**
+ * Provides the base for events fired by a CRUD service. The entity class is exposed as the generic type of the event,
+ * so that listeners can subscribe to the events of a single entity, e.g. {@code UpdateEntityEvent<SongEntity>}.
+ *
+ * @param <E> the entity type
+ */
+public abstract class CrudServiceEvent<E extends Entity<E>> extends ApplicationEvent implements ResolvableTypeProvider {
 
     protected CrudServiceEvent(final E source) {
         super(source);
     }
 
+    @SuppressWarnings("unchecked")
+    public E getEntity() {
+        return (E) getSource();
+    }
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return getClass().getTypeParameters().length == 1
+                ? ResolvableType.forClassWithGenerics(getClass(), getSource().getClass())
+                : ResolvableType.forClass(getClass());
+    }
+
 }
@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.event;
+
+import io.jrb.labs.common.crud.Entity;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.function.Function;
+
+/**
+ * Describes an event fired by a CRUD service: the type of event, known up-front so that dispatchers can skip
+ * building it when nobody listens, and the function that builds it from the affected entity.
+ *
+ * @param <E> the entity type
+ */
+public interface EntityEventSupplier<E extends Entity<E>> {
+
+    Class<? extends ApplicationEvent> eventType();
+
+    ApplicationEvent create(E entity);
+
+    static <E extends Entity<E>> EntityEventSupplier<E> of(
+            final Class<? extends ApplicationEvent> eventType,
+            final Function<E, ApplicationEvent> eventFactory
+    ) {
+        return new EntityEventSupplier<E>() {
+            @Override
+            public Class<? extends ApplicationEvent> eventType() {
+                return eventType;
+            }
+
+            @Override
+            public ApplicationEvent create(final E entity) {
+                return eventFactory.apply(entity);
+            }
+        };
+    }
+
+}
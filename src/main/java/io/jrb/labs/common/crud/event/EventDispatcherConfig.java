@@ -0,0 +1,73 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.crud.event;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures how a module dispatches its entity events. Events that do not fit in the queue of an asynchronous
+ * dispatcher are kept, coalesced per entity, unless {@link #dropOnOverflow()} is set, which only suits modules whose
+ * listeners keep no state derived from the events.
+ */
+@Accessors(fluent = true) @Getter
+public class EventDispatcherConfig {
+
+    public static final EventDispatcherConfig DEFAULT =
+            new EventDispatcherConfig(true, 10_000, 500, Duration.ofMillis(50), true, false);
+
+    private final boolean async;
+
+    private final int queueCapacity;
+
+    private final int batchSize;
+
+    private final Duration batchWindow;
+
+    private final boolean coalesce;
+
+    private final boolean dropOnOverflow;
+
+    @ConstructorBinding
+    public EventDispatcherConfig(
+            @DefaultValue("true") final boolean async,
+            @DefaultValue("10000") final int queueCapacity,
+            @DefaultValue("500") final int batchSize,
+            @DefaultValue("50ms") final Duration batchWindow,
+            @DefaultValue("true") final boolean coalesce,
+            @DefaultValue("false") final boolean dropOnOverflow
+    ) {
+        this.async = async;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+        this.coalesce = coalesce;
+        this.dropOnOverflow = dropOnOverflow;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.index;
+
+import io.jrb.labs.common.crud.Entity;
+import lombok.Value;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Declares the indexes of an entity collection. Modules expose their declarations as beans, and the
+ * {@link MongoIndexManager} builds the missing ones in the background once the application is ready. Indexes are
+ * matched on their name, which is therefore mandatory, and an existing index is never altered.
+ */
+@Value
+public class EntityIndexes {
+
+    private final Class<? extends Entity<?>> entityClass;
+
+    private final List<IndexDefinition> indexes;
+
+    private EntityIndexes(final Class<? extends Entity<?>> entityClass, final List<IndexDefinition> indexes) {
+        indexes.forEach(index -> {
+            if (!index.getIndexOptions().containsKey("name")) {
+                throw new IllegalArgumentException(format("Unnamed {0} index {1}!",
+                        entityClass.getSimpleName(), index.getIndexKeys().toJson()));
+            }
+        });
+        this.entityClass = entityClass;
+        this.indexes = Collections.unmodifiableList(indexes);
+    }
+
+    public static EntityIndexes of(final Class<? extends Entity<?>> entityClass, final IndexDefinition... indexes) {
+        return new EntityIndexes(entityClass, Arrays.asList(indexes));
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.index;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+
+import java.util.stream.Collectors;
+
+/**
+ * Wires the index management shared by all modules, which declare their indexes as {@link EntityIndexes} beans.
+ */
+@Configuration
+public class IndexManagementJavaConfig {
+
+    @Bean
+    public IndexRegistry indexRegistry() {
+        return new IndexRegistry();
+    }
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer unindexedQueryListenerCustomizer(final IndexRegistry indexRegistry) {
+        return builder -> builder.addCommandListener(new UnindexedQueryListener(indexRegistry));
+    }
+
+    @Bean
+    public MongoIndexManager mongoIndexManager(
+            final ReactiveMongoOperations mongoOperations,
+            final MongoClient mongoClient,
+            final ObjectProvider<EntityIndexes> declarations,
+            final IndexRegistry indexRegistry
+    ) {
+        return new MongoIndexManager(mongoOperations, mongoClient,
+                declarations.orderedStream().collect(Collectors.toList()), indexRegistry);
+    }
+
+    @Bean
+    public IndexEndpoint indexEndpoint(final MongoIndexManager mongoIndexManager) {
+        return new IndexEndpoint(mongoIndexManager);
+    }
+
+}
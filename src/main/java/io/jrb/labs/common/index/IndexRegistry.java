@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.index;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of the keys of the indexes known to exist on each managed collection, so that queries which cannot be
+ * served by any index can be spotted without asking the database.
+ */
+public class IndexRegistry {
+
+    private static final String ID_FIELD = "_id";
+
+    private final Map<String, List<List<String>>> collectionIndexes = new ConcurrentHashMap<>();
+
+    public void register(final String collection, final List<String> indexKeys) {
+        collectionIndexes.computeIfAbsent(collection, c -> new CopyOnWriteArrayList<>()).add(indexKeys);
+    }
+
+    /**
+     * Tells whether an index can serve a query on the given fields, that is whether the first key of an index is one
+     * of the fields. Collections that are not managed are always deemed covered.
+     *
+     * @param collection the queried collection
+     * @param filterFields the top-level fields of the query filter
+     * @return false if the query would scan the whole collection
+     */
+    public boolean covers(final String collection, final Collection<String> filterFields) {
+        final List<List<String>> indexes = collectionIndexes.get(collection);
+        return indexes == null
+                || filterFields.contains(ID_FIELD)
+                || indexes.stream().anyMatch(keys -> !keys.isEmpty() && filterFields.contains(keys.get(0)));
+    }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.index;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the declared {@link EntityIndexes} that do not exist yet. The builds start once the application is ready and
+ * run one after the other in the background, so that they neither delay startup nor compete with each other for the
+ * database. The state of each declared index is kept for the indexes actuator endpoint, and the keys of all known
+ * indexes are recorded in the {@link IndexRegistry}.
+ */
+@Slf4j
+public class MongoIndexManager implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String ADMIN_DATABASE = "admin";
+
+    private final ReactiveMongoOperations mongoOperations;
+    private final MongoClient mongoClient;
+    private final Collection<EntityIndexes> declarations;
+    private final IndexRegistry indexRegistry;
+    private final Map<String, IndexBuildStatus> statuses;
+
+    public MongoIndexManager(
+            final ReactiveMongoOperations mongoOperations,
+            final MongoClient mongoClient,
+            final Collection<EntityIndexes> declarations,
+            final IndexRegistry indexRegistry
+    ) {
+        this.mongoOperations = mongoOperations;
+        this.mongoClient = mongoClient;
+        this.declarations = declarations;
+        this.indexRegistry = indexRegistry;
+        this.statuses = new LinkedHashMap<>();
+        declarations.forEach(declaration -> {
+            final String collection = mongoOperations.getCollectionName(declaration.getEntityClass());
+            declaration.getIndexes().forEach(index -> updateStatus(IndexBuildStatus.builder()
+                    .collection(collection)
+                    .name(indexName(index))
+                    .state(IndexBuildState.PENDING)
+                    .build()));
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        buildIndexes().subscribe(
+                built -> log.info("Built {} missing index(es)", built),
+                t -> log.error("Unable to build the declared indexes", t)
+        );
+    }
+
+    /**
+     * Builds the declared indexes that do not exist yet.
+     *
+     * @return a single-value publisher containing the number of indexes built
+     */
+    public Mono<Long> buildIndexes() {
+        return Flux.fromIterable(declarations)
+                .concatMap(this::buildIndexes)
+                .count();
+    }
+
+    /**
+     * Reports the state of every declared index. Indexes being built also report the progress of their build, when
+     * the database lets us inspect its current operations.
+     *
+     * @return a single-value publisher containing the state of each index
+     */
+    public Mono<List<IndexBuildStatus>> statuses() {
+        return Flux.fromIterable(currentStatuses())
+                .concatMap(status -> status.getState() == IndexBuildState.BUILDING
+                        ? buildProgress(status).map(progress -> status.toBuilder().progress(progress).build())
+                                .defaultIfEmpty(status)
+                        : Mono.just(status))
+                .collectList();
+    }
+
+    private Flux<String> buildIndexes(final EntityIndexes declaration) {
+        final ReactiveIndexOperations indexOperations = mongoOperations.indexOps(declaration.getEntityClass());
+        final String collection = mongoOperations.getCollectionName(declaration.getEntityClass());
+        return indexOperations.getIndexInfo()
+                .onErrorResume(t -> {
+                    // a collection that does not exist yet has no index to list
+                    log.debug("Unable to list the indexes of " + collection, t);
+                    return Flux.empty();
+                })
+                .doOnNext(info -> indexRegistry.register(collection, indexKeys(info)))
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet())
+                .flatMapMany(existing -> Flux.fromIterable(declaration.getIndexes())
+                        .concatMap(index -> existing.contains(indexName(index))
+                                ? markReady(collection, index)
+                                : buildIndex(indexOperations, collection, index)));
+    }
+
+    private Mono<String> buildIndex(
+            final ReactiveIndexOperations indexOperations,
+            final String collection,
+            final IndexDefinition index
+    ) {
+        final String name = indexName(index);
+        final IndexBuildStatus building = IndexBuildStatus.builder()
+                .collection(collection)
+                .name(name)
+                .state(IndexBuildState.BUILDING)
+                .startedAt(Instant.now())
+                .build();
+        log.info("Building index {} on {}", name, collection);
+        return Mono.fromRunnable(() -> updateStatus(building))
+                .then(indexOperations.ensureIndex(index))
+                .doOnSuccess(n -> {
+                    indexRegistry.register(collection, indexKeys(index));
+                    updateStatus(building.toBuilder().state(IndexBuildState.READY).completedAt(Instant.now()).build());
+                })
+                .onErrorResume(t -> {
+                    log.error("Unable to build index " + name + " on " + collection, t);
+                    updateStatus(building.toBuilder()
+                            .state(IndexBuildState.FAILED)
+                            .completedAt(Instant.now())
+                            .message(t.getMessage())
+                            .build());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> markReady(final String collection, final IndexDefinition index) {
+        updateStatus(IndexBuildStatus.builder()
+                .collection(collection)
+                .name(indexName(index))
+                .state(IndexBuildState.READY)
+                .build());
+        return Mono.empty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<String> buildProgress(final IndexBuildStatus status) {
+        final Document currentOp = new Document("currentOp", true)
+                .append("command.createIndexes", status.getCollection());
+        return Mono.from(mongoClient.getDatabase(ADMIN_DATABASE).runCommand(currentOp))
+                .flatMapIterable(result -> (List<Document>) result.get("inprog", List.class))
+                .next()
+                .flatMap(operation -> {
+                    final Document progress = operation.get("progress", Document.class);
+                    return progress != null
+                            ? Mono.just(progress.get("done") + "/" + progress.get("total"))
+                            : Mono.justOrEmpty(operation.getString("msg"));
+                })
+                .onErrorResume(t -> Mono.empty());
+    }
+
+    private synchronized void updateStatus(final IndexBuildStatus status) {
+        statuses.put(status.getCollection() + '.' + status.getName(), status);
+    }
+
+    private synchronized List<IndexBuildStatus> currentStatuses() {
+        return new ArrayList<>(statuses.values());
+    }
+
+    private static String indexName(final IndexDefinition index) {
+        return index.getIndexOptions().getString("name");
+    }
+
+    private static List<String> indexKeys(final IndexDefinition index) {
+        return new ArrayList<>(index.getIndexKeys().keySet());
+    }
+
+    private static List<String> indexKeys(final IndexInfo info) {
+        return info.getIndexFields().stream()
+                .map(IndexField::getKey)
+                .collect(Collectors.toList());
+    }
+
+}
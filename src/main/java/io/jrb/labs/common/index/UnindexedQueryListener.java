@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.index;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Warns about filtered queries on managed collections that no known index can serve, once per collection and set of
+ * filter fields. The check only looks at the top-level fields of the filter and at the first key of each index, so it
+ * catches collection scans early without asking the database to explain every query.
+ */
+@Slf4j
+public class UnindexedQueryListener implements CommandListener {
+
+    private final IndexRegistry indexRegistry;
+    private final Set<String> reportedQueries = ConcurrentHashMap.newKeySet();
+
+    public UnindexedQueryListener(final IndexRegistry indexRegistry) {
+        this.indexRegistry = indexRegistry;
+    }
+
+    @Override
+    public void commandStarted(final CommandStartedEvent event) {
+        final BsonDocument command = event.getCommand();
+        final String commandName = event.getCommandName();
+        switch (commandName) {
+            case "find":
+                check(command, commandName, command.getDocument("filter", new BsonDocument()));
+                break;
+            case "count":
+            case "distinct":
+            case "findAndModify":
+                check(command, commandName, command.getDocument("query", new BsonDocument()));
+                break;
+            case "update":
+                check(command, commandName, firstStatementFilter(command.getArray("updates", new BsonArray())));
+                break;
+            case "delete":
+                check(command, commandName, firstStatementFilter(command.getArray("deletes", new BsonArray())));
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void commandSucceeded(final CommandSucceededEvent event) {
+    }
+
+    @Override
+    public void commandFailed(final CommandFailedEvent event) {
+    }
+
+    private void check(final BsonDocument command, final String commandName, final BsonDocument filter) {
+        final BsonValue collectionName = command.get(commandName);
+        if (filter.isEmpty() || collectionName == null || !collectionName.isString()) {
+            return;
+        }
+        final String collection = collectionName.asString().getValue();
+        final Set<String> fields = new TreeSet<>(filter.keySet());
+        fields.removeIf(field -> field.startsWith("$"));
+        if (!fields.isEmpty() && !indexRegistry.covers(collection, Collections.unmodifiableSet(fields))
+                && reportedQueries.add(collection + fields)) {
+            log.warn("Query on {} filters on {} without any index, and scans the whole collection", collection, fields);
+        }
+    }
+
+    private BsonDocument firstStatementFilter(final BsonArray statements) {
+        return statements.isEmpty() || !statements.get(0).isDocument()
+                ? new BsonDocument()
+                : statements.get(0).asDocument().getDocument("q", new BsonDocument());
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.metrics;
+
+import io.jrb.labs.common.crud.EntityVersionMismatchException;
+import io.jrb.labs.common.crud.UnknownEntityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Records the metrics of the CRUD operations of an entity, tagged by module, entity, operation and outcome:
+ * 1) crud.service times each service operation, until its publisher terminates, which isolates the database time
+ * 2) crud.handler times each handler operation, until its response is ready to be written, which adds conversion
+ * and patching to the service time
+ * 3) crud.request.size and crud.response.size measure the bodies of the handler operations, as recorded by the
+ * {@link PayloadMetricsWebFilter}
+ * The serialization time is what http.server.requests adds to crud.handler. Timers and summaries publish percentile
+ * histograms, so that percentiles can be aggregated across instances.
+ */
+public class CrudMetrics {
+
+    public static final String SERVICE_TIMER = "crud.service";
+    public static final String HANDLER_TIMER = "crud.handler";
+    public static final String REQUEST_SIZE = "crud.request.size";
+    public static final String RESPONSE_SIZE = "crud.response.size";
+
+    /**
+     * The exchange attribute holding the tags of the handler operation, for the payload size summaries.
+     */
+    public static final String TAGS_ATTRIBUTE = CrudMetrics.class.getName() + ".tags";
+
+    static final String MODULE_TAG = "module";
+    static final String ENTITY_TAG = "entity";
+    static final String OPERATION_TAG = "operation";
+    static final String OUTCOME_TAG = "outcome";
+
+    private static final String SUCCESS = "SUCCESS";
+    private static final String NOT_FOUND = "NOT_FOUND";
+    private static final String CONFLICT = "CONFLICT";
+    private static final String ERROR = "ERROR";
+    private static final String CANCELLED = "CANCELLED";
+
+    private final MeterRegistry meterRegistry;
+    private final Tags tags;
+
+    public CrudMetrics(final MeterRegistry meterRegistry, final String module, final Class<?> entityClass) {
+        this.meterRegistry = meterRegistry;
+        this.tags = Tags.of(MODULE_TAG, module.toLowerCase(), ENTITY_TAG, entityClass.getSimpleName());
+    }
+
+    /**
+     * Provides metrics that are recorded nowhere.
+     *
+     * @return the metrics
+     */
+    public static CrudMetrics none() {
+        return new CrudMetrics(new CompositeMeterRegistry(), "none", Object.class);
+    }
+
+    /**
+     * Times a single-value service operation, for use with {@link Mono#transform}.
+     *
+     * @param operation the operation name
+     * @param <T> the value type
+     * @return the transformer that times the operation
+     */
+    public <T> Function<Mono<T>, Mono<T>> timed(final String operation) {
+        return mono -> Mono.defer(() -> {
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            final AtomicReference<String> outcome = new AtomicReference<>(SUCCESS);
+            return mono
+                    .doOnError(t -> outcome.set(serviceOutcome(t)))
+                    .doFinally(signal -> stopService(sample, operation, signal, outcome.get()));
+        });
+    }
+
+    /**
+     * Times a multi-value service operation, for use with {@link Flux#transform}.
+     *
+     * @param operation the operation name
+     * @param <T> the value type
+     * @return the transformer that times the operation
+     */
+    public <T> Function<Flux<T>, Flux<T>> timedMany(final String operation) {
+        return flux -> Flux.defer(() -> {
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            final AtomicReference<String> outcome = new AtomicReference<>(SUCCESS);
+            return flux
+                    .doOnError(t -> outcome.set(serviceOutcome(t)))
+                    .doFinally(signal -> stopService(sample, operation, signal, outcome.get()));
+        });
+    }
+
+    /**
+     * Times a handler operation, for use with {@link Mono#transform}. The outcome of the operation is the series of
+     * its response status, and its exchange is tagged for the payload size summaries.
+     *
+     * @param operation the operation name
+     * @param request the handled request
+     * @return the transformer that times the operation
+     */
+    public Function<Mono<ServerResponse>, Mono<ServerResponse>> timedHandler(
+            final String operation,
+            final ServerRequest request
+    ) {
+        return response -> Mono.defer(() -> {
+            request.attributes().put(TAGS_ATTRIBUTE, tags.and(OPERATION_TAG, operation));
+            final Timer.Sample sample = Timer.start(meterRegistry);
+            final AtomicReference<String> outcome = new AtomicReference<>(ERROR);
+            return response
+                    .doOnNext(r -> outcome.set(r.statusCode().series().name()))
+                    .doFinally(signal -> sample.stop(timer(HANDLER_TIMER, "The time taken by CRUD handler operations",
+                            operation, signal == SignalType.CANCEL ? CANCELLED : outcome.get())));
+        });
+    }
+
+    /**
+     * Provides a counter tagged with the module and entity of these metrics.
+     *
+     * @param name the counter name
+     * @param description the counter description
+     * @return the counter
+     */
+    public Counter counter(final String name, final String description) {
+        return Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Provides a distribution summary tagged with the module and entity of these metrics.
+     *
+     * @param name the summary name
+     * @param description the summary description
+     * @return the summary
+     */
+    public DistributionSummary summary(final String name, final String description) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Provides a timer tagged with the module and entity of these metrics.
+     *
+     * @param name the timer name
+     * @param description the timer description
+     * @return the timer
+     */
+    public Timer timer(final String name, final String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void stopService(
+            final Timer.Sample sample,
+            final String operation,
+            final SignalType signal,
+            final String outcome
+    ) {
+        sample.stop(timer(SERVICE_TIMER, "The time taken by CRUD service operations", operation,
+                signal == SignalType.CANCEL ? CANCELLED : outcome));
+    }
+
+    private Timer timer(final String name, final String description, final String operation, final String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .tag(OPERATION_TAG, operation)
+                .tag(OUTCOME_TAG, outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String serviceOutcome(final Throwable t) {
+        if (t instanceof UnknownEntityException) {
+            return NOT_FOUND;
+        } else if (t instanceof EntityVersionMismatchException) {
+            return CONFLICT;
+        }
+        return ERROR;
+    }
+
+}
@@ -23,12 +23,25 @@
  */
 package io.jrb.labs.common.module;
 
+import io.jrb.labs.common.index.IndexManagementJavaConfig;
+import io.jrb.labs.common.metrics.MetricsJavaConfig;
+import io.jrb.labs.common.rest.codec.CodecsJavaConfig;
+import io.jrb.labs.common.storage.StorageJavaConfig;
 import org.slf4j.Logger;
+import org.springframework.context.annotation.Import;
 
 import javax.annotation.PostConstruct;
 
 import static java.text.MessageFormat.format;
 
+/**
+ * Provides the base for the Java configuration of a module. Modules declare the indexes of their entities as
+ * {@link io.jrb.labs.common.index.EntityIndexes} beans, which the shared index management builds once the application
+ * is ready, and record their operations through their own {@link io.jrb.labs.common.metrics.CrudMetrics}. Their DTOs
+ * are exchanged as JSON, CBOR or Smile, and large entity properties may be stored compressed by declaring them as
+ * {@link io.jrb.labs.common.storage.CompressedFields} beans.
+ */
+@Import({CodecsJavaConfig.class, IndexManagementJavaConfig.class, MetricsJavaConfig.class, StorageJavaConfig.class})
 public abstract class ModuleJavaConfigSupport {
 
     private Logger log;
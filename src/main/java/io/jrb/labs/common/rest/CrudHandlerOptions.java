@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest;
+
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimits;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Groups the optional collaborators of a {@link CrudHandlerSupport}, each of which defaults to its disabled
+ * implementation, so that a handler only names the ones its module enables.
+ *
+ * @param <E> the managed entity class
+ */
+@Value
+@Builder(toBuilder = true)
+public class CrudHandlerOptions<E extends Entity<E>> {
+
+    /**
+     * The metrics of the handled requests.
+     */
+    @Builder.Default
+    private final CrudMetrics crudMetrics = CrudMetrics.none();
+
+    /**
+     * The cache of encoded response bodies.
+     */
+    @Builder.Default
+    private final ResponseBodyCache<E> responseCache = ResponseBodyCache.none();
+
+    /**
+     * The configuration of bulk requests.
+     */
+    @Builder.Default
+    private final BulkConfig bulkConfig = BulkConfig.DEFAULT;
+
+    /**
+     * The concurrency limits of the routes.
+     */
+    @Builder.Default
+    private final ConcurrencyLimits concurrencyLimits = ConcurrencyLimits.none();
+
+    public static <E extends Entity<E>> CrudHandlerOptions<E> defaults() {
+        return CrudHandlerOptions.<E>builder().build();
+    }
+
+}
@@ -23,12 +23,38 @@
  */
 package io.jrb.labs.common.rest;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.JsonPatch;
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
 import io.jrb.labs.common.crud.Entity;
 import io.jrb.labs.common.crud.EntityConverter;
+import io.jrb.labs.common.crud.EntityLookup;
+import io.jrb.labs.common.crud.EntityPage;
+import io.jrb.labs.common.crud.EntityVersionMismatchException;
+import io.jrb.labs.common.crud.ExportChunk;
 import io.jrb.labs.common.crud.ICrudService;
+import io.jrb.labs.common.crud.InvalidExportCheckpointException;
+import io.jrb.labs.common.crud.InvalidPageTokenException;
+import io.jrb.labs.common.crud.InvalidPatchException;
 import io.jrb.labs.common.crud.UnknownEntityException;
+import io.jrb.labs.common.crud.UnknownReferenceException;
+import io.jrb.labs.common.crud.breaker.CircuitOpenException;
+import io.jrb.labs.common.crud.breaker.StaleReadMarker;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.rest.cache.EncodedBody;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimitExceededException;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimits;
+import io.jrb.labs.common.search.InvalidSearchQueryException;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyExtractors;
@@ -38,16 +64,53 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static io.jrb.labs.common.rest.EntityTagUtils.entityTag;
+import static io.jrb.labs.common.rest.EntityTagUtils.matchesAny;
+import static io.jrb.labs.common.rest.EntityTagUtils.requiredVersion;
 import static io.jrb.labs.common.rest.JsonPatchUtils.patch;
+import static java.text.MessageFormat.format;
 
 public abstract class CrudHandlerSupport<E extends Entity<E>, D extends DTO<D>, M extends DTO<M>> implements ICrudHandler<E, D, M> {
 
+    public static final String LIMIT_PARAM = "limit";
+    public static final String PAGE_TOKEN_PARAM = "pageToken";
+    public static final int DEFAULT_PAGE_LIMIT = 100;
+    public static final int MAX_PAGE_LIMIT = 1000;
+    public static final String CHECKPOINT_PARAM = "checkpoint";
+    public static final int MAX_MULTI_GET_IDS = 1000;
+
+    private static final String GZIP = "gzip";
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    private static final ResolvableType LINE_TYPE = ResolvableType.forClass(String.class);
+
     private final ObjectMapper objectMapper;
     private final ICrudService<E> crudService;
     private final EntityConverter<E, D, M> entityConverter;
     private final Class<D> dtoClass;
     private final Class<M> dtoMetadataClass;
     private final String dtoIdField;
+    private final JsonPatchCompiler patchCompiler;
+    private final CrudMetrics crudMetrics;
+    private final ResponseBodyCache<E> responseCache;
+    private final BulkConfig bulkConfig;
+    private final ConcurrencyLimits concurrencyLimits;
+    private final StringDecoder lineDecoder;
 
     protected CrudHandlerSupport(
             final ObjectMapper objectMapper,
@@ -55,7 +118,8 @@ public abstract class CrudHandlerSupport<E extends Entity<E>, D extends DTO<D>,
             final EntityConverter<E, D, M> entityConverter,
             final Class<D> dtoClass,
             final Class<M> dtoMetadataClass,
-            final String dtoIdField
+            final String dtoIdField,
+            final CrudHandlerOptions<E> options
     ) {
         this.objectMapper = objectMapper;
         this.crudService = crudService;
@@ -63,6 +127,23 @@ public abstract class CrudHandlerSupport<E extends Entity<E>, D extends DTO<D>,
         this.dtoClass = dtoClass;
         this.dtoMetadataClass = dtoMetadataClass;
         this.dtoIdField = dtoIdField;
+        this.patchCompiler = new JsonPatchCompiler(objectMapper, dtoClass, crudService.unpatchableProperties());
+        this.crudMetrics = options.getCrudMetrics();
+        this.responseCache = options.getResponseCache();
+        this.bulkConfig = options.getBulkConfig();
+        this.concurrencyLimits = options.getConcurrencyLimits();
+        this.lineDecoder = StringDecoder.allMimeTypes();
+    }
+
+    @Override
+    public Mono<ServerResponse> createEntities(final ServerRequest request) {
+        return request.bodyToFlux(dtoClass)
+                .map(entityConverter::dtoToEntity)
+                .as(this::bulkItems)
+                .flatMap(entities -> crudService.createAll(entities).collectList().transform(limited("createAll")))
+                .flatMap(results -> bulkResponse(request, Flux.fromIterable(results)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("createAll", request));
     }
 
     @Override
@@ -70,104 +151,526 @@ public abstract class CrudHandlerSupport<E extends Entity<E>, D extends DTO<D>,
         final Mono<D> dtoData = request.body(BodyExtractors.toMono(dtoClass));
         return dtoData
                 .map(entityConverter::dtoToEntity)
-                .flatMap(crudService::create)
-                .flatMap(this::createdResponse)
-                .onErrorResume(this::errorResponse);
+                .flatMap(entity -> crudService.create(entity).transform(limited("create")))
+                .flatMap(entity -> createdResponse(request, entity))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("create", request));
+    }
+
+    @Override
+    public Mono<ServerResponse> deleteEntities(final ServerRequest request) {
+        return request.bodyToMono(String[].class)
+                .flatMapMany(Flux::fromArray)
+                .as(this::bulkItems)
+                .flatMap(ids -> crudService.deleteAll(ids).collectList().transform(limited("deleteAll")))
+                .flatMap(results -> bulkResponse(request, Flux.fromIterable(results)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("deleteAll", request));
     }
 
     @Override
     public Mono<ServerResponse> deleteEntity(final ServerRequest request) {
         final String dtoId = request.pathVariable(dtoIdField);
-        return Mono.just(dtoId)
-                .flatMap(crudService::delete)
-                .flatMap(this::foundResponse)
-                .onErrorResume(this::errorResponse);
+        return ifMatchVersion(request)
+                .flatMap(version -> crudService.delete(dtoId, version.orElse(null)).transform(limited("delete")))
+                .flatMap(entity -> foundResponse(request, entity))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("delete", request));
+    }
+
+    /**
+     * Streams every entity as newline-delimited JSON, gzipped if the client accepts it. A checkpoint line, holding
+     * only a {@value #CHECKPOINT_PARAM} token, follows every chunk of entities, and an interrupted export resumes from
+     * the last checkpoint received when the token is passed back as the {@value #CHECKPOINT_PARAM} query parameter.
+     */
+    @Override
+    public Mono<ServerResponse> exportEntities(final ServerRequest request) {
+        final String checkpoint = request.queryParam(CHECKPOINT_PARAM).orElse(null);
+        final boolean gzip = acceptsGzip(request);
+        return Mono.fromCallable(() -> crudService.export(checkpoint))
+                .flatMap(chunks -> {
+                    final ServerResponse.BodyBuilder response = ServerResponse.ok()
+                            .contentType(MediaTypeUtils.APPLICATION_NDJSON)
+                            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                    if (gzip) {
+                        response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+                    }
+                    return response.body((message, context) ->
+                            message.writeWith(exportBody(chunks, gzip, message.bufferFactory())));
+                })
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("export", request));
+    }
+
+    /**
+     * Retrieves the entities of a JSON array of identifiers with a single lookup, answering with their DTOs in the
+     * requested order along with the identifiers that were not found. At most {@value #MAX_MULTI_GET_IDS} identifiers
+     * are accepted per request.
+     */
+    @Override
+    public Mono<ServerResponse> getEntities(final ServerRequest request) {
+        final StaleReadMarker staleRead = new StaleReadMarker();
+        return request.bodyToMono(String[].class)
+                .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Missing entity identifiers!")))
+                .map(Arrays::asList)
+                .flatMap(ids -> {
+                    if (ids.size() > MAX_MULTI_GET_IDS) {
+                        return Mono.error(new InvalidRequestException(format(
+                                "At most {0} identifiers may be requested, not {1}!", MAX_MULTI_GET_IDS, ids.size())));
+                    }
+                    return crudService.getAll(ids).transform(limited("getAll")).subscriberContext(staleRead.context());
+                })
+                .doOnNext(lookup -> warnIfStale(request, staleRead))
+                .flatMap(lookup -> lookupResponse(request, lookup))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("getAll", request));
     }
 
     @Override
     public Mono<ServerResponse> getEntity(final ServerRequest request) {
         final String dtoId = request.pathVariable(dtoIdField);
+        final StaleReadMarker staleRead = new StaleReadMarker();
         return Mono.just(dtoId)
-                .flatMap(crudService::get)
-                .flatMap(this::foundResponse)
-                .onErrorResume(this::errorResponse);
+                .flatMap(id -> crudService.get(id).transform(limited("get")).subscriberContext(staleRead.context()))
+                .doOnNext(entity -> warnIfStale(request, staleRead))
+                .flatMap(entity -> cachedResponse(request, entity))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("get", request));
+    }
+
+    /**
+     * Creates the entities of a newline-delimited JSON upload, one DTO per line, while the upload is still being
+     * received. The lines are parsed one at a time and created in batches of the bulk chunk size, the next batch only
+     * being read once the previous one is written, so that memory use does not grow with the upload. The outcome of
+     * each line is streamed back once its batch is written, identified by the index of the line. A line that cannot be
+     * parsed only fails on its own, and a batch that cannot be written fails its remaining lines without ending the
+     * import.
+     */
+    @Override
+    public Mono<ServerResponse> importEntities(final ServerRequest request) {
+        final Flux<BulkItemResult> results = lineDecoder.decode(request.body(BodyExtractors.toDataBuffers()),
+                        LINE_TYPE, request.headers().contentType().orElse(null), Collections.emptyMap())
+                .index()
+                .filter(line -> !line.getT2().trim().isEmpty())
+                .map(line -> importedLine(line.getT1().intValue(), line.getT2()))
+                .buffer(bulkConfig.chunkSize())
+                .concatMap(this::importBatch, 1);
+        return ServerResponse.ok()
+                .contentType(MediaTypeUtils.APPLICATION_NDJSON)
+                .body(BodyInserters.fromPublisher(results, BulkItemResult.class))
+                .transform(timed("import", request));
     }
 
     @Override
     public Mono<ServerResponse> patchEntity(final ServerRequest request) {
         final String dtoId = request.pathVariable(dtoIdField);
-        final Mono<JsonPatch> patchData = request.body(BodyExtractors.toMono(JsonPatch.class));
-        return Mono.just(dtoId)
-                .flatMap(crudService::get)
-                .zipWith(patchData)
-                .map(tuple -> {
-                    final D dto = entityConverter.entityToDto(tuple.getT1());
-                    final D updatedDto = patch(objectMapper, tuple.getT2(), dto, dtoClass);
-                    return entityConverter.dtoToEntity(updatedDto);
+        return ifMatchVersion(request)
+                .zipWith(request.body(BodyExtractors.toMono(JsonNode.class)))
+                .flatMap(tuple -> {
+                    final Long version = tuple.getT1().orElse(null);
+                    return patchCompiler.compile(tuple.getT2())
+                            .map(compiled -> crudService.patch(dtoId, compiled.getUpdate(), version,
+                                    compiled.getConditions()))
+                            .orElseGet(() -> patchInMemory(dtoId, tuple.getT2(), version))
+                            .transform(limited("patch"));
                 })
-                .flatMap(entity -> crudService.update(dtoId, entity))
-                .flatMap(this::updatedResponse)
-                .onErrorResume(this::errorResponse);
+                .flatMap(entity -> updatedResponse(request, entity))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("patch", request));
     }
 
     @Override
     public Mono<ServerResponse> retrieveEntities(final ServerRequest request) {
-        final Flux<M> dtos = crudService.all()
-                .map(entityConverter::entityToMetadata);
-        return ServerResponse
-                .ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromPublisher(dtos, dtoMetadataClass))
-                .onErrorResume(this::errorResponse);
+        final String pageToken = request.queryParam(PAGE_TOKEN_PARAM).orElse(null);
+        final StaleReadMarker staleRead = new StaleReadMarker();
+        return Mono.fromCallable(() -> requestLimit(request, DEFAULT_PAGE_LIMIT, MAX_PAGE_LIMIT))
+                .flatMap(limit -> crudService.metadataPage(pageToken, limit)
+                        .transform(limited("list"))
+                        .subscriberContext(staleRead.context())
+                        .doOnNext(page -> warnIfStale(request, staleRead))
+                        .flatMap(page -> pageResponse(request, page, limit)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("list", request));
     }
 
     @Override
     public Mono<ServerResponse> updateEntity(final ServerRequest request) {
         final String dtoId = request.pathVariable(dtoIdField);
         final Mono<D> dtoData = request.body(BodyExtractors.toMono(dtoClass));
-        return dtoData
+        return ifMatchVersion(request)
+                .zipWith(dtoData)
+                .flatMap(tuple -> crudService.update(
+                        dtoId, entityConverter.dtoToEntity(tuple.getT2()), tuple.getT1().orElse(null))
+                        .transform(limited("update")))
+                .flatMap(entity -> updatedResponse(request, entity))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("update", request));
+    }
+
+    @Override
+    public Mono<ServerResponse> upsertEntities(final ServerRequest request) {
+        return request.bodyToFlux(dtoClass)
                 .map(entityConverter::dtoToEntity)
-                .flatMap(entity -> crudService.update(dtoId, entity))
-                .flatMap(this::updatedResponse)
-                .onErrorResume(this::errorResponse);
+                .as(this::bulkItems)
+                .flatMap(entities -> crudService.upsertAll(entities).collectList().transform(limited("upsertAll")))
+                .flatMap(results -> bulkResponse(request, Flux.fromIterable(results)))
+                .onErrorResume(t -> errorResponse(request, t))
+                .transform(timed("upsertAll", request));
+    }
+
+    /**
+     * Times a handler operation and measures its payloads, for use with {@link Mono#transform}.
+     *
+     * @param operation the operation name
+     * @param request the handled request
+     * @return the transformer that times the operation
+     */
+    protected Function<Mono<ServerResponse>, Mono<ServerResponse>> timed(
+            final String operation,
+            final ServerRequest request
+    ) {
+        return crudMetrics.timedHandler(operation, request);
+    }
+
+    /**
+     * Limits the service call of a route, for use with {@link Mono#transform}. Each route has its own limit, and an
+     * operation shed by it is answered with a service unavailable status.
+     *
+     * @param route the route name, as timed by {@link #timed(String, ServerRequest)}
+     * @param <T> the value type
+     * @return the transformer that limits the operation
+     */
+    protected <T> Function<Mono<T>, Mono<T>> limited(final String route) {
+        return concurrencyLimits.forRoute(route).limited();
     }
 
     protected HttpStatus calculateErrorStatus(final Throwable t) {
         if (t instanceof UnknownEntityException) {
             return HttpStatus.NOT_FOUND;
+        } else if (t instanceof InvalidPageTokenException || t instanceof InvalidRequestException
+                || t instanceof InvalidSearchQueryException || t instanceof InvalidExportCheckpointException
+                || t instanceof UnknownReferenceException || t instanceof InvalidPatchException) {
+            return HttpStatus.BAD_REQUEST;
+        } else if (t instanceof EntityVersionMismatchException) {
+            return HttpStatus.PRECONDITION_FAILED;
+        } else if (t instanceof ConcurrencyLimitExceededException || t instanceof CircuitOpenException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
         }
         return HttpStatus.INTERNAL_SERVER_ERROR;
     }
 
-    protected Mono<ServerResponse> createdResponse(final E entity) {
-        return dtoResponse(entity, HttpStatus.CREATED);
+    /**
+     * Collects the items of a bulk request, failing with an {@link InvalidRequestException} as soon as the request
+     * carries more items than allowed, without reading the rest of its body.
+     */
+    protected <T> Mono<List<T>> bulkItems(final Flux<T> items) {
+        final int maxItems = bulkConfig.maxItems();
+        return items
+                .take(maxItems + 1L)
+                .collectList()
+                .flatMap(list -> list.size() > maxItems
+                        ? Mono.error(new InvalidRequestException(format("Bulk requests are limited to {0} items!",
+                                maxItems)))
+                        : Mono.just(list));
+    }
+
+    protected Mono<ServerResponse> bulkResponse(final ServerRequest request, final Flux<BulkItemResult> results) {
+        return ServerResponse
+                .ok()
+                .contentType(responseMediaType(request))
+                .body(BodyInserters.fromPublisher(results, BulkItemResult.class));
     }
 
-    protected Mono<ServerResponse> errorResponse(final Throwable t) {
+    /**
+     * Answers with the cached encoded body of an entity, gzipped if the client accepts it, or with a body serialized on
+     * the fly if the entity is not cached. Only JSON bodies are cached, as the binary encodings are cheap to write. The
+     * answer is Not Modified if the If-None-Match header lists the entity tag of the selected representation, which
+     * only depends on the entity version and the negotiated encodings, so that the body is never encoded for it.
+     *
+     * @param request the handled request
+     * @param entity the entity
+     * @return the response
+     */
+    protected Mono<ServerResponse> cachedResponse(final ServerRequest request, final E entity) {
+        final MediaType mediaType = responseMediaType(request);
+        if (!MediaType.APPLICATION_JSON.equals(mediaType) || !responseCache.caches(entity)) {
+            return conditionalResponse(request, entityTag(entity, mediaType, false),
+                    () -> foundResponse(request, entity));
+        }
+        final boolean gzip = acceptsGzip(request);
+        final Optional<String> entityTag = entityTag(entity, mediaType, gzip);
+        return conditionalResponse(request, entityTag, () -> responseCache.get(entity, this::encode)
+                .map(body -> {
+                    final Optional<ByteBuffer> gzipped = gzip ? body.gzip() : Optional.empty();
+                    return encodedResponse(gzipped.orElseGet(body::identity), gzipped.isPresent(), entityTag);
+                })
+                .orElseGet(() -> foundResponse(request, entity)));
+    }
+
+    protected Mono<ServerResponse> createdResponse(final ServerRequest request, final E entity) {
+        return dtoResponse(request, entity, HttpStatus.CREATED);
+    }
+
+    protected Mono<ServerResponse> errorResponse(final ServerRequest request, final Throwable t) {
         final HttpStatus status = calculateErrorStatus(t);
         final ErrorDTO errorDTO = ErrorDTO.builder()
                 .errorCode(status.name())
                 .description(t.getMessage())
                 .build();
-        return ServerResponse.status(status)
+        final ServerResponse.BodyBuilder response = ServerResponse.status(status)
+                .contentType(responseMediaType(request));
+        final Duration retryAfter = retryAfter(t);
+        if (retryAfter != null) {
+            // Retry-After is expressed in whole seconds, rounded up so that clients never retry too early
+            final long retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+            response.header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        return response.body(BodyInserters.fromValue(errorDTO));
+    }
+
+    protected Mono<ServerResponse> foundResponse(final ServerRequest request, final E entity) {
+        return dtoResponse(request, entity, HttpStatus.OK);
+    }
+
+    protected Mono<ServerResponse> lookupResponse(final ServerRequest request, final EntityLookup<E> lookup) {
+        final MultiGetDTO<D> dto = MultiGetDTO.<D>builder()
+                .entities(lookup.getEntities().stream()
+                        .map(entityConverter::entityToDto)
+                        .collect(Collectors.toList()))
+                .missing(lookup.getMissingIds())
+                .build();
+        return ServerResponse.ok()
+                .contentType(responseMediaType(request))
+                .body(BodyInserters.fromValue(dto));
+    }
+
+    protected Mono<ServerResponse> notModifiedResponse(final String entityTag) {
+        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(entityTag).build();
+    }
+
+    protected Mono<ServerResponse> updatedResponse(final ServerRequest request, final E entity) {
+        return dtoResponse(request, entity, HttpStatus.OK);
+    }
+
+    protected Mono<ServerResponse> pageResponse(final ServerRequest request, final EntityPage<E> page, final int limit) {
+        final List<M> dtos = page.getEntities().stream()
+                .map(entityConverter::entityToMetadata)
+                .collect(Collectors.toList());
+        final ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(responseMediaType(request));
+        page.getNextPageToken().ifPresent(token -> {
+            final URI nextPage = request.uriBuilder()
+                    .replaceQueryParam(PAGE_TOKEN_PARAM, token)
+                    .replaceQueryParam(LIMIT_PARAM, limit)
+                    .build();
+            response.header(HttpHeaders.LINK, format("<{0}>; rel=\"next\"", nextPage));
+        });
+        return response.body(BodyInserters.fromPublisher(Flux.fromIterable(dtos), dtoMetadataClass));
+    }
+
+    /**
+     * Selects the encoding of the response body, among JSON, CBOR and Smile, from the Accept header of a request.
+     *
+     * @param request the handled request
+     * @return the response media type
+     */
+    protected MediaType responseMediaType(final ServerRequest request) {
+        return MediaTypeUtils.negotiateDto(request.headers().accept());
+    }
+
+    protected int requestLimit(final ServerRequest request, final int defaultLimit, final int maxLimit) {
+        final String limitParam = request.queryParam(LIMIT_PARAM).orElse(null);
+        if (limitParam == null) {
+            return defaultLimit;
+        }
+        try {
+            final int limit = Integer.parseInt(limitParam);
+            if (limit < 1) {
+                throw new InvalidRequestException(format("Limit must be positive, not {0}!", limit));
+            }
+            return Math.min(limit, maxLimit);
+        } catch (final NumberFormatException e) {
+            throw new InvalidRequestException(format("Invalid limit {0}!", limitParam), e);
+        }
+    }
+
+    private byte[] encode(final E entity) {
+        try {
+            return objectMapper.writeValueAsBytes(entityConverter.entityToDto(entity));
+        } catch (final JsonProcessingException e) {
+            throw new UncheckedIOException(format("Unable to encode entity {0}", entity.getId()), e);
+        }
+    }
+
+    private Mono<ServerResponse> encodedResponse(
+            final ByteBuffer bytes,
+            final boolean gzip,
+            final Optional<String> entityTag
+    ) {
+        final ServerResponse.BodyBuilder response = ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(errorDTO));
+                .contentLength(bytes.remaining())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        entityTag.ifPresent(response::eTag);
+        return response.body((message, context) -> message.writeWith(Mono.fromSupplier(
+                () -> message.bufferFactory().wrap(bytes))));
+    }
+
+    private Flux<DataBuffer> exportBody(
+            final Flux<ExportChunk<E>> chunks,
+            final boolean gzip,
+            final DataBufferFactory bufferFactory
+    ) {
+        final Flux<byte[]> lines = chunks.map(this::exportLines);
+        final Flux<byte[]> body = gzip
+                ? Flux.using(StreamingGzip::new,
+                        stream -> lines.map(stream::write).concatWith(Mono.fromCallable(stream::finish)),
+                        StreamingGzip::close)
+                : lines;
+        return body.map(bufferFactory::wrap);
+    }
+
+    private byte[] exportLines(final ExportChunk<E> chunk) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for (final E entity : chunk.getEntities()) {
+                objectMapper.writeValue(out, entityConverter.entityToDto(entity));
+                out.write('\n');
+            }
+            objectMapper.writeValue(out, Collections.singletonMap(CHECKPOINT_PARAM, chunk.getCheckpoint()));
+            out.write('\n');
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to write an export chunk", e);
+        }
+        return out.toByteArray();
+    }
+
+    private Mono<Optional<Long>> ifMatchVersion(final ServerRequest request) {
+        return Mono.fromCallable(() -> requiredVersion(request.headers().header(HttpHeaders.IF_MATCH)));
     }
 
-    protected Mono<ServerResponse> foundResponse(final E entity) {
-        return dtoResponse(entity, HttpStatus.OK);
+    private Mono<ServerResponse> conditionalResponse(
+            final ServerRequest request,
+            final Optional<String> entityTag,
+            final Supplier<Mono<ServerResponse>> response
+    ) {
+        return entityTag.isPresent() && matchesAny(request.headers().header(HttpHeaders.IF_NONE_MATCH), entityTag.get())
+                ? notModifiedResponse(entityTag.get())
+                : response.get();
+    }
+
+    /**
+     * Warns the client that the entities come from the stale snapshot of the service, which serves reads while the
+     * database is unavailable. The header is set on the exchange, whose headers the response keeps when written.
+     */
+    private static void warnIfStale(final ServerRequest request, final StaleReadMarker staleRead) {
+        if (staleRead.isStale()) {
+            request.exchange().getResponse().getHeaders().set(HttpHeaders.WARNING, STALE_WARNING);
+        }
+    }
+
+    private static Duration retryAfter(final Throwable t) {
+        if (t instanceof ConcurrencyLimitExceededException) {
+            return ((ConcurrencyLimitExceededException) t).getRetryAfter();
+        } else if (t instanceof CircuitOpenException) {
+            return ((CircuitOpenException) t).getRetryAfter();
+        }
+        return null;
     }
 
-    protected Mono<ServerResponse> updatedResponse(final E entity) {
-        return dtoResponse(entity, HttpStatus.OK);
+    private static boolean acceptsGzip(final ServerRequest request) {
+        return request.headers().header(HttpHeaders.ACCEPT_ENCODING).stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(coding -> coding.split(";"))
+                .anyMatch(params -> GZIP.equalsIgnoreCase(params[0].trim()) && Arrays.stream(params).skip(1)
+                        .map(param -> param.trim().replace(" ", ""))
+                        .noneMatch(param -> param.matches("[qQ]=0(\\.0{0,3})?")));
     }
 
-    private Mono<ServerResponse> dtoResponse(final E entity, final HttpStatus status) {
+    private Mono<E> patchInMemory(final String dtoId, final JsonNode patchData, final Long version) {
+        return Mono.fromCallable(() -> JsonPatch.fromJson(patchData))
+                .onErrorMap(IOException.class, e -> new InvalidRequestException("Invalid JSON Patch document!", e))
+                .zipWith(crudService.get(dtoId))
+                .map(tuple -> {
+                    final D dto = entityConverter.entityToDto(tuple.getT2());
+                    final D updatedDto = patch(objectMapper, tuple.getT1(), dto, dtoClass);
+                    return entityConverter.dtoToEntity(updatedDto);
+                })
+                .flatMap(entity -> crudService.update(dtoId, entity, version));
+    }
+
+    private Mono<ServerResponse> dtoResponse(final ServerRequest request, final E entity, final HttpStatus status) {
         final D dto = entityConverter.entityToDto(entity);
-        return ServerResponse
-                .status(status)
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(dto));
+        final MediaType mediaType = responseMediaType(request);
+        final ServerResponse.BodyBuilder response = ServerResponse.status(status)
+                .contentType(mediaType)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        entityTag(entity, mediaType, false).ifPresent(response::eTag);
+        return response.body(BodyInserters.fromValue(dto));
+    }
+
+    private ImportedLine<E> importedLine(final int index, final String line) {
+        try {
+            final D dto = objectMapper.readValue(line, dtoClass);
+            if (dto == null) {
+                return new ImportedLine<>(index, null, "Missing entity!");
+            }
+            return new ImportedLine<>(index, entityConverter.dtoToEntity(dto), null);
+        } catch (final JsonProcessingException e) {
+            return new ImportedLine<>(index, null, e.getOriginalMessage());
+        } catch (final RuntimeException e) {
+            return new ImportedLine<>(index, null, e.getMessage());
+        }
+    }
+
+    private Flux<BulkItemResult> importBatch(final List<ImportedLine<E>> lines) {
+        final List<ImportedLine<E>> parsed = lines.stream()
+                .filter(line -> line.entity != null)
+                .collect(Collectors.toList());
+        final Flux<BulkItemResult> failed = Flux.fromIterable(lines)
+                .filter(line -> line.entity == null)
+                .map(line -> BulkItemResult.builder()
+                        .index(line.index)
+                        .status(BulkItemStatus.FAILED)
+                        .message(line.error)
+                        .build());
+        if (parsed.isEmpty()) {
+            return failed;
+        }
+        final List<E> entities = parsed.stream()
+                .map(line -> line.entity)
+                .collect(Collectors.toList());
+        return Flux.concat(failed, Flux.defer(() -> {
+            final Set<Integer> answered = new HashSet<>();
+            return crudService.createAll(entities)
+                    .doOnNext(result -> answered.add(result.getIndex()))
+                    .map(result -> result.toBuilder().index(parsed.get(result.getIndex()).index).build())
+                    // the response is already committed, so the error is answered line by line
+                    .onErrorResume(t -> Flux.range(0, parsed.size())
+                            .filter(i -> !answered.contains(i))
+                            .map(i -> BulkItemResult.builder()
+                                    .index(parsed.get(i).index)
+                                    .id(parsed.get(i).entity.getId())
+                                    .status(BulkItemStatus.FAILED)
+                                    .message(t.getMessage())
+                                    .build()));
+        }));
+    }
+
+    private static final class ImportedLine<E> {
+
+        private final int index;
+        private final E entity;
+        private final String error;
+
+        private ImportedLine(final int index, final E entity, final String error) {
+            this.index = index;
+            this.entity = entity;
+            this.error = error;
+        }
+
     }
 
 }
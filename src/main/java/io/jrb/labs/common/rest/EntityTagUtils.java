@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest;
+
+import io.jrb.labs.common.crud.Entity;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Maps entity versions to and from the strong entity tags of the ETag, If-Match and If-None-Match headers. A strong tag
+ * may only be shared by byte-identical representations, so each encoding of a version gets its own tag: JSON is
+ * tagged with the bare version, such as "3", and the other encodings append their name, such as "3-cbor", "3-smile" or
+ * "3-gzip" for the JSON served to clients accepting gzip. As a version is gzipped only once its body is large enough,
+ * the gzip tag still designates a single byte sequence, and it can be derived without encoding the body.
+ */
+public class EntityTagUtils {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String GZIP_SUFFIX = "-gzip";
+    private static final Pattern ENTITY_TAG = Pattern.compile("\"(\\d+)(?:-cbor|-smile)?(?:-gzip)?\"");
+
+    private EntityTagUtils() {}
+
+    /**
+     * Derives the entity tag of a representation of an entity from its version.
+     *
+     * @param entity the entity
+     * @param mediaType the DTO encoding of the representation
+     * @param gzip whether the representation is gzipped
+     * @return the quoted entity tag, or empty for an unversioned entity
+     */
+    public static Optional<String> entityTag(final Entity<?> entity, final MediaType mediaType, final boolean gzip) {
+        final String suffix = encodingSuffix(mediaType) + (gzip ? GZIP_SUFFIX : "");
+        return Optional.ofNullable(entity.getVersion()).map(version -> "\"" + version + suffix + "\"");
+    }
+
+    /**
+     * Evaluates an If-None-Match header against the current entity tag, using the weak comparison of RFC 7232.
+     *
+     * @param ifNoneMatch the If-None-Match header values
+     * @param entityTag the current entity tag
+     * @return true if the header lists the entity tag, or any entity tag
+     */
+    public static boolean matchesAny(final List<String> ifNoneMatch, final String entityTag) {
+        return tags(ifNoneMatch).stream()
+                .map(tag -> tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag)
+                .anyMatch(tag -> ANY.equals(tag) || tag.equals(entityTag));
+    }
+
+    /**
+     * Extracts the entity version required by an If-Match header. As every write is conditioned on a single version,
+     * the header must hold a single strong entity tag issued by this service, for any representation, or the
+     * any-entity wildcard.
+     *
+     * @param ifMatch the If-Match header values
+     * @return the required entity version, or empty if any version is accepted
+     * @throws InvalidRequestException if the header holds anything else
+     */
+    public static Optional<Long> requiredVersion(final List<String> ifMatch) {
+        final List<String> tags = tags(ifMatch);
+        if (tags.isEmpty() || tags.equals(Collections.singletonList(ANY))) {
+            return Optional.empty();
+        }
+        final String tag = tags.get(0);
+        if (tags.size() == 1 && tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            final Matcher matcher = ENTITY_TAG.matcher(tag);
+            try {
+                if (matcher.matches()) {
+                    return Optional.of(Long.parseLong(matcher.group(1)));
+                }
+            } catch (final NumberFormatException e) {
+                throw new InvalidRequestException(format("Unknown entity tag {0}!", tag), e);
+            }
+            throw new InvalidRequestException(format("Unknown entity tag {0}!", tag));
+        }
+        throw new InvalidRequestException(format("If-Match must hold a single entity tag, not {0}!", tags));
+    }
+
+    private static String encodingSuffix(final MediaType mediaType) {
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+            return "-cbor";
+        } else if (MediaTypeUtils.APPLICATION_SMILE.equalsTypeAndSubtype(mediaType)) {
+            return "-smile";
+        }
+        return "";
+    }
+
+    private static List<String> tags(final List<String> headerValues) {
+        return headerValues.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(tag -> !tag.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+}
@@ -24,13 +24,14 @@
 package io.jrb.labs.common.rest;
 
 import io.jrb.labs.common.crud.Entity;
-import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.RequestPredicates;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import static io.jrb.labs.common.rest.MediaTypeUtils.APPLICATION_NDJSON;
+import static io.jrb.labs.common.rest.MediaTypeUtils.acceptDto;
 import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RequestPredicates.PATCH;
@@ -40,39 +41,75 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 
 public interface ICrudHandler<E extends Entity<E>, D extends DTO<D>, M extends DTO<M>> {
 
+    Mono<ServerResponse> createEntities(ServerRequest request);
+
     Mono<ServerResponse> createEntity(ServerRequest request);
 
+    Mono<ServerResponse> deleteEntities(ServerRequest request);
+
     Mono<ServerResponse> deleteEntity(ServerRequest request);
 
+    Mono<ServerResponse> exportEntities(ServerRequest request);
+
+    Mono<ServerResponse> getEntities(ServerRequest request);
+
     Mono<ServerResponse> getEntity(ServerRequest request);
 
+    Mono<ServerResponse> importEntities(ServerRequest request);
+
     Mono<ServerResponse> patchEntity(ServerRequest request);
 
     Mono<ServerResponse> retrieveEntities(ServerRequest request);
 
     Mono<ServerResponse> updateEntity(ServerRequest request);
 
+    Mono<ServerResponse> upsertEntities(ServerRequest request);
+
     default RouterFunction<ServerResponse> createCrudEndpoints(
             final String baseResource,
             final String resourceId,
             final ICrudHandler<E, D, M> handler
     ) {
         final String individualResource = baseResource + "/{" + resourceId + "}";
+        final String bulkResource = baseResource + "/_bulk";
         return route(
+                GET(baseResource + "/_export"),
+                handler::exportEntities
+        ).andRoute(
+                POST(bulkResource)
+                        .and(acceptDto()),
+                handler::createEntities
+        ).andRoute(
+                PUT(bulkResource)
+                        .and(acceptDto()),
+                handler::upsertEntities
+        ).andRoute(
+                POST(bulkResource + "/delete")
+                        .and(acceptDto()),
+                handler::deleteEntities
+        ).andRoute(
+                POST(baseResource + "/_mget")
+                        .and(acceptDto()),
+                handler::getEntities
+        ).andRoute(
+                POST(baseResource + "/_import")
+                        .and(RequestPredicates.contentType(APPLICATION_NDJSON)),
+                handler::importEntities
+        ).andRoute(
                 POST(baseResource)
-                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        .and(acceptDto()),
                 handler::createEntity
         ).andRoute(
                 DELETE(individualResource)
-                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        .and(acceptDto()),
                 handler::deleteEntity
         ).andRoute(
                 GET(individualResource)
-                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        .and(acceptDto()),
                 handler::getEntity
         ).andRoute(
                 GET(baseResource)
-                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        .and(acceptDto()),
                 handler::retrieveEntities
         ).andRoute(
                 PATCH(individualResource)
@@ -80,7 +117,7 @@ public interface ICrudHandler<E extends Entity<E>, D extends DTO<D>, M extends D
                 handler::patchEntity
         ).andRoute(
                 PUT(individualResource)
-                        .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)),
+                        .and(acceptDto()),
                 handler::updateEntity
         );
     }
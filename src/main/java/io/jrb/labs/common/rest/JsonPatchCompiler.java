@@ -0,0 +1,271 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Compiles RFC 6902 JSON Patch documents into atomic Mongo updates, so that a patch is written in a single round trip
+ * instead of being applied to a loaded copy of the entity. Only the operations that have a Mongo equivalent on
+ * the known DTO properties are compiled:
+ * 1) add, replace or remove of a top-level property ($set / $unset)
+ * 2) add, replace or remove of a map entry, such as /lyrics/v1 ($set / $unset)
+ * 3) append to a list, such as /themes/- ($push)
+ * 4) append to a list held by a map entry, such as /lyrics/v1/- ($push)
+ * Where RFC 6902 fails an operation that Mongo would carry out anyway, the compiled patch carries a condition on the
+ * entity instead: the target of a replace or remove must exist, and so must the parent of an add below the top level,
+ * which must also not be null. A top-level property is only missing from the DTO document when it is null and its
+ * serialization leaves out null values, so only such properties are checked. Any other operation, including test,
+ * move, copy and indexed list changes (whose out-of-bounds behavior differs in Mongo), makes the whole patch
+ * uncompilable, and it must then be applied in memory. The DTO property names are assumed to match the entity
+ * property names, which are mapped to the stored field names when the update is written.
+ * Properties that cannot be updated in place, such as the ones stored as compressed blocks, are excluded, so any
+ * operation on them is left uncompiled.
+ */
+public class JsonPatchCompiler {
+
+    private static final String ID_PROPERTY = "id";
+    private static final String APPEND_INDEX = "-";
+
+    private static final Set<JsonInclude.Include> NULL_INCLUSIONS =
+            EnumSet.of(JsonInclude.Include.ALWAYS, JsonInclude.Include.USE_DEFAULTS);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, JavaType> propertyTypes;
+    private final Set<String> omittedWhenNull;
+
+    public JsonPatchCompiler(final ObjectMapper objectMapper, final Class<?> dtoClass) {
+        this(objectMapper, dtoClass, Collections.emptySet());
+    }
+
+    public JsonPatchCompiler(
+            final ObjectMapper objectMapper,
+            final Class<?> dtoClass,
+            final Collection<String> unpatchableProperties
+    ) {
+        this.objectMapper = objectMapper;
+        final List<BeanPropertyDefinition> properties = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(dtoClass))
+                .findProperties().stream()
+                .filter(property -> !ID_PROPERTY.equals(property.getName()))
+                .filter(property -> !unpatchableProperties.contains(property.getName()))
+                .collect(Collectors.toList());
+        this.propertyTypes = properties.stream()
+                .collect(Collectors.toMap(BeanPropertyDefinition::getName, BeanPropertyDefinition::getPrimaryType));
+        final JsonInclude.Value defaultInclusion =
+                objectMapper.getSerializationConfig().getDefaultPropertyInclusion(dtoClass);
+        this.omittedWhenNull = properties.stream()
+                .filter(property -> !NULL_INCLUSIONS.contains(
+                        defaultInclusion.withOverrides(property.findInclusion()).getValueInclusion()))
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Compiles a JSON Patch document.
+     *
+     * @param patch the JSON Patch document, as an array of operations
+     * @return the equivalent Mongo update and its conditions, or empty if any operation cannot be compiled
+     * @throws InvalidRequestException if a compiled operation carries a value of the wrong type
+     */
+    public Optional<CompiledPatch> compile(final JsonNode patch) {
+        if (patch == null || !patch.isArray()) {
+            return Optional.empty();
+        }
+        final Update update = new Update();
+        final Map<String, Criteria> conditions = new LinkedHashMap<>();
+        final List<String> paths = new ArrayList<>();
+        for (final JsonNode operation : patch) {
+            final Optional<String> path = compile(operation, update, conditions);
+            if (!path.isPresent() || conflicts(paths, path.get())) {
+                return Optional.empty();
+            }
+            paths.add(path.get());
+        }
+        return Optional.of(new CompiledPatch(update, new ArrayList<>(conditions.values())));
+    }
+
+    private Optional<String> compile(
+            final JsonNode operation,
+            final Update update,
+            final Map<String, Criteria> conditions
+    ) {
+        final String op = operation.path("op").asText();
+        final List<String> tokens = pointerTokens(operation.path("path").asText(null));
+        if (tokens.isEmpty() || !propertyTypes.containsKey(tokens.get(0)) || tokens.stream().anyMatch(this::unsafeKey)) {
+            return Optional.empty();
+        }
+        final JavaType propertyType = propertyTypes.get(tokens.get(0));
+        final String field = tokens.get(0);
+        final Optional<String> path;
+        switch (op) {
+            case "add":
+            case "replace":
+                path = compileWrite(op, operation.get("value"), tokens, field, propertyType, update);
+                break;
+            case "remove":
+                path = compileRemove(tokens, field, propertyType, update);
+                break;
+            default:
+                return Optional.empty();
+        }
+        path.ifPresent(p -> addCondition(op, tokens, conditions));
+        return path;
+    }
+
+    /**
+     * Adds the condition under which an operation succeeds. An add fails unless its parent holds a value, and a
+     * replace or remove fails unless its target exists, which a top-level property always does in the DTO document
+     * unless null values are left out. A parent that must hold a value subsumes its own existence check.
+     */
+    private void addCondition(final String op, final List<String> tokens, final Map<String, Criteria> conditions) {
+        if ("add".equals(op)) {
+            if (tokens.size() > 1) {
+                final String parent = String.join(".", tokens.subList(0, tokens.size() - 1));
+                conditions.put(parent, Criteria.where(parent).ne(null));
+            }
+        } else if (tokens.size() > 1 || omittedWhenNull.contains(tokens.get(0))) {
+            final String target = String.join(".", tokens);
+            conditions.putIfAbsent(target, Criteria.where(target).exists(true));
+        }
+    }
+
+    private Optional<String> compileWrite(
+            final String op,
+            final JsonNode value,
+            final List<String> tokens,
+            final String field,
+            final JavaType propertyType,
+            final Update update
+    ) {
+        if (value == null) {
+            return Optional.empty();
+        }
+        if (tokens.size() == 1) {
+            return Optional.of(set(field, value, propertyType, update));
+        }
+        if (tokens.size() == 2 && propertyType.isCollectionLikeType() && "add".equals(op)) {
+            return push(field, tokens.get(1), value, propertyType.getContentType(), update);
+        }
+        if (tokens.size() == 2 && propertyType.isMapLikeType()) {
+            return Optional.of(set(field + "." + tokens.get(1), value, propertyType.getContentType(), update));
+        }
+        if (tokens.size() == 3 && propertyType.isMapLikeType() && propertyType.getContentType().isCollectionLikeType()
+                && "add".equals(op)) {
+            final JavaType listType = propertyType.getContentType();
+            return push(field + "." + tokens.get(1), tokens.get(2), value, listType.getContentType(), update);
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> compileRemove(
+            final List<String> tokens,
+            final String field,
+            final JavaType propertyType,
+            final Update update
+    ) {
+        if (tokens.size() == 1) {
+            update.unset(field);
+            return Optional.of(field);
+        }
+        if (tokens.size() == 2 && propertyType.isMapLikeType()) {
+            final String path = field + "." + tokens.get(1);
+            update.unset(path);
+            return Optional.of(path);
+        }
+        return Optional.empty();
+    }
+
+    private String set(final String path, final JsonNode value, final JavaType type, final Update update) {
+        if (value.isNull()) {
+            update.unset(path);
+        } else {
+            update.set(path, convert(path, value, type));
+        }
+        return path;
+    }
+
+    private Optional<String> push(
+            final String path,
+            final String index,
+            final JsonNode value,
+            final JavaType elementType,
+            final Update update
+    ) {
+        if (!APPEND_INDEX.equals(index)) {
+            return Optional.empty();
+        }
+        update.push(path, convert(path, value, elementType));
+        return Optional.of(path);
+    }
+
+    private Object convert(final String path, final JsonNode value, final JavaType type) {
+        try {
+            return objectMapper.convertValue(value, type);
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidRequestException(format("Invalid patch value for {0}!", path), e);
+        }
+    }
+
+    private boolean conflicts(final List<String> paths, final String path) {
+        return paths.stream().anyMatch(other ->
+                other.equals(path) || other.startsWith(path + ".") || path.startsWith(other + "."));
+    }
+
+    private boolean unsafeKey(final String token) {
+        return token.isEmpty() || token.contains(".") || token.startsWith("$");
+    }
+
+    private List<String> pointerTokens(final String pointer) {
+        if (pointer == null || !pointer.startsWith("/")) {
+            return Collections.emptyList();
+        }
+        final Function<String, String> unescape = token -> token.replace("~1", "/").replace("~0", "~");
+        return Arrays.stream(pointer.substring(1).split("/", -1))
+                .map(unescape)
+                .collect(Collectors.toList());
+    }
+
+}
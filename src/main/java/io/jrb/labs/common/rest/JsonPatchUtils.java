@@ -47,7 +47,7 @@ public class JsonPatchUtils {
             final JsonNode patched = patch.apply(target);
             return objectMapper.convertValue(patched, beanClass);
         } catch (final JsonPatchException e) {
-            throw new RuntimeException(e.getMessage(), e);
+            throw new InvalidRequestException(e.getMessage(), e);
         }
     }
 
@@ -0,0 +1,91 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Negotiates the encoding of DTO payloads. JSON remains the default, while the compact binary CBOR and Smile encodings
+ * of the same DTOs are offered to the clients that ask for them.
+ */
+public class MediaTypeUtils {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+    public static final List<MediaType> DTO_MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(
+            MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, APPLICATION_SMILE));
+
+    private MediaTypeUtils() {}
+
+    /**
+     * Matches the requests that accept any of the DTO encodings.
+     *
+     * @return the request predicate
+     */
+    public static RequestPredicate acceptDto() {
+        return RequestPredicates.accept(DTO_MEDIA_TYPES.toArray(new MediaType[0]));
+    }
+
+    /**
+     * Selects the DTO encoding preferred by an Accept header. Each encoding gets the quality of the most specific media
+     * range that includes it, and ties go to JSON, then CBOR, then Smile.
+     *
+     * @param accepted the accepted media types
+     * @return the preferred DTO media type, or JSON if none is acceptable
+     */
+    public static MediaType negotiateDto(final List<MediaType> accepted) {
+        if (accepted.isEmpty()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType preferred = MediaType.APPLICATION_JSON;
+        double preferredQuality = 0;
+        for (final MediaType candidate : DTO_MEDIA_TYPES) {
+            final double quality = quality(accepted, candidate);
+            if (quality > preferredQuality) {
+                preferred = candidate;
+                preferredQuality = quality;
+            }
+        }
+        return preferred;
+    }
+
+    private static double quality(final List<MediaType> accepted, final MediaType candidate) {
+        return accepted.stream()
+                .filter(range -> range.includes(candidate))
+                .min(MediaType.SPECIFICITY_COMPARATOR)
+                .map(MediaType::getQualityValue)
+                .orElse(0.0);
+    }
+
+}
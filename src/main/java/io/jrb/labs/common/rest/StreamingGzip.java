@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips a response body that is written in parts, as a single gzip stream. Each part is flushed through the
+ * compressor as soon as it is written, so that the client can decompress everything received so far without waiting
+ * for the end of the stream.
+ */
+final class StreamingGzip implements AutoCloseable {
+
+    private final ByteArrayOutputStream buffer;
+    private final GZIPOutputStream gzip;
+
+    StreamingGzip() {
+        this.buffer = new ByteArrayOutputStream();
+        try {
+            this.gzip = new GZIPOutputStream(buffer, true);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to start a gzip stream", e);
+        }
+    }
+
+    /**
+     * Compresses the next part of the body.
+     *
+     * @param part the uncompressed part
+     * @return the compressed bytes of the part
+     */
+    byte[] write(final byte[] part) {
+        try {
+            gzip.write(part);
+            gzip.flush();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to gzip a response body", e);
+        }
+        return drain();
+    }
+
+    /**
+     * Ends the gzip stream.
+     *
+     * @return the remaining compressed bytes, including the gzip trailer
+     */
+    byte[] finish() {
+        try {
+            gzip.finish();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to gzip a response body", e);
+        }
+        return drain();
+    }
+
+    @Override
+    public void close() {
+        try {
+            gzip.close();
+        } catch (final IOException e) {
+            // the compressed bytes are only held in memory
+        }
+    }
+
+    private byte[] drain() {
+        final byte[] compressed = buffer.toByteArray();
+        buffer.reset();
+        return compressed;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.event.CrudServiceEvent;
+import io.jrb.labs.common.crud.event.DeleteEntityEvent;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Provides a {@link ResponseBodyCache} on top of a Caffeine cache bounded by the total size of the bodies it holds, so
+ * that the hot entities stay encoded while the long tail is serialized on demand. An entry is replaced when a newer
+ * version of its entity is read, and dropped as soon as its entity is updated or deleted. Hit, miss and eviction
+ * statistics are bound to the meter registry under the cache name.
+ *
+ * @param <E> the entity type
+ */
+public class CaffeineResponseBodyCache<E extends Entity<E>> implements ResponseBodyCache<E> {
+
+    private final Class<E> entityClass;
+    private final long gzipMinSize;
+    private final Cache<String, EncodedBody> cache;
+
+    public CaffeineResponseBodyCache(
+            final String cacheName,
+            final Class<E> entityClass,
+            final ResponseBodyCacheConfig config,
+            final MeterRegistry meterRegistry
+    ) {
+        this.entityClass = entityClass;
+        this.gzipMinSize = config.gzipMinSize().toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.maximumWeight().toBytes())
+                .weigher((String id, EncodedBody body) -> body.weight())
+                .expireAfterAccess(config.expireAfterAccess())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName, Collections.emptyList());
+    }
+
+    @Override
+    public Optional<EncodedBody> get(final E entity, final Function<E, byte[]> encoder) {
+        final Long version = entity.getVersion();
+        if (version == null) {
+            return Optional.empty();
+        }
+        final EncodedBody cached = cache.getIfPresent(entity.getId());
+        if (cached != null && cached.getVersion() == version) {
+            return Optional.of(cached);
+        }
+        final EncodedBody encoded = EncodedBody.encode(version, encoder.apply(entity), gzipMinSize);
+        // a slow reader of an older version must not replace the body of a newer one
+        cache.asMap().merge(entity.getId(), encoded,
+                (current, candidate) -> current.getVersion() > candidate.getVersion() ? current : candidate);
+        return Optional.of(encoded);
+    }
+
+    @Override
+    public boolean caches(final E entity) {
+        return entity.getVersion() != null;
+    }
+
+    @Override
+    public void invalidate(final String id) {
+        cache.invalidate(id);
+    }
+
+    @EventListener
+    public void onUpdate(final UpdateEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    @EventListener
+    public void onDelete(final DeleteEntityEvent<?> event) {
+        invalidate(event);
+    }
+
+    private void invalidate(final CrudServiceEvent<?> event) {
+        final Entity<?> entity = event.getEntity();
+        if (entityClass.isInstance(entity) && entity.getId() != null) {
+            invalidate(entity.getId());
+        }
+    }
+
+}
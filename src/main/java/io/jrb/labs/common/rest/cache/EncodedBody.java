@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the encoded response body of one version of an entity, uncompressed and, when large enough, gzipped. The
+ * bytes are never modified once encoded, and are only handed out as read-only buffers, so that a single body can be
+ * written to any number of responses at once.
+ */
+public final class EncodedBody {
+
+    private final long version;
+    private final byte[] identity;
+    private final byte[] gzip;
+
+    private EncodedBody(final long version, final byte[] identity, final byte[] gzip) {
+        this.version = version;
+        this.identity = identity;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Encodes the body of an entity version, compressing it if it reaches the gzip threshold.
+     *
+     * @param version the entity version
+     * @param identity the uncompressed body
+     * @param gzipMinSize the size from which the body is also gzipped
+     * @return the encoded body
+     */
+    public static EncodedBody encode(final long version, final byte[] identity, final long gzipMinSize) {
+        return new EncodedBody(version, identity, identity.length >= gzipMinSize ? gzip(identity) : null);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public ByteBuffer identity() {
+        return ByteBuffer.wrap(identity).asReadOnlyBuffer();
+    }
+
+    public Optional<ByteBuffer> gzip() {
+        return Optional.ofNullable(gzip).map(bytes -> ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    /**
+     * Measures the memory held by the body, for the cache weigher.
+     *
+     * @return the number of bytes held
+     */
+    public int weight() {
+        return identity.length + (gzip != null ? gzip.length : 0);
+    }
+
+    private static byte[] gzip(final byte[] bytes) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(bytes);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to gzip a response body", e);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.cache;
+
+import io.jrb.labs.common.crud.Entity;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Defines a cache of encoded entity response bodies, keyed by entity identifier and version. A body is only served for
+ * the version it was encoded from, so an entity read after a write never gets a stale body, even before the cached one
+ * has been invalidated.
+ *
+ * @param <E> the entity type
+ */
+public interface ResponseBodyCache<E extends Entity<E>> {
+
+    /**
+     * Retrieves the encoded body of an entity, encoding it on a miss or on a version change. Unversioned entities are
+     * not cached.
+     *
+     * @param entity the entity
+     * @param encoder the function encoding the uncompressed response body of an entity
+     * @return the encoded body, or empty if the entity is not cached
+     */
+    Optional<EncodedBody> get(E entity, Function<E, byte[]> encoder);
+
+    /**
+     * Tells whether the body of an entity is served from the cache, without encoding it.
+     *
+     * @param entity the entity
+     * @return true if {@link #get} answers with an encoded body for the entity
+     */
+    boolean caches(E entity);
+
+    void invalidate(String id);
+
+    @SuppressWarnings("unchecked")
+    static <E extends Entity<E>> ResponseBodyCache<E> none() {
+        return (ResponseBodyCache<E>) NoResponseBodyCache.INSTANCE;
+    }
+
+}
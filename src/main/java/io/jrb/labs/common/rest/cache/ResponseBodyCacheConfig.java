@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.cache;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configures the cache of encoded entity responses of a module. The cache is bounded by the total size of the bodies
+ * it holds, and bodies smaller than the gzip threshold are only held uncompressed.
+ */
+@Accessors(fluent = true) @Getter
+public class ResponseBodyCacheConfig {
+
+    public static final ResponseBodyCacheConfig DEFAULT = new ResponseBodyCacheConfig(
+            false, DataSize.ofMegabytes(64), Duration.ofMinutes(10), DataSize.ofKilobytes(1));
+
+    private final boolean enabled;
+
+    private final DataSize maximumWeight;
+
+    private final Duration expireAfterAccess;
+
+    private final DataSize gzipMinSize;
+
+    @ConstructorBinding
+    public ResponseBodyCacheConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("64MB") final DataSize maximumWeight,
+            @DefaultValue("10m") final Duration expireAfterAccess,
+            @DefaultValue("1KB") final DataSize gzipMinSize
+    ) {
+        this.enabled = enabled;
+        this.maximumWeight = maximumWeight;
+        this.expireAfterAccess = expireAfterAccess;
+        this.gzipMinSize = gzipMinSize;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes CBOR payloads, including multi-value ones. The CBOR decoder of Spring cannot decode a stream of values, so
+ * a multi-value payload is read as a whole CBOR array, within the configured in-memory limit, then emitted value by
+ * value.
+ */
+public class BufferingCborDecoder extends Jackson2CborDecoder {
+
+    public BufferingCborDecoder(final ObjectMapper objectMapper) {
+        super(objectMapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    public Flux<Object> decode(
+            final Publisher<DataBuffer> input,
+            final ResolvableType elementType,
+            final MimeType mimeType,
+            final Map<String, Object> hints
+    ) {
+        final ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return decodeToMono(input, listType, mimeType, hints)
+                .flatMapIterable(values -> (List<?>) values);
+    }
+
+}
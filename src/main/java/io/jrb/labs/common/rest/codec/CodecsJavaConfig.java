@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Collections;
+
+import static io.jrb.labs.common.rest.MediaTypeUtils.APPLICATION_NDJSON;
+
+/**
+ * Registers the CBOR codecs of the DTO payloads. The Smile codecs are registered by default, as soon as the Smile
+ * data format is on the classpath. Streams are also written as newline-delimited JSON, one value per line, flushed as
+ * the values are produced.
+ */
+@Configuration
+public class CodecsJavaConfig {
+
+    @Bean
+    public CodecCustomizer cborCodecCustomizer() {
+        final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        return configurer -> {
+            configurer.customCodecs().registerWithDefaultConfig(new BufferingCborDecoder(cborMapper));
+            configurer.customCodecs().registerWithDefaultConfig(new BufferingCborEncoder(cborMapper));
+        };
+    }
+
+    @Bean
+    public CodecCustomizer ndjsonCodecCustomizer(final ObjectMapper objectMapper) {
+        final Jackson2JsonEncoder ndjsonEncoder = new Jackson2JsonEncoder(objectMapper, APPLICATION_NDJSON);
+        ndjsonEncoder.setStreamingMediaTypes(Collections.singletonList(APPLICATION_NDJSON));
+        return configurer -> configurer.customCodecs().registerWithDefaultConfig(ndjsonEncoder);
+    }
+
+}
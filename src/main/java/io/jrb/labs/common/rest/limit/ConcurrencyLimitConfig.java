@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.limit;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the adaptive concurrency limits of the handler operations of a module. Each route is limited
+ * separately, starting at the initial limit and adapting between the minimum and maximum limits. A limit shrinks
+ * once the latency exceeds its long-term average by more than the tolerance factor, and the smoothing factor sets how
+ * fast it moves. Requests shed by a limit are told to retry after the given delay.
+ */
+@Accessors(fluent = true) @Getter
+public class ConcurrencyLimitConfig {
+
+    public static final ConcurrencyLimitConfig DEFAULT =
+            new ConcurrencyLimitConfig(false, 20, 4, 200, 1.5, 0.2, Duration.ofSeconds(1));
+
+    private final boolean enabled;
+
+    private final int initialLimit;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double rttTolerance;
+
+    private final double smoothing;
+
+    private final Duration retryAfter;
+
+    @ConstructorBinding
+    public ConcurrencyLimitConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("20") final int initialLimit,
+            @DefaultValue("4") final int minLimit,
+            @DefaultValue("200") final int maxLimit,
+            @DefaultValue("1.5") final double rttTolerance,
+            @DefaultValue("0.2") final double smoothing,
+            @DefaultValue("1s") final Duration retryAfter
+    ) {
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.retryAfter = retryAfter;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.limit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the separate concurrency limits of the routes of a module, so that a burst on one route, such as a bulk route
+ * whose operations run far longer than single ones, neither starves the other routes nor skews their latency samples.
+ * The limit of a route is created the first time the route is limited.
+ */
+public class ConcurrencyLimits {
+
+    private static final ConcurrencyLimits NONE = new ConcurrencyLimits(route -> ConcurrencyLimiter.none());
+
+    private final Function<String, ConcurrencyLimiter> limiterFactory;
+    private final Map<String, ConcurrencyLimiter> limiters;
+
+    /**
+     * Creates the limits of a module.
+     *
+     * @param limiterFactory creates the limiter of a route, given its name
+     */
+    public ConcurrencyLimits(final Function<String, ConcurrencyLimiter> limiterFactory) {
+        this.limiterFactory = limiterFactory;
+        this.limiters = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Provides the limits of a module, which are not enforced if disabled by their configuration.
+     *
+     * @param module the module name
+     * @param config the limit configuration
+     * @param meterRegistry the registry of the limit metrics
+     * @return the limits
+     */
+    public static ConcurrencyLimits of(
+            final String module,
+            final ConcurrencyLimitConfig config,
+            final MeterRegistry meterRegistry
+    ) {
+        if (!config.enabled()) {
+            return NONE;
+        }
+        return new ConcurrencyLimits(route -> new GradientConcurrencyLimiter(module, route, config, meterRegistry));
+    }
+
+    public static ConcurrencyLimits none() {
+        return NONE;
+    }
+
+    /**
+     * Provides the limit of a route.
+     *
+     * @param route the route name
+     * @return the limiter of the route
+     */
+    public ConcurrencyLimiter forRoute(final String route) {
+        return limiters.computeIfAbsent(route, limiterFactory);
+    }
+
+}
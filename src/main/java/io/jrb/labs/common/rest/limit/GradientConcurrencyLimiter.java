@@ -0,0 +1,176 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.rest.limit;
+
+import io.jrb.labs.common.crud.RoundTripMarker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Adapts a concurrency limit to the latency of the operations, following the gradient algorithm:
+ * 1) the latency of each operation is compared to a long-term average of the latencies, and the limit shrinks by their
+ *    ratio once the latency exceeds the average by more than the tolerance factor, that is once operations queue up
+ *    for the database instead of running
+ * 2) otherwise the limit grows by the square root of itself, to probe for spare capacity, but only while at least half
+ *    of it is in use
+ * 3) the long-term average decays while the latency stays well below it, so that it recovers after a period of
+ *    overload
+ * Only the operations that went to the database, as told by their {@link RoundTripMarker}, are taken as latency
+ * samples, since those served from a cache say nothing about the load on the database.
+ * The limit, the operations in flight and the operations shed are published as crud.concurrency.limit,
+ * crud.concurrency.inflight and crud.concurrency.rejected, tagged by module and route.
+ */
+public class GradientConcurrencyLimiter implements ConcurrencyLimiter {
+
+    static final String LIMIT_GAUGE = "crud.concurrency.limit";
+    static final String IN_FLIGHT_GAUGE = "crud.concurrency.inflight";
+    static final String REJECTED_COUNTER = "crud.concurrency.rejected";
+
+    private static final int LONG_WINDOW = 600;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double RECOVERY_RATIO = 2.0;
+    private static final double RECOVERY_DECAY = 0.95;
+
+    private final String route;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final Duration retryAfter;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight;
+    private final Counter rejected;
+    private volatile double estimatedLimit;
+    private double longRtt;
+    private long samples;
+
+    public GradientConcurrencyLimiter(
+            final String module,
+            final String route,
+            final ConcurrencyLimitConfig config,
+            final MeterRegistry meterRegistry
+    ) {
+        this(module, route, config, meterRegistry, System::nanoTime);
+    }
+
+    GradientConcurrencyLimiter(
+            final String module,
+            final String route,
+            final ConcurrencyLimitConfig config,
+            final MeterRegistry meterRegistry,
+            final LongSupplier nanoClock
+    ) {
+        this.nanoClock = nanoClock;
+        this.route = route;
+        this.minLimit = Math.max(1, config.minLimit());
+        this.maxLimit = Math.max(minLimit, config.maxLimit());
+        this.rttTolerance = config.rttTolerance();
+        this.smoothing = config.smoothing();
+        this.retryAfter = config.retryAfter();
+        this.inFlight = new AtomicInteger();
+        this.estimatedLimit = Math.min(maxLimit, Math.max(minLimit, config.initialLimit()));
+        final Tags tags = Tags.of("module", module.toLowerCase(), "route", route);
+        Gauge.builder(LIMIT_GAUGE, this, GradientConcurrencyLimiter::limit)
+                .description("The adaptive limit of concurrent CRUD operations")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_GAUGE, inFlight, AtomicInteger::get)
+                .description("The number of CRUD operations in flight")
+                .tags(tags)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_COUNTER)
+                .description("The number of CRUD operations shed by the concurrency limit")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> Function<Mono<T>, Mono<T>> limited() {
+        return mono -> Mono.defer(() -> {
+            final int started = tryAcquire();
+            if (started < 0) {
+                rejected.increment();
+                return Mono.error(new ConcurrencyLimitExceededException(route, limit(), retryAfter));
+            }
+            final RoundTripMarker roundTrip = new RoundTripMarker();
+            final long startedAt = nanoClock.getAsLong();
+            return mono
+                    .subscriberContext(roundTrip.context())
+                    .doFinally(signal -> release(signal, nanoClock.getAsLong() - startedAt, started, roundTrip));
+        });
+    }
+
+    /**
+     * Provides the current limit.
+     *
+     * @return the number of operations allowed in flight
+     */
+    public int limit() {
+        return (int) estimatedLimit;
+    }
+
+    private int tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit()) {
+                return -1;
+            } else if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private void release(final SignalType signal, final long rtt, final int started, final RoundTripMarker roundTrip) {
+        inFlight.decrementAndGet();
+        // a cancelled operation says nothing about the latency of the database, and neither does a cache hit
+        if (signal != SignalType.CANCEL && roundTrip.isMarked()) {
+            onSample(rtt, started);
+        }
+    }
+
+    private synchronized void onSample(final long rtt, final int started) {
+        samples++;
+        longRtt = samples == 1 ? rtt : longRtt + (rtt - longRtt) / Math.min(samples, LONG_WINDOW);
+        if (longRtt / Math.max(rtt, 1) > RECOVERY_RATIO) {
+            longRtt *= RECOVERY_DECAY;
+        }
+        if (started < estimatedLimit / 2) {
+            return;
+        }
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRtt / Math.max(rtt, 1)));
+        final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        final double smoothedLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, smoothedLimit));
+    }
+
+}
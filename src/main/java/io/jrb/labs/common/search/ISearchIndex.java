@@ -0,0 +1,82 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.search;
+
+import io.jrb.labs.common.crud.Entity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Defines the contract for a full-text search index over {@link Entity} beans.
+ *
+ * @param <E> the entity class
+ */
+public interface ISearchIndex<E extends Entity<E>> {
+
+    /**
+     * Adds an entity to the index, or replaces its previous version.
+     *
+     * @param entity the entity to index
+     */
+    void index(E entity);
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param id the entity identifier
+     */
+    void remove(String id);
+
+    /**
+     * Replaces the whole content of the index.
+     *
+     * @param entities all the entities to index
+     * @return a single-value publisher containing the number of indexed entities
+     */
+    Mono<Long> rebuild(Flux<E> entities);
+
+    /**
+     * Brings the index up to date with the entities of the database, only loading those whose version differs from
+     * the indexed one.
+     *
+     * @param versions the identifier and version of every entity
+     * @param loader loads the entities of a batch of identifiers
+     * @return a single-value publisher containing the number of entities indexed again or removed
+     */
+    Mono<Long> reconcile(Flux<E> versions, Function<List<String>, Flux<E>> loader);
+
+    /**
+     * Searches the index, ranking the matching entities by relevance. The query syntax supports quoted phrases,
+     * field prefixes (e.g. {@code title:grace}) and boolean operators.
+     *
+     * @param query the search query
+     * @param limit the maximum number of hits
+     * @return a single-value publisher containing the hits, best first, or an {@link InvalidSearchQueryException}
+     */
+    Mono<List<SearchHit>> search(String query, int limit);
+
+}
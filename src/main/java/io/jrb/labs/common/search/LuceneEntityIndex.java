@@ -0,0 +1,377 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.search;
+
+import io.jrb.labs.common.crud.Entity;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Provides an opinionated base for a full-text search index backed by Lucene. The index is written to memory-mapped
+ * segments under its own directory, so that it survives restarts, and is kept up to date incrementally by
+ * {@link #index(Entity)} and {@link #remove(String)}. Changes are made searchable and committed on a dedicated
+ * scheduler at the configured intervals, and searches run against near-real-time searchers. Hits are ranked with the
+ * default BM25 similarity and highlighted with the offsets stored in the postings. Each document keeps the version of
+ * its entity, so that {@link #reconcile(Flux, Function)} can catch up with the changes the index missed, such as those
+ * made while the node was down, lost before being committed, or made by other nodes.
+ *
+ * @param <E> the indexed entity class
+ */
+@Slf4j
+public abstract class LuceneEntityIndex<E extends Entity<E>> implements ISearchIndex<E>, DisposableBean {
+
+    protected static final String ID_FIELD = "id";
+    protected static final String VERSION_FIELD = "version";
+
+    private static final int RECONCILE_BATCH_SIZE = 100;
+
+    private static final FieldType TEXT_FIELD_TYPE = textFieldType();
+
+    private final String name;
+    private final int maxResults;
+    private final Analyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Scheduler scheduler;
+    private final Disposable refreshTask;
+    private final Disposable commitTask;
+
+    /**
+     * Opens the index, creating it if needed.
+     *
+     * @param name the index name, which is also its subdirectory
+     * @param config the search configuration
+     */
+    protected LuceneEntityIndex(final String name, final SearchIndexConfig config) {
+        this.name = name;
+        this.maxResults = config.maxResults();
+        this.analyzer = new StandardAnalyzer();
+        try {
+            final IndexWriterConfig writerConfig = new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            this.writer = new IndexWriter(new MMapDirectory(config.directory().resolve(name)), writerConfig);
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(format("Unable to open the {0} search index", name), e);
+        }
+        this.scheduler = Schedulers.newSingle(name + "-search-index", true);
+        final long refresh = config.refreshInterval().toMillis();
+        final long commit = config.commitInterval().toMillis();
+        this.refreshTask = scheduler.schedulePeriodically(this::refresh, refresh, refresh, TimeUnit.MILLISECONDS);
+        this.commitTask = scheduler.schedulePeriodically(this::commit, commit, commit, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        refreshTask.dispose();
+        commitTask.dispose();
+        scheduler.dispose();
+        searcherManager.close();
+        writer.close();
+    }
+
+    @Override
+    public void index(final E entity) {
+        final Document document = toDocument(entity);
+        document.add(new StringField(ID_FIELD, entity.getId(), Field.Store.YES));
+        document.add(new BinaryDocValuesField(ID_FIELD, new BytesRef(entity.getId())));
+        if (entity.getVersion() != null) {
+            document.add(new NumericDocValuesField(VERSION_FIELD, entity.getVersion()));
+        }
+        try {
+            writer.updateDocument(new Term(ID_FIELD, entity.getId()), document);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(format("Unable to index {0} in the {1} search index", entity.getId(), name), e);
+        }
+    }
+
+    /**
+     * Tells whether the index holds no entity, typically because it was just created.
+     *
+     * @return true if the index is empty
+     */
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    @Override
+    public Mono<Long> rebuild(final Flux<E> entities) {
+        return Mono.fromCallable(writer::deleteAll)
+                .thenMany(entities)
+                .doOnNext(this::index)
+                .count()
+                .doOnSuccess(count -> {
+                    commit();
+                    refresh();
+                    log.info("Rebuilt the {} search index with {} entities", name, count);
+                })
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Indexes again the entities whose version differs from the indexed one, or that are not indexed, and removes the
+     * indexed entities that no longer exist. An entity written while the versions are read may be indexed with an
+     * older version, which the next reconciliation corrects.
+     */
+    @Override
+    public Mono<Long> reconcile(final Flux<E> versions, final Function<List<String>, Flux<E>> loader) {
+        return Mono.fromCallable(this::indexedVersions)
+                .flatMap(indexed -> versions
+                        .filter(entity -> !indexed.containsKey(entity.getId())
+                                || !isIndexed(indexed.remove(entity.getId()), entity.getVersion()))
+                        .map(Entity::getId)
+                        .buffer(RECONCILE_BATCH_SIZE)
+                        .concatMap(loader)
+                        .doOnNext(this::index)
+                        .count()
+                        .map(reindexed -> {
+                            indexed.keySet().forEach(this::remove);
+                            commit();
+                            refresh();
+                            log.info("Reconciled the {} search index, indexing {} entities and removing {}",
+                                    name, reindexed, indexed.size());
+                            return reindexed + indexed.size();
+                        }))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public void remove(final String id) {
+        try {
+            writer.deleteDocuments(new Term(ID_FIELD, id));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(format("Unable to remove {0} from the {1} search index", id, name), e);
+        }
+    }
+
+    @Override
+    public Mono<List<SearchHit>> search(final String query, final int limit) {
+        return Mono.fromCallable(() -> search(parse(query), Math.min(limit, maxResults)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Maps an entity to the document of its searchable fields. The identifier field is added by this index.
+     *
+     * @param entity the entity to index
+     * @return the Lucene document
+     */
+    protected abstract Document toDocument(E entity);
+
+    /**
+     * Supplies the fields searched by queries that do not name a field, with their relative boosts.
+     *
+     * @return the boost of each default search field
+     */
+    protected abstract Map<String, Float> searchFields();
+
+    /**
+     * Supplies the fields returned with every hit, so that clients can display hits without loading the entities.
+     *
+     * @return the summary field names
+     */
+    protected abstract Collection<String> summaryFields();
+
+    /**
+     * Adds the values of a searchable text field to a document. The values are stored, and their offsets indexed,
+     * so that they can be highlighted.
+     *
+     * @param document the document
+     * @param field the field name
+     * @param values the field values, which may be null
+     */
+    protected static void addText(final Document document, final String field, final Collection<String> values) {
+        if (values != null) {
+            values.stream()
+                    .filter(value -> value != null && !value.isEmpty())
+                    .forEach(value -> document.add(new Field(field, value, TEXT_FIELD_TYPE)));
+        }
+    }
+
+    private Query parse(final String query) {
+        final Map<String, Float> boosts = searchFields();
+        final QueryParser parser = new MultiFieldQueryParser(boosts.keySet().toArray(new String[0]), analyzer, boosts);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(query);
+        } catch (final ParseException e) {
+            throw new InvalidSearchQueryException(format("Invalid search query {0}!", query), e);
+        }
+    }
+
+    private List<SearchHit> search(final Query query, final int limit) throws IOException {
+        final IndexSearcher searcher = searcherManager.acquire();
+        try {
+            final TopDocs topDocs = searcher.search(query, limit);
+            final String[] highlightFields = searchFields().keySet().toArray(new String[0]);
+            final Map<String, String[]> highlights = topDocs.scoreDocs.length == 0
+                    ? new LinkedHashMap<>()
+                    : new UnifiedHighlighter(searcher, analyzer).highlightFields(highlightFields, query, topDocs);
+            final List<SearchHit> hits = new ArrayList<>(topDocs.scoreDocs.length);
+            for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                hits.add(hit(searcher, topDocs.scoreDocs[i], i, highlights));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private SearchHit hit(
+            final IndexSearcher searcher,
+            final ScoreDoc scoreDoc,
+            final int position,
+            final Map<String, String[]> highlights
+    ) throws IOException {
+        final Document document = searcher.doc(scoreDoc.doc);
+        final Map<String, String> fields = new LinkedHashMap<>();
+        summaryFields().forEach(field -> {
+            final String value = document.get(field);
+            if (value != null) {
+                fields.put(field, value);
+            }
+        });
+        final Map<String, String> fragments = new LinkedHashMap<>();
+        highlights.forEach((field, values) -> {
+            if (values[position] != null) {
+                fragments.put(field, values[position]);
+            }
+        });
+        return SearchHit.builder()
+                .id(document.get(ID_FIELD))
+                .score(scoreDoc.score)
+                .fields(fields)
+                .highlights(fragments)
+                .build();
+    }
+
+    /**
+     * Reads the version of every indexed entity, which is null when unknown. The identifiers of the documents indexed
+     * before their identifier was kept as a doc value are read from the stored fields instead.
+     */
+    private Map<String, Long> indexedVersions() throws IOException {
+        searcherManager.maybeRefreshBlocking();
+        final IndexSearcher searcher = searcherManager.acquire();
+        try {
+            final Map<String, Long> versions = new HashMap<>();
+            for (final LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                final LeafReader reader = leaf.reader();
+                final Bits liveDocs = reader.getLiveDocs();
+                final BinaryDocValues ids = DocValues.getBinary(reader, ID_FIELD);
+                final NumericDocValues docVersions = DocValues.getNumeric(reader, VERSION_FIELD);
+                for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        final String id = ids.advanceExact(doc)
+                                ? ids.binaryValue().utf8ToString()
+                                : reader.document(doc, Collections.singleton(ID_FIELD)).get(ID_FIELD);
+                        versions.put(id, docVersions.advanceExact(doc) ? docVersions.longValue() : null);
+                    }
+                }
+            }
+            return versions;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private static boolean isIndexed(final Long indexedVersion, final Long version) {
+        return indexedVersion != null && indexedVersion.equals(version);
+    }
+
+    private void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (final IOException | RuntimeException e) {
+            log.error("Unable to refresh the " + name + " search index", e);
+        }
+    }
+
+    private void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (final IOException | RuntimeException e) {
+            log.error("Unable to commit the " + name + " search index", e);
+        }
+    }
+
+    private static FieldType textFieldType() {
+        final FieldType fieldType = new FieldType();
+        fieldType.setTokenized(true);
+        fieldType.setStored(true);
+        fieldType.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        fieldType.freeze();
+        return fieldType;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.search;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Configures the full-text search indexes of a module. Each index is kept in its own subdirectory of
+ * {@link #directory()}, so that it survives restarts. Changes become searchable after at most {@link #refreshInterval()}
+ * and durable after at most {@link #commitInterval()}. Every {@link #reconcileInterval()}, the versions of the indexed
+ * entities are checked against the database, so that the index catches up with any change it missed.
+ */
+@Accessors(fluent = true) @Getter
+public class SearchIndexConfig {
+
+    public static final SearchIndexConfig DEFAULT =
+            new SearchIndexConfig(null, Duration.ofSeconds(1), Duration.ofMinutes(1), 100, Duration.ofMinutes(10));
+
+    private final Path directory;
+
+    private final Duration refreshInterval;
+
+    private final Duration commitInterval;
+
+    private final int maxResults;
+
+    private final Duration reconcileInterval;
+
+    @ConstructorBinding
+    public SearchIndexConfig(
+            final Path directory,
+            @DefaultValue("1s") final Duration refreshInterval,
+            @DefaultValue("1m") final Duration commitInterval,
+            @DefaultValue("100") final int maxResults,
+            @DefaultValue("10m") final Duration reconcileInterval
+    ) {
+        this.directory = Optional.ofNullable(directory)
+                .orElseGet(() -> Paths.get(System.getProperty("java.io.tmpdir"), "search"));
+        this.refreshInterval = refreshInterval;
+        this.commitInterval = commitInterval;
+        this.maxResults = maxResults;
+        this.reconcileInterval = reconcileInterval;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.bson.BsonBinarySubType;
+import org.bson.types.Binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes maps as compressed blocks, stored as user-defined BSON binaries. A block starts with a format byte and the
+ * length of the uncompressed content, followed by the zlib stream of the CBOR-encoded map.
+ */
+public final class CompressedBlockUtils {
+
+    private static final byte BINARY_SUBTYPE = BsonBinarySubType.USER_DEFINED.getValue();
+    private static final byte FORMAT_CBOR_DEFLATE = 1;
+    private static final int HEADER_LENGTH = 5;
+
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+    private static final TypeReference<Map<Object, Object>> MAP_TYPE = new TypeReference<Map<Object, Object>>() {};
+
+    private CompressedBlockUtils() {}
+
+    /**
+     * Encodes a map as a compressed block.
+     *
+     * @param map the map, holding JSON-like values only
+     * @param level the deflate compression level, from 0 to 9
+     * @return the compressed block
+     */
+    public static Binary compress(final Map<?, ?> map, final int level) {
+        final byte[] content = serialize(map);
+        final Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_LENGTH + content.length / 2);
+            out.write(FORMAT_CBOR_DEFLATE);
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(content.length).array(), 0, Integer.BYTES);
+            final byte[] buffer = new byte[Math.max(64, Math.min(content.length, 8192))];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return new Binary(BINARY_SUBTYPE, out.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decodes a compressed block.
+     *
+     * @param block the content of the compressed block
+     * @return the decoded map
+     * @throws IllegalArgumentException if the block is not a valid compressed block
+     */
+    public static Map<Object, Object> decompress(final byte[] block) {
+        if (block.length < HEADER_LENGTH || block[0] != FORMAT_CBOR_DEFLATE) {
+            throw new IllegalArgumentException("Unknown compressed block format!");
+        }
+        final byte[] content = new byte[ByteBuffer.wrap(block, 1, Integer.BYTES).getInt()];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block, HEADER_LENGTH, block.length - HEADER_LENGTH);
+            int length = 0;
+            while (!inflater.finished()) {
+                // once the content is complete, only the end of the stream remains to be read
+                final int inflated = length < content.length
+                        ? inflater.inflate(content, length, content.length - length)
+                        : inflater.inflate(new byte[1]);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed block!");
+                }
+                length += inflated;
+                if (length > content.length) {
+                    throw new IllegalArgumentException("Oversized compressed block!");
+                }
+            }
+            if (length != content.length) {
+                throw new IllegalArgumentException("Truncated compressed block!");
+            }
+            return CBOR_MAPPER.readValue(content, MAP_TYPE);
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException("Corrupted compressed block!", e);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to decode a compressed block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static boolean isCompressedBlock(final Binary binary) {
+        final byte[] data = binary.getData();
+        return binary.getType() == BINARY_SUBTYPE && data.length >= HEADER_LENGTH && data[0] == FORMAT_CBOR_DEFLATE;
+    }
+
+    private static byte[] serialize(final Map<?, ?> map) {
+        try {
+            return CBOR_MAPPER.writeValueAsBytes(map);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to encode a compressed block", e);
+        }
+    }
+
+}
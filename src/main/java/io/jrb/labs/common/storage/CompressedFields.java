@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import io.jrb.labs.common.crud.Entity;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declares the map properties of an entity that are stored as compressed blocks. Modules expose their declarations
+ * as beans, which the {@link CompressingMongoConverter} applies when compression is enabled, and which the
+ * {@link CompressionMigrator} uses to rewrite existing documents. A compressed map must only hold JSON-like values
+ * (strings, numbers, booleans, lists and maps), since it is serialized as a whole instead of being mapped.
+ */
+@Value
+public class CompressedFields {
+
+    private final Class<? extends Entity<?>> entityClass;
+
+    private final CompressionConfig config;
+
+    private final List<String> properties;
+
+    private CompressedFields(
+            final Class<? extends Entity<?>> entityClass,
+            final CompressionConfig config,
+            final List<String> properties
+    ) {
+        this.entityClass = entityClass;
+        this.config = config;
+        this.properties = Collections.unmodifiableList(properties);
+    }
+
+    public static CompressedFields of(
+            final Class<? extends Entity<?>> entityClass,
+            final CompressionConfig config,
+            final String... properties
+    ) {
+        return new CompressedFields(entityClass, config, Arrays.asList(properties));
+    }
+
+}
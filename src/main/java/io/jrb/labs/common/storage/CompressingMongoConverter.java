@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.util.BsonUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.text.MessageFormat.format;
+
+/**
+ * Writes the declared {@link CompressedFields} of the entities whose compression is enabled as compressed blocks
+ * instead of sub-documents. The blocks are read back through the {@link CompressedMapReadingConverter}, which must be
+ * part of the custom conversions of this converter. A map read from a block and left unchanged is written back as the
+ * same block.
+ */
+public class CompressingMongoConverter extends MappingMongoConverter {
+
+    private final Map<Class<?>, Map<String, Integer>> compressionLevels;
+
+    public CompressingMongoConverter(
+            final DbRefResolver dbRefResolver,
+            final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext,
+            final Collection<CompressedFields> declarations
+    ) {
+        super(dbRefResolver, mappingContext);
+        this.compressionLevels = new HashMap<>();
+        declarations.stream()
+                .filter(declaration -> declaration.getConfig().enabled())
+                .forEach(declaration -> {
+                    final MongoPersistentEntity<?> entity =
+                            mappingContext.getRequiredPersistentEntity(declaration.getEntityClass());
+                    declaration.getProperties().forEach(property -> {
+                        if (!entity.getRequiredPersistentProperty(property).isMap()) {
+                            throw new IllegalArgumentException(format("Compressed property {0}.{1} is not a map!",
+                                    entity.getType().getSimpleName(), property));
+                        }
+                        compressionLevels.computeIfAbsent(entity.getType(), type -> new LinkedHashMap<>())
+                                .put(property, declaration.getConfig().level());
+                    });
+                });
+    }
+
+    /**
+     * Names the properties of an entity that are written as compressed blocks.
+     *
+     * @param entityClass the entity class
+     * @return the names of the compressed properties, empty if compression is disabled for the entity
+     */
+    public Set<String> compressedProperties(final Class<?> entityClass) {
+        final Map<String, Integer> levels = compressionLevels.getOrDefault(entityClass, Collections.emptyMap());
+        return Collections.unmodifiableSet(levels.keySet());
+    }
+
+    @Override
+    protected void writeInternal(final Object obj, final Bson bson, final MongoPersistentEntity<?> entity) {
+        super.writeInternal(obj, bson, entity);
+        final Map<String, Integer> levels = entity != null ? compressionLevels.get(entity.getType()) : null;
+        if (obj == null || levels == null) {
+            return;
+        }
+        final PersistentPropertyAccessor<?> accessor = entity.getPropertyAccessor(obj);
+        levels.forEach((name, level) -> {
+            final MongoPersistentProperty property = entity.getRequiredPersistentProperty(name);
+            final Object value = accessor.getProperty(property);
+            if (value instanceof LazyInflatedMap) {
+                BsonUtils.addToMap(bson, property.getFieldName(), ((LazyInflatedMap) value).block());
+            } else if (value instanceof Map) {
+                BsonUtils.addToMap(bson, property.getFieldName(),
+                        CompressedBlockUtils.compress((Map<?, ?>) value, level));
+            }
+        });
+    }
+
+    @Override
+    protected Bson createMap(final Map<Object, Object> map, final MongoPersistentProperty property) {
+        // the sub-document of a compressed property is replaced by its block once the entity is written
+        return isCompressed(property) ? new Document() : super.createMap(map, property);
+    }
+
+    private boolean isCompressed(final MongoPersistentProperty property) {
+        final Map<String, Integer> levels = compressionLevels.get(property.getOwner().getType());
+        return levels != null && levels.containsKey(property.getName());
+    }
+
+}
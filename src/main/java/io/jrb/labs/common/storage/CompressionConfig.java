@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configures the compressed storage of the large properties of a module entity. Switching compression on or off only
+ * changes how documents are written: both forms are always readable, and the background migration rewrites the
+ * existing documents into the configured form in batches, pausing between them.
+ */
+@Accessors(fluent = true) @Getter
+public class CompressionConfig {
+
+    public static final CompressionConfig DEFAULT = new CompressionConfig(false, 6, true, 500, Duration.ofMillis(100));
+
+    private final boolean enabled;
+
+    private final int level;
+
+    private final boolean migrate;
+
+    private final int migrationBatchSize;
+
+    private final Duration migrationPause;
+
+    @ConstructorBinding
+    public CompressionConfig(
+            @DefaultValue("false") final boolean enabled,
+            @DefaultValue("6") final int level,
+            @DefaultValue("true") final boolean migrate,
+            @DefaultValue("500") final int migrationBatchSize,
+            @DefaultValue("100ms") final Duration migrationPause
+    ) {
+        this.enabled = enabled;
+        this.level = level;
+        this.migrate = migrate;
+        this.migrationBatchSize = migrationBatchSize;
+        this.migrationPause = migrationPause;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites the documents whose {@link CompressedFields} are not stored in the configured form, compressing them when
+ * compression is enabled and decompressing them otherwise. The migration starts once the application is ready and
+ * runs in the background, one collection after the other, in batches separated by a pause so that it does not starve
+ * the regular traffic. Each document is only rewritten if it is still at the version it was read at, and its version
+ * is left unchanged, since its content is. The state of each collection is kept for the compression actuator
+ * endpoint.
+ */
+@Slf4j
+public class CompressionMigrator implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int BSON_OBJECT = BsonType.DOCUMENT.getValue();
+    private static final int BSON_BINARY = BsonType.BINARY.getValue();
+
+    private final ReactiveMongoOperations mongoOperations;
+    private final Collection<CompressedFields> declarations;
+    private final Map<Class<?>, CompressionStatus> statuses;
+
+    public CompressionMigrator(
+            final ReactiveMongoOperations mongoOperations,
+            final Collection<CompressedFields> declarations
+    ) {
+        this.mongoOperations = mongoOperations;
+        this.declarations = declarations;
+        this.statuses = new LinkedHashMap<>();
+        declarations.forEach(declaration -> updateStatus(declaration, initialStatus(declaration)
+                .state(declaration.getConfig().migrate()
+                        ? CompressionMigrationState.PENDING
+                        : CompressionMigrationState.SKIPPED)
+                .build()));
+    }
+
+    @Override
+    public void onApplicationEvent(final ApplicationReadyEvent event) {
+        migrate().subscribe(
+                migrated -> log.info("Migrated {} document(s) to their configured compression", migrated),
+                t -> log.error("Unable to migrate the compressed properties", t)
+        );
+    }
+
+    /**
+     * Rewrites the documents whose compressed properties are not stored in the configured form.
+     *
+     * @return a single-value publisher containing the number of documents rewritten
+     */
+    public Mono<Long> migrate() {
+        return Flux.fromIterable(declarations)
+                .filter(declaration -> declaration.getConfig().migrate())
+                .concatMap(this::migrate)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Reports the storage of every declared collection, along with the state of its migration.
+     *
+     * @return a single-value publisher containing the report of each collection
+     */
+    public Mono<List<CompressionStatus>> statuses() {
+        return Flux.fromIterable(declarations)
+                .concatMap(declaration -> {
+                    final CompressionStatus status = currentStatus(declaration);
+                    return Mono.zip(
+                            count(declaration, BSON_BINARY),
+                            count(declaration, BSON_OBJECT),
+                            collectionStats(status.getCollection()).defaultIfEmpty(new Document())
+                    ).map(report -> status.toBuilder()
+                            .compressedDocuments(report.getT1())
+                            .uncompressedDocuments(report.getT2())
+                            .dataSize(longValue(report.getT3(), "size"))
+                            .storageSize(longValue(report.getT3(), "storageSize"))
+                            .build());
+                })
+                .collectList();
+    }
+
+    private Mono<Long> migrate(final CompressedFields declaration) {
+        final CompressionStatus initial = currentStatus(declaration);
+        final String collection = initial.getCollection();
+        final Instant startedAt = Instant.now();
+        return collectionStats(collection)
+                .map(stats -> Optional.ofNullable(longValue(stats, "size")))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(dataSizeBefore -> {
+                    final CompressionStatus migrating = initial.toBuilder()
+                            .state(CompressionMigrationState.MIGRATING)
+                            .startedAt(startedAt)
+                            .migratedDocuments(0L)
+                            .dataSizeBefore(dataSizeBefore.orElse(null))
+                            .build();
+                    updateStatus(declaration, migrating);
+                    log.info("Migrating the compression of {} {}", collection, declaration.getProperties());
+                    return migrateBatch(declaration, migrating)
+                            .expand(migrated -> migrated > 0
+                                    ? Mono.delay(declaration.getConfig().migrationPause())
+                                            .then(migrateBatch(declaration, migrating))
+                                    : Mono.empty())
+                            .reduce(0L, Long::sum)
+                            .doOnSuccess(migrated -> {
+                                final Instant completedAt = Instant.now();
+                                final double seconds = Math.max(
+                                        Duration.between(startedAt, completedAt).toMillis(), 1) / 1000.0;
+                                updateStatus(declaration, migrating.toBuilder()
+                                        .state(CompressionMigrationState.COMPLETED)
+                                        .completedAt(completedAt)
+                                        .migratedDocuments(migrated)
+                                        .documentsPerSecond(migrated / seconds)
+                                        .build());
+                                log.info("Migrated {} document(s) of {} in {}s", migrated, collection, seconds);
+                            })
+                            .onErrorResume(t -> {
+                                log.error("Unable to migrate the compression of " + collection, t);
+                                updateStatus(declaration, currentStatus(declaration).toBuilder()
+                                        .state(CompressionMigrationState.FAILED)
+                                        .completedAt(Instant.now())
+                                        .message(t.getMessage())
+                                        .build());
+                                return Mono.empty();
+                            });
+                });
+    }
+
+    private Mono<Long> migrateBatch(final CompressedFields declaration, final CompressionStatus migrating) {
+        final MongoPersistentEntity<?> entity = persistentEntity(declaration);
+        final List<String> fields = fieldNames(declaration, entity);
+        final int pendingType = declaration.getConfig().enabled() ? BSON_OBJECT : BSON_BINARY;
+        final Query query = Query.query(pendingCriteria(fields, pendingType))
+                .limit(declaration.getConfig().migrationBatchSize());
+        return mongoOperations.find(query, declaration.getEntityClass())
+                .map(found -> {
+                    final Document document = new Document();
+                    mongoOperations.getConverter().write(found, document);
+                    return rewriteModel(entity, fields, pendingType, document);
+                })
+                .collectList()
+                .flatMap(models -> models.isEmpty()
+                        ? Mono.just(0L)
+                        : Mono.from(mongoOperations.getCollection(migrating.getCollection())
+                                .bulkWrite(models, new BulkWriteOptions().ordered(false)))
+                                .map(BulkWriteResult::getModifiedCount)
+                                .map(Long::valueOf))
+                .doOnNext(migrated -> {
+                    synchronized (this) {
+                        final CompressionStatus status = currentStatus(declaration);
+                        updateStatus(declaration, status.toBuilder()
+                                .migratedDocuments(status.getMigratedDocuments() + migrated)
+                                .build());
+                    }
+                });
+    }
+
+    private WriteModel<Document> rewriteModel(
+            final MongoPersistentEntity<?> entity,
+            final List<String> fields,
+            final int pendingType,
+            final Document document
+    ) {
+        final List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("_id", document.get("_id")));
+        Optional.ofNullable(entity.getVersionProperty())
+                .map(MongoPersistentProperty::getFieldName)
+                .ifPresent(versionField -> filters.add(Filters.eq(versionField, document.get(versionField))));
+        filters.add(Filters.or(fields.stream()
+                .map(field -> Filters.type(field, BsonType.findByValue(pendingType)))
+                .collect(Collectors.toList())));
+        final List<Bson> updates = fields.stream()
+                .filter(document::containsKey)
+                .map(field -> Updates.set(field, document.get(field)))
+                .collect(Collectors.toList());
+        return new UpdateOneModel<>(Filters.and(filters), Updates.combine(updates));
+    }
+
+    private Mono<Long> count(final CompressedFields declaration, final int bsonType) {
+        final List<String> fields = fieldNames(declaration, persistentEntity(declaration));
+        return mongoOperations.count(Query.query(pendingCriteria(fields, bsonType)),
+                currentStatus(declaration).getCollection())
+                .onErrorResume(t -> Mono.empty());
+    }
+
+    private Mono<Document> collectionStats(final String collection) {
+        return mongoOperations.executeCommand(new Document("collStats", collection))
+                .onErrorResume(t -> {
+                    // a collection that does not exist yet has no statistics
+                    log.debug("Unable to read the statistics of " + collection, t);
+                    return Mono.empty();
+                });
+    }
+
+    private MongoPersistentEntity<?> persistentEntity(final CompressedFields declaration) {
+        return mongoOperations.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(declaration.getEntityClass());
+    }
+
+    private CompressionStatus.CompressionStatusBuilder initialStatus(final CompressedFields declaration) {
+        return CompressionStatus.builder()
+                .collection(mongoOperations.getCollectionName(declaration.getEntityClass()))
+                .properties(declaration.getProperties())
+                .compressed(declaration.getConfig().enabled());
+    }
+
+    private synchronized void updateStatus(final CompressedFields declaration, final CompressionStatus status) {
+        statuses.put(declaration.getEntityClass(), status);
+    }
+
+    private synchronized CompressionStatus currentStatus(final CompressedFields declaration) {
+        return statuses.get(declaration.getEntityClass());
+    }
+
+    private static List<String> fieldNames(final CompressedFields declaration, final MongoPersistentEntity<?> entity) {
+        return declaration.getProperties().stream()
+                .map(property -> entity.getRequiredPersistentProperty(property).getFieldName())
+                .collect(Collectors.toList());
+    }
+
+    private static Criteria pendingCriteria(final List<String> fields, final int bsonType) {
+        return new Criteria().orOperator(fields.stream()
+                .map(field -> Criteria.where(field).type(bsonType))
+                .toArray(Criteria[]::new));
+    }
+
+    private static Long longValue(final Document document, final String key) {
+        final Object value = document.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+}
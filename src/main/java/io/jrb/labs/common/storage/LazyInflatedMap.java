@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import org.bson.types.Binary;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds a map read from a compressed block, and only decompresses it the first time its content is accessed, so that
+ * an entity loaded without needing the map never pays for it. The map is unmodifiable, and keeps its block so that an
+ * unchanged map is written back without being compressed again.
+ */
+public final class LazyInflatedMap extends AbstractMap<Object, Object> {
+
+    private final Binary block;
+    private volatile Map<Object, Object> content;
+
+    public LazyInflatedMap(final Binary block) {
+        this.block = block;
+    }
+
+    public Binary block() {
+        return block;
+    }
+
+    public boolean isInflated() {
+        return content != null;
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return content().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return content().size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return content().containsKey(key);
+    }
+
+    @Override
+    public Object get(final Object key) {
+        return content().get(key);
+    }
+
+    private Map<Object, Object> content() {
+        Map<Object, Object> inflated = content;
+        if (inflated == null) {
+            inflated = Collections.unmodifiableMap(CompressedBlockUtils.decompress(block.getData()));
+            content = inflated;
+        }
+        return inflated;
+    }
+
+}
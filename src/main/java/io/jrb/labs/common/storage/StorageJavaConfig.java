@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.common.storage;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+/**
+ * Wires the compressed storage shared by all modules, which declare their compressed properties as
+ * {@link CompressedFields} beans. The Mongo converter and custom conversions defined here replace the ones Spring Boot
+ * would otherwise configure.
+ */
+@Configuration
+public class StorageJavaConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(Collections.singletonList(new CompressedMapReadingConverter()));
+    }
+
+    @Bean
+    public MappingMongoConverter mappingMongoConverter(
+            final MongoMappingContext mongoMappingContext,
+            final MongoCustomConversions mongoCustomConversions,
+            final ObjectProvider<CompressedFields> declarations
+    ) {
+        final MappingMongoConverter converter = new CompressingMongoConverter(NoOpDbRefResolver.INSTANCE,
+                mongoMappingContext, declarations.orderedStream().collect(Collectors.toList()));
+        converter.setCustomConversions(mongoCustomConversions);
+        return converter;
+    }
+
+    @Bean
+    public CompressionMigrator compressionMigrator(
+            final ReactiveMongoOperations mongoOperations,
+            final ObjectProvider<CompressedFields> declarations
+    ) {
+        return new CompressionMigrator(mongoOperations, declarations.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Bean
+    public CompressionEndpoint compressionEndpoint(final CompressionMigrator compressionMigrator) {
+        return new CompressionEndpoint(compressionMigrator);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2020 Jon Brule <brulejr@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.jrb.labs.bldr.msvc.module.setlist;
+
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntry;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SongSnapshot;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
+
+public class SetlistTestUtils {
+
+    public static final String DETACHED = null;
+
+    private SetlistTestUtils() {}
+
+    public static SetlistEntity createSetlistEntity(final String id, final SongEntity... songs) {
+        final SetlistEntity.SetlistEntityBuilder builder = SetlistEntity.builder()
+                .title(randomAlphanumeric(10, 25))
+                .eventDate(LocalDate.of(2020, 4, 12))
+                .notes(randomAlphanumeric(10, 25))
+                .songs(Arrays.stream(songs)
+                        .map(song -> SetlistEntry.builder()
+                                .songId(song.getId())
+                                .key(randomAlphanumeric(1))
+                                .build())
+                        .collect(Collectors.toList()));
+        Optional.ofNullable(id).ifPresent(builder::id);
+        return builder.build();
+    }
+
+    public static SetlistEntity snapshotted(final SetlistEntity setlist, final SongEntity... songs) {
+        return setlist.toBuilder()
+                .songs(Arrays.stream(songs)
+                        .map(song -> SetlistEntry.builder()
+                                .songId(song.getId())
+                                .snapshot(SongSnapshot.of(song))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+}
@@ -0,0 +1,87 @@
+package io.jrb.labs.bldr.msvc.module.setlist.model;
+
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.createSetlistEntity;
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.snapshotted;
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SetlistEntityConverterTest {
+
+    private final SetlistEntityConverter converter = new SetlistEntityConverter();
+
+    @Test
+    void shouldDescribeSongsByTheirSnapshots() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(3L);
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(RANDOM_UUID.get()), song);
+
+        final SetlistMetadata metadata = converter.entityToMetadata(setlist);
+
+        final SetlistSong setlistSong = metadata.getSongs().get(0);
+        assertAll("setlistSong",
+                () -> assertEquals(song.getId(), setlistSong.getSongId()),
+                () -> assertEquals(song.getTitle(), setlistSong.getTitle()),
+                () -> assertEquals(song.getType(), setlistSong.getType()),
+                () -> assertEquals(song.getAuthors(), setlistSong.getAuthors()),
+                () -> assertNull(setlistSong.getLyrics())
+        );
+    }
+
+    @Test
+    void shouldIgnoreSnapshotFieldsWrittenByClients() {
+        final Setlist setlist = Setlist.builder()
+                .title("Sunday")
+                .songs(Collections.singletonList(SetlistSong.builder().songId("s1").key("G").title("Forged").build()))
+                .build();
+
+        final SetlistEntry entry = converter.dtoToEntity(setlist).getSongs().get(0);
+
+        assertAll("entry",
+                () -> assertEquals("s1", entry.getSongId()),
+                () -> assertEquals("G", entry.getKey()),
+                () -> assertNull(entry.getSnapshot())
+        );
+    }
+
+    @Test
+    void shouldExpandLyricsInLyricOrder() {
+        final SongEntity ordered = createSongEntity(RANDOM_UUID.get()).toBuilder()
+                .lyrics(ImmutableMap.of("v1", Arrays.asList("a", "b"), "c", Collections.singletonList("c")))
+                .lyricOrder(Arrays.asList("v1", "c", "v1", "missing"))
+                .build();
+        final SongEntity unordered = createSongEntity(RANDOM_UUID.get()).toBuilder()
+                .lyrics(ImmutableMap.of("v1", Collections.singletonList("x"), "v2", Collections.singletonList("y")))
+                .lyricOrder(null)
+                .build();
+        final SongEntity deleted = createSongEntity(RANDOM_UUID.get());
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(RANDOM_UUID.get()), ordered, unordered, deleted);
+
+        final Setlist expanded = converter.expandedDto(ResolvedSetlist.of(setlist,
+                ImmutableMap.of(ordered.getId(), ordered, unordered.getId(), unordered)));
+
+        final List<SetlistSong> songs = expanded.getSongs();
+        assertAll("expanded",
+                () -> assertEquals(Arrays.asList("v1", "c", "v1"), sectionNames(songs.get(0))),
+                () -> assertEquals(Arrays.asList("a", "b"), songs.get(0).getLyrics().get(0).getLines()),
+                () -> assertEquals(Arrays.asList("v1", "v2"), sectionNames(songs.get(1))),
+                () -> assertNull(songs.get(2).getLyrics()),
+                () -> assertEquals(deleted.getTitle(), songs.get(2).getTitle())
+        );
+    }
+
+    private static List<String> sectionNames(final SetlistSong song) {
+        return song.getLyrics().stream().map(LyricSection::getName).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,214 @@
+package io.jrb.labs.bldr.msvc.module.setlist.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import io.jrb.labs.bldr.msvc.module.setlist.config.SetlistModuleConfig;
+import io.jrb.labs.bldr.msvc.module.setlist.model.ResolvedSetlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.Setlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntityConverter;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistMetadata;
+import io.jrb.labs.bldr.msvc.module.setlist.service.ISetlistService;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.EntityPage;
+import io.jrb.labs.common.crud.UnknownReferenceException;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.ErrorDTO;
+import io.jrb.labs.common.rest.JsonPatchUtils;
+import io.jrb.labs.common.rest.codec.CodecsJavaConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.DETACHED;
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.createSetlistEntity;
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.snapshotted;
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {
+        SetlistRouter.class,
+        SetlistEntityConverter.class,
+        SetlistHandlerTest.HandlerConfig.class,
+        CodecsJavaConfig.class
+})
+@EnableConfigurationProperties(SetlistModuleConfig.class)
+@WebFluxTest
+class SetlistHandlerTest {
+
+    @MockBean
+    ISetlistService setlistService;
+
+    @Autowired
+    private SetlistEntityConverter setlistEntityConverter;
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Configuration
+    static class HandlerConfig {
+
+        @Bean
+        SetlistHandler setlistHandler(
+                final ObjectMapper objectMapper,
+                final ISetlistService setlistService,
+                final SetlistEntityConverter setlistEntityConverter
+        ) {
+            // the patch compiler is built along with the handler, from the properties the service derives
+            when(setlistService.unpatchableProperties()).thenReturn(Collections.singleton("songs"));
+            final CrudMetrics crudMetrics = new CrudMetrics(new SimpleMeterRegistry(), "Setlist", SetlistEntity.class);
+            return new SetlistHandler(objectMapper, setlistService, setlistEntityConverter,
+                    CrudHandlerOptions.<SetlistEntity>builder()
+                            .crudMetrics(crudMetrics)
+                            .bulkConfig(new BulkConfig(2))
+                            .build());
+        }
+
+    }
+
+    @Test
+    void shouldGetSetlistExpandedWithLyrics() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).toBuilder()
+                .lyrics(ImmutableMap.of("v1", Collections.singletonList("a"), "c", Collections.singletonList("b")))
+                .lyricOrder(Arrays.asList("c", "v1", "c"))
+                .build();
+        final String setlistId = RANDOM_UUID.get();
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(setlistId), song);
+
+        when(setlistService.resolve(setlistId))
+                .thenReturn(Mono.just(ResolvedSetlist.of(setlist, ImmutableMap.of(song.getId(), song))));
+
+        webClient.get()
+                .uri("/api/v1/setlist/{setlistId}?expand=lyrics", setlistId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Setlist.class)
+                .value(s -> {
+                    assertEquals(setlistId, s.getId());
+                    assertEquals(song.getTitle(), s.getSongs().get(0).getTitle());
+                    assertEquals(3, s.getSongs().get(0).getLyrics().size());
+                    assertEquals("c", s.getSongs().get(0).getLyrics().get(0).getName());
+                });
+
+        verify(setlistService, never()).get(anyString());
+    }
+
+    @Test
+    void shouldGetSetlistWithoutLyricsUnlessExpanded() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        final String setlistId = RANDOM_UUID.get();
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(setlistId), song);
+
+        when(setlistService.get(setlistId)).thenReturn(Mono.just(setlist));
+
+        webClient.get()
+                .uri("/api/v1/setlist/{setlistId}", setlistId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Setlist.class)
+                .value(s -> {
+                    assertEquals(song.getTitle(), s.getSongs().get(0).getTitle());
+                    assertNull(s.getSongs().get(0).getLyrics());
+                });
+
+        verify(setlistService, never()).resolve(anyString());
+    }
+
+    @Test
+    void shouldListSetlistsFromSnapshots() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(RANDOM_UUID.get()), song);
+
+        when(setlistService.metadataPage(isNull(), anyInt()))
+                .thenReturn(Mono.just(EntityPage.of(Collections.singletonList(setlist), 10)));
+
+        webClient.get()
+                .uri("/api/v1/setlist")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(SetlistMetadata.class)
+                .value(setlists -> {
+                    assertEquals(1, setlists.size());
+                    assertEquals(song.getTitle(), setlists.get(0).getSongs().get(0).getTitle());
+                    assertEquals(song.getAuthors(), setlists.get(0).getSongs().get(0).getAuthors());
+                });
+    }
+
+    @Test
+    void shouldRejectSetlistReferringToUnknownSong() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        final Setlist setlist = setlistEntityConverter.entityToDto(createSetlistEntity(DETACHED, song));
+
+        when(setlistService.create(any(SetlistEntity.class))).thenReturn(
+                Mono.error(new UnknownReferenceException(SetlistEntity.class, SongEntity.class, song.getId())));
+
+        webClient.post()
+                .uri("/api/v1/setlist")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(setlist))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(ErrorDTO.class)
+                .value(error -> assertEquals("BAD_REQUEST", error.getErrorCode()));
+    }
+
+    @Test
+    void shouldPatchSetlistSongsByRewritingSetlist() {
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get());
+        final String setlistId = RANDOM_UUID.get();
+        final SetlistEntity setlist = snapshotted(createSetlistEntity(setlistId), song1);
+
+        when(setlistService.get(setlistId)).thenReturn(Mono.just(setlist));
+        when(setlistService.update(eq(setlistId), any(SetlistEntity.class), isNull()))
+                .thenReturn(Mono.just(snapshotted(setlist, song1, song2)));
+
+        webClient.patch()
+                .uri("/api/v1/setlist/{setlistId}", setlistId)
+                .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .accept(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .body(BodyInserters.fromValue("[{\"op\":\"add\",\"path\":\"/songs/-\",\"value\":{\"songId\":\""
+                        + song2.getId() + "\"}}]"))
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(setlistService, never()).patch(anyString(), any(Update.class), any());
+        final SetlistEntity patched = snapshotted(setlist, song1, song2);
+        verify(setlistService, times(1)).update(eq(setlistId),
+                eq(setlistEntityConverter.dtoToEntity(setlistEntityConverter.entityToDto(patched))), isNull());
+    }
+
+}
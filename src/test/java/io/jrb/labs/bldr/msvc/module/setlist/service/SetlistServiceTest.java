@@ -0,0 +1,262 @@
+package io.jrb.labs.bldr.msvc.module.setlist.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.jrb.labs.bldr.msvc.module.setlist.model.ResolvedSetlist;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SetlistEntity;
+import io.jrb.labs.bldr.msvc.module.setlist.model.SongSnapshot;
+import io.jrb.labs.bldr.msvc.module.setlist.repository.ReactiveSetlistRepository;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.crud.CrudServiceOptions;
+import io.jrb.labs.common.crud.UnknownReferenceException;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.DETACHED;
+import static io.jrb.labs.bldr.msvc.module.setlist.SetlistTestUtils.createSetlistEntity;
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SetlistServiceTest {
+
+    @Mock
+    private EntityEventDispatcher eventDispatcher;
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private ReactiveSetlistRepository setlistRepository;
+
+    @Mock
+    private MongoCollection<Document> setlistCollection;
+
+    private ISetlistService setlistService;
+
+    @BeforeEach
+    void init() {
+        final MappingMongoConverter converter =
+                new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        lenient().when(mongoOperations.getConverter()).thenReturn(converter);
+        setlistService = new SetlistService(eventDispatcher, mongoOperations, setlistRepository,
+                CrudServiceOptions.defaults());
+    }
+
+    @Test
+    void shouldCreateSetlistWithSongSnapshotsFromSingleQuery() {
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get()).withVersion(2L);
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get()).withVersion(5L);
+        final SetlistEntity setlist = createSetlistEntity(DETACHED, song1, song2);
+        given(mongoOperations.find(argThat(this::isSongIdQuery), eq(SongEntity.class)))
+                .willReturn(Flux.just(song2, song1));
+        given(setlistRepository.save(any(SetlistEntity.class)))
+                .willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier
+                .create(setlistService.create(setlist))
+                .assertNext(created -> {
+                    assertAll(
+                            "createdSetlist",
+                            () -> assertThat(created.getSongs().get(0).getSnapshot().getTitle(), is(song1.getTitle())),
+                            () -> assertThat(created.getSongs().get(0).getSnapshot().getVersion(), is(2L)),
+                            () -> assertThat(created.getSongs().get(1).getSnapshot().getAuthors(), is(song2.getAuthors())),
+                            () -> assertThat(created.getSongs().get(1).getKey(), is(setlist.getSongs().get(1).getKey()))
+                    );
+                })
+                .verifyComplete();
+        verify(mongoOperations, times(1)).find(any(Query.class), eq(SongEntity.class));
+    }
+
+    @Test
+    void shouldRejectSetlistReferringToUnknownSong() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(Flux.empty());
+
+        StepVerifier
+                .create(setlistService.create(createSetlistEntity(DETACHED, song)))
+                .verifyError(UnknownReferenceException.class);
+        verify(setlistRepository, never()).save(any(SetlistEntity.class));
+    }
+
+    @Test
+    void shouldCreateSetlistsInBulkAndFailThoseReferringToUnknownSongs() {
+        final SongEntity known = createSongEntity(RANDOM_UUID.get()).withVersion(0L);
+        final SongEntity unknown = createSongEntity(RANDOM_UUID.get());
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(Flux.just(known));
+        given(mongoOperations.getCollectionName(SetlistEntity.class)).willReturn("setlistEntity");
+        given(mongoOperations.getCollection("setlistEntity")).willReturn(setlistCollection);
+        given(setlistCollection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .willReturn(Mono.just(BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList())));
+
+        final Flux<BulkItemResult> results = setlistService.createAll(Arrays.asList(
+                createSetlistEntity(DETACHED, unknown), createSetlistEntity(DETACHED, known)));
+
+        StepVerifier
+                .create(results.collectList())
+                .assertNext(items -> {
+                    assertAll(
+                            "bulkResults",
+                            () -> assertThat(items.size(), is(2)),
+                            () -> assertThat(items.get(0).getIndex(), is(0)),
+                            () -> assertThat(items.get(0).getStatus(), is(BulkItemStatus.FAILED)),
+                            () -> assertThat(items.get(1).getIndex(), is(1)),
+                            () -> assertThat(items.get(1).getStatus(), is(BulkItemStatus.CREATED))
+                    );
+                })
+                .verifyComplete();
+        verify(setlistCollection, times(1)).bulkWrite(argThat((List<WriteModel<Document>> models) -> models != null && models.size() == 1),
+                any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void shouldResolveSetlistSongsWithSingleQuery() {
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get());
+        final String setlistId = RANDOM_UUID.get();
+        final SetlistEntity setlist = createSetlistEntity(setlistId, song1, song2, song1);
+        given(setlistRepository.findById(setlistId)).willReturn(Mono.just(setlist));
+        given(mongoOperations.find(argThat(this::isSongIdQuery), eq(SongEntity.class)))
+                .willReturn(Flux.just(song1, song2));
+
+        final Mono<ResolvedSetlist> resolved = setlistService.resolve(setlistId);
+
+        StepVerifier
+                .create(resolved)
+                .assertNext(r -> {
+                    assertAll(
+                            "resolvedSetlist",
+                            () -> assertThat(r.getSetlist(), is(setlist)),
+                            () -> assertThat(r.getSongs().get(song1.getId()), is(song1)),
+                            () -> assertThat(r.getSongs().get(song2.getId()), is(song2))
+                    );
+                })
+                .verifyComplete();
+        verify(mongoOperations, times(1)).find(argThat((Query query) -> query != null
+                && query.getFieldsObject().containsKey("lyrics")
+                && query.getFieldsObject().containsKey("lyricOrder")), eq(SongEntity.class));
+    }
+
+    @Test
+    void shouldRefreshSnapshotsOlderThanUpdatedSong() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(4L);
+        final String setlistId = RANDOM_UUID.get();
+        given(mongoOperations.find(any(Query.class), eq(SetlistEntity.class)))
+                .willReturn(Flux.just(SetlistEntity.builder().id(setlistId).build()));
+        given(mongoOperations.updateMulti(any(Query.class), any(Update.class), eq(SetlistEntity.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(1L, 1L, null)));
+
+        StepVerifier
+                .create(setlistService.refreshSong(song))
+                .expectNext(1L)
+                .verifyComplete();
+        verify(mongoOperations, times(1)).updateMulti(
+                argThat((Query query) -> query != null
+                        && query.getQueryObject().toJson().contains(setlistId)
+                        && query.getQueryObject().toJson().contains("\"snapshot.version\": {\"$not\": {\"$gte\"")),
+                argThat((Update update) -> update != null
+                        && update.getUpdateObject().get("$set", Document.class).containsKey("songs.$[entry].snapshot")
+                        && update.getUpdateObject().get("$inc", Document.class).containsKey("version")
+                        && update.getArrayFilters().size() == 1),
+                eq(SetlistEntity.class));
+    }
+
+    @Test
+    void shouldReloadSongWithoutVersionBeforeRefreshingSnapshots() {
+        final SongEntity upsertedSong = createSongEntity(RANDOM_UUID.get());
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class)))
+                .willReturn(Flux.just(upsertedSong.withVersion(2L)));
+        given(mongoOperations.find(any(Query.class), eq(SetlistEntity.class)))
+                .willReturn(Flux.just(SetlistEntity.builder().id(RANDOM_UUID.get()).build()));
+        given(mongoOperations.updateMulti(any(Query.class), any(Update.class), eq(SetlistEntity.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(1L, 1L, null)));
+
+        StepVerifier
+                .create(setlistService.refreshSong(upsertedSong))
+                .expectNext(1L)
+                .verifyComplete();
+        verify(mongoOperations, times(1)).updateMulti(
+                any(Query.class),
+                argThat((Update update) -> update != null && update.getUpdateObject().get("$set", Document.class)
+                        .get("songs.$[entry].snapshot", SongSnapshot.class).getVersion().equals(2L)),
+                eq(SetlistEntity.class));
+    }
+
+    @Test
+    void shouldSkipRefreshWhenNoSetlistRefersToSong() {
+        given(mongoOperations.find(any(Query.class), eq(SetlistEntity.class))).willReturn(Flux.empty());
+
+        StepVerifier
+                .create(setlistService.refreshSong(createSongEntity(RANDOM_UUID.get()).withVersion(1L)))
+                .expectNext(0L)
+                .verifyComplete();
+        verify(mongoOperations, never()).updateMulti(any(Query.class), any(Update.class), eq(SetlistEntity.class));
+    }
+
+    @Test
+    void shouldRemoveDeletedSongFromSetlists() {
+        final String songId = RANDOM_UUID.get();
+        given(mongoOperations.find(any(Query.class), eq(SetlistEntity.class))).willReturn(Flux.just(
+                SetlistEntity.builder().id(RANDOM_UUID.get()).build(),
+                SetlistEntity.builder().id(RANDOM_UUID.get()).build()));
+        given(mongoOperations.updateMulti(any(Query.class), any(Update.class), eq(SetlistEntity.class)))
+                .willReturn(Mono.just(UpdateResult.acknowledged(2L, 2L, null)));
+
+        StepVerifier
+                .create(setlistService.removeSong(songId))
+                .expectNext(2L)
+                .verifyComplete();
+        verify(mongoOperations, times(1)).updateMulti(any(Query.class),
+                argThat((Update update) -> update != null && update.getUpdateObject().get("$pull", Document.class)
+                        .get("songs", Document.class).get("songId").equals(songId)),
+                eq(SetlistEntity.class));
+    }
+
+    @Test
+    void shouldNotPatchSongsInPlace() {
+        assertThat(setlistService.unpatchableProperties().contains("songs"), is(true));
+        assertThat(setlistService.unpatchableProperties().contains("title"), is(false));
+    }
+
+    private boolean isSongIdQuery(final Query query) {
+        return query != null && query.getQueryObject().containsKey("_id")
+                && !query.getFieldsObject().isEmpty();
+    }
+
+}
@@ -1,29 +1,93 @@
 package io.jrb.labs.bldr.msvc.module.song.rest;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jrb.labs.bldr.msvc.module.song.config.SongModuleConfig;
 import io.jrb.labs.bldr.msvc.module.song.model.Song;
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntityConverter;
+import io.jrb.labs.bldr.msvc.module.song.model.SongSource;
 import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.crud.EntityLookup;
+import io.jrb.labs.common.crud.EntityVersionMismatchException;
+import io.jrb.labs.common.crud.EntityPage;
+import io.jrb.labs.common.crud.ExportChunk;
+import io.jrb.labs.common.crud.InvalidExportCheckpointException;
+import io.jrb.labs.common.crud.InvalidPatchException;
+import io.jrb.labs.common.crud.PageTokenUtils;
+import io.jrb.labs.common.crud.UnknownEntityException;
+import io.jrb.labs.common.crud.breaker.CircuitOpenException;
+import io.jrb.labs.common.crud.breaker.StaleReadMarker;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.jrb.labs.common.metrics.PayloadMetricsWebFilter;
+import io.jrb.labs.common.rest.CrudHandlerOptions;
+import io.jrb.labs.common.rest.JsonPatchUtils;
+import io.jrb.labs.common.rest.MediaTypeUtils;
+import io.jrb.labs.common.rest.cache.CaffeineResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCache;
+import io.jrb.labs.common.rest.cache.ResponseBodyCacheConfig;
+import io.jrb.labs.common.rest.codec.CodecsJavaConfig;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimitExceededException;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimiter;
+import io.jrb.labs.common.rest.limit.ConcurrencyLimits;
+import io.jrb.labs.common.search.ISearchIndex;
+import io.jrb.labs.common.search.InvalidSearchQueryException;
+import io.jrb.labs.common.search.SearchHit;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
 import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSong;
 import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.rest.CrudHandlerSupport.DEFAULT_PAGE_LIMIT;
+import static io.jrb.labs.common.rest.CrudHandlerSupport.MAX_MULTI_GET_IDS;
 import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,8 +95,11 @@ import static org.mockito.Mockito.when;
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {
         SongRouter.class,
-        SongHandler.class,
-        SongEntityConverter.class
+        SongEntityConverter.class,
+        SongHandlerTest.MetricsConfig.class,
+        SongHandlerTest.ResponseCacheConfig.class,
+        SongHandlerTest.HandlerConfig.class,
+        CodecsJavaConfig.class
 })
 @EnableConfigurationProperties(SongModuleConfig.class)
 @WebFluxTest
@@ -41,12 +108,87 @@ class SongHandlerTest {
     @MockBean
     ISongService songService;
 
+    @MockBean
+    ISearchIndex<SongEntity> songSearchIndex;
+
     @Autowired
     private SongEntityConverter songEntityConverter;
 
     @Autowired
     private WebTestClient webClient;
 
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SheddingLimiter sheddingLimiter;
+
+    @Configuration
+    static class MetricsConfig {
+
+        @Bean
+        SimpleMeterRegistry simpleMeterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        CrudMetrics songCrudMetrics(final SimpleMeterRegistry simpleMeterRegistry) {
+            return new CrudMetrics(simpleMeterRegistry, "Song", SongEntity.class);
+        }
+
+        @Bean
+        PayloadMetricsWebFilter payloadMetricsWebFilter(final SimpleMeterRegistry simpleMeterRegistry) {
+            return new PayloadMetricsWebFilter(simpleMeterRegistry);
+        }
+
+    }
+
+    @Configuration
+    static class ResponseCacheConfig {
+
+        @Bean
+        ResponseBodyCache<SongEntity> songResponseCache(final SimpleMeterRegistry simpleMeterRegistry) {
+            final ResponseBodyCacheConfig config =
+                    new ResponseBodyCacheConfig(true, DataSize.ofMegabytes(1), Duration.ofMinutes(1), DataSize.ofBytes(0));
+            return new CaffeineResponseBodyCache<>("song-responses", SongEntity.class, config, simpleMeterRegistry);
+        }
+
+    }
+
+    @Configuration
+    static class HandlerConfig {
+
+        @Bean
+        SongHandler songHandler(
+                final ObjectMapper objectMapper,
+                final ISongService songService,
+                final SongEntityConverter songEntityConverter,
+                final ISearchIndex<SongEntity> songSearchIndex,
+                final CrudMetrics songCrudMetrics,
+                final ResponseBodyCache<SongEntity> songResponseCache,
+                final SheddingLimiter sheddingLimiter
+        ) {
+            final ConcurrencyLimits concurrencyLimits =
+                    new ConcurrencyLimits(route -> "get".equals(route) ? sheddingLimiter : ConcurrencyLimiter.none());
+            return new SongHandler(objectMapper, songService, songEntityConverter, songSearchIndex,
+                    CrudHandlerOptions.<SongEntity>builder()
+                            .crudMetrics(songCrudMetrics)
+                            .responseCache(songResponseCache)
+                            .bulkConfig(new BulkConfig(2, 8, 1000, 1000, 2))
+                            .concurrencyLimits(concurrencyLimits)
+                            .build());
+        }
+
+        @Bean
+        SheddingLimiter sheddingLimiter() {
+            return new SheddingLimiter();
+        }
+
+    }
+
     @Test
     void shouldCreateSong() {
         final Song song = createSong();
@@ -78,12 +220,119 @@ class SongHandlerTest {
         verify(songService, times(1)).create(songEntity);
     }
 
+    @Test
+    void shouldCreateSongFromSmile() {
+        final Song song = createSong();
+        final SongEntity songEntity = songEntityConverter.dtoToEntity(song);
+        final String songEntityId = RANDOM_UUID.get();
+
+        when(songService.create(any(SongEntity.class))).thenReturn(Mono.just(songEntity.withId(songEntityId)));
+
+        webClient.post()
+                .uri("/api/v1/song")
+                .contentType(MediaTypeUtils.APPLICATION_SMILE)
+                .accept(MediaTypeUtils.APPLICATION_SMILE)
+                .body(BodyInserters.fromValue(song))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaTypeUtils.APPLICATION_SMILE)
+                .expectBody(Song.class)
+                .value(s -> {
+                    assertEquals(songEntityId, s.getId());
+                    assertEquals(song.getLyrics(), s.getLyrics());
+                });
+
+        verify(songService, times(1)).create(songEntity);
+    }
+
+    @Test
+    void shouldCreateSongsInBulkFromCbor() {
+        final Song song1 = createSong();
+        final Song song2 = createSong();
+
+        when(songService.createAll(anyList())).thenReturn(Flux.just(
+                BulkItemResult.builder().index(0).id(RANDOM_UUID.get()).status(BulkItemStatus.CREATED).build(),
+                BulkItemResult.builder().index(1).id(RANDOM_UUID.get()).status(BulkItemStatus.CREATED).build()
+        ));
+
+        webClient.post()
+                .uri("/api/v1/song/_bulk")
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .body(BodyInserters.fromValue(Arrays.asList(song1, song2)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBodyList(BulkItemResult.class)
+                .value(results -> assertEquals(2, results.size()));
+
+        verify(songService, times(1)).createAll(Arrays.asList(
+                songEntityConverter.dtoToEntity(song1), songEntityConverter.dtoToEntity(song2)));
+    }
+
+    @Test
+    void shouldRejectBulkRequestsOverItemLimit() {
+        final List<Song> songs = Arrays.asList(createSong(), createSong(), createSong());
+
+        webClient.post()
+                .uri("/api/v1/song/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(songs))
+                .exchange()
+                .expectStatus().isBadRequest();
+        webClient.put()
+                .uri("/api/v1/song/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(songs))
+                .exchange()
+                .expectStatus().isBadRequest();
+        webClient.post()
+                .uri("/api/v1/song/_bulk/delete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(Arrays.asList(RANDOM_UUID.get(), RANDOM_UUID.get(), RANDOM_UUID.get())))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(songService, never()).createAll(anyList());
+        verify(songService, never()).upsertAll(anyList());
+        verify(songService, never()).deleteAll(anyList());
+    }
+
+    @Test
+    void shouldCreateSongsInBulk() {
+        final Song song1 = createSong();
+        final Song song2 = createSong();
+        final String songEntityId = RANDOM_UUID.get();
+
+        when(songService.createAll(anyList())).thenReturn(Flux.just(
+                BulkItemResult.builder().index(0).id(songEntityId).status(BulkItemStatus.CREATED).build(),
+                BulkItemResult.builder().index(1).status(BulkItemStatus.FAILED).message("duplicate key").build()
+        ));
+
+        webClient.post()
+                .uri("/api/v1/song/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(Arrays.asList(song1, song2)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BulkItemResult.class)
+                .value(results -> {
+                    assertEquals(2, results.size());
+                    assertEquals(songEntityId, results.get(0).getId());
+                    assertEquals(BulkItemStatus.CREATED, results.get(0).getStatus());
+                    assertEquals(BulkItemStatus.FAILED, results.get(1).getStatus());
+                });
+
+        verify(songService, times(1)).createAll(Arrays.asList(
+                songEntityConverter.dtoToEntity(song1), songEntityConverter.dtoToEntity(song2)));
+    }
+
     @Test
     void shouldDeleteSongById() {
         final String songEntityId = RANDOM_UUID.get();
         final SongEntity songEntityMock = createSongEntity(songEntityId);
 
-        when(songService.delete(songEntityId)).thenReturn(Mono.just(songEntityMock));
+        when(songService.delete(songEntityId, null)).thenReturn(Mono.just(songEntityMock));
 
         webClient.delete()
                 .uri("/api/v1/song/" + songEntityId)
@@ -91,7 +340,59 @@ class SongHandlerTest {
                 .exchange()
                 .expectStatus().isOk();
 
-        verify(songService, times(1)).delete(songEntityId);
+        verify(songService, times(1)).delete(songEntityId, null);
+    }
+
+    @Test
+    void shouldExportSongsAsGzippedNdjson() throws IOException {
+        final List<SongEntity> songEntities = Arrays.asList(
+                createSongEntity(RANDOM_UUID.get()), createSongEntity(RANDOM_UUID.get()),
+                createSongEntity(RANDOM_UUID.get()));
+
+        when(songService.export("checkpoint-0")).thenReturn(Flux.just(
+                ExportChunk.of(songEntities.subList(0, 2), "checkpoint-1"),
+                ExportChunk.of(songEntities.subList(2, 3), "checkpoint-2")
+        ));
+
+        final byte[] body = webClient.get()
+                .uri("/api/v1/song/_export?checkpoint=checkpoint-0")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaTypeUtils.APPLICATION_NDJSON)
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectBody().returnResult().getResponseBody();
+
+        final List<JsonNode> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+            lines = reader.lines()
+                    .map(line -> {
+                        try {
+                            return objectMapper.readTree(line);
+                        } catch (final IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        }
+        assertEquals(5, lines.size());
+        assertEquals(songEntities.get(0).getId(), lines.get(0).get("id").asText());
+        assertEquals(songEntities.get(1).getLyrics().size(), lines.get(1).get("lyrics").size());
+        assertEquals("checkpoint-1", lines.get(2).get("checkpoint").asText());
+        assertEquals(songEntities.get(2).getTitle(), lines.get(3).get("title").asText());
+        assertEquals("checkpoint-2", lines.get(4).get("checkpoint").asText());
+    }
+
+    @Test
+    void shouldRejectInvalidExportCheckpoint() {
+        when(songService.export("invalid"))
+                .thenThrow(new InvalidExportCheckpointException(SongEntity.class, "invalid"));
+
+        webClient.get()
+                .uri("/api/v1/song/_export?checkpoint=invalid")
+                .exchange()
+                .expectStatus().isBadRequest();
     }
 
     @Test
@@ -121,6 +422,438 @@ class SongHandlerTest {
         verify(songService, times(1)).get(songEntityId);
     }
 
+    @Test
+    void shouldGetSongsByIdsInRequestedOrder() {
+        final SongEntity songEntity1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity2 = createSongEntity(RANDOM_UUID.get());
+        final String missingId = RANDOM_UUID.get();
+        final List<String> ids = Arrays.asList(songEntity2.getId(), missingId, songEntity1.getId());
+        final Map<String, SongEntity> found = new HashMap<>();
+        found.put(songEntity1.getId(), songEntity1);
+        found.put(songEntity2.getId(), songEntity2);
+
+        when(songService.getAll(ids)).thenReturn(Mono.just(EntityLookup.of(ids, found)));
+
+        webClient.post()
+                .uri("/api/v1/song/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(ids))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.entities.length()").isEqualTo(2)
+                .jsonPath("$.entities[0].id").isEqualTo(songEntity2.getId())
+                .jsonPath("$.entities[0].title").isEqualTo(songEntity2.getTitle())
+                .jsonPath("$.entities[1].id").isEqualTo(songEntity1.getId())
+                .jsonPath("$.missing.length()").isEqualTo(1)
+                .jsonPath("$.missing[0]").isEqualTo(missingId);
+
+        verify(songService, times(1)).getAll(ids);
+    }
+
+    @Test
+    void shouldRejectTooManyIdsToGet() {
+        final List<String> ids = IntStream.rangeClosed(0, MAX_MULTI_GET_IDS)
+                .mapToObj(i -> RANDOM_UUID.get())
+                .collect(Collectors.toList());
+
+        webClient.post()
+                .uri("/api/v1/song/_mget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(ids))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(songService, never()).getAll(any());
+    }
+
+    @Test
+    void shouldShedGetsOverConcurrencyLimit() {
+        final String songEntityId = RANDOM_UUID.get();
+        final AtomicBoolean subscribed = new AtomicBoolean();
+        when(songService.get(songEntityId)).thenReturn(Mono.fromCallable(() -> {
+            subscribed.set(true);
+            return createSongEntity(songEntityId);
+        }));
+        sheddingLimiter.shedding.set(true);
+        try {
+            webClient.get()
+                    .uri("/api/v1/song/" + songEntityId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                    .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+        } finally {
+            sheddingLimiter.shedding.set(false);
+        }
+
+        assertFalse(subscribed.get());
+    }
+
+    @Test
+    void shouldAnswerUnavailableWhileCircuitIsOpen() {
+        final String songEntityId = RANDOM_UUID.get();
+        when(songService.get(songEntityId))
+                .thenReturn(Mono.error(new CircuitOpenException("Song", Duration.ofMillis(8500))));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "9");
+    }
+
+    @Test
+    void shouldWarnThatStaleSongIsStale() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+        when(songService.get(songEntityId)).thenReturn(StaleReadMarker.mark().thenReturn(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .expectBody(Song.class)
+                .value(s -> assertEquals(songEntityId, s.getId()));
+    }
+
+    @Test
+    void shouldWarnThatStaleSongListIsStale() {
+        final SongEntity songEntity = createSongEntity(RANDOM_UUID.get());
+        when(songService.metadataPage(null, DEFAULT_PAGE_LIMIT)).thenReturn(StaleReadMarker.mark()
+                .thenReturn(EntityPage.of(Collections.singletonList(songEntity), DEFAULT_PAGE_LIMIT)));
+
+        webClient.get()
+                .uri("/api/v1/song")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .expectBodyList(Song.class)
+                .value(songList -> assertEquals(songEntity.getId(), songList.get(0).getId()));
+    }
+
+    @Test
+    void shouldRecordHandlerMetrics() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+        final long timedBefore = handlerCount("get", "SUCCESSFUL");
+        final DistributionSummary sizedBefore = responseSize("get");
+        final long countBefore = sizedBefore != null ? sizedBefore.count() : 0;
+        final double bytesBefore = sizedBefore != null ? sizedBefore.totalAmount() : 0;
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        final byte[] body = webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+
+        final DistributionSummary sizedAfter = responseSize("get");
+        assertEquals(timedBefore + 1, handlerCount("get", "SUCCESSFUL"));
+        assertEquals(countBefore + 1, sizedAfter.count());
+        assertEquals(body.length, (long) (sizedAfter.totalAmount() - bytesBefore));
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForCurrentETag() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(3L);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\", W/\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void shouldAnswerNotModifiedOnlyForTagOfSelectedRepresentation() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(3L);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-cbor\"");
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-gzip\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-gzip\"");
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutEncodingColdSong() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(3L);
+        final double missesBefore = responseCacheGets("miss");
+        final double hitsBefore = responseCacheGets("hit");
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3-gzip\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3-gzip\"");
+
+        assertEquals(missesBefore, responseCacheGets("miss"));
+        assertEquals(hitsBefore, responseCacheGets("hit"));
+    }
+
+    @Test
+    void shouldGetSongWithETag() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(4L);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"")
+                .expectBody(Song.class)
+                .value(s -> assertEquals(songEntityMock.getTitle(), s.getTitle()));
+    }
+
+    @Test
+    void shouldGetCachedSongGzipped() throws IOException {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(5L);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        for (int i = 0; i < 2; i++) {
+            final byte[] body = webClient.get()
+                    .uri("/api/v1/song/" + songEntityId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, gzip;q=0.8")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5-gzip\"")
+                    .expectBody().returnResult().getResponseBody();
+            final Song song = objectMapper.readValue(new GZIPInputStream(new ByteArrayInputStream(body)), Song.class);
+            assertEquals(songEntityMock.getTitle(), song.getTitle());
+            assertEquals(songEntityMock.getLyrics(), song.getLyrics());
+        }
+    }
+
+    @Test
+    void shouldGetNewVersionOfCachedSong() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(1L);
+        final SongEntity updatedSongEntityMock = songEntityMock.toBuilder().title("Updated").version(2L).build();
+
+        when(songService.get(songEntityId))
+                .thenReturn(Mono.just(songEntityMock))
+                .thenReturn(Mono.just(updatedSongEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+                .expectBody(Song.class)
+                .value(s -> assertEquals(songEntityMock.getTitle(), s.getTitle()));
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2\"")
+                .expectBody(Song.class)
+                .value(s -> assertEquals("Updated", s.getTitle()));
+    }
+
+    @Test
+    void shouldGetSongAsCbor() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(6L);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"6-cbor\"")
+                .expectBody(Song.class)
+                .value(s -> {
+                    assertEquals(songEntityId, s.getId());
+                    assertEquals(songEntityMock.getLyrics(), s.getLyrics());
+                });
+    }
+
+    @Test
+    void shouldListSongsAsCbor() {
+        final SongEntity songEntity1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity2 = createSongEntity(RANDOM_UUID.get());
+
+        when(songService.metadataPage(null, DEFAULT_PAGE_LIMIT))
+                .thenReturn(Mono.just(EntityPage.of(Arrays.asList(songEntity1, songEntity2), DEFAULT_PAGE_LIMIT)));
+
+        webClient.get()
+                .uri("/api/v1/song")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBodyList(Song.class)
+                .value(songList -> {
+                    assertEquals(2, songList.size());
+                    assertEquals(songEntity2.getId(), songList.get(1).getId());
+                });
+    }
+
+    @Test
+    void shouldAnswerErrorAsSmile() {
+        final String songEntityId = RANDOM_UUID.get();
+
+        when(songService.get(songEntityId)).thenReturn(Mono.error(new UnknownEntityException(SongEntity.class, songEntityId)));
+
+        webClient.get()
+                .uri("/api/v1/song/" + songEntityId)
+                .accept(MediaTypeUtils.APPLICATION_SMILE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaTypeUtils.APPLICATION_SMILE)
+                .expectBody(JsonNode.class)
+                .value(error -> assertEquals(HttpStatus.NOT_FOUND.name(), error.path("errorCode").asText()));
+    }
+
+    @Test
+    void shouldImportSongsFromNdjsonInBatches() throws IOException {
+        final List<Song> songs = Arrays.asList(createSong(), createSong(), createSong());
+        final String upload = objectMapper.writeValueAsString(songs.get(0)) + "\n"
+                + objectMapper.writeValueAsString(songs.get(1)) + "\n"
+                + "{\"title\": \n"
+                + "\n"
+                + objectMapper.writeValueAsString(songs.get(2)) + "\n";
+
+        when(songService.createAll(anyList())).thenAnswer(invocation -> {
+            final List<SongEntity> entities = invocation.getArgument(0);
+            return Flux.fromStream(IntStream.range(0, entities.size()).mapToObj(i -> BulkItemResult.builder()
+                    .index(i)
+                    .id(RANDOM_UUID.get())
+                    .status(BulkItemStatus.CREATED)
+                    .build()));
+        });
+
+        final String response = webClient.post()
+                .uri("/api/v1/song/_import")
+                .contentType(MediaTypeUtils.APPLICATION_NDJSON)
+                .body(BodyInserters.fromValue(upload))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaTypeUtils.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        final List<BulkItemResult> results = Arrays.stream(response.split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, BulkItemResult.class);
+                    } catch (final IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+        assertEquals(4, results.size());
+        assertEquals(Arrays.asList(0, 1, 2, 4),
+                results.stream().map(BulkItemResult::getIndex).sorted().collect(Collectors.toList()));
+        results.forEach(result -> assertEquals(result.getIndex() == 2 ? BulkItemStatus.FAILED : BulkItemStatus.CREATED,
+                result.getStatus()));
+        verify(songService, times(1)).createAll(Arrays.asList(
+                songEntityConverter.dtoToEntity(songs.get(0)), songEntityConverter.dtoToEntity(songs.get(1))));
+        verify(songService, times(1)).createAll(Collections.singletonList(
+                songEntityConverter.dtoToEntity(songs.get(2))));
+    }
+
+    @Test
+    void shouldFailOnlyTheLinesOfBatchesThatCannotBeImported() throws IOException {
+        final List<Song> songs = Arrays.asList(createSong(), createSong(), createSong());
+        final String upload = songs.stream()
+                .map(song -> {
+                    try {
+                        return objectMapper.writeValueAsString(song) + "\n";
+                    } catch (final IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.joining());
+
+        when(songService.createAll(anyList()))
+                .thenReturn(Flux.concat(
+                        Flux.just(BulkItemResult.builder()
+                                .index(0)
+                                .id(RANDOM_UUID.get())
+                                .status(BulkItemStatus.CREATED)
+                                .build()),
+                        Flux.error(new CircuitOpenException("Song", Duration.ofSeconds(5)))))
+                .thenReturn(Flux.just(BulkItemResult.builder()
+                        .index(0)
+                        .id(RANDOM_UUID.get())
+                        .status(BulkItemStatus.CREATED)
+                        .build()));
+
+        final String response = webClient.post()
+                .uri("/api/v1/song/_import")
+                .contentType(MediaTypeUtils.APPLICATION_NDJSON)
+                .body(BodyInserters.fromValue(upload))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        final List<BulkItemResult> results = Arrays.stream(response.split("\n"))
+                .map(line -> {
+                    try {
+                        return objectMapper.readValue(line, BulkItemResult.class);
+                    } catch (final IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(0, 1, 2),
+                results.stream().map(BulkItemResult::getIndex).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(BulkItemStatus.CREATED, BulkItemStatus.FAILED, BulkItemStatus.CREATED),
+                results.stream().map(BulkItemResult::getStatus).collect(Collectors.toList()));
+        assertEquals("The Song database is unavailable!", results.get(1).getMessage());
+    }
+
     @Test
     void shouldGetSongs() {
 
@@ -128,12 +861,14 @@ class SongHandlerTest {
         final SongEntity songEntity2 = createSongEntity(RANDOM_UUID.get());
         final SongEntity songEntity3 = createSongEntity(RANDOM_UUID.get());
 
-        when(songService.all()).thenReturn(Flux.just(songEntity1, songEntity2, songEntity3));
+        when(songService.metadataPage(null, DEFAULT_PAGE_LIMIT))
+                .thenReturn(Mono.just(EntityPage.of(Arrays.asList(songEntity1, songEntity2, songEntity3), DEFAULT_PAGE_LIMIT)));
 
         webClient.get()
                 .uri("/api/v1/song")
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
                 .expectBodyList(Song.class)
                 .value(songList -> {
                     assertEquals(3, songList.size());
@@ -142,7 +877,164 @@ class SongHandlerTest {
                     assertEquals(songEntity3.getId(), songList.get(2).getId());
                 });
 
-        verify(songService, times(1)).all();
+        verify(songService, times(1)).metadataPage(null, DEFAULT_PAGE_LIMIT);
+    }
+
+    @Test
+    void shouldGetSongsPageWithNextLink() {
+        final SongEntity songEntity1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity2 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity3 = createSongEntity(RANDOM_UUID.get());
+        final String pageToken = PageTokenUtils.encode(RANDOM_UUID.get());
+        final String nextPageToken = PageTokenUtils.encode(songEntity2.getId());
+
+        when(songService.metadataPage(pageToken, 2))
+                .thenReturn(Mono.just(EntityPage.of(Arrays.asList(songEntity1, songEntity2, songEntity3), 2)));
+
+        webClient.get()
+                .uri("/api/v1/song?limit=2&pageToken=" + pageToken)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueMatches(HttpHeaders.LINK, ".*pageToken=" + nextPageToken + ".*rel=\"next\"")
+                .expectBodyList(Song.class)
+                .value(songList -> {
+                    assertEquals(2, songList.size());
+                    assertEquals(songEntity1.getId(), songList.get(0).getId());
+                    assertEquals(songEntity2.getId(), songList.get(1).getId());
+                });
+
+        verify(songService, times(1)).metadataPage(pageToken, 2);
+    }
+
+    @Test
+    void shouldPatchSongWithCompiledUpdate() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).toBuilder().title("Amazing Grace").build();
+
+        when(songService.patch(eq(songEntityId), any(Update.class), isNull(), anyList()))
+                .thenReturn(Mono.just(songEntityMock));
+
+        webClient.patch()
+                .uri("/api/v1/song/" + songEntityId)
+                .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .accept(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .bodyValue("[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Song.class)
+                .value(s -> assertEquals("Amazing Grace", s.getTitle()));
+
+        verify(songService, times(1)).patch(eq(songEntityId), any(Update.class), isNull(), anyList());
+        verify(songService, never()).get(songEntityId);
+    }
+
+    @Test
+    void shouldRejectPatchOfMissingLyricsSection() {
+        final String songEntityId = RANDOM_UUID.get();
+
+        when(songService.patch(eq(songEntityId), any(Update.class), isNull(), anyList()))
+                .thenReturn(Mono.error(new InvalidPatchException(SongEntity.class, songEntityId)));
+
+        webClient.patch()
+                .uri("/api/v1/song/" + songEntityId)
+                .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .accept(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .bodyValue("[{\"op\":\"replace\",\"path\":\"/lyrics/v9\",\"value\":[\"line\"]}]")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldPatchSongInMemoryWhenNotCompilable() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+
+        when(songService.get(songEntityId)).thenReturn(Mono.just(songEntityMock));
+        when(songService.update(eq(songEntityId), any(SongEntity.class), isNull()))
+                .thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+
+        webClient.patch()
+                .uri("/api/v1/song/" + songEntityId)
+                .contentType(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .accept(JsonPatchUtils.APPLICATION_JSON_PATCH)
+                .bodyValue("[{\"op\":\"copy\",\"from\":\"/title\",\"path\":\"/additionalTitles/-\"}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Song.class)
+                .value(s -> assertEquals(songEntityMock.getTitle(), s.getAdditionalTitles().get(s.getAdditionalTitles().size() - 1)));
+
+        verify(songService, never()).patch(any(String.class), any(Update.class), any());
+        verify(songService, times(1)).update(eq(songEntityId), any(SongEntity.class), isNull());
+    }
+
+    @Test
+    void shouldRejectInvalidPageLimit() {
+        webClient.get()
+                .uri("/api/v1/song?limit=none")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldRejectUpdateOfStaleVersion() {
+        final String songId = RANDOM_UUID.get();
+        final Song song = createSong(songId);
+
+        when(songService.update(eq(songId), any(SongEntity.class), eq(2L)))
+                .thenReturn(Mono.error(new EntityVersionMismatchException(SongEntity.class, songId, 2L)));
+
+        webClient.put()
+                .uri("/api/v1/song/" + songId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .body(BodyInserters.fromValue(song))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    void shouldSearchSongs() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SearchHit hit = SearchHit.builder()
+                .id(songEntityId)
+                .score(1.5f)
+                .fields(Collections.singletonMap("title", "Amazing Grace"))
+                .highlights(Collections.singletonMap("title", "Amazing <b>Grace</b>"))
+                .build();
+
+        when(songSearchIndex.search("grace", SongHandler.DEFAULT_SEARCH_LIMIT))
+                .thenReturn(Mono.just(Collections.singletonList(hit)));
+
+        webClient.get()
+                .uri("/api/v1/song/search?q=grace")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(SearchHit.class)
+                .value(hits -> {
+                    assertEquals(1, hits.size());
+                    assertEquals(hit, hits.get(0));
+                });
+
+        verify(songService, never()).get(any(String.class));
+    }
+
+    @Test
+    void shouldRejectInvalidSearchQuery() {
+        when(songSearchIndex.search("title:(grace", SongHandler.DEFAULT_SEARCH_LIMIT))
+                .thenReturn(Mono.error(new InvalidSearchQueryException("Invalid search query", null)));
+
+        webClient.get()
+                .uri(builder -> builder.path("/api/v1/song/search").queryParam("q", "title:(grace").build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webClient.get()
+                .uri("/api/v1/song/search")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
     }
 
     @Test
@@ -152,7 +1044,7 @@ class SongHandlerTest {
         final SongEntity songEntity = songEntityConverter.dtoToEntity(song);
         final SongEntity songEntityMock = createSongEntity(songId);
 
-        when(songService.update(songId, songEntity)).thenReturn(Mono.just(songEntityMock));
+        when(songService.update(songId, songEntity, null)).thenReturn(Mono.just(songEntityMock));
 
         webClient.put()
                 .uri("/api/v1/song/" + songId)
@@ -172,7 +1064,113 @@ class SongHandlerTest {
                     assertEquals(songEntityMock.getLyrics(), s.getLyrics());
                 });
 
-        verify(songService, times(1)).update(songId, songEntity);
+        verify(songService, times(1)).update(songId, songEntity, null);
+    }
+
+    @Test
+    void shouldUpsertSongBySource() {
+        final Song song = createSong();
+        final SongEntity songEntity = songEntityConverter.dtoToEntity(song);
+        final String songId = RANDOM_UUID.get();
+        final SongSource source = SongSource.builder().sourceSystem("ccli").sourceId("7654321").build();
+        final SongEntity songEntityMock = songEntity.toBuilder().id(songId).source(source).build();
+
+        when(songService.upsertBySource("ccli", "7654321", songEntity)).thenReturn(Mono.just(songEntityMock));
+
+        webClient.put()
+                .uri("/api/v1/song/by-source/ccli/7654321")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(song))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Song.class)
+                .value(s -> {
+                    assertEquals(songId, s.getId());
+                    assertEquals(source, s.getSource());
+                    assertEquals(songEntityMock.getTitle(), s.getTitle());
+                });
+
+        verify(songService, times(1)).upsertBySource("ccli", "7654321", songEntity);
+    }
+
+    @Test
+    void shouldUpsertSongsBySourceInBulk() {
+        final Song song1 = createSong().toBuilder()
+                .source(SongSource.builder().sourceSystem("ccli").sourceId("1").build())
+                .build();
+        final Song song2 = createSong().toBuilder()
+                .source(SongSource.builder().sourceSystem("ccli").sourceId("2").build())
+                .build();
+        final String songEntityId = RANDOM_UUID.get();
+
+        when(songService.upsertAllBySource(anyList())).thenReturn(Flux.just(
+                BulkItemResult.builder().index(0).id(songEntityId).status(BulkItemStatus.UPDATED).build(),
+                BulkItemResult.builder().index(1).id(RANDOM_UUID.get()).status(BulkItemStatus.CREATED).build()
+        ));
+
+        webClient.put()
+                .uri("/api/v1/song/by-source/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(Arrays.asList(song1, song2)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BulkItemResult.class)
+                .value(results -> {
+                    assertEquals(2, results.size());
+                    assertEquals(songEntityId, results.get(0).getId());
+                    assertEquals(BulkItemStatus.UPDATED, results.get(0).getStatus());
+                    assertEquals(BulkItemStatus.CREATED, results.get(1).getStatus());
+                });
+
+        verify(songService, times(1)).upsertAllBySource(Arrays.asList(
+                songEntityConverter.dtoToEntity(song1), songEntityConverter.dtoToEntity(song2)));
+    }
+
+    @Test
+    void shouldRejectBulkUpsertOfSongWithoutSource() {
+        final Song song = createSong();
+
+        webClient.put()
+                .uri("/api/v1/song/by-source/_bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(Collections.singletonList(song)))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(songService, never()).upsertAllBySource(anyList());
+    }
+
+    private long handlerCount(final String operation, final String outcome) {
+        final Timer timer = meterRegistry.find(CrudMetrics.HANDLER_TIMER)
+                .tags("module", "song", "entity", "SongEntity", "operation", operation, "outcome", outcome)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    private DistributionSummary responseSize(final String operation) {
+        return meterRegistry.find(CrudMetrics.RESPONSE_SIZE)
+                .tags("module", "song", "entity", "SongEntity", "operation", operation)
+                .summary();
+    }
+
+    private double responseCacheGets(final String result) {
+        return meterRegistry.get("cache.gets")
+                .tags("cache", "song-responses", "result", result)
+                .functionCounter()
+                .count();
+    }
+
+    static class SheddingLimiter implements ConcurrencyLimiter {
+
+        private final AtomicBoolean shedding = new AtomicBoolean();
+
+        @Override
+        public <T> Function<Mono<T>, Mono<T>> limited() {
+            return mono -> shedding.get()
+                    ? Mono.error(new ConcurrencyLimitExceededException("read", 0, Duration.ofMillis(1500)))
+                    : mono;
+        }
+
     }
 
 }
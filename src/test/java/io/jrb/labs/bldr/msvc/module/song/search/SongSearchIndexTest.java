@@ -0,0 +1,153 @@
+package io.jrb.labs.bldr.msvc.module.song.search;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.service.ISongService;
+import io.jrb.labs.common.crud.EntityLookup;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import io.jrb.labs.common.search.InvalidSearchQueryException;
+import io.jrb.labs.common.search.SearchHit;
+import io.jrb.labs.common.search.SearchIndexConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SongSearchIndexTest {
+
+    @TempDir
+    Path indexDirectory;
+
+    private SearchIndexConfig config;
+    private ISongService songService;
+    private SongSearchIndex index;
+
+    @BeforeEach
+    void init() {
+        config = new SearchIndexConfig(
+                indexDirectory, Duration.ofHours(1), Duration.ofHours(1), 10, Duration.ofHours(1));
+        songService = mock(ISongService.class);
+        index = new SongSearchIndex(config, songService);
+    }
+
+    @AfterEach
+    void destroy() throws Exception {
+        index.destroy();
+    }
+
+    @Test
+    void shouldRankTitleMatchesFirstAndHighlightThem() {
+        final SongEntity titleMatch = song("Amazing Grace", "How sweet the sound");
+        final SongEntity lyricsMatch = song("Another Song", "Grace upon grace");
+        index.rebuild(Flux.just(lyricsMatch, titleMatch)).block();
+
+        final List<SearchHit> hits = index.search("grace", 10).block();
+
+        assertAll("hits",
+                () -> assertEquals(2, hits.size()),
+                () -> assertEquals(titleMatch.getId(), hits.get(0).getId()),
+                () -> assertEquals("Amazing Grace", hits.get(0).getFields().get("title")),
+                () -> assertEquals("Amazing <b>Grace</b>", hits.get(0).getHighlights().get("title")),
+                () -> assertTrue(hits.get(0).getScore() > hits.get(1).getScore()),
+                () -> assertTrue(hits.get(1).getHighlights().get("lyrics").contains("<b>Grace</b>"))
+        );
+    }
+
+    @Test
+    void shouldMatchPhrases() {
+        final SongEntity phraseMatch = song("First", "the sound of grace");
+        final SongEntity termsMatch = song("Second", "grace has a sound of its own");
+        index.rebuild(Flux.just(phraseMatch, termsMatch)).block();
+
+        final List<SearchHit> hits = index.search("\"sound of grace\"", 10).block();
+
+        assertEquals(1, hits.size());
+        assertEquals(phraseMatch.getId(), hits.get(0).getId());
+    }
+
+    @Test
+    void shouldFollowUpdatesAndSurviveRestarts() throws Exception {
+        final SongEntity song = song("Be Thou My Vision", "O Lord of my heart");
+        index.rebuild(Flux.just(song)).block();
+        index.onUpdate(new UpdateEntityEvent<>(song.toBuilder().title("Be Thou My Light").build()));
+        index.destroy();
+
+        index = new SongSearchIndex(config, mock(ISongService.class));
+
+        assertAll("reopened",
+                () -> assertFalse(index.isEmpty()),
+                () -> assertEquals(1, index.search("light", 10).block().size()),
+                () -> assertEquals(0, index.search("vision", 10).block().size())
+        );
+    }
+
+    @Test
+    void shouldReconcileWithDatabase() {
+        final SongEntity unchanged = song("Amazing Grace", "How sweet the sound").withVersion(1L);
+        final SongEntity changed = song("Be Thou My Vision", "O Lord of my heart").withVersion(1L);
+        final SongEntity deleted = song("It Is Well", "When peace like a river").withVersion(1L);
+        final SongEntity missed = song("Holy Holy Holy", "Lord God almighty").withVersion(3L);
+        final SongEntity updated = changed.toBuilder().title("Be Thou My Light").version(2L).build();
+        final Map<String, SongEntity> database = new LinkedHashMap<>();
+        Stream.of(unchanged, updated, missed).forEach(song -> database.put(song.getId(), song));
+        index.rebuild(Flux.just(unchanged, changed, deleted)).block();
+        given(songService.allVersions()).willReturn(Flux.fromIterable(database.values())
+                .map(song -> SongEntity.builder().id(song.getId()).version(song.getVersion()).build()));
+        willAnswer(invocation -> {
+            final Collection<String> ids = invocation.getArgument(0);
+            return Mono.just(EntityLookup.of(new ArrayList<>(ids), database));
+        }).given(songService).getAll(anyCollection());
+
+        StepVerifier.create(index.reconcile()).expectNext(3L).verifyComplete();
+
+        verify(songService).getAll(Arrays.asList(updated.getId(), missed.getId()));
+        assertAll("reconciled",
+                () -> assertEquals(1, index.search("grace", 10).block().size()),
+                () -> assertEquals(1, index.search("light", 10).block().size()),
+                () -> assertEquals(0, index.search("vision", 10).block().size()),
+                () -> assertEquals(0, index.search("river", 10).block().size()),
+                () -> assertEquals(1, index.search("almighty", 10).block().size())
+        );
+    }
+
+    @Test
+    void shouldRejectInvalidQueries() {
+        StepVerifier.create(index.search("title:(grace", 10))
+                .expectError(InvalidSearchQueryException.class)
+                .verify();
+    }
+
+    private SongEntity song(final String title, final String verse) {
+        return createSongEntity(RANDOM_UUID.get()).toBuilder()
+                .title(title)
+                .additionalTitles(Collections.emptyList())
+                .lyrics(Collections.singletonMap("v1", Arrays.asList(verse)))
+                .build();
+    }
+
+}
@@ -1,17 +1,71 @@
 package io.jrb.labs.bldr.msvc.module.song.service;
 
 import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.bldr.msvc.module.song.model.SongSource;
 import io.jrb.labs.bldr.msvc.module.song.repository.ReactiveSongRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.jrb.labs.common.crud.BulkConfig;
+import io.jrb.labs.common.crud.BulkItemResult;
+import io.jrb.labs.common.crud.BulkItemStatus;
+import io.jrb.labs.common.crud.CrudServiceOptions;
+import io.jrb.labs.common.crud.EntityVersionMismatchException;
+import io.jrb.labs.common.crud.EntityPage;
+import io.jrb.labs.common.crud.ExportCheckpoint;
+import io.jrb.labs.common.crud.ExportChunk;
+import io.jrb.labs.common.crud.InvalidExportCheckpointException;
+import io.jrb.labs.common.crud.InvalidPatchException;
+import io.jrb.labs.common.crud.PageTokenUtils;
+import io.jrb.labs.common.crud.RoundTripMarker;
+import io.jrb.labs.common.crud.UnknownEntityException;
+import io.jrb.labs.common.crud.breaker.CaffeineStaleSnapshot;
+import io.jrb.labs.common.crud.breaker.CircuitBreakerConfig;
+import io.jrb.labs.common.crud.breaker.CircuitOpenException;
+import io.jrb.labs.common.crud.breaker.SlidingWindowCircuitBreaker;
+import io.jrb.labs.common.crud.breaker.StaleReadMarker;
+import io.jrb.labs.common.crud.cache.CaffeineEntityCache;
+import io.jrb.labs.common.crud.cache.EntityCacheConfig;
+import io.jrb.labs.common.crud.event.EntityEventDispatcher;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.context.ApplicationEventPublisher;
+import org.reactivestreams.Subscriber;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
@@ -20,8 +74,17 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class SongServiceTest {
@@ -29,16 +92,28 @@ class SongServiceTest {
     private static final String DETACHED = null;
 
     @Mock
-    private ApplicationEventPublisher eventPublisher;
+    private EntityEventDispatcher eventDispatcher;
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
 
     @Mock
     private ReactiveSongRepository songRepository;
 
+    @Mock
+    private MongoCollection<Document> songCollection;
+
+    @Mock
+    private FindPublisher<Document> songFindPublisher;
+
     private ISongService songService;
 
     @BeforeEach
     void init() {
-        songService = new SongService(eventPublisher, songRepository);
+        lenient().when(mongoOperations.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext()));
+        songService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.defaults());
     }
 
     @Test
@@ -74,7 +149,10 @@ class SongServiceTest {
     public void shouldFindSongByTitle() {
         final String songId = RANDOM_UUID.get();
         final SongEntity songEntityMock = createSongEntity(songId);
-        given(songRepository.findFirstByTitle(songEntityMock.getTitle()))
+        given(mongoOperations.findOne(argThat((Query query) ->
+                        query.getQueryObject().get("title").equals(songEntityMock.getTitle())
+                                && query.getCollation().equals(Optional.of(SongService.TITLE_COLLATION))),
+                eq(SongEntity.class)))
                 .willReturn(Mono.just(songEntityMock));
 
         final Mono<SongEntity> songEntityMono = songService.findByTitle(songEntityMock.getTitle());
@@ -107,13 +185,349 @@ class SongServiceTest {
     }
 
     @Test
-    void shouldUpdateSong() throws Exception {
+    void shouldTimeServiceOperationsByOutcome() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final ISongService meteredSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .crudMetrics(new CrudMetrics(meterRegistry, "Song", SongEntity.class))
+                        .build());
+        final String songEntityId = RANDOM_UUID.get();
+        final String unknownId = RANDOM_UUID.get();
+        given(songRepository.findById(songEntityId)).willReturn(Mono.just(createSongEntity(songEntityId)));
+        given(songRepository.findById(unknownId)).willReturn(Mono.empty());
+
+        StepVerifier.create(meteredSongService.get(songEntityId)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(meteredSongService.get(unknownId)).verifyError(UnknownEntityException.class);
+
+        final Function<String, Long> getCount = outcome -> meterRegistry.get(CrudMetrics.SERVICE_TIMER)
+                .tags("module", "song", "entity", "SongEntity", "operation", "get", "outcome", outcome)
+                .timer()
+                .count();
+        assertAll(
+                () -> assertThat(getCount.apply("SUCCESS"), is(1L)),
+                () -> assertThat(getCount.apply("NOT_FOUND"), is(1L))
+        );
+    }
+
+    @Test
+    void shouldGetSongThroughCache() {
+        final EntityCacheConfig cacheConfig = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO);
+        final ISongService cachedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs", cacheConfig, new SimpleMeterRegistry()))
+                        .build());
         final String songEntityId = RANDOM_UUID.get();
         final SongEntity songEntityMock = createSongEntity(songEntityId);
+        given(songRepository.findById(songEntityId)).willReturn(Mono.just(songEntityMock));
+
+        final RoundTripMarker miss = new RoundTripMarker();
+        final RoundTripMarker hit = new RoundTripMarker();
+
+        StepVerifier.create(cachedSongService.get(songEntityId).subscriberContext(miss.context()))
+                .expectNext(songEntityMock)
+                .verifyComplete();
+        StepVerifier.create(cachedSongService.get(songEntityId).subscriberContext(hit.context()))
+                .expectNext(songEntityMock)
+                .verifyComplete();
+
+        verify(songRepository, times(1)).findById(songEntityId);
+        assertAll(
+                () -> assertThat(miss.isMarked(), is(true)),
+                () -> assertThat(hit.isMarked(), is(false))
+        );
+    }
+
+    @Test
+    void shouldGetSongsByIdsInOneQueryThroughCache() {
+        final EntityCacheConfig cacheConfig = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO);
+        final ISongService cachedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs", cacheConfig, new SimpleMeterRegistry()))
+                        .build());
+        final SongEntity cachedSong = createSongEntity(RANDOM_UUID.get());
+        final SongEntity storedSong = createSongEntity(RANDOM_UUID.get());
+        final String missingId = RANDOM_UUID.get();
+        given(songRepository.findById(cachedSong.getId())).willReturn(Mono.just(cachedSong));
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(Flux.just(storedSong));
+
+        StepVerifier.create(cachedSongService.get(cachedSong.getId())).expectNext(cachedSong).verifyComplete();
+        StepVerifier.create(cachedSongService.getAll(
+                Arrays.asList(storedSong.getId(), missingId, cachedSong.getId(), storedSong.getId())))
+                .assertNext(lookup -> assertAll(
+                        () -> assertThat(lookup.getEntities(), is(Arrays.asList(storedSong, cachedSong))),
+                        () -> assertThat(lookup.getMissingIds(), is(Collections.singletonList(missingId)))
+                ))
+                .verifyComplete();
+        StepVerifier.create(cachedSongService.getAll(Collections.singletonList(storedSong.getId())))
+                .assertNext(lookup -> assertThat(lookup.getEntities(), is(Collections.singletonList(storedSong))))
+                .verifyComplete();
+
+        verify(mongoOperations, times(1)).find(argThat((Query query) -> query != null && query.getQueryObject()
+                .equals(Query.query(Criteria.where("_id").in(storedSong.getId(), missingId)).getQueryObject())),
+                eq(SongEntity.class));
+        verify(mongoOperations, times(1)).find(any(Query.class), eq(SongEntity.class));
+    }
+
+    @Test
+    void shouldServeStaleSongsAndFailWritesWhileCircuitIsOpen() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CircuitBreakerConfig breakerConfig =
+                new CircuitBreakerConfig(true, Duration.ofSeconds(1), 0.5, 1, 1, Duration.ofMinutes(1), 1, 10);
+        final ISongService guardedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .circuitBreaker(new SlidingWindowCircuitBreaker("Song", breakerConfig, meterRegistry))
+                        .staleSnapshot(new CaffeineStaleSnapshot<>("Song", breakerConfig.staleSnapshotSize(),
+                                meterRegistry))
+                        .build());
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get());
+        final String unknownId = RANDOM_UUID.get();
+        given(songRepository.findAll()).willReturn(Flux.just(song1, song2));
+        given(songRepository.findById(song1.getId())).willReturn(Mono.just(song1));
+        given(songRepository.findById(unknownId))
+                .willReturn(Mono.error(new DataAccessResourceFailureException("down")));
+        StepVerifier.create(guardedSongService.all()).expectNext(song1, song2).verifyComplete();
+        StepVerifier.create(guardedSongService.get(song1.getId())).expectNext(song1).verifyComplete();
+        StepVerifier.create(guardedSongService.get(unknownId)).verifyError(DataAccessResourceFailureException.class);
+        final StaleReadMarker staleRead = new StaleReadMarker();
+
+        StepVerifier.create(guardedSongService.get(song1.getId()).subscriberContext(staleRead.context()))
+                .expectNext(song1)
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.all().collectList())
+                .assertNext(songs -> assertThat(songs.size(), is(2)))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.get(unknownId)).verifyError(CircuitOpenException.class);
+        StepVerifier.create(guardedSongService.create(song2)).verifyError(CircuitOpenException.class);
+
+        assertAll(
+                () -> assertThat(staleRead.isStale(), is(true)),
+                () -> assertThat(meterRegistry.get("crud.circuit.stale").counter().count(), is(2.0))
+        );
+        verify(songRepository, never()).save(any(SongEntity.class));
+    }
+
+    @Test
+    void shouldServeStalePagesAndGuardOnlyLookupMissesWhileCircuitIsOpen() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CircuitBreakerConfig breakerConfig =
+                new CircuitBreakerConfig(true, Duration.ofSeconds(1), 0.5, 1, 1, Duration.ofMinutes(1), 1, 10);
+        final ISongService guardedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs",
+                                new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO), meterRegistry))
+                        .circuitBreaker(new SlidingWindowCircuitBreaker("Song", breakerConfig, meterRegistry))
+                        .staleSnapshot(new CaffeineStaleSnapshot<>("Song", breakerConfig.staleSnapshotSize(),
+                                meterRegistry))
+                        .build());
+        final SongEntity song1 = createSongEntity("a-" + RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity("b-" + RANDOM_UUID.get());
+        final String unknownId = RANDOM_UUID.get();
+        given(songRepository.findAll()).willReturn(Flux.just(song2, song1));
+        given(songRepository.findById(song1.getId())).willReturn(Mono.just(song1));
+        given(songRepository.findById(unknownId))
+                .willReturn(Mono.error(new DataAccessResourceFailureException("down")));
+        StepVerifier.create(guardedSongService.all()).expectNextCount(2).verifyComplete();
+        StepVerifier.create(guardedSongService.get(song1.getId())).expectNext(song1).verifyComplete();
+        StepVerifier.create(guardedSongService.get(unknownId)).verifyError(DataAccessResourceFailureException.class);
+        final StaleReadMarker stalePage = new StaleReadMarker();
+        final StaleReadMarker cachedLookup = new StaleReadMarker();
+        final StaleReadMarker staleLookup = new StaleReadMarker();
+
+        StepVerifier.create(guardedSongService.metadataPage(null, 1).subscriberContext(stalePage.context()))
+                .assertNext(page -> assertAll(
+                        () -> assertThat(page.getEntities(), is(Collections.singletonList(song1))),
+                        () -> assertThat(page.getNextPageToken(), is(Optional.of(PageTokenUtils.encode(song1.getId()))))
+                ))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.metadataPage(PageTokenUtils.encode(song1.getId()), 1))
+                .assertNext(page -> assertAll(
+                        () -> assertThat(page.getEntities(), is(Collections.singletonList(song2))),
+                        () -> assertThat(page.getNextPageToken(), is(Optional.empty()))
+                ))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.getAll(Collections.singletonList(song1.getId()))
+                        .subscriberContext(cachedLookup.context()))
+                .assertNext(lookup -> assertThat(lookup.getEntities(), is(Collections.singletonList(song1))))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.getAll(Collections.singletonList(song2.getId()))
+                        .subscriberContext(staleLookup.context()))
+                .assertNext(lookup -> assertThat(lookup.getEntities(), is(Collections.singletonList(song2))))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.getAll(Arrays.asList(song2.getId(), unknownId)))
+                .verifyError(CircuitOpenException.class);
+
+        assertAll(
+                () -> assertThat(stalePage.isStale(), is(true)),
+                () -> assertThat(cachedLookup.isStale(), is(false)),
+                () -> assertThat(staleLookup.isStale(), is(true))
+        );
+        verify(mongoOperations, never()).find(any(Query.class), eq(SongEntity.class));
+    }
+
+    @Test
+    void shouldKeepUpsertedSongsInStaleSnapshotWhileCircuitIsOpen() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final CircuitBreakerConfig breakerConfig =
+                new CircuitBreakerConfig(true, Duration.ofSeconds(1), 0.5, 1, 1, Duration.ofMinutes(1), 1, 10);
+        final CaffeineStaleSnapshot<SongEntity> staleSnapshot =
+                new CaffeineStaleSnapshot<>("Song", breakerConfig.staleSnapshotSize(), meterRegistry);
+        final ISongService guardedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(staleSnapshot.tracking(new CaffeineEntityCache<>("songs",
+                                new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO), meterRegistry)))
+                        .circuitBreaker(new SlidingWindowCircuitBreaker("Song", breakerConfig, meterRegistry))
+                        .staleSnapshot(staleSnapshot)
+                        .build());
+        final SongEntity song1 = createSongEntity("a-" + RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity("b-" + RANDOM_UUID.get());
+        final SongEntity upsertedSong = song1.withVersion(2L);
+        final String unknownId = RANDOM_UUID.get();
+        given(songRepository.findAll()).willReturn(Flux.just(song1, song2));
+        given(songRepository.findById(song1.getId())).willReturn(Mono.just(song1));
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn("songEntity");
+        given(mongoOperations.getCollection("songEntity")).willReturn(songCollection);
+        given(songCollection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .willReturn(Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.emptyList())));
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(Flux.just(upsertedSong));
+        given(songRepository.findById(unknownId))
+                .willReturn(Mono.error(new DataAccessResourceFailureException("down")));
+        StepVerifier.create(guardedSongService.all()).expectNextCount(2).verifyComplete();
+        StepVerifier.create(guardedSongService.get(song1.getId())).expectNext(song1).verifyComplete();
+        StepVerifier.create(guardedSongService.upsertAll(Collections.singletonList(upsertedSong)))
+                .assertNext(result -> assertThat(result.getStatus(), is(BulkItemStatus.UPDATED)))
+                .verifyComplete();
+        StepVerifier.create(guardedSongService.get(unknownId)).verifyError(DataAccessResourceFailureException.class);
+
+        StepVerifier.create(guardedSongService.metadataPage(null, 10))
+                .assertNext(page -> assertThat(page.getEntities(), is(Arrays.asList(upsertedSong, song2))))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldGetSongsPage() {
+        final SongEntity songEntity1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity2 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songEntity3 = createSongEntity(RANDOM_UUID.get());
+        final String lastId = RANDOM_UUID.get();
+        given(mongoOperations.find(argThat((Query query) -> query.getLimit() == 3
+                && query.getQueryObject().get("_id") != null), eq(SongEntity.class)))
+                .willReturn(Flux.just(songEntity1, songEntity2, songEntity3));
 
-        given(songRepository.findById(songEntityId))
+        final Mono<EntityPage<SongEntity>> pageMono = songService.page(PageTokenUtils.encode(lastId), 2);
+
+        StepVerifier
+                .create(pageMono)
+                .assertNext(page -> {
+                    assertAll(
+                            "songsPage",
+                            () -> assertThat(page.getEntities().size(), is(2)),
+                            () -> assertThat(page.getEntities().get(1), is(songEntity2)),
+                            () -> assertThat(page.getNextPageToken().orElse(null),
+                                    is(PageTokenUtils.encode(songEntity2.getId())))
+                    );
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldGetSongsMetadataPageWithoutLyrics() {
+        final SongEntity songEntity = createSongEntity(RANDOM_UUID.get()).toBuilder()
+                .lyrics(null)
+                .lyricOrder(null)
+                .build();
+        given(mongoOperations.find(argThat((Query query) -> query.getFieldsObject().containsKey("title")
+                && !query.getFieldsObject().containsKey("lyrics")), eq(SongEntity.class)))
+                .willReturn(Flux.just(songEntity));
+
+        final Mono<EntityPage<SongEntity>> pageMono = songService.metadataPage(null, 2);
+
+        StepVerifier
+                .create(pageMono)
+                .assertNext(page -> {
+                    assertAll(
+                            "songsMetadataPage",
+                            () -> assertThat(page.getEntities().size(), is(1)),
+                            () -> assertThat(page.getEntities().get(0), is(songEntity)),
+                            () -> assertThat(page.getNextPageToken().isPresent(), is(false))
+                    );
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldPatchSongInSingleWrite() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+        final Update update = new Update().set("title", songEntityMock.getTitle());
+
+        given(mongoOperations.findAndModify(any(Query.class), eq(update), any(FindAndModifyOptions.class), eq(SongEntity.class)))
                 .willReturn(Mono.just(songEntityMock));
-        given(songRepository.save(any(SongEntity.class)))
+
+        final Mono<SongEntity> songEntityMono = songService.patch(songEntityId, update);
+
+        StepVerifier
+                .create(songEntityMono)
+                .assertNext(patched -> assertThat(patched.getTitle(), is(songEntityMock.getTitle())))
+                .verifyComplete();
+        verify(songRepository, never()).findById(songEntityId);
+    }
+
+    @Test
+    void shouldAnswerEmptyPatchWithCachedSongWithoutEventOrRoundTrip() {
+        final EntityCacheConfig cacheConfig = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO);
+        final ISongService cachedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs", cacheConfig, new SimpleMeterRegistry()))
+                        .build());
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(3L);
+        given(songRepository.findById(songEntityId)).willReturn(Mono.just(songEntityMock));
+        StepVerifier.create(cachedSongService.get(songEntityId)).expectNext(songEntityMock).verifyComplete();
+        final RoundTripMarker roundTrip = new RoundTripMarker();
+
+        StepVerifier.create(cachedSongService.patch(songEntityId, new Update(), 3L)
+                        .subscriberContext(roundTrip.context()))
+                .expectNext(songEntityMock)
+                .verifyComplete();
+        StepVerifier.create(cachedSongService.patch(songEntityId, new Update(), 2L))
+                .verifyError(EntityVersionMismatchException.class);
+
+        assertThat(roundTrip.isMarked(), is(false));
+        verify(songRepository, times(1)).findById(songEntityId);
+        verify(mongoOperations, never()).findOne(any(Query.class), eq(SongEntity.class));
+        verify(eventDispatcher, times(1)).dispatch(eq(SongEntity.class), any(), any());
+    }
+
+    @Test
+    void shouldRejectPatchWhoseConditionsSongDoesNotMeet() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(3L);
+        final Update update = new Update().set("lyrics.v1", Collections.singletonList("line"));
+        final List<Criteria> conditions = Collections.singletonList(Criteria.where("lyrics.v1").exists(true));
+
+        given(mongoOperations.findAndModify(any(Query.class), eq(update), any(FindAndModifyOptions.class), eq(SongEntity.class)))
+                .willReturn(Mono.empty());
+        given(mongoOperations.findOne(any(Query.class), eq(SongEntity.class))).willReturn(Mono.just(songEntityMock));
+
+        StepVerifier
+                .create(songService.patch(songEntityId, update, 3L, conditions))
+                .verifyError(InvalidPatchException.class);
+        StepVerifier
+                .create(songService.patch(songEntityId, update, 2L, conditions))
+                .verifyError(EntityVersionMismatchException.class);
+        final ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations, times(2)).findAndModify(query.capture(), eq(update), any(FindAndModifyOptions.class),
+                eq(SongEntity.class));
+        assertThat(query.getValue().getQueryObject().get("lyrics.v1"), is(new Document("$exists", true)));
+    }
+
+    @Test
+    void shouldUpdateSong() throws Exception {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+
+        given(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SongEntity.class)))
                 .willReturn(Mono.just(songEntityMock.withId(songEntityId)));
 
         final Mono<SongEntity> songEntityMono = songService.update(songEntityId, songEntityMock);
@@ -137,4 +551,298 @@ class SongServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void shouldUpdateOnlyChangedFieldsOfCachedSong() {
+        final EntityCacheConfig cacheConfig = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO);
+        final ISongService cachedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs", cacheConfig, new SimpleMeterRegistry()))
+                        .build());
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+        final SongEntity songEntityUpdate = songEntityMock.toBuilder().title("Updated title").build();
+        given(songRepository.findById(songEntityId)).willReturn(Mono.just(songEntityMock));
+        given(mongoOperations.findAndModify(any(Query.class), argThat((Update update) ->
+                update.getUpdateObject().get("$set", Document.class).keySet().equals(Collections.singleton("title"))
+                        && !update.getUpdateObject().containsKey("$unset")),
+                any(FindAndModifyOptions.class), eq(SongEntity.class)))
+                .willReturn(Mono.just(songEntityUpdate));
+
+        StepVerifier.create(cachedSongService.get(songEntityId)).expectNext(songEntityMock).verifyComplete();
+        StepVerifier.create(cachedSongService.update(songEntityId, songEntityUpdate))
+                .expectNext(songEntityUpdate)
+                .verifyComplete();
+        StepVerifier.create(cachedSongService.get(songEntityId)).expectNext(songEntityUpdate).verifyComplete();
+    }
+
+    @Test
+    void shouldRewriteAllFieldsWhenCachedSongIsStale() {
+        final EntityCacheConfig cacheConfig = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO);
+        final ISongService cachedSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder()
+                        .entityCache(new CaffeineEntityCache<>("songs", cacheConfig, new SimpleMeterRegistry()))
+                        .build());
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).withVersion(1L);
+        final SongEntity songEntityUpdate = songEntityMock.toBuilder().title("Updated title").build();
+        given(songRepository.findById(songEntityId)).willReturn(Mono.just(songEntityMock));
+        final List<Update> writes = new ArrayList<>();
+        given(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SongEntity.class)))
+                .willAnswer(invocation -> {
+                    final Query query = invocation.getArgument(0);
+                    writes.add(invocation.getArgument(1));
+                    return query.getQueryObject().containsKey("version")
+                            ? Mono.empty()
+                            : Mono.just(songEntityUpdate.withVersion(3L));
+                });
+
+        StepVerifier.create(cachedSongService.get(songEntityId)).expectNext(songEntityMock).verifyComplete();
+        StepVerifier.create(cachedSongService.update(songEntityId, songEntityUpdate))
+                .assertNext(updated -> assertThat(updated.getVersion(), is(3L)))
+                .verifyComplete();
+        assertAll(
+                "writes",
+                () -> assertThat(writes.size(), is(2)),
+                () -> assertThat(writes.get(0).getUpdateObject().get("$set", Document.class).keySet(),
+                        is(Collections.singleton("title"))),
+                () -> assertThat(writes.get(1).getUpdateObject().get("$set", Document.class).size(), is(7)),
+                () -> assertThat(writes.get(1).getUpdateObject().get("$unset", Document.class).keySet(),
+                        is(Collections.singleton("source"))),
+                () -> assertThat(writes.get(1).getUpdateObject().get("$inc", Document.class).get("version"), is(1))
+        );
+    }
+
+    @Test
+    void shouldRejectUpdateOfStaleVersion() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityUpdate = createSongEntity(songEntityId);
+        given(mongoOperations.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SongEntity.class)))
+                .willReturn(Mono.empty());
+        given(mongoOperations.exists(any(Query.class), eq(SongEntity.class))).willReturn(Mono.just(true));
+
+        StepVerifier.create(songService.update(songEntityId, songEntityUpdate, 2L))
+                .expectError(EntityVersionMismatchException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldDeleteSong() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId);
+        given(mongoOperations.findAndRemove(any(Query.class), eq(SongEntity.class)))
+                .willReturn(Mono.just(songEntityMock));
+
+        StepVerifier.create(songService.delete(songEntityId)).expectNext(songEntityMock).verifyComplete();
+    }
+
+    @Test
+    void shouldCreateSongsInChunksAndReportFailedItems() {
+        final ISongService bulkSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder().bulkConfig(new BulkConfig(2)).build());
+        final List<SongEntity> songEntities = Arrays.asList(
+                createSongEntity(DETACHED), createSongEntity(DETACHED), createSongEntity(DETACHED));
+        final BulkWriteResult chunkResult = BulkWriteResult.acknowledged(1, 0, 0, 0, Collections.emptyList());
+        final BulkWriteError duplicate = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn("songEntity");
+        given(mongoOperations.getCollection("songEntity")).willReturn(songCollection);
+        given(songCollection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .willReturn(Mono.error(new MongoBulkWriteException(
+                        chunkResult, Collections.singletonList(duplicate), null, new ServerAddress())))
+                .willReturn(Mono.just(chunkResult));
+
+        final Flux<BulkItemResult> results = bulkSongService.createAll(songEntities);
+
+        StepVerifier
+                .create(results)
+                .assertNext(result -> assertThat(result.getStatus(), is(BulkItemStatus.CREATED)))
+                .assertNext(result -> {
+                    assertAll(
+                            "failedItem",
+                            () -> assertThat(result.getIndex(), is(1)),
+                            () -> assertThat(result.getStatus(), is(BulkItemStatus.FAILED)),
+                            () -> assertThat(result.getMessage(), is("duplicate key"))
+                    );
+                })
+                .assertNext(result -> {
+                    assertAll(
+                            "secondChunkItem",
+                            () -> assertThat(result.getIndex(), is(2)),
+                            () -> assertThat(result.getId(), is(notNullValue())),
+                            () -> assertThat(result.getStatus(), is(BulkItemStatus.CREATED))
+                    );
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldDeleteSongsInBulkAndReportUnknownIds() {
+        final SongEntity songEntity = createSongEntity(RANDOM_UUID.get());
+        final String unknownId = RANDOM_UUID.get();
+        final Predicate<Query> idAndVersionOnly = query ->
+                query.getFieldsObject().keySet().equals(new HashSet<>(Arrays.asList("_id", "version")));
+        given(mongoOperations.find(argThat(idAndVersionOnly::test), eq(SongEntity.class)))
+                .willReturn(Flux.just(songEntity));
+        given(mongoOperations.remove(any(Query.class), eq(SongEntity.class))).willReturn(Mono.empty());
+
+        final Flux<BulkItemResult> results = songService.deleteAll(Arrays.asList(songEntity.getId(), unknownId));
+
+        StepVerifier
+                .create(results)
+                .assertNext(result -> assertThat(result.getStatus(), is(BulkItemStatus.DELETED)))
+                .assertNext(result -> {
+                    assertAll(
+                            "unknownItem",
+                            () -> assertThat(result.getId(), is(unknownId)),
+                            () -> assertThat(result.getStatus(), is(BulkItemStatus.NOT_FOUND))
+                    );
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldUpsertSongBySourceInSingleWrite() {
+        final String songEntityId = RANDOM_UUID.get();
+        final SongEntity songEntityMock = createSongEntity(songEntityId).toBuilder()
+                .source(SongSource.builder().sourceSystem("ccli").sourceId("7654321").build())
+                .build();
+        given(mongoOperations.findAndModify(
+                argThat((Query query) -> query.getQueryObject().toJson().contains("\"source.sourceId\": \"7654321\"")),
+                argThat((Update update) -> update.getUpdateObject().containsKey("$setOnInsert")),
+                argThat(FindAndModifyOptions::isUpsert),
+                eq(SongEntity.class)))
+                .willReturn(Mono.just(songEntityMock));
+
+        final Mono<SongEntity> songEntityMono =
+                songService.upsertBySource("ccli", "7654321", createSongEntity(DETACHED));
+
+        StepVerifier
+                .create(songEntityMono)
+                .assertNext(upserted -> {
+                    assertAll(
+                            "upsertedSong",
+                            () -> assertThat(upserted.getId(), is(songEntityId)),
+                            () -> assertThat(upserted.getSource(), is(songEntityMock.getSource()))
+                    );
+                })
+                .verifyComplete();
+        verify(songRepository, never()).findById(any(String.class));
+    }
+
+    @Test
+    void shouldUpsertSongsBySourceAndResolveReplacedIds() {
+        final SongEntity created = sourcedSongEntity("1");
+        final SongEntity replaced = sourcedSongEntity("2");
+        final String replacedId = RANDOM_UUID.get();
+        final BulkWriteResult chunkResult = BulkWriteResult.acknowledged(0, 1, 0, 1,
+                Collections.singletonList(new BulkWriteUpsert(0, new BsonString(RANDOM_UUID.get()))));
+        final Document replacedDocument = new Document("_id", replacedId)
+                .append("source", new Document("sourceSystem", "ccli").append("sourceId", "2"));
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn("songEntity");
+        given(mongoOperations.getCollection("songEntity")).willReturn(songCollection);
+        given(songCollection.bulkWrite(anyList(), any(BulkWriteOptions.class))).willReturn(Mono.just(chunkResult));
+        given(songCollection.find(any(Bson.class))).willReturn(songFindPublisher);
+        given(songFindPublisher.projection(any(Bson.class))).willReturn(songFindPublisher);
+        willAnswer(invocation -> {
+            Flux.just(replacedDocument).subscribe(invocation.<Subscriber<Document>>getArgument(0));
+            return null;
+        }).given(songFindPublisher).subscribe(any());
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class)))
+                .willReturn(Flux.just(replaced.toBuilder().id(replacedId).version(3L).build()));
+
+        final Flux<BulkItemResult> results = songService.upsertAllBySource(Arrays.asList(created, replaced));
+
+        StepVerifier
+                .create(results)
+                .assertNext(result -> {
+                    assertAll(
+                            "createdItem",
+                            () -> assertThat(result.getIndex(), is(0)),
+                            () -> assertThat(result.getId(), is(notNullValue())),
+                            () -> assertThat(result.getStatus(), is(BulkItemStatus.CREATED))
+                    );
+                })
+                .assertNext(result -> {
+                    assertAll(
+                            "replacedItem",
+                            () -> assertThat(result.getIndex(), is(1)),
+                            () -> assertThat(result.getId(), is(replacedId)),
+                            () -> assertThat(result.getStatus(), is(BulkItemStatus.UPDATED))
+                    );
+                })
+                .verifyComplete();
+        verify(songCollection, times(1)).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void shouldPublishUpsertedSongsWithPersistedVersion() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        final SongEntity persistedSong = song.withVersion(2L);
+        final BulkWriteResult chunkResult = BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.emptyList());
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn("songEntity");
+        given(mongoOperations.getCollection("songEntity")).willReturn(songCollection);
+        given(songCollection.bulkWrite(anyList(), any(BulkWriteOptions.class))).willReturn(Mono.just(chunkResult));
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(Flux.just(persistedSong));
+
+        StepVerifier
+                .create(songService.upsertAll(Collections.singletonList(song)))
+                .assertNext(result -> assertThat(result.getStatus(), is(BulkItemStatus.UPDATED)))
+                .verifyComplete();
+        verify(eventDispatcher, times(1)).dispatch(eq(SongEntity.class), any(), eq(persistedSong));
+    }
+
+    private static SongEntity sourcedSongEntity(final String sourceId) {
+        return createSongEntity(DETACHED).toBuilder()
+                .source(SongSource.builder().sourceSystem("ccli").sourceId(sourceId).build())
+                .build();
+    }
+
+    @Test
+    void shouldExportSongsAcrossRangesWithCheckpoints() {
+        final ISongService exportSongService = new SongService(eventDispatcher, mongoOperations, songRepository,
+                CrudServiceOptions.<SongEntity>builder().bulkConfig(new BulkConfig(500, 2, 100, 2, 10000)).build());
+        given(mongoOperations.find(argThat((Query query) -> exportBound(query, "$lt") != null), eq(SongEntity.class)))
+                .willReturn(Flux.just(createSongEntity("10"), createSongEntity("20"), createSongEntity("30")));
+        given(mongoOperations.find(argThat((Query query) -> exportBound(query, "$gte") != null), eq(SongEntity.class)))
+                .willReturn(Flux.just(createSongEntity("90")));
+
+        final List<ExportChunk<SongEntity>> chunks = exportSongService.export(null).collectList().block();
+
+        assertThat(chunks.size(), is(2));
+        assertThat(chunks.stream().mapToInt(chunk -> chunk.getEntities().size()).sum(), is(4));
+        final ExportCheckpoint checkpoint =
+                ExportCheckpoint.decode(SongEntity.class, chunks.get(1).getCheckpoint());
+        assertAll(
+                "exportCheckpoint",
+                () -> assertThat(checkpoint.getRanges().size(), is(2)),
+                () -> assertThat(checkpoint.getRanges().get(0).getTo(), is("80")),
+                () -> assertThat(checkpoint.getRanges().get(0).getAfter(), is("30")),
+                () -> assertThat(checkpoint.getRanges().get(1).getFrom(), is("80")),
+                () -> assertThat(checkpoint.getRanges().get(1).getAfter(), is("90"))
+        );
+    }
+
+    @Test
+    void shouldResumeExportAfterCheckpoint() {
+        final String checkpoint = new ExportCheckpoint(Collections.singletonList(
+                new ExportCheckpoint.Range(null, "30", null))).encode();
+        given(mongoOperations.find(argThat((Query query) -> "30".equals(exportBound(query, "$gt"))),
+                eq(SongEntity.class)))
+                .willReturn(Flux.just(createSongEntity("40")));
+
+        StepVerifier
+                .create(songService.export(checkpoint))
+                .assertNext(chunk -> assertThat(chunk.getEntities().get(0).getId(), is("40")))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectInvalidExportCheckpoint() {
+        assertThrows(InvalidExportCheckpointException.class, () -> songService.export("not-a-checkpoint"));
+    }
+
+    private static Object exportBound(final Query query, final String operator) {
+        final Object idCriteria = query != null ? query.getQueryObject().get("_id") : null;
+        return idCriteria instanceof Document ? ((Document) idCriteria).get(operator) : null;
+    }
+
 }
@@ -0,0 +1,130 @@
+package io.jrb.labs.common.crud;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class CoalescingEntityLoaderTest {
+
+    private VirtualTimeScheduler scheduler;
+    private SimpleMeterRegistry meterRegistry;
+    private List<List<String>> queries;
+
+    @BeforeEach
+    void init() {
+        scheduler = VirtualTimeScheduler.create();
+        meterRegistry = new SimpleMeterRegistry();
+        queries = new ArrayList<>();
+    }
+
+    @Test
+    void shouldShareLookupsOfSameIdAndBatchDistinctIds() {
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get());
+        final String missingId = RANDOM_UUID.get();
+        final GetCoalescingConfig config = new GetCoalescingConfig(true, Duration.ofMillis(2), 100);
+        final CoalescingEntityLoader<SongEntity> loader = loader(config, ids -> Flux.just(song1, song2));
+
+        final List<Mono<SongEntity>> lookups = Stream.of(song1.getId(), song2.getId(), song1.getId(), missingId)
+                .map(id -> loader.load(id).cache())
+                .collect(Collectors.toList());
+        lookups.forEach(Mono::subscribe);
+        assertThat(queries.isEmpty(), is(true));
+
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+
+        StepVerifier.create(lookups.get(0)).expectNext(song1).verifyComplete();
+        StepVerifier.create(lookups.get(1)).expectNext(song2).verifyComplete();
+        StepVerifier.create(lookups.get(2)).expectNext(song1).verifyComplete();
+        StepVerifier.create(lookups.get(3)).verifyComplete();
+        final DistributionSummary batchSize = meterRegistry.get(CoalescingEntityLoader.GET_BATCH_SIZE).summary();
+        assertAll(
+                () -> assertThat(queries, is(Collections.singletonList(
+                        Arrays.asList(song1.getId(), song2.getId(), missingId)))),
+                () -> assertThat(meterRegistry.get(CoalescingEntityLoader.GET_REQUESTS).counter().count(), is(4.0)),
+                () -> assertThat(meterRegistry.get(CoalescingEntityLoader.GET_COALESCED).counter().count(), is(1.0)),
+                () -> assertThat(batchSize.count(), is(1L)),
+                () -> assertThat(batchSize.totalAmount(), is(3.0)),
+                () -> assertThat(meterRegistry.get(CoalescingEntityLoader.GET_BATCH_WAIT).timer().count(), is(3L))
+        );
+    }
+
+    @Test
+    void shouldSendFullBatchBeforeWindowElapses() {
+        final SongEntity song1 = createSongEntity(RANDOM_UUID.get());
+        final SongEntity song2 = createSongEntity(RANDOM_UUID.get());
+        final CoalescingEntityLoader<SongEntity> loader = loader(new GetCoalescingConfig(true, Duration.ofHours(1), 2),
+                ids -> Flux.just(song1, song2));
+
+        loader.load(song1.getId()).subscribe();
+
+        StepVerifier.create(loader.load(song2.getId())).expectNext(song2).verifyComplete();
+        assertThat(queries, is(Collections.singletonList(Arrays.asList(song1.getId(), song2.getId()))));
+    }
+
+    @Test
+    void shouldStartNewLookupOnceCompleted() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+        final CoalescingEntityLoader<SongEntity> loader = loader(new GetCoalescingConfig(true, Duration.ZERO, 100),
+                ids -> Flux.just(song));
+
+        StepVerifier.create(loader.load(song.getId())).expectNext(song).verifyComplete();
+        StepVerifier.create(loader.load(song.getId())).expectNext(song).verifyComplete();
+
+        assertThat(queries.size(), is(2));
+    }
+
+    @Test
+    void shouldFailEveryLookupOfFailedQuery() {
+        final String songId1 = RANDOM_UUID.get();
+        final String songId2 = RANDOM_UUID.get();
+        final IllegalStateException failure = new IllegalStateException("query failed");
+        final GetCoalescingConfig config = new GetCoalescingConfig(true, Duration.ofMillis(2), 100);
+        final CoalescingEntityLoader<SongEntity> loader = loader(config, ids -> Flux.error(failure));
+
+        final Mono<SongEntity> lookup1 = loader.load(songId1).cache();
+        final Mono<SongEntity> lookup2 = loader.load(songId2).cache();
+        lookup1.subscribe(song -> { }, t -> { });
+        lookup2.subscribe(song -> { }, t -> { });
+        scheduler.advanceTimeBy(Duration.ofMillis(2));
+
+        StepVerifier.create(lookup1).verifyErrorMatches(t -> t == failure);
+        StepVerifier.create(lookup2).verifyErrorMatches(t -> t == failure);
+    }
+
+    private CoalescingEntityLoader<SongEntity> loader(
+            final GetCoalescingConfig config,
+            final Function<Collection<String>, Flux<SongEntity>> store
+    ) {
+        return new CoalescingEntityLoader<>(config, ids -> {
+            queries.add(new ArrayList<>(ids));
+            final Map<String, Boolean> requested = ids.stream().collect(Collectors.toMap(id -> id, id -> true));
+            return store.apply(ids).filter(song -> requested.containsKey(song.getId()));
+        }, new CrudMetrics(meterRegistry, "Song", SongEntity.class), scheduler);
+    }
+
+}
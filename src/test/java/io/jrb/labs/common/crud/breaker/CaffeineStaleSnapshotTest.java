@@ -0,0 +1,55 @@
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class CaffeineStaleSnapshotTest {
+
+    private CaffeineStaleSnapshot<SongEntity> staleSnapshot;
+    private SongEntity song1;
+    private SongEntity song2;
+
+    @BeforeEach
+    void init() {
+        staleSnapshot = new CaffeineStaleSnapshot<>("Song", 10, new SimpleMeterRegistry());
+        song1 = createSongEntity(RANDOM_UUID.get());
+        song2 = createSongEntity(RANDOM_UUID.get());
+        StepVerifier.create(staleSnapshot.recordAll(Flux.just(song1, song2))).expectNextCount(2).verifyComplete();
+    }
+
+    @Test
+    void shouldKeepInvalidatedEntitiesItAlreadyHolds() {
+        staleSnapshot.invalidate(song1.getId());
+
+        assertThat(staleSnapshot.all().map(HashSet::new), is(Optional.of(new HashSet<>(Arrays.asList(song1, song2)))));
+    }
+
+    @Test
+    void shouldStopListingAllEntitiesOnceAnUnknownOneIsInvalidated() {
+        staleSnapshot.invalidate(RANDOM_UUID.get());
+
+        assertThat(staleSnapshot.all(), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldNoLongerListRemovedEntities() {
+        staleSnapshot.remove(song1.getId());
+
+        assertThat(staleSnapshot.all(), is(Optional.of(Collections.singletonList(song2))));
+    }
+
+}
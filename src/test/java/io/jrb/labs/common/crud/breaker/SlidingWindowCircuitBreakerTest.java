@@ -0,0 +1,137 @@
+package io.jrb.labs.common.crud.breaker;
+
+import io.jrb.labs.common.crud.Entity;
+import io.jrb.labs.common.crud.UnknownEntityException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static io.jrb.labs.common.crud.breaker.SlidingWindowCircuitBreaker.REJECTED_COUNTER;
+import static io.jrb.labs.common.crud.breaker.SlidingWindowCircuitBreaker.STATE_GAUGE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class SlidingWindowCircuitBreakerTest {
+
+    private static final CircuitBreakerConfig CONFIG =
+            new CircuitBreakerConfig(true, Duration.ofSeconds(1), 0.5, 10, 4, Duration.ofSeconds(10), 2, 100);
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong clock;
+    private SlidingWindowCircuitBreaker breaker;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+        breaker = new SlidingWindowCircuitBreaker("Song", CONFIG, meterRegistry, clock::get);
+    }
+
+    @Test
+    void shouldOpenOnceFailureRateReachesThresholdAndFailFast() {
+        succeed(2);
+        fail(1);
+        assertThat(breaker.state(), is(CircuitState.CLOSED));
+
+        fail(1);
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        final AtomicBoolean subscribed = new AtomicBoolean();
+
+        StepVerifier.create(Mono.fromCallable(() -> subscribed.getAndSet(true)).transform(breaker.guarded()))
+                .verifyErrorSatisfies(t -> assertThat(
+                        ((CircuitOpenException) t).getRetryAfter(), is(Duration.ofSeconds(6))));
+        assertAll(
+                () -> assertThat(breaker.state(), is(CircuitState.OPEN)),
+                () -> assertThat(subscribed.get(), is(false)),
+                () -> assertThat(meterRegistry.get(STATE_GAUGE).gauge().value(), is(2.0)),
+                () -> assertThat(meterRegistry.get(REJECTED_COUNTER).counter().count(), is(1.0))
+        );
+    }
+
+    @Test
+    void shouldNotCountBusinessErrorsAsFailures() {
+        IntStream.range(0, 10).forEach(i -> StepVerifier
+                .create(Mono.error(new UnknownEntityException(Entity.class, "id")).transform(breaker.guarded()))
+                .verifyError(UnknownEntityException.class));
+
+        assertAll(
+                () -> assertThat(breaker.state(), is(CircuitState.CLOSED)),
+                () -> assertThat(breaker.failureRate(), is(0.0))
+        );
+    }
+
+    @Test
+    void shouldCountTimeoutsAsFailures() {
+        IntStream.range(0, 4).forEach(i -> StepVerifier
+                .withVirtualTime(() -> Flux.never().transform(breaker.guardedMany()))
+                .expectSubscription()
+                .thenAwait(CONFIG.timeout())
+                .verifyError(TimeoutException.class));
+
+        assertThat(breaker.state(), is(CircuitState.OPEN));
+    }
+
+    @Test
+    void shouldCloseOnceTrialCallsSucceed() {
+        fail(4);
+        clock.addAndGet(CONFIG.openDuration().toNanos());
+
+        succeed(1);
+        assertThat(breaker.state(), is(CircuitState.HALF_OPEN));
+        succeed(1);
+
+        assertAll(
+                () -> assertThat(breaker.state(), is(CircuitState.CLOSED)),
+                () -> assertThat(breaker.failureRate(), is(0.0))
+        );
+    }
+
+    @Test
+    void shouldReopenWhenTrialCallFails() {
+        fail(4);
+        clock.addAndGet(CONFIG.openDuration().toNanos());
+
+        fail(1);
+
+        assertThat(breaker.state(), is(CircuitState.OPEN));
+        StepVerifier.create(Mono.just("rejected").transform(breaker.guarded()))
+                .verifyError(CircuitOpenException.class);
+    }
+
+    @Test
+    void shouldLimitTrialCallsWhileHalfOpen() {
+        fail(4);
+        clock.addAndGet(CONFIG.openDuration().toNanos());
+        Mono.never().transform(breaker.guarded()).subscribe();
+        Mono.never().transform(breaker.guarded()).subscribe();
+
+        StepVerifier.create(Mono.just("rejected").transform(breaker.guarded()))
+                .verifyErrorSatisfies(t -> assertThat(
+                        ((CircuitOpenException) t).getRetryAfter(), is(CONFIG.timeout())));
+        assertThat(breaker.state(), is(CircuitState.HALF_OPEN));
+    }
+
+    private void succeed(final int count) {
+        IntStream.range(0, count).forEach(i -> StepVerifier.create(Mono.just("ok").transform(breaker.guarded()))
+                .expectNext("ok")
+                .verifyComplete());
+    }
+
+    private void fail(final int count) {
+        IntStream.range(0, count).forEach(i -> StepVerifier
+                .create(Mono.error(new DataAccessResourceFailureException("down")).transform(breaker.guarded()))
+                .verifyError(DataAccessResourceFailureException.class));
+    }
+
+}
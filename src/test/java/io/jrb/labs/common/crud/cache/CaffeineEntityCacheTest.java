@@ -0,0 +1,80 @@
+package io.jrb.labs.common.crud.cache;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class CaffeineEntityCacheTest {
+
+    private CaffeineEntityCache<SongEntity> entityCache;
+    private CompletableFuture<SongEntity> refreshed;
+    private Function<String, Mono<SongEntity>> loader;
+
+    @BeforeEach
+    void setup() {
+        // every entry is older than the refresh interval, so that each hit starts a refresh
+        final EntityCacheConfig config = new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ofNanos(1));
+        entityCache = new CaffeineEntityCache<>("songs", config, new SimpleMeterRegistry());
+        refreshed = new CompletableFuture<>();
+        loader = id -> Mono.fromFuture(refreshed);
+    }
+
+    @Test
+    void shouldReplaceStaleEntryWithRefreshedEntity() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(song);
+
+        StepVerifier.create(entityCache.get(song.getId(), loader)).expectNext(song).verifyComplete();
+        refreshed.complete(song.withVersion(2L));
+
+        assertThat(entityCache.getIfPresent(song.getId()), is(Optional.of(song.withVersion(2L))));
+    }
+
+    @Test
+    void shouldDropStaleEntryOfEntityNoLongerFound() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(song);
+
+        StepVerifier.create(entityCache.get(song.getId(), id -> Mono.empty())).expectNext(song).verifyComplete();
+
+        assertThat(entityCache.getIfPresent(song.getId()), is(Optional.empty()));
+    }
+
+    @Test
+    void shouldKeepUpdateWrittenWhileRefreshing() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(song);
+
+        StepVerifier.create(entityCache.get(song.getId(), loader)).expectNext(song).verifyComplete();
+        entityCache.put(song.withVersion(2L));
+        refreshed.complete(song);
+
+        assertThat(entityCache.getIfPresent(song.getId()), is(Optional.of(song.withVersion(2L))));
+    }
+
+    @Test
+    void shouldNotRestoreEntityDeletedWhileRefreshing() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(song);
+
+        StepVerifier.create(entityCache.get(song.getId(), loader)).expectNext(song).verifyComplete();
+        entityCache.invalidate(song.getId());
+        refreshed.complete(song);
+
+        assertThat(entityCache.getIfPresent(song.getId()), is(Optional.empty()));
+    }
+
+}
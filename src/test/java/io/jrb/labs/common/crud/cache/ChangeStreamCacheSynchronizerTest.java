@@ -0,0 +1,188 @@
+package io.jrb.labs.common.crud.cache;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.metrics.CrudMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.crud.cache.ChangeStreamCacheSynchronizer.INVALIDATIONS_COUNTER;
+import static io.jrb.labs.common.crud.cache.ChangeStreamCacheSynchronizer.LAG_TIMER;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeStreamCacheSynchronizerTest {
+
+    private static final String COLLECTION = "songs";
+    private static final String TOKEN_KEY = "node-1:" + COLLECTION;
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private ResumeTokenStore tokenStore;
+
+    private MappingMongoConverter converter;
+    private SimpleMeterRegistry meterRegistry;
+    private EntityCache<SongEntity> entityCache;
+
+    @BeforeEach
+    void init() {
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        meterRegistry = new SimpleMeterRegistry();
+        entityCache = new CaffeineEntityCache<>("songs",
+                new EntityCacheConfig(true, 10, Duration.ofMinutes(1), Duration.ZERO), meterRegistry);
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn(COLLECTION);
+        lenient().when(mongoOperations.getConverter()).thenReturn(converter);
+        lenient().when(tokenStore.save(eq(TOKEN_KEY), any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void shouldDropChangedSongsUnlessCacheHoldsTheirVersion() {
+        final SongEntity ownSong = createSongEntity(RANDOM_UUID.get()).withVersion(2L);
+        final SongEntity otherSong = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(ownSong);
+        entityCache.put(otherSong);
+        final ChangeStreamEvent<Document> lastChange = change(OperationType.DELETE, RANDOM_UUID.get(), null, null);
+        given(tokenStore.load(TOKEN_KEY)).willReturn(Mono.empty());
+        given(mongoOperations.changeStream(eq(COLLECTION), any(ChangeStreamOptions.class), eq(Document.class)))
+                .willReturn(Flux.concat(Flux.just(
+                        change(OperationType.UPDATE, ownSong.getId(), null, 2L),
+                        change(OperationType.UPDATE, otherSong.getId(), null, 2L),
+                        lastChange
+                ), Flux.never()));
+
+        StepVerifier.withVirtualTime(() -> synchronizer(false).synchronize())
+                .thenAwait(Duration.ofSeconds(1))
+                .thenCancel()
+                .verify();
+
+        assertAll(
+                () -> assertThat(entityCache.getIfPresent(ownSong.getId()), is(Optional.of(ownSong))),
+                () -> assertThat(entityCache.getIfPresent(otherSong.getId()), is(Optional.empty())),
+                () -> assertThat(meterRegistry.get(INVALIDATIONS_COUNTER).counter().count(), is(2.0)),
+                () -> assertThat(meterRegistry.get(LAG_TIMER).timer().count(), is(3L))
+        );
+        verify(tokenStore, times(1)).save(TOKEN_KEY, lastChange.getResumeToken());
+    }
+
+    @Test
+    void shouldRefreshCachedSongFromSavedResumeToken() {
+        final BsonDocument savedToken = new BsonDocument("_data", new BsonString("saved"));
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        final SongEntity replacedSong = song.toBuilder().title("Replaced").version(2L).build();
+        final Document replacedDocument = new Document();
+        converter.write(replacedSong, replacedDocument);
+        entityCache.put(song);
+        given(tokenStore.load(TOKEN_KEY)).willReturn(Mono.just(savedToken));
+        given(mongoOperations.changeStream(eq(COLLECTION), any(ChangeStreamOptions.class), eq(Document.class)))
+                .willReturn(Flux.concat(Flux.just(change(OperationType.REPLACE, song.getId(), replacedDocument, null)),
+                        Flux.never()));
+        final ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+
+        StepVerifier.withVirtualTime(() -> synchronizer(true).synchronize())
+                .thenAwait(Duration.ofSeconds(1))
+                .thenCancel()
+                .verify();
+
+        verify(mongoOperations).changeStream(eq(COLLECTION), options.capture(), eq(Document.class));
+        assertAll(
+                () -> assertThat(options.getValue().getResumeToken(), is(Optional.of(savedToken))),
+                () -> assertThat(options.getValue().getFullDocumentLookup(),
+                        is(Optional.of(FullDocument.UPDATE_LOOKUP))),
+                () -> assertThat(entityCache.getIfPresent(song.getId()).map(SongEntity::getTitle),
+                        is(Optional.of("Replaced")))
+        );
+    }
+
+    @Test
+    void shouldDropCacheAndWatchFromNowWhenStreamCannotResume() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        entityCache.put(song);
+        given(tokenStore.load(TOKEN_KEY))
+                .willReturn(Mono.just(new BsonDocument("_data", new BsonString("expired"))));
+        given(mongoOperations.changeStream(eq(COLLECTION), any(ChangeStreamOptions.class), eq(Document.class)))
+                .willReturn(Flux.error(new MongoCommandException(new BsonDocument("code", new BsonInt32(286))
+                        .append("errmsg", new BsonString("Resume point no longer in the oplog")), new ServerAddress())))
+                .willReturn(Flux.never());
+        final ArgumentCaptor<ChangeStreamOptions> options = ArgumentCaptor.forClass(ChangeStreamOptions.class);
+
+        StepVerifier.withVirtualTime(() -> synchronizer(false).synchronize())
+                .thenAwait(ChangeStreamConfig.DEFAULT.retryDelay())
+                .thenCancel()
+                .verify();
+
+        verify(mongoOperations, times(2)).changeStream(eq(COLLECTION), options.capture(), eq(Document.class));
+        final List<ChangeStreamOptions> opened = options.getAllValues();
+        assertAll(
+                () -> assertThat(entityCache.getIfPresent(song.getId()), is(Optional.empty())),
+                () -> assertThat(opened.get(1).getResumeToken(), is(Optional.empty()))
+        );
+    }
+
+    private ChangeStreamCacheSynchronizer<SongEntity> synchronizer(final boolean refresh) {
+        final ChangeStreamConfig config = new ChangeStreamConfig(true, refresh, "node-1", "resumeTokens",
+                Duration.ofSeconds(1), Duration.ofSeconds(5));
+        return new ChangeStreamCacheSynchronizer<>(config, mongoOperations, SongEntity.class, entityCache, tokenStore,
+                new CrudMetrics(meterRegistry, "Song", SongEntity.class));
+    }
+
+    private ChangeStreamEvent<Document> change(
+            final OperationType operation,
+            final String id,
+            final Document fullDocument,
+            final Long updatedVersion
+    ) {
+        final UpdateDescription updateDescription = updatedVersion != null
+                ? new UpdateDescription(Collections.emptyList(),
+                        new BsonDocument("version", new BsonInt64(updatedVersion)))
+                : null;
+        final ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(operation,
+                new BsonDocument("_data", new BsonString(RANDOM_UUID.get())), null, null, fullDocument,
+                new BsonDocument("_id", new BsonString(id)),
+                new BsonTimestamp((int) (System.currentTimeMillis() / 1000), 1), updateDescription, null, null);
+        return new ChangeStreamEvent<>(raw, Document.class, converter);
+    }
+
+}
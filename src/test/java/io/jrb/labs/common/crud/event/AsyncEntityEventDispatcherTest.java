@@ -0,0 +1,159 @@
+package io.jrb.labs.common.crud.event;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AsyncEntityEventDispatcherTest {
+
+    private AnnotationConfigApplicationContext context;
+    private AsyncEntityEventDispatcher dispatcher;
+    private UpdateListener listener;
+
+    @BeforeEach
+    void init() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(UpdateListener.class);
+        context.refresh();
+        listener = context.getBean(UpdateListener.class);
+        dispatcher = new AsyncEntityEventDispatcher(
+                context,
+                new EventDispatcherConfig(true, 100, 10, Duration.ofHours(1), true, false)
+        );
+        dispatcher.onApplicationEvent(new ContextRefreshedEvent(context));
+    }
+
+    @AfterEach
+    void destroy() {
+        dispatcher.destroy();
+        context.close();
+    }
+
+    @Test
+    void shouldSkipEventsWithoutListeners() {
+        final AtomicInteger created = new AtomicInteger();
+        final EntityEventSupplier<SongEntity> getEventSupplier = EntityEventSupplier.of(GetEntityEvent.class, e -> {
+            created.incrementAndGet();
+            return new GetEntityEvent<>(e);
+        });
+
+        dispatcher.dispatch(SongEntity.class, getEventSupplier, createSongEntity(RANDOM_UUID.get()));
+        dispatcher.drain();
+
+        assertAll("skippedEvents",
+                () -> assertEquals(0, created.get()),
+                () -> assertEquals(0, listener.updates.size())
+        );
+    }
+
+    @Test
+    void shouldCoalesceEventsPerEntity() {
+        final String songId = RANDOM_UUID.get();
+        final SongEntity update1 = createSongEntity(songId);
+        final SongEntity update2 = createSongEntity(songId);
+        final SongEntity otherUpdate = createSongEntity(RANDOM_UUID.get());
+        final EntityEventSupplier<SongEntity> updateEventSupplier =
+                EntityEventSupplier.of(UpdateEntityEvent.class, UpdateEntityEvent::new);
+
+        dispatcher.dispatch(SongEntity.class, updateEventSupplier, update1);
+        dispatcher.dispatch(SongEntity.class, updateEventSupplier, otherUpdate);
+        dispatcher.dispatch(SongEntity.class, updateEventSupplier, update2);
+        assertEquals(0, listener.updates.size());
+
+        dispatcher.drain();
+
+        assertAll("coalescedEvents",
+                () -> assertEquals(2, listener.updates.size()),
+                () -> assertSame(otherUpdate, listener.updates.get(0)),
+                () -> assertSame(update2, listener.updates.get(1)),
+                () -> assertEquals(1, listener.batches.get())
+        );
+    }
+
+    @Test
+    void shouldKeepOverflowingEventsInOrderCoalescedPerEntity() {
+        final SongEntity songA = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songB = createSongEntity(RANDOM_UUID.get());
+        final SongEntity songC = createSongEntity(RANDOM_UUID.get());
+        final SongEntity lastUpdateA = createSongEntity(songA.getId());
+        final AsyncEntityEventDispatcher smallDispatcher = smallDispatcher(false);
+
+        update(smallDispatcher, songA, songB, createSongEntity(songA.getId()), songC, lastUpdateA);
+        smallDispatcher.drain();
+        smallDispatcher.destroy();
+
+        assertAll("overflowedEvents",
+                () -> assertEquals(4, listener.updates.size()),
+                () -> assertSame(songA, listener.updates.get(0)),
+                () -> assertSame(songB, listener.updates.get(1)),
+                () -> assertSame(songC, listener.updates.get(2)),
+                () -> assertSame(lastUpdateA, listener.updates.get(3)),
+                () -> assertEquals(0, smallDispatcher.droppedEvents())
+        );
+    }
+
+    @Test
+    void shouldDropOverflowingEventsWhenOptedIn() {
+        final AsyncEntityEventDispatcher smallDispatcher = smallDispatcher(true);
+
+        update(smallDispatcher, createSongEntity(RANDOM_UUID.get()), createSongEntity(RANDOM_UUID.get()),
+                createSongEntity(RANDOM_UUID.get()));
+        smallDispatcher.drain();
+        smallDispatcher.destroy();
+
+        assertAll("droppedEvents",
+                () -> assertEquals(2, listener.updates.size()),
+                () -> assertEquals(1, smallDispatcher.droppedEvents())
+        );
+    }
+
+    private AsyncEntityEventDispatcher smallDispatcher(final boolean dropOnOverflow) {
+        final AsyncEntityEventDispatcher smallDispatcher = new AsyncEntityEventDispatcher(
+                context,
+                new EventDispatcherConfig(true, 2, 10, Duration.ofHours(1), true, dropOnOverflow)
+        );
+        smallDispatcher.onApplicationEvent(new ContextRefreshedEvent(context));
+        return smallDispatcher;
+    }
+
+    private static void update(final AsyncEntityEventDispatcher dispatcher, final SongEntity... songs) {
+        final EntityEventSupplier<SongEntity> updateEventSupplier =
+                EntityEventSupplier.of(UpdateEntityEvent.class, UpdateEntityEvent::new);
+        for (final SongEntity song : songs) {
+            dispatcher.dispatch(SongEntity.class, updateEventSupplier, song);
+        }
+    }
+
+    static class UpdateListener {
+
+        private final List<SongEntity> updates = new ArrayList<>();
+        private final AtomicInteger batches = new AtomicInteger();
+
+        @EventListener
+        public void onUpdate(final UpdateEntityEvent<SongEntity> event) {
+            updates.add(event.getEntity());
+        }
+
+        @EventListener
+        public void onBatch(final CrudServiceEventBatch batch) {
+            batches.incrementAndGet();
+        }
+
+    }
+
+}
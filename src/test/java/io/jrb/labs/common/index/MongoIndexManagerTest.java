@@ -0,0 +1,143 @@
+package io.jrb.labs.common.index;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class MongoIndexManagerTest {
+
+    private static final String COLLECTION = "songEntity";
+
+    private static final Index TITLE_INDEX = new Index().named("title").on("title", Sort.Direction.ASC);
+    private static final Index SOURCE_INDEX = new Index().named("source")
+            .on("source.sourceSystem", Sort.Direction.ASC)
+            .on("source.sourceId", Sort.Direction.ASC);
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private ReactiveIndexOperations indexOperations;
+
+    @Mock
+    private MongoClient mongoClient;
+
+    private IndexRegistry indexRegistry;
+
+    private MongoIndexManager indexManager;
+
+    @BeforeEach
+    void setup() {
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn(COLLECTION);
+        indexRegistry = new IndexRegistry();
+        indexManager = new MongoIndexManager(mongoOperations, mongoClient,
+                Collections.singletonList(EntityIndexes.of(SongEntity.class, TITLE_INDEX, SOURCE_INDEX)),
+                indexRegistry);
+    }
+
+    @Test
+    void shouldReportDeclaredIndexesAsPendingBeforeBuilding() {
+        StepVerifier.create(indexManager.statuses())
+                .assertNext(statuses -> assertAll(
+                        () -> assertThat(statuses.size(), is(2)),
+                        () -> assertThat(statuses.get(0).getName(), is("title")),
+                        () -> assertThat(statuses.get(0).getState(), is(IndexBuildState.PENDING)),
+                        () -> assertThat(statuses.get(1).getName(), is("source")),
+                        () -> assertThat(statuses.get(1).getState(), is(IndexBuildState.PENDING))
+                ))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldBuildOnlyMissingIndexes() {
+        given(mongoOperations.indexOps(SongEntity.class)).willReturn(indexOperations);
+        given(indexOperations.getIndexInfo()).willReturn(Flux.just(
+                new IndexInfo(Collections.singletonList(IndexField.create("title", Sort.Direction.ASC)),
+                        "title", false, false, null)));
+        given(indexOperations.ensureIndex(SOURCE_INDEX)).willReturn(Mono.just("source"));
+
+        StepVerifier.create(indexManager.buildIndexes())
+                .expectNext(1L)
+                .verifyComplete();
+
+        verify(indexOperations, never()).ensureIndex(TITLE_INDEX);
+        verify(indexOperations, times(1)).ensureIndex(SOURCE_INDEX);
+        StepVerifier.create(indexManager.statuses())
+                .assertNext(statuses -> assertAll(
+                        () -> assertThat(statuses.get(0).getState(), is(IndexBuildState.READY)),
+                        () -> assertThat(statuses.get(1).getState(), is(IndexBuildState.READY))
+                ))
+                .verifyComplete();
+        assertAll(
+                () -> assertThat(indexRegistry.covers(COLLECTION, Collections.singleton("title")), is(true)),
+                () -> assertThat(indexRegistry.covers(COLLECTION, Collections.singleton("source.sourceSystem")), is(true)),
+                () -> assertThat(indexRegistry.covers(COLLECTION, Collections.singleton("source.sourceId")), is(false))
+        );
+    }
+
+    @Test
+    void shouldReportFailedBuildsAndCarryOn() {
+        given(mongoOperations.indexOps(SongEntity.class)).willReturn(indexOperations);
+        given(indexOperations.getIndexInfo()).willReturn(Flux.error(new IllegalStateException("ns does not exist")));
+        given(indexOperations.ensureIndex(TITLE_INDEX)).willReturn(Mono.error(new IllegalStateException("duplicate key")));
+        given(indexOperations.ensureIndex(SOURCE_INDEX)).willReturn(Mono.just("source"));
+
+        StepVerifier.create(indexManager.buildIndexes())
+                .expectNext(1L)
+                .verifyComplete();
+
+        StepVerifier.create(indexManager.statuses())
+                .assertNext(statuses -> assertAll(
+                        () -> assertThat(statuses.get(0).getState(), is(IndexBuildState.FAILED)),
+                        () -> assertThat(statuses.get(0).getMessage(), is("duplicate key")),
+                        () -> assertThat(statuses.get(1).getState(), is(IndexBuildState.READY))
+                ))
+                .verifyComplete();
+        verify(indexOperations, times(2)).ensureIndex(any());
+    }
+
+    @Test
+    void shouldRejectUnnamedIndexes() {
+        assertThrows(IllegalArgumentException.class, () ->
+                EntityIndexes.of(SongEntity.class, new Index().on("title", Sort.Direction.ASC)));
+    }
+
+    @Test
+    void shouldTreatUnmanagedCollectionsAndIdLookupsAsCovered() {
+        indexRegistry.register(COLLECTION, Collections.singletonList("title"));
+
+        assertAll(
+                () -> assertThat(indexRegistry.covers("other", Collections.singleton("anything")), is(true)),
+                () -> assertThat(indexRegistry.covers(COLLECTION, Arrays.asList("_id", "type")), is(true)),
+                () -> assertThat(indexRegistry.covers(COLLECTION, Collections.singleton("type")), is(false))
+        );
+    }
+
+}
@@ -0,0 +1,63 @@
+package io.jrb.labs.common.rest;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityTagUtilsTest {
+
+    @Test
+    void shouldTagEachRepresentationApart() {
+        final SongEntity song = createSongEntity("song-1").withVersion(3L);
+
+        assertAll("entityTags",
+                () -> assertEquals(Optional.of("\"3\""),
+                        EntityTagUtils.entityTag(song, MediaType.APPLICATION_JSON, false)),
+                () -> assertEquals(Optional.of("\"3-gzip\""),
+                        EntityTagUtils.entityTag(song, MediaType.APPLICATION_JSON, true)),
+                () -> assertEquals(Optional.of("\"3-cbor\""),
+                        EntityTagUtils.entityTag(song, MediaType.APPLICATION_CBOR, false)),
+                () -> assertEquals(Optional.of("\"3-smile\""),
+                        EntityTagUtils.entityTag(song, MediaTypeUtils.APPLICATION_SMILE, false)),
+                () -> assertEquals(Optional.empty(),
+                        EntityTagUtils.entityTag(song.withVersion(null), MediaType.APPLICATION_JSON, false))
+        );
+    }
+
+    @Test
+    void shouldMatchIfNoneMatchWeakly() {
+        assertAll("ifNoneMatch",
+                () -> assertTrue(EntityTagUtils.matchesAny(Collections.singletonList("W/\"3-cbor\""), "\"3-cbor\"")),
+                () -> assertTrue(EntityTagUtils.matchesAny(Arrays.asList("\"2\"", "*"), "\"3\"")),
+                () -> assertFalse(EntityTagUtils.matchesAny(Collections.singletonList("\"3\""), "\"3-gzip\""))
+        );
+    }
+
+    @Test
+    void shouldRequireVersionOfAnyRepresentation() {
+        assertAll("ifMatch",
+                () -> assertEquals(Optional.of(3L), EntityTagUtils.requiredVersion(Collections.singletonList("\"3\""))),
+                () -> assertEquals(Optional.of(3L),
+                        EntityTagUtils.requiredVersion(Collections.singletonList("\"3-smile\""))),
+                () -> assertEquals(Optional.of(3L),
+                        EntityTagUtils.requiredVersion(Collections.singletonList("\"3-gzip\""))),
+                () -> assertEquals(Optional.empty(), EntityTagUtils.requiredVersion(Collections.singletonList("*"))),
+                () -> assertThrows(InvalidRequestException.class,
+                        () -> EntityTagUtils.requiredVersion(Collections.singletonList("\"3-xml\""))),
+                () -> assertThrows(InvalidRequestException.class,
+                        () -> EntityTagUtils.requiredVersion(Collections.singletonList("W/\"3\"")))
+        );
+    }
+
+}
@@ -0,0 +1,170 @@
+package io.jrb.labs.common.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jrb.labs.bldr.msvc.module.song.model.Song;
+import io.jrb.labs.bldr.msvc.module.song.model.SongType;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPatchCompilerTest {
+
+    private ObjectMapper objectMapper;
+    private JsonPatchCompiler compiler;
+
+    @BeforeEach
+    void init() {
+        objectMapper = new ObjectMapper();
+        compiler = new JsonPatchCompiler(objectMapper, Song.class);
+    }
+
+    @Test
+    void shouldCompileFieldAndMapOperations() throws Exception {
+        final Optional<CompiledPatch> compiled = compiler.compile(patch("["
+                + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"},"
+                + "{\"op\":\"replace\",\"path\":\"/type\",\"value\":\"NORMAL\"},"
+                + "{\"op\":\"add\",\"path\":\"/themes/-\",\"value\":\"grace\"},"
+                + "{\"op\":\"add\",\"path\":\"/lyrics/v1\",\"value\":[\"line 1\",\"line 2\"]},"
+                + "{\"op\":\"add\",\"path\":\"/lyrics/c1/-\",\"value\":\"chorus\"},"
+                + "{\"op\":\"remove\",\"path\":\"/authors\"}"
+                + "]"));
+
+        assertTrue(compiled.isPresent());
+        final Document updateObject = compiled.get().getUpdate().getUpdateObject();
+        final Document set = updateObject.get("$set", Document.class);
+        final Document push = updateObject.get("$push", Document.class);
+        assertAll("update",
+                () -> assertEquals("Amazing Grace", set.get("title")),
+                () -> assertEquals(SongType.NORMAL, set.get("type")),
+                () -> assertEquals(Arrays.asList("line 1", "line 2"), set.get("lyrics.v1")),
+                () -> assertEquals("grace", push.get("themes")),
+                () -> assertEquals("chorus", push.get("lyrics.c1")),
+                () -> assertEquals(Collections.singleton("authors"),
+                        updateObject.get("$unset", Document.class).keySet()),
+                () -> assertEquals(Arrays.asList(
+                        new Document("themes", new Document("$ne", null)),
+                        new Document("lyrics", new Document("$ne", null)),
+                        new Document("lyrics.c1", new Document("$ne", null))
+                ), conditions(compiled.get()))
+        );
+    }
+
+    @Test
+    void shouldRequireReplacedAndRemovedMapEntriesToExist() throws Exception {
+        final Optional<CompiledPatch> compiled = compiler.compile(patch("["
+                + "{\"op\":\"replace\",\"path\":\"/lyrics/v1\",\"value\":[\"line\"]},"
+                + "{\"op\":\"remove\",\"path\":\"/lyrics/v2\"}"
+                + "]"));
+
+        assertTrue(compiled.isPresent());
+        assertEquals(Arrays.asList(
+                new Document("lyrics.v1", new Document("$exists", true)),
+                new Document("lyrics.v2", new Document("$exists", true))
+        ), conditions(compiled.get()));
+    }
+
+    @Test
+    void shouldRequireParentOfAddedMapEntryToHoldValue() throws Exception {
+        final Optional<CompiledPatch> compiled =
+                compiler.compile(patch("[{\"op\":\"add\",\"path\":\"/lyrics/v1\",\"value\":[\"line\"]}]"));
+
+        assertTrue(compiled.isPresent());
+        assertEquals(Collections.singletonList(new Document("lyrics", new Document("$ne", null))),
+                conditions(compiled.get()));
+    }
+
+    @Test
+    void shouldRequireListToHoldValueBeforeAppending() throws Exception {
+        final Optional<CompiledPatch> toList =
+                compiler.compile(patch("[{\"op\":\"add\",\"path\":\"/themes/-\",\"value\":\"grace\"}]"));
+        final Optional<CompiledPatch> toMapEntry =
+                compiler.compile(patch("[{\"op\":\"add\",\"path\":\"/lyrics/v1/-\",\"value\":\"line\"}]"));
+
+        assertAll("appends",
+                () -> assertEquals(Collections.singletonList(new Document("themes", new Document("$ne", null))),
+                        conditions(toList.get())),
+                () -> assertEquals(Collections.singletonList(new Document("lyrics.v1", new Document("$ne", null))),
+                        conditions(toMapEntry.get()))
+        );
+    }
+
+    @Test
+    void shouldRequireTopLevelPropertiesToExistOnlyWhenNullsAreOmitted() throws Exception {
+        final ObjectMapper nonNullMapper = new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        final JsonPatchCompiler nonNullCompiler = new JsonPatchCompiler(nonNullMapper, Song.class);
+        final JsonNode patch = patch("["
+                + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"},"
+                + "{\"op\":\"remove\",\"path\":\"/authors\"},"
+                + "{\"op\":\"add\",\"path\":\"/themes\",\"value\":[]}"
+                + "]");
+
+        assertAll("topLevel",
+                () -> assertEquals(Collections.emptyList(), conditions(compiler.compile(patch).get())),
+                () -> assertEquals(Arrays.asList(
+                        new Document("title", new Document("$exists", true)),
+                        new Document("authors", new Document("$exists", true))
+                ), conditions(nonNullCompiler.compile(patch).get()))
+        );
+    }
+
+    @Test
+    void shouldNotCompileUntranslatableOperations() throws Exception {
+        assertAll("fallbacks",
+                () -> assertFalse(compiler.compile(patch("[{\"op\":\"move\",\"from\":\"/title\",\"path\":\"/themes/-\"}]")).isPresent()),
+                () -> assertFalse(compiler.compile(patch("[{\"op\":\"remove\",\"path\":\"/themes/0\"}]")).isPresent()),
+                () -> assertFalse(compiler.compile(patch("[{\"op\":\"replace\",\"path\":\"/id\",\"value\":\"x\"}]")).isPresent()),
+                () -> assertFalse(compiler.compile(patch("[{\"op\":\"add\",\"path\":\"/unknown\",\"value\":\"x\"}]")).isPresent()),
+                () -> assertFalse(compiler.compile(patch("[{\"op\":\"add\",\"path\":\"/lyrics/v.1\",\"value\":[]}]")).isPresent()),
+                () -> assertFalse(compiler.compile(patch("["
+                        + "{\"op\":\"add\",\"path\":\"/lyrics/v1\",\"value\":[]},"
+                        + "{\"op\":\"add\",\"path\":\"/lyrics/v1/-\",\"value\":\"line\"}"
+                        + "]")).isPresent())
+        );
+    }
+
+    @Test
+    void shouldRejectValuesOfTheWrongType() throws Exception {
+        final JsonNode patch = patch("[{\"op\":\"replace\",\"path\":\"/type\",\"value\":\"POLKA\"}]");
+
+        assertThrows(InvalidRequestException.class, () -> compiler.compile(patch));
+    }
+
+    @Test
+    void shouldNotCompileOperationsOnCompressedProperties() throws Exception {
+        final JsonPatchCompiler compressedCompiler =
+                new JsonPatchCompiler(objectMapper, Song.class, Collections.singleton("lyrics"));
+
+        assertAll(
+                () -> assertTrue(compressedCompiler.compile(patch(
+                        "[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Amazing Grace\"}]")).isPresent()),
+                () -> assertFalse(compressedCompiler.compile(patch(
+                        "[{\"op\":\"add\",\"path\":\"/lyrics/v1\",\"value\":[\"line\"]}]")).isPresent()),
+                () -> assertFalse(compressedCompiler.compile(patch(
+                        "[{\"op\":\"replace\",\"path\":\"/lyrics\",\"value\":{}}]")).isPresent())
+        );
+    }
+
+    private JsonNode patch(final String json) throws Exception {
+        return objectMapper.readTree(json);
+    }
+
+    private List<Document> conditions(final CompiledPatch compiled) {
+        return compiled.getConditions().stream().map(Criteria::getCriteriaObject).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,33 @@
+package io.jrb.labs.common.rest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MediaTypeUtilsTest {
+
+    @Test
+    void shouldDefaultToJson() {
+        assertEquals(MediaType.APPLICATION_JSON, MediaTypeUtils.negotiateDto(Collections.emptyList()));
+        assertEquals(MediaType.APPLICATION_JSON, MediaTypeUtils.negotiateDto(MediaType.parseMediaTypes("*/*")));
+        assertEquals(MediaType.APPLICATION_JSON, MediaTypeUtils.negotiateDto(MediaType.parseMediaTypes("text/html")));
+    }
+
+    @Test
+    void shouldPreferHighestQuality() {
+        assertEquals(MediaType.APPLICATION_CBOR,
+                MediaTypeUtils.negotiateDto(MediaType.parseMediaTypes("application/json;q=0.5, application/cbor")));
+        assertEquals(MediaTypeUtils.APPLICATION_SMILE,
+                MediaTypeUtils.negotiateDto(MediaType.parseMediaTypes("application/x-jackson-smile, */*;q=0.1")));
+    }
+
+    @Test
+    void shouldSkipRefusedMediaTypes() {
+        assertEquals(MediaType.APPLICATION_CBOR,
+                MediaTypeUtils.negotiateDto(MediaType.parseMediaTypes("application/json;q=0, application/*;q=0.5")));
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.jrb.labs.common.rest.cache;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import io.jrb.labs.common.crud.event.DeleteEntityEvent;
+import io.jrb.labs.common.crud.event.UpdateEntityEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaffeineResponseBodyCacheTest {
+
+    private static final long GZIP_MIN_SIZE = 16;
+
+    private CaffeineResponseBodyCache<SongEntity> cache;
+    private AtomicInteger encodings;
+    private Function<SongEntity, byte[]> encoder;
+
+    @BeforeEach
+    void setup() {
+        final ResponseBodyCacheConfig config = new ResponseBodyCacheConfig(
+                true, DataSize.ofMegabytes(1), Duration.ofMinutes(1), DataSize.ofBytes(GZIP_MIN_SIZE));
+        cache = new CaffeineResponseBodyCache<>("test-responses", SongEntity.class, config, new SimpleMeterRegistry());
+        encodings = new AtomicInteger();
+        encoder = song -> {
+            encodings.incrementAndGet();
+            return (song.getTitle() + ':' + song.getVersion()).getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    @Test
+    void shouldEncodeEachVersionOnce() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+
+        final EncodedBody first = cache.get(song, encoder).get();
+        final EncodedBody second = cache.get(song, encoder).get();
+        final EncodedBody updated = cache.get(song.withVersion(2L), encoder).get();
+
+        assertSame(first, second);
+        assertEquals(2L, updated.getVersion());
+        assertEquals(2, encodings.get());
+    }
+
+    @Test
+    void shouldNotCacheUnversionedEntity() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(null);
+
+        assertFalse(cache.get(song, encoder).isPresent());
+        assertEquals(0, encodings.get());
+    }
+
+    @Test
+    void shouldKeepNewerVersion() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+
+        cache.get(song.withVersion(2L), encoder);
+        cache.get(song.withVersion(1L), encoder);
+        cache.get(song.withVersion(2L), encoder);
+
+        assertEquals(2, encodings.get());
+    }
+
+    @Test
+    void shouldInvalidateOnUpdateAndDelete() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+
+        cache.get(song, encoder);
+        cache.onUpdate(new UpdateEntityEvent<>(song));
+        cache.get(song, encoder);
+        cache.onDelete(new DeleteEntityEvent<>(song));
+        cache.get(song, encoder);
+
+        assertEquals(3, encodings.get());
+    }
+
+    @Test
+    void shouldGzipBodiesFromThreshold() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get()).withVersion(1L);
+        final EncodedBody small = EncodedBody.encode(1L, new byte[(int) GZIP_MIN_SIZE - 1], GZIP_MIN_SIZE);
+        final EncodedBody large = cache.get(song.toBuilder().title(repeat('a', 1024)).build(), encoder).get();
+
+        assertFalse(small.gzip().isPresent());
+        assertTrue(large.gzip().isPresent());
+        assertTrue(large.gzip().get().remaining() < large.identity().remaining());
+        assertTrue(large.identity().isReadOnly());
+    }
+
+    private static String repeat(final char c, final int count) {
+        final char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.jrb.labs.common.rest.limit;
+
+import io.jrb.labs.common.crud.RoundTripMarker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.jrb.labs.common.rest.limit.GradientConcurrencyLimiter.IN_FLIGHT_GAUGE;
+import static io.jrb.labs.common.rest.limit.GradientConcurrencyLimiter.LIMIT_GAUGE;
+import static io.jrb.labs.common.rest.limit.GradientConcurrencyLimiter.REJECTED_COUNTER;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+class GradientConcurrencyLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicLong clock;
+
+    @BeforeEach
+    void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new AtomicLong();
+    }
+
+    @Test
+    void shouldShedOperationsBeyondLimit() {
+        final GradientConcurrencyLimiter limiter = limiter(new ConcurrencyLimitConfig(true, 2, 2, 2, 1.5, 0.2,
+                Duration.ofSeconds(3)));
+        final Disposable first = Mono.never().transform(limiter.limited()).subscribe();
+        Mono.never().transform(limiter.limited()).subscribe();
+
+        StepVerifier.create(Mono.just("shed").transform(limiter.limited()))
+                .verifyErrorSatisfies(t -> assertThat(
+                        ((ConcurrencyLimitExceededException) t).getRetryAfter(), is(Duration.ofSeconds(3))));
+        assertAll(
+                () -> assertThat(meterRegistry.get(IN_FLIGHT_GAUGE).gauge().value(), is(2.0)),
+                () -> assertThat(meterRegistry.get(REJECTED_COUNTER).counter().count(), is(1.0))
+        );
+
+        first.dispose();
+        StepVerifier.create(Mono.just("started").transform(limiter.limited())).expectNext("started").verifyComplete();
+    }
+
+    @Test
+    void shouldGrowLimitWhileLatencyIsStableAndShrinkItWhenLatencyRises() {
+        final GradientConcurrencyLimiter limiter = limiter(new ConcurrencyLimitConfig(true, 20, 4, 200, 1.5, 0.2,
+                Duration.ofSeconds(1)));
+
+        IntStream.range(0, 10).forEach(i -> runConcurrently(limiter, 15, Duration.ofMillis(10), true));
+        final int grownLimit = limiter.limit();
+        IntStream.range(0, 10).forEach(i -> runConcurrently(limiter, limiter.limit(), Duration.ofMillis(100), true));
+
+        assertAll(
+                () -> assertThat(grownLimit, greaterThan(20)),
+                () -> assertThat(limiter.limit(), lessThan(grownLimit)),
+                () -> assertThat(meterRegistry.get(LIMIT_GAUGE).gauge().value(),
+                        is((double) limiter.limit()))
+        );
+    }
+
+    @Test
+    void shouldOnlySampleOperationsThatWentToDatabase() {
+        final GradientConcurrencyLimiter limiter = limiter(new ConcurrencyLimitConfig(true, 20, 4, 200, 1.5, 0.2,
+                Duration.ofSeconds(1)));
+
+        IntStream.range(0, 10).forEach(i -> runConcurrently(limiter, 15, Duration.ofMillis(10), true));
+        final int grownLimit = limiter.limit();
+        IntStream.range(0, 10).forEach(i -> runConcurrently(limiter, limiter.limit(), Duration.ofMillis(100), false));
+
+        assertThat(limiter.limit(), is(grownLimit));
+    }
+
+    private void runConcurrently(
+            final GradientConcurrencyLimiter limiter,
+            final int count,
+            final Duration latency,
+            final boolean roundTrip
+    ) {
+        final List<MonoProcessor<String>> operations = IntStream.range(0, count)
+                .mapToObj(i -> MonoProcessor.<String>create())
+                .collect(Collectors.toList());
+        operations.forEach(operation -> operation
+                .flatMap(value -> roundTrip ? RoundTripMarker.mark().thenReturn(value) : Mono.just(value))
+                .transform(limiter.limited())
+                .subscribe());
+        clock.addAndGet(latency.toNanos());
+        operations.forEach(operation -> operation.onNext("done"));
+    }
+
+    private GradientConcurrencyLimiter limiter(final ConcurrencyLimitConfig config) {
+        return new GradientConcurrencyLimiter("Song", "get", config, meterRegistry, clock::get);
+    }
+
+}
@@ -0,0 +1,132 @@
+package io.jrb.labs.common.storage;
+
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressingMongoConverterTest {
+
+    private static final CompressionConfig ENABLED = new CompressionConfig(true, 6, true, 10, Duration.ZERO);
+
+    private MongoMappingContext mappingContext;
+    private MongoCustomConversions conversions;
+    private CompressingMongoConverter converter;
+
+    @BeforeEach
+    void setup() {
+        conversions = new MongoCustomConversions(Collections.singletonList(new CompressedMapReadingConverter()));
+        mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        converter = converter(CompressedFields.of(SongEntity.class, ENABLED, "lyrics"));
+    }
+
+    @Test
+    void shouldWriteLyricsAsCompressedBlock() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+
+        final Document document = write(converter, song);
+
+        assertAll(
+                () -> assertTrue(document.get("lyrics") instanceof Binary),
+                () -> assertTrue(CompressedBlockUtils.isCompressedBlock(document.get("lyrics", Binary.class))),
+                () -> assertEquals(song.getTitle(), document.getString("title")),
+                () -> assertEquals(Collections.singleton("lyrics"), converter.compressedProperties(SongEntity.class))
+        );
+    }
+
+    @Test
+    void shouldDecompressLyricsOnlyWhenAccessed() {
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+
+        final SongEntity read = converter.read(SongEntity.class, write(converter, song));
+        final LazyInflatedMap lyrics = (LazyInflatedMap) (Object) read.getLyrics();
+
+        assertFalse(lyrics.isInflated());
+        assertEquals(song.getTitle(), read.getTitle());
+        assertFalse(lyrics.isInflated());
+        assertEquals(song.getLyrics(), read.getLyrics());
+        assertTrue(lyrics.isInflated());
+        assertEquals(song, read);
+    }
+
+    @Test
+    void shouldWriteUnchangedLyricsBackAsTheSameBlock() {
+        final Document document = write(converter, createSongEntity(RANDOM_UUID.get()));
+
+        final SongEntity read = converter.read(SongEntity.class, document);
+        final Document rewritten = write(converter, read);
+
+        assertArrayEquals(document.get("lyrics", Binary.class).getData(),
+                rewritten.get("lyrics", Binary.class).getData());
+        assertFalse(((LazyInflatedMap) (Object) read.getLyrics()).isInflated());
+    }
+
+    @Test
+    void shouldReadAndWriteBothFormsWhenDisabled() {
+        final CompressedFields disabled = CompressedFields.of(SongEntity.class, CompressionConfig.DEFAULT, "lyrics");
+        final CompressingMongoConverter plainConverter = converter(disabled);
+        final SongEntity song = createSongEntity(RANDOM_UUID.get());
+
+        final Document plain = write(plainConverter, song);
+        final SongEntity decompressed = plainConverter.read(SongEntity.class, write(converter, song));
+
+        assertAll(
+                () -> assertTrue(plain.get("lyrics") instanceof Document),
+                () -> assertEquals(song, converter.read(SongEntity.class, plain)),
+                () -> assertEquals(song, decompressed),
+                () -> assertTrue(write(plainConverter, decompressed).get("lyrics") instanceof Document),
+                () -> assertTrue(plainConverter.compressedProperties(SongEntity.class).isEmpty())
+        );
+    }
+
+    @Test
+    void shouldRejectPropertiesThatAreNotMaps() {
+        assertThrows(IllegalArgumentException.class,
+                () -> converter(CompressedFields.of(SongEntity.class, ENABLED, "title")));
+    }
+
+    @Test
+    void shouldRejectCorruptedBlocks() {
+        final Binary block = CompressedBlockUtils.compress(createSongEntity().getLyrics(), 6);
+        final byte[] data = block.getData();
+        final Binary truncated = new Binary(block.getType(), Arrays.copyOf(data, data.length - 4));
+
+        assertThrows(IllegalArgumentException.class, () -> CompressedBlockUtils.decompress(truncated.getData()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompressedMapReadingConverter().convert(new Binary(data)));
+    }
+
+    private CompressingMongoConverter converter(final CompressedFields declaration) {
+        final CompressingMongoConverter mongoConverter = new CompressingMongoConverter(NoOpDbRefResolver.INSTANCE,
+                mappingContext, Collections.singletonList(declaration));
+        mongoConverter.setCustomConversions(conversions);
+        mongoConverter.afterPropertiesSet();
+        return mongoConverter;
+    }
+
+    private static Document write(final MappingMongoConverter mongoConverter, final SongEntity song) {
+        final Document document = new Document();
+        mongoConverter.write(song, document);
+        return document;
+    }
+
+}
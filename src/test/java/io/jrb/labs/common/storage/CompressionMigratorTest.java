@@ -0,0 +1,161 @@
+package io.jrb.labs.common.storage;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import io.jrb.labs.bldr.msvc.module.song.model.SongEntity;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static io.jrb.labs.bldr.msvc.module.song.SongTestUtils.createSongEntity;
+import static io.jrb.labs.common.test.TestUtils.RANDOM_UUID;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CompressionMigratorTest {
+
+    private static final String COLLECTION = "songEntity";
+    private static final CompressionConfig ENABLED = new CompressionConfig(true, 6, true, 2, Duration.ZERO);
+
+    @Mock
+    private ReactiveMongoOperations mongoOperations;
+
+    @Mock
+    private MongoCollection<Document> songCollection;
+
+    private CompressedFields declaration;
+
+    @BeforeEach
+    void setup() {
+        declaration = CompressedFields.of(SongEntity.class, ENABLED, "lyrics");
+        final MongoCustomConversions conversions =
+                new MongoCustomConversions(Collections.singletonList(new CompressedMapReadingConverter()));
+        final MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        final CompressingMongoConverter converter = new CompressingMongoConverter(NoOpDbRefResolver.INSTANCE,
+                mappingContext, Collections.singletonList(declaration));
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        given(mongoOperations.getCollectionName(SongEntity.class)).willReturn(COLLECTION);
+        lenient().when(mongoOperations.getConverter()).thenReturn(converter);
+    }
+
+    @Test
+    void shouldReportDeclaredCollectionsAsPendingBeforeMigrating() {
+        given(mongoOperations.count(any(Query.class), eq(COLLECTION)))
+                .willReturn(Mono.just(0L))
+                .willReturn(Mono.just(3L));
+        given(mongoOperations.executeCommand(any(Document.class)))
+                .willReturn(Mono.just(new Document("size", 4096).append("storageSize", 8192)));
+        final CompressionMigrator migrator = new CompressionMigrator(mongoOperations,
+                Collections.singletonList(declaration));
+
+        StepVerifier.create(migrator.statuses())
+                .assertNext(statuses -> assertAll(
+                        () -> assertThat(statuses.size(), is(1)),
+                        () -> assertThat(statuses.get(0).getCollection(), is(COLLECTION)),
+                        () -> assertThat(statuses.get(0).isCompressed(), is(true)),
+                        () -> assertThat(statuses.get(0).getState(), is(CompressionMigrationState.PENDING)),
+                        () -> assertThat(statuses.get(0).getCompressedDocuments(), is(0L)),
+                        () -> assertThat(statuses.get(0).getUncompressedDocuments(), is(3L)),
+                        () -> assertThat(statuses.get(0).getDataSize(), is(4096L))
+                ))
+                .verifyComplete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldCompressUncompressedDocumentsInBatches() {
+        final List<SongEntity> songs = Arrays.asList(
+                createSongEntity(RANDOM_UUID.get()).withVersion(1L),
+                createSongEntity(RANDOM_UUID.get()).withVersion(4L),
+                createSongEntity(RANDOM_UUID.get()).withVersion(2L));
+        given(mongoOperations.executeCommand(any(Document.class))).willReturn(Mono.empty());
+        given(mongoOperations.find(any(Query.class), eq(SongEntity.class))).willReturn(
+                Flux.fromIterable(songs.subList(0, 2)), Flux.just(songs.get(2)), Flux.empty());
+        given(mongoOperations.getCollection(COLLECTION)).willReturn(songCollection);
+        given(songCollection.bulkWrite(anyList(), any(BulkWriteOptions.class))).willReturn(
+                Mono.just(BulkWriteResult.acknowledged(0, 2, 0, 2, Collections.emptyList())),
+                Mono.just(BulkWriteResult.acknowledged(0, 1, 0, 1, Collections.emptyList())));
+        final CompressionMigrator migrator = new CompressionMigrator(mongoOperations,
+                Collections.singletonList(declaration));
+
+        StepVerifier.create(migrator.migrate())
+                .expectNext(3L)
+                .verifyComplete();
+
+        final ArgumentCaptor<List<WriteModel<Document>>> models = ArgumentCaptor.forClass(List.class);
+        verify(songCollection, times(2)).bulkWrite(models.capture(), any(BulkWriteOptions.class));
+        final UpdateOneModel<Document> model = (UpdateOneModel<Document>) models.getAllValues().get(0).get(1);
+        final CodecRegistry codecRegistry = MongoClientSettings.getDefaultCodecRegistry();
+        final BsonDocument filter = model.getFilter().toBsonDocument(Document.class, codecRegistry);
+        final BsonBinary lyrics = model.getUpdate().toBsonDocument(Document.class, codecRegistry)
+                .getDocument("$set").getBinary("lyrics");
+        assertAll(
+                () -> assertThat(models.getAllValues().get(0).size(), is(2)),
+                () -> assertThat(filter.getInt64("version").getValue(), is(4L)),
+                () -> assertTrue(CompressedBlockUtils.isCompressedBlock(new Binary(lyrics.getType(), lyrics.getData())))
+        );
+
+        given(mongoOperations.count(any(Query.class), eq(COLLECTION))).willReturn(Mono.just(3L), Mono.just(0L));
+        StepVerifier.create(migrator.statuses())
+                .assertNext(statuses -> assertAll(
+                        () -> assertThat(statuses.get(0).getState(), is(CompressionMigrationState.COMPLETED)),
+                        () -> assertThat(statuses.get(0).getMigratedDocuments(), is(3L)),
+                        () -> assertThat(statuses.get(0).getCompressedDocuments(), is(3L)),
+                        () -> assertThat(statuses.get(0).getUncompressedDocuments(), is(0L))
+                ))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldNotMigrateWhenDisabled() {
+        final CompressedFields unmigrated = CompressedFields.of(SongEntity.class,
+                new CompressionConfig(true, 6, false, 2, Duration.ZERO), "lyrics");
+        final CompressionMigrator migrator = new CompressionMigrator(mongoOperations,
+                Collections.singletonList(unmigrated));
+
+        StepVerifier.create(migrator.migrate())
+                .expectNext(0L)
+                .verifyComplete();
+
+        verify(mongoOperations, never()).find(any(Query.class), eq(SongEntity.class));
+    }
+
+}